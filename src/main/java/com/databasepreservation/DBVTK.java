@@ -18,6 +18,7 @@ import javax.sql.DataSource;
 import org.jasig.cas.client.session.SingleSignOutHttpSessionListener;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.boot.jdbc.DataSourceBuilder;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.boot.web.servlet.ServletRegistrationBean;
@@ -35,6 +36,7 @@ import com.databasepreservation.common.client.ViewerConstants;
 import com.databasepreservation.common.filter.OnOffFilter;
 import com.databasepreservation.common.server.BrowserServiceImpl;
 import com.databasepreservation.common.server.ViewerConfiguration;
+import com.databasepreservation.common.server.controller.SIARDController;
 
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
@@ -98,6 +100,12 @@ public class DBVTK {
     };
   }
 
+  @Bean
+  public ApplicationListener<ApplicationReadyEvent> markInterruptedIngests() {
+    // ingests interrupted by a restart become resumable (or failed)
+    return event -> SIARDController.markInterruptedIngests();
+  }
+
   @Bean
   public RequestContextFilter requestContextFilter() {
     OrderedRequestContextFilter filter = new OrderedRequestContextFilter();
@@ -10,6 +10,7 @@ package com.databasepreservation.common.api.utils;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 
 import org.apache.commons.io.IOUtils;
@@ -43,6 +44,34 @@ public class DownloadUtils {
     };
   }
 
+  /**
+   * Streams a file, opened only when the response is written. The servlet
+   * output stream has no channel to transfer the file to, so its contents are
+   * copied through a buffer, as with {@link #stream(InputStream)}.
+   */
+  public static ConsumesOutputStream stream(final Path path) {
+    return new ConsumesOutputStream() {
+      @Override
+      public void consumeOutputStream(OutputStream output) throws IOException {
+        try {
+          Files.copy(path, output);
+        } finally {
+          IOUtils.closeQuietly(output);
+        }
+      }
+
+      @Override
+      public String getFileName() {
+        return null;
+      }
+
+      @Override
+      public String getMediaType() {
+        return null;
+      }
+    };
+  }
+
   public static StreamResponse getReportResourceStreamResponse(final Path filepath, InputStream inputStream)
     throws IOException, NotFoundException {
     StreamResponse streamResponse = null;
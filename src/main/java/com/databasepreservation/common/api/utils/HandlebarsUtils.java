@@ -84,11 +84,7 @@ public class HandlebarsUtils {
               if (columnConfig.getType().equals(ViewerType.dbTypes.BINARY)) {
                 values.add(LobManagerUtils.getDefaultFilename(row.getUuid()));
               } else {
-                if (columnConfig.getType().equals(ViewerType.dbTypes.NUMERIC_FLOATING_POINT)) {
-                  values.add(new BigDecimal(row.getCells().get(solrColumnName).getValue()).toPlainString());
-                } else {
-                  values.add(row.getCells().get(solrColumnName).getValue());
-                }
+                values.add(getExportValue(columnConfig, row.getCells().get(solrColumnName).getValue()));
               }
             }
           }
@@ -116,6 +112,17 @@ public class HandlebarsUtils {
     }
   }
 
+  /**
+   * @return the value of a cell as exported without a template, e.g. the
+   *         floating point numbers without exponent
+   */
+  public static String getExportValue(ColumnStatus columnConfig, String value) {
+    if (ViewerType.dbTypes.NUMERIC_FLOATING_POINT.equals(columnConfig.getType())) {
+      return new BigDecimal(value).toPlainString();
+    }
+    return value;
+  }
+
   public static String applyExportTemplate(ViewerRow row, TableStatus tableConfiguration, int columnIndex) {
     Map<String, String> map = cellsToObject(row.getCells(), tableConfiguration, row.getUuid());
     final String template = tableConfiguration.getColumnByIndex(columnIndex).getExportStatus().getTemplateStatus()
@@ -23,10 +23,9 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
@@ -43,6 +42,8 @@ import org.roda.core.data.exceptions.NotFoundException;
 import org.roda.core.data.exceptions.RequestNotValidException;
 import org.roda.core.data.utils.JsonUtils;
 import org.roda.core.data.v2.index.sublist.Sublist;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.batch.core.BatchStatus;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.JobExecution;
@@ -64,6 +65,7 @@ import com.databasepreservation.common.api.utils.DownloadUtils;
 import com.databasepreservation.common.api.utils.HandlebarsUtils;
 import com.databasepreservation.common.api.utils.StreamResponse;
 import com.databasepreservation.common.api.utils.ViewerStreamingOutput;
+import com.databasepreservation.common.api.v1.utils.ExportStreamCSVOutputStream;
 import com.databasepreservation.common.api.v1.utils.IterableIndexResultsCSVOutputStream;
 import com.databasepreservation.common.api.v1.utils.ResultsCSVOutputStream;
 import com.databasepreservation.common.api.v1.utils.ZipOutputStreamMultiRow;
@@ -74,6 +76,7 @@ import com.databasepreservation.common.client.common.search.SearchInfo;
 import com.databasepreservation.common.client.exceptions.AuthorizationException;
 import com.databasepreservation.common.client.exceptions.RESTException;
 import com.databasepreservation.common.client.exceptions.SavedSearchException;
+import com.databasepreservation.common.client.index.CursorIndexResult;
 import com.databasepreservation.common.client.index.FindRequest;
 import com.databasepreservation.common.client.index.IndexResult;
 import com.databasepreservation.common.client.index.filter.Filter;
@@ -97,13 +100,17 @@ import com.databasepreservation.common.server.ViewerConfiguration;
 import com.databasepreservation.common.server.ViewerFactory;
 import com.databasepreservation.common.server.controller.JobController;
 import com.databasepreservation.common.server.controller.ReporterType;
-import com.databasepreservation.common.server.controller.SIARDController;
 import com.databasepreservation.common.server.index.DatabaseRowsSolrManager;
 import com.databasepreservation.common.server.index.factory.SolrClientFactory;
 import com.databasepreservation.common.server.index.schema.SolrDefaultCollectionRegistry;
 import com.databasepreservation.common.server.index.utils.IterableIndexResult;
 import com.databasepreservation.common.server.index.utils.JsonTransformer;
+import com.databasepreservation.common.server.index.utils.QueryGroupTracker;
+import com.databasepreservation.common.server.index.utils.RowsExportStream;
+import com.databasepreservation.common.server.index.utils.RowsProjection;
 import com.databasepreservation.common.server.index.utils.SolrUtils;
+import com.databasepreservation.common.server.jobs.IngestJobScheduler;
+import com.databasepreservation.common.server.storage.SIARDArchive;
 import com.databasepreservation.common.utils.ControllerAssistant;
 import com.databasepreservation.common.utils.LobManagerUtils;
 import com.databasepreservation.common.utils.UserUtility;
@@ -117,6 +124,8 @@ import io.swagger.annotations.ApiParam;
 @Service
 @Path(ViewerConstants.ENDPOINT_DATABASE)
 public class CollectionResource implements CollectionService {
+  private static final Logger LOGGER = LoggerFactory.getLogger(CollectionResource.class);
+
   @Context
   private HttpServletRequest request;
 
@@ -124,6 +133,9 @@ public class CollectionResource implements CollectionService {
   @Qualifier("denormalizeJob")
   Job job;
 
+  @Autowired
+  IngestJobScheduler ingestJobScheduler;
+
   @Autowired
   @Qualifier("customJobLauncher")
   JobLauncher jobLauncher;
@@ -169,31 +181,50 @@ public class CollectionResource implements CollectionService {
     }
   }
 
-  @Override
-  public String createCollection(String databaseUUID) {
-    ControllerAssistant controllerAssistant = new ControllerAssistant() {};
-
-    LogEntryState state = LogEntryState.SUCCESS;
-    User user;
-    // Checks if property ui.plugin.loadOnAccess is enable. If so, let the
-    // authenticated user
-    // creates a collection for that SIARD. If the user is a guest it will throw an
-    // AuthorizationException
+  /**
+   * Checks if property ui.plugin.loadOnAccess is enable. If so, let the
+   * authenticated user create a collection for that SIARD. If the user is a
+   * guest it will throw an AuthorizationException
+   */
+  private User checkLoadOnAccessRoles(ControllerAssistant controllerAssistant) {
     final boolean loadOnAccess = ViewerFactory.getViewerConfiguration().getViewerConfigurationAsBoolean(false,
       ViewerConstants.PROPERTY_PLUGIN_LOAD_ON_ACCESS);
     if (loadOnAccess) {
-      user = UserUtility.getUser(request);
+      User user = UserUtility.getUser(request);
       if (user.isGuest()) {
         controllerAssistant.registerAction(UserUtility.getGuest(request), LogEntryState.UNAUTHORIZED);
         throw new AuthorizationException("The user '" + user.getId() + "' does not have all needed permissions");
       }
+      return user;
     } else {
-      user = controllerAssistant.checkRoles(request);
+      return controllerAssistant.checkRoles(request);
     }
+  }
+
+  private static void checkSIARDToIngest(String databaseUUID) throws GenericException, NotFoundException {
+    final ViewerDatabase database = ViewerFactory.getSolrManager().retrieve(ViewerDatabase.class, databaseUUID);
+    if (database.getPath() == null || database.getPath().isEmpty()) {
+      throw new GenericException("The database " + databaseUUID + " has no SIARD file to ingest");
+    }
+  }
+
+  @Override
+  public String createCollection(String databaseUUID, Integer priority, List<String> tableUUIDs) {
+    ControllerAssistant controllerAssistant = new ControllerAssistant() {};
+
+    LogEntryState state = LogEntryState.SUCCESS;
+    User user = checkLoadOnAccessRoles(controllerAssistant);
 
     try {
-      final ViewerDatabase database = ViewerFactory.getSolrManager().retrieve(ViewerDatabase.class, databaseUUID);
-      return SIARDController.loadFromLocal(database.getPath(), databaseUUID);
+      checkSIARDToIngest(databaseUUID);
+      // in the per table mode, the tables not requested are ingested on access
+      final boolean perTable = ViewerFactory.getViewerConfiguration().getViewerConfigurationAsBoolean(false,
+        ViewerConstants.PROPERTY_PLUGIN_LOAD_ON_ACCESS_PER_TABLE);
+      if (perTable || (tableUUIDs != null && !tableUUIDs.isEmpty())) {
+        return ingestJobScheduler.submitTables(databaseUUID,
+          tableUUIDs == null ? Collections.emptyList() : tableUUIDs, priority == null ? 0 : priority);
+      }
+      return ingestJobScheduler.submit(databaseUUID, priority == null ? 0 : priority);
     } catch (GenericException | NotFoundException e) {
       state = LogEntryState.FAILURE;
       throw new RESTException(e);
@@ -203,6 +234,68 @@ public class CollectionResource implements CollectionService {
     }
   }
 
+  @Override
+  public String ingestTable(String databaseUUID, String collectionUUID, String tableUUID) {
+    ControllerAssistant controllerAssistant = new ControllerAssistant() {};
+
+    LogEntryState state = LogEntryState.SUCCESS;
+    User user = checkLoadOnAccessRoles(controllerAssistant);
+
+    try {
+      checkSIARDToIngest(databaseUUID);
+      final CollectionStatus collectionStatus = ViewerFactory.getConfigurationManager()
+        .getConfigurationCollection(databaseUUID, collectionUUID);
+      final TableStatus tableStatus = collectionStatus.getTableStatus(tableUUID);
+      if (tableStatus == null) {
+        throw new NotFoundException("The table " + tableUUID + " does not exist");
+      }
+      if (tableStatus.isSearchable()) {
+        throw new GenericException("The table " + tableUUID + " is already ingested");
+      }
+      return ingestJobScheduler.submitTables(databaseUUID, Collections.singletonList(tableUUID), 0);
+    } catch (GenericException | NotFoundException e) {
+      state = LogEntryState.FAILURE;
+      throw new RESTException(e);
+    } finally {
+      // register action
+      controllerAssistant.registerAction(user, databaseUUID, state, ViewerConstants.CONTROLLER_DATABASE_ID_PARAM,
+        databaseUUID, ViewerConstants.CONTROLLER_TABLE_ID_PARAM, tableUUID);
+    }
+  }
+
+  @Override
+  public Boolean computeStatistics(String databaseUUID, String collectionUUID) {
+    ControllerAssistant controllerAssistant = new ControllerAssistant() {};
+
+    LogEntryState state = LogEntryState.SUCCESS;
+    User user = controllerAssistant.checkRoles(request);
+
+    try {
+      ingestJobScheduler.submitStatistics(databaseUUID);
+      return true;
+    } finally {
+      // register action
+      controllerAssistant.registerAction(user, databaseUUID, state, ViewerConstants.CONTROLLER_DATABASE_ID_PARAM,
+        databaseUUID);
+    }
+  }
+
+  @Override
+  public Boolean cancelCollectionCreation(String databaseUUID) {
+    ControllerAssistant controllerAssistant = new ControllerAssistant() {};
+
+    LogEntryState state = LogEntryState.SUCCESS;
+    User user = controllerAssistant.checkRoles(request);
+
+    try {
+      return ingestJobScheduler.cancel(databaseUUID);
+    } finally {
+      // register action
+      controllerAssistant.registerAction(user, databaseUUID, state, ViewerConstants.CONTROLLER_DATABASE_ID_PARAM,
+        databaseUUID);
+    }
+  }
+
   @Override
   public ProgressData getProgressData(String databaseUUID) {
     ControllerAssistant controllerAssistant = new ControllerAssistant() {};
@@ -233,6 +326,7 @@ public class CollectionResource implements CollectionService {
           savedSearchFilter);
 
         ViewerFactory.getSolrManager().markDatabaseCollection(databaseUUID, ViewerDatabaseStatus.METADATA_ONLY);
+        ViewerFactory.getConfigurationManager().deleteIngestCheckpoint(databaseUUID);
         return true;
       }
     } catch (GenericException | RequestNotValidException e) {
@@ -436,10 +530,16 @@ public class CollectionResource implements CollectionService {
 
     long count = 0;
 
-    try {
-      final IndexResult<ViewerRow> viewerRowIndexResult = ViewerFactory.getSolrManager().findRows(databaseUUID,
-        findRequest.filter, findRequest.sorter, findRequest.sublist, findRequest.facets, findRequest.fieldsToReturn,
-        findRequest.extraParameters);
+    try (QueryGroupTracker.Ticket ticket = QueryGroupTracker.begin(getRequestGroupOwner(findRequest.requestGroup),
+      findRequest.requestGroup)) {
+      final IndexResult<ViewerRow> found = ViewerFactory.getSolrManager().findRows(databaseUUID, findRequest.filter,
+        findRequest.sorter, findRequest.sublist, findRequest.facets,
+        getFieldsToReturn(databaseUUID, schema, table, findRequest), findRequest.extraParameters);
+      // the found rows may be shared with other requests
+      final IndexResult<ViewerRow> viewerRowIndexResult = new IndexResult<>(found.getOffset(), found.getLimit(),
+        found.getTotalCount(), RowsProjection.truncate(found.getResults(), getMaxValueLength(findRequest)),
+        found.getFacetResults());
+      viewerRowIndexResult.setPartialResults(found.isPartialResults());
       count = viewerRowIndexResult.getTotalCount();
       return viewerRowIndexResult;
     } catch (GenericException | RequestNotValidException e) {
@@ -454,6 +554,83 @@ public class CollectionResource implements CollectionService {
     }
   }
 
+  @Override
+  public CursorIndexResult<ViewerRow> findRowsByCursor(String databaseUUID, String collectionUUID, String schema,
+    String table, FindRequest findRequest, String cursor, String localeString) {
+    ControllerAssistant controllerAssistant = new ControllerAssistant() {};
+
+    LogEntryState state = LogEntryState.SUCCESS;
+    User user = controllerAssistant.checkRoles(request);
+
+    long count = 0;
+
+    try (QueryGroupTracker.Ticket ticket = QueryGroupTracker.begin(getRequestGroupOwner(findRequest.requestGroup),
+      findRequest.requestGroup)) {
+      final CursorIndexResult<ViewerRow> viewerRowIndexResult = ViewerFactory.getSolrManager().findRowsWithCursor(
+        databaseUUID, findRequest.filter, findRequest.sorter, findRequest.sublist,
+        getFieldsToReturn(databaseUUID, schema, table, findRequest), findRequest.extraParameters, cursor);
+      viewerRowIndexResult.setResults(
+        RowsProjection.truncate(viewerRowIndexResult.getResults(), getMaxValueLength(findRequest)));
+      count = viewerRowIndexResult.getTotalCount();
+      return viewerRowIndexResult;
+    } catch (GenericException | RequestNotValidException e) {
+      state = LogEntryState.FAILURE;
+      throw new RESTException(e);
+    } finally {
+      // register action
+      controllerAssistant.registerAction(user, databaseUUID, state, ViewerConstants.CONTROLLER_DATABASE_ID_PARAM,
+        databaseUUID, ViewerConstants.CONTROLLER_FILTER_PARAM, JsonUtils.getJsonFromObject(findRequest.filter),
+        ViewerConstants.CONTROLLER_SUBLIST_PARAM, JsonUtils.getJsonFromObject(findRequest.sublist),
+        ViewerConstants.CONTROLLER_RETRIEVE_COUNT, count);
+    }
+  }
+
+  /**
+   * @return the fields requested or, if none were by a rows list, the fields of
+   *         the columns shown in the rows list of the table
+   */
+  private List<String> getFieldsToReturn(String databaseUUID, String schema, String table, FindRequest findRequest) {
+    if (!findRequest.listView || (findRequest.fieldsToReturn != null && !findRequest.fieldsToReturn.isEmpty())) {
+      return findRequest.fieldsToReturn;
+    }
+    return RowsProjection.getFieldsToReturn(databaseUUID, schema + "." + table);
+  }
+
+  /**
+   * @return the maximum length of the values returned, or 0 if they are not
+   *         truncated, as only the values of the rows lists are
+   */
+  private static int getMaxValueLength(FindRequest findRequest) {
+    return findRequest.listView ? RowsProjection.getMaxValueLength() : 0;
+  }
+
+  /**
+   * @return the owner of the request group of the client, its HTTP session, so
+   *         that a client can only cancel its own queries, or null if the
+   *         request has no group, so that no session is created for it
+   */
+  private String getRequestGroupOwner(String requestGroup) {
+    return requestGroup != null && !requestGroup.isEmpty() ? request.getSession(true).getId() : null;
+  }
+
+  @Override
+  public Boolean cancelFindRows(String databaseUUID, String collectionUUID, String requestGroup) {
+    ControllerAssistant controllerAssistant = new ControllerAssistant() {};
+
+    LogEntryState state = LogEntryState.SUCCESS;
+    User user = controllerAssistant.checkRoles(request);
+
+    try {
+      // a client without a session has no request groups to cancel
+      HttpSession session = request.getSession(false);
+      return session != null && QueryGroupTracker.cancel(session.getId(), requestGroup);
+    } finally {
+      // register action
+      controllerAssistant.registerAction(user, databaseUUID, state, ViewerConstants.CONTROLLER_DATABASE_ID_PARAM,
+        databaseUUID);
+    }
+  }
+
   @Override
   public ViewerRow retrieveRow(String databaseUUID, String collectionUUID, String schema, String table,
     String rowIndex) {
@@ -511,7 +688,7 @@ public class CollectionResource implements CollectionService {
         if (configTable.getColumnByIndex(columnIndex).isExternalLob()) {
           return handleExternalLobDownload(configTable, row, columnIndex);
         } else {
-          return handleInternalLobDownload(database.getPath(), configTable, row, columnIndex);
+          return handleInternalLobDownload(databaseUUID, database.getPath(), configTable, row, columnIndex);
         }
       }
     } catch (NotFoundException | GenericException | IOException e) {
@@ -536,9 +713,8 @@ public class CollectionResource implements CollectionService {
 
     return ApiUtils.okResponse(
       new StreamResponse(handlebarsFilename, tableConfiguration.getColumnByIndex(columnIndex).getApplicationType(),
-        DownloadUtils
-          .stream(Files.newInputStream(LobManagerUtils.getConsolidatedPath(ViewerFactory.getViewerConfiguration(),
-            databaseUUID, row.getTableId(), columnIndex, rowIndex)))));
+        DownloadUtils.stream(LobManagerUtils.getConsolidatedPath(ViewerFactory.getViewerConfiguration(),
+          databaseUUID, row.getTableId(), columnIndex, rowIndex))));
   }
 
   private Response handleClobDownload(TableStatus tableConfiguration, ViewerRow row, int columnIndex) {
@@ -578,8 +754,8 @@ public class CollectionResource implements CollectionService {
       DownloadUtils.stream(new FileInputStream(completeLobPath.toFile()))));
   }
 
-  private Response handleInternalLobDownload(String databasePath, TableStatus tableConfiguration, ViewerRow row,
-    int columnIndex) throws IOException, GenericException {
+  private Response handleInternalLobDownload(String databaseUUID, String databasePath,
+    TableStatus tableConfiguration, ViewerRow row, int columnIndex) throws IOException, GenericException {
     String handlebarsFilename = HandlebarsUtils.applyExportTemplate(row, tableConfiguration, columnIndex);
 
     if (ViewerStringUtils.isBlank(handlebarsFilename)) {
@@ -592,8 +768,18 @@ public class CollectionResource implements CollectionService {
       handlebarsMimeType = tableConfiguration.getColumnByIndex(columnIndex).getApplicationType();
     }
 
-    if (LobManagerUtils.isLobEmbedded(tableConfiguration, row, columnIndex)) {
-      // handle lob as embedded
+    if (LobManagerUtils.isLobStored(tableConfiguration, row, columnIndex)) {
+      // handle lob as embedded, copied to the LOB store during ingest
+      final java.nio.file.Path storedLobPath = LobManagerUtils.getStoredLobPath(
+        ViewerFactory.getViewerConfiguration(), databaseUUID, tableConfiguration, columnIndex, row);
+      if (!Files.isRegularFile(storedLobPath)) {
+        throw new GenericException("Stored LOB is missing");
+      }
+
+      return ApiUtils.okResponse(new StreamResponse(handlebarsFilename, handlebarsMimeType,
+        DownloadUtils.stream(storedLobPath)));
+    } else if (LobManagerUtils.isLobEmbedded(tableConfiguration, row, columnIndex)) {
+      // handle lob as embedded (indexed before the LOB store was used)
       String lobCellValue = LobManagerUtils.getLobCellValue(tableConfiguration, row, columnIndex);
       lobCellValue = lobCellValue.replace(ViewerConstants.SIARD_EMBEDDED_LOB_PREFIX, "");
       String decodedString = new String(Base64.decodeBase64(lobCellValue.getBytes()));
@@ -602,14 +788,14 @@ public class CollectionResource implements CollectionService {
         DownloadUtils.stream(new BufferedInputStream(new ByteArrayInputStream(decodedString.getBytes())))));
     } else {
       // handle lob as internal on separated folder
-      ZipFile zipFile = new ZipFile(databasePath);
-      final ZipEntry entry = zipFile.getEntry(LobManagerUtils.getZipFilePath(tableConfiguration, columnIndex, row));
-      if (entry == null) {
+      final InputStream inputStream = SIARDArchive.openEntry(databasePath,
+        LobManagerUtils.getZipFilePath(tableConfiguration, columnIndex, row));
+      if (inputStream == null) {
         throw new GenericException("Zip archive entry is missing");
       }
 
       return ApiUtils.okResponse(new StreamResponse(handlebarsFilename, handlebarsMimeType,
-        DownloadUtils.stream(new BufferedInputStream(zipFile.getInputStream(entry)))));
+        DownloadUtils.stream(new BufferedInputStream(inputStream))));
     }
   }
 
@@ -752,6 +938,13 @@ public class CollectionResource implements CollectionService {
     final TableStatus configTable, final FindRequest findRequest, final String filename,
     final boolean exportDescriptions, String fieldsToHeader) throws GenericException, RequestNotValidException {
     if (findRequest.sublist == null) {
+      final RowsExportStream exportStream = openExportStream(databaseUUID, configTable, findRequest, fieldsToHeader);
+      if (exportStream != null) {
+        return ApiUtils.okResponse(new ViewerStreamingOutput(
+          new ExportStreamCSVOutputStream(exportStream, configTable, filename, exportDescriptions, ','))
+            .toStreamResponse());
+      }
+
       final IterableIndexResult allRows = solrManager.findAllRows(databaseUUID, findRequest.filter, findRequest.sorter,
         findRequest.fieldsToReturn, findRequest.extraParameters);
       return ApiUtils.okResponse(new ViewerStreamingOutput(new IterableIndexResultsCSVOutputStream(allRows, configTable,
@@ -766,6 +959,26 @@ public class CollectionResource implements CollectionService {
     }
   }
 
+  /**
+   * @return the stream of the rows from the Solr /export handler, or null if the
+   *         export must page through the stored fields
+   */
+  private RowsExportStream openExportStream(String databaseUUID, TableStatus configTable, FindRequest findRequest,
+    String fieldsToHeader) throws RequestNotValidException {
+    if (findRequest.extraParameters != null && !findRequest.extraParameters.isEmpty()) {
+      // nested columns and other sub-queries are not supported by /export
+      return null;
+    }
+    try {
+      return RowsExportStream.open(SolrClientFactory.get().getSolrClient(), databaseUUID, configTable,
+        findRequest.filter, findRequest.sorter, Arrays.asList(fieldsToHeader.split(",")));
+    } catch (IOException e) {
+      LOGGER.warn("Could not stream the export of database {} from Solr, exporting the stored fields", databaseUUID,
+        e);
+      return null;
+    }
+  }
+
   private Response handleCSVExportWithLobs(DatabaseRowsSolrManager solrManager,
     CollectionStatus configurationCollection, ViewerDatabase database, final String databaseUUID,
     final TableStatus configTable, final FindRequest findRequest, final String zipFilename, final String filename,
@@ -0,0 +1,69 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.api.v1.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.List;
+
+import org.apache.commons.csv.CSVPrinter;
+
+import com.databasepreservation.common.api.utils.HandlebarsUtils;
+import com.databasepreservation.common.client.models.status.collection.ColumnStatus;
+import com.databasepreservation.common.client.models.status.collection.TableStatus;
+import com.databasepreservation.common.server.index.utils.RowsExportStream;
+
+/**
+ * Writes the rows streamed from the Solr /export handler to CSV, with the same
+ * headers and values as {@link IterableIndexResultsCSVOutputStream}.
+ */
+public class ExportStreamCSVOutputStream extends CSVOutputStream {
+  private final RowsExportStream stream;
+  private final TableStatus configTable;
+  private final boolean exportDescription;
+
+  public ExportStreamCSVOutputStream(final RowsExportStream stream, final TableStatus configTable,
+    final String filename, final boolean exportDescription, final char delimiter) {
+    super(filename, delimiter);
+    this.stream = stream;
+    this.configTable = configTable;
+    this.exportDescription = exportDescription;
+  }
+
+  @Override
+  public void consumeOutputStream(final OutputStream out) throws IOException {
+    final OutputStreamWriter writer = new OutputStreamWriter(out);
+    final List<String> fields = stream.getFields();
+    final ColumnStatus[] columns = new ColumnStatus[fields.size()];
+    for (int i = 0; i < fields.size(); i++) {
+      columns[i] = configTable.getColumnById(fields.get(i));
+    }
+
+    CSVPrinter printer = null;
+    try {
+      List<String> values;
+      while ((values = stream.read()) != null) {
+        if (printer == null) {
+          printer = getFormat()
+            .withHeader(configTable.getCSVHeaders(fields, exportDescription).toArray(new String[0])).print(writer);
+        }
+        for (int i = 0; i < columns.length; i++) {
+          if (!values.get(i).isEmpty()) {
+            values.set(i, HandlebarsUtils.getExportValue(columns[i], values.get(i)));
+          }
+        }
+        printer.printRecord(values);
+      }
+    } finally {
+      stream.close();
+    }
+
+    writer.flush();
+  }
+}
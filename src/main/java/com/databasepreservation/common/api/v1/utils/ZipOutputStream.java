@@ -13,11 +13,11 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.Map;
-import java.util.zip.ZipFile;
 
 import com.databasepreservation.common.api.utils.ExtraMediaType;
 import com.databasepreservation.common.api.utils.HandlebarsUtils;
@@ -29,6 +29,7 @@ import com.databasepreservation.common.client.models.structure.ViewerRow;
 import com.databasepreservation.common.client.models.structure.ViewerType;
 import com.databasepreservation.common.client.tools.ViewerStringUtils;
 import com.databasepreservation.common.server.ViewerFactory;
+import com.databasepreservation.common.server.storage.SIARDArchive;
 import com.databasepreservation.common.utils.FilenameUtils;
 import com.databasepreservation.common.utils.LobManagerUtils;
 import org.apache.commons.codec.binary.Base64;
@@ -116,7 +117,7 @@ public abstract class ZipOutputStream extends CSVOutputStream {
     return null;
   }
 
-  protected void writeToZipFile(ZipFile siardArchive, ZipArchiveOutputStream out, ViewerRow row,
+  protected void writeToZipFile(SIARDArchive siardArchive, ZipArchiveOutputStream out, ViewerRow row,
                               List<ColumnStatus> binaryColumns) throws IOException {
 
     for (Map.Entry<String, ViewerCell> cellEntry : row.getCells().entrySet()) {
@@ -143,17 +144,20 @@ public abstract class ZipOutputStream extends CSVOutputStream {
     final Path consolidatedPath = LobManagerUtils.getConsolidatedPath(ViewerFactory.getViewerConfiguration(),
         database.getUuid(), configTable.getId(), binaryColumn.getColumnIndex(), row.getUuid());
 
-    InputStream in = new FileInputStream(consolidatedPath.toFile());
     final String templateFilename = FilenameUtils.getTemplateFilename(row, configTable, binaryColumn,
         consolidatedPath.getFileName().toString());
-    addEntryToZip(out, in, templateFilename);
+    addEntryToZip(out, consolidatedPath, templateFilename);
   }
 
-  private void handleWriteInternalLobs(ZipArchiveOutputStream out, ZipFile siardArchive, ColumnStatus binaryColumn,
+  private void handleWriteInternalLobs(ZipArchiveOutputStream out, SIARDArchive siardArchive, ColumnStatus binaryColumn,
                                        ViewerRow row) throws IOException {
     final String templateFilename = FilenameUtils.getTemplateFilename(row, configTable, binaryColumn);
 
-    if (LobManagerUtils.isLobEmbedded(configTable, row, binaryColumn.getColumnIndex())) {
+    if (LobManagerUtils.isLobStored(configTable, row, binaryColumn.getColumnIndex())) {
+      final Path storedLobPath = LobManagerUtils.getStoredLobPath(ViewerFactory.getViewerConfiguration(),
+          database.getUuid(), configTable, binaryColumn.getColumnIndex(), row);
+      addEntryToZip(out, storedLobPath, templateFilename);
+    } else if (LobManagerUtils.isLobEmbedded(configTable, row, binaryColumn.getColumnIndex())) {
       String lobCellValue = LobManagerUtils.getLobCellValue(configTable, row, binaryColumn.getColumnIndex());
       lobCellValue = lobCellValue.replace(ViewerConstants.SIARD_EMBEDDED_LOB_PREFIX, "");
       String decodedString = new String(Base64.decodeBase64(lobCellValue.getBytes()));
@@ -193,6 +197,12 @@ public abstract class ZipOutputStream extends CSVOutputStream {
     addEntryToZip(out, in, handlebarsFilename);
   }
 
+  private void addEntryToZip(ZipArchiveOutputStream out, Path path, String templateFilename) throws IOException {
+    out.putArchiveEntry(new ZipArchiveEntry(ViewerConstants.INTERNAL_ZIP_LOB_FOLDER + templateFilename));
+    Files.copy(path, out);
+    out.closeArchiveEntry();
+  }
+
   private void addEntryToZip(ZipArchiveOutputStream out, InputStream in, String templateFilename) throws IOException {
     out.putArchiveEntry(new ZipArchiveEntry(ViewerConstants.INTERNAL_ZIP_LOB_FOLDER + templateFilename));
     IOUtils.copy(in, out);
@@ -15,7 +15,6 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
-import java.util.zip.ZipFile;
 
 import org.apache.commons.compress.archivers.zip.Zip64Mode;
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
@@ -30,6 +29,7 @@ import com.databasepreservation.common.client.models.status.collection.TableStat
 import com.databasepreservation.common.client.models.structure.ViewerDatabase;
 import com.databasepreservation.common.client.models.structure.ViewerRow;
 import com.databasepreservation.common.server.index.utils.IterableIndexResult;
+import com.databasepreservation.common.server.storage.SIARDArchive;
 
 /**
  * @author Miguel Guimarães <mguimaraes@keep.pt>
@@ -52,8 +52,6 @@ public class ZipOutputStreamMultiRow extends ZipOutputStream {
 
   @Override
   public void consumeOutputStream(OutputStream out) throws IOException {
-    ZipFile siardArchive = new ZipFile(getDatabase().getPath());
-
     boolean all = false;
     if (sublist == null) {
       sublist = Sublist.NONE;
@@ -64,7 +62,8 @@ public class ZipOutputStreamMultiRow extends ZipOutputStream {
 
     int maxIndex = sublist.getFirstElementIndex() + sublist.getMaximumElementCount();
 
-    try (ZipArchiveOutputStream zipArchiveOutputStream = new ZipArchiveOutputStream(out)) {
+    try (ZipArchiveOutputStream zipArchiveOutputStream = new ZipArchiveOutputStream(out);
+      SIARDArchive siardArchive = SIARDArchive.open(getDatabase().getPath())) {
       zipArchiveOutputStream.setUseZip64(Zip64Mode.AsNeeded);
       zipArchiveOutputStream.setMethod(ZipArchiveOutputStream.DEFLATED);
 
@@ -12,7 +12,6 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.util.List;
-import java.util.zip.ZipFile;
 
 import org.apache.commons.compress.archivers.zip.Zip64Mode;
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
@@ -25,6 +24,7 @@ import com.databasepreservation.common.client.models.status.collection.ColumnSta
 import com.databasepreservation.common.client.models.status.collection.TableStatus;
 import com.databasepreservation.common.client.models.structure.ViewerDatabase;
 import com.databasepreservation.common.client.models.structure.ViewerRow;
+import com.databasepreservation.common.server.storage.SIARDArchive;
 
 /**
  * @author Miguel Guimarães <mguimaraes@keep.pt>
@@ -41,12 +41,13 @@ public class ZipOutputStreamSingleRow extends ZipOutputStream {
 
   @Override
   public void consumeOutputStream(OutputStream out) throws IOException {
-    try (ZipArchiveOutputStream zipArchiveOutputStream = new ZipArchiveOutputStream(out)) {
+    try (ZipArchiveOutputStream zipArchiveOutputStream = new ZipArchiveOutputStream(out);
+      SIARDArchive siardArchive = SIARDArchive.open(getDatabase().getPath())) {
       zipArchiveOutputStream.setUseZip64(Zip64Mode.AsNeeded);
       zipArchiveOutputStream.setMethod(ZipArchiveOutputStream.DEFLATED);
 
       final List<ColumnStatus> binaryColumns = getConfigTable().getLobColumns();
-      writeToZipFile(new ZipFile(getDatabase().getPath()), zipArchiveOutputStream, row, binaryColumns);
+      writeToZipFile(siardArchive, zipArchiveOutputStream, row, binaryColumns);
 
       final ByteArrayOutputStream byteArrayOutputStream = writeCSVFile();
       zipArchiveOutputStream.putArchiveEntry(new ZipArchiveEntry(getCsvFilename()));
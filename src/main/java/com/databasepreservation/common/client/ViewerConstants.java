@@ -87,6 +87,7 @@ public class ViewerConstants {
   public static final String CUSTOM_VIEW_PREFIX = "CUSTOM_VIEW_";
   public static final String DATABASE_STATUS_PREFIX = "database-";
   public static final String DENORMALIZATION_STATUS_PREFIX = "denormalization-";
+  public static final String INGEST_CHECKPOINT_PREFIX = "checkpoint-";
 
   public static final String INTERNAL_ZIP_LOB_FOLDER = "lobs/";
 
@@ -316,7 +317,10 @@ public class ViewerConstants {
   public static final String API_QUERY_PARAM_SUBLIST = "sl";
   public static final String API_QUERY_PARAM_FACETS = "facets";
   public static final String API_QUERY_PARAM_LOCALE = "locale";
+  public static final String API_QUERY_PARAM_PRIORITY = "priority";
+  public static final String API_QUERY_PARAM_TABLES = "tables";
   public static final String API_QUERY_PARAM_SEARCH = "search";
+  public static final String API_QUERY_PARAM_CURSOR = "cursor";
   public static final String API_PATH_PARAM_REPORT = "report";
   public static final String API_QUERY_PARAM_RESOURCE_ID = "resource_id";
   public static final String API_QUERY_PARAM_DEFAULT_RESOURCE_ID = "default_resource_id";
@@ -471,6 +475,7 @@ public class ViewerConstants {
   public static final String CONTROLLER_DATABASE_ID_PARAM = "databaseUUID";
   public static final String CONTROLLER_COLLECTION_ID_PARAM = "collectionUUID";
   public static final String CONTROLLER_TABLE_ID_PARAM = "tableUUID";
+  public static final String CONTROLLER_TABLE_IDS_PARAM = "tableUUIDs";
   public static final String CONTROLLER_ROW_ID_PARAM = "rowUUID";
   public static final String CONTROLLER_COLUMN_ID_PARAM = "columnID";
   public static final String CONTROLLER_LOG_ID_PARAM = "logID";
@@ -533,6 +538,7 @@ public class ViewerConstants {
   public static final String SIARD_LOB_OUTSIDE_PREFIX = "external:";
   public static final String SIARD_LOB_INSIDE_PREFIX = "internal:";
   public static final String SIARD_EMBEDDED_LOB_PREFIX = "base64:";
+  public static final String SIARD_STORED_LOB_PREFIX = "lobstore:";
   public static final String SIARD_LOB_FILE_EXTENSION = ".bin";
 
   public static final String DEFAULT_USERNAME = "admin";
@@ -540,6 +546,7 @@ public class ViewerConstants {
 
   public static final String PROPERTY_DISABLE_SIARD_DELETION = "ui.disable.siard.deletion";
   public static final String PROPERTY_PLUGIN_LOAD_ON_ACCESS = "ui.plugin.loadOnAccess";
+  public static final String PROPERTY_PLUGIN_LOAD_ON_ACCESS_PER_TABLE = "ui.plugin.loadOnAccess.perTable";
 
   /**
    * Header
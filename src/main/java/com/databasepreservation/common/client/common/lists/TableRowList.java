@@ -275,6 +275,10 @@ public class TableRowList extends AsyncTableCell<ViewerRow, TableRowListWrapper>
           logger.error("Trying to display NULL Cells");
         } else if (row.getCells().get(configColumn.getId()) != null) {
           String value = row.getCells().get(configColumn.getId()).getValue();
+          if (row.getCells().get(configColumn.getId()).isTruncated()) {
+            // the whole value is shown in the row panel
+            value = value + "\u2026";
+          }
 
           // if it exists in Solr, it is not null
           switch (configColumn.getType()) {
@@ -407,13 +411,22 @@ public class TableRowList extends AsyncTableCell<ViewerRow, TableRowListWrapper>
 
     FindRequest findRequest = new FindRequest(ViewerDatabase.class.getName(), filter, currentSorter, sublist,
       getFacets(), false, fieldsToReturn, extraParameters);
+    findRequest.requestGroup = getRequestGroup();
+    findRequest.listView = true;
 
     if (!wrapper.isNested()) {
       FilterUtils.filterByTable(filter, table.getSchemaName() + "." + table.getName());
     }
 
-    CollectionService.Util.call(callback).findRows(wrapper.getDatabase().getUuid(), wrapper.getDatabase().getUuid(),
-      table.getSchemaName(), table.getName(), findRequest, LocaleInfo.getCurrentLocale().getLocaleName());
+    if (getFacets() == null || getFacets().getParameters().isEmpty()) {
+      // pages found with cursors cost the same at any depth, but have no facets
+      CollectionService.Util.call(callback).findRowsByCursor(wrapper.getDatabase().getUuid(),
+        wrapper.getDatabase().getUuid(), table.getSchemaName(), table.getName(), findRequest, getCursor(sublist),
+        LocaleInfo.getCurrentLocale().getLocaleName());
+    } else {
+      CollectionService.Util.call(callback).findRows(wrapper.getDatabase().getUuid(), wrapper.getDatabase().getUuid(),
+        table.getSchemaName(), table.getName(), findRequest, LocaleInfo.getCurrentLocale().getLocaleName());
+    }
   }
 
   @Override
@@ -422,6 +435,14 @@ public class TableRowList extends AsyncTableCell<ViewerRow, TableRowListWrapper>
     this.getSelectionModel().clear();
   }
 
+  @Override
+  protected void onUnload() {
+    super.onUnload();
+    // the searches of this list still in flight are no longer wanted
+    CollectionService.Util.call((Boolean cancelled) -> {
+    }).cancelFindRows(database.getUuid(), database.getUuid(), getRequestGroup());
+  }
+
   @Override
   public void exportClickHandler() {
     HelperExportTableData helperExportTableData = new HelperExportTableData(viewerTable, false);
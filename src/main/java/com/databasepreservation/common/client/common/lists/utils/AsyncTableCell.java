@@ -22,6 +22,7 @@ import org.roda.core.data.v2.index.sublist.Sublist;
 import com.databasepreservation.common.client.ClientConfigurationManager;
 import com.databasepreservation.common.client.ClientLogger;
 import com.databasepreservation.common.client.ViewerConstants;
+import com.databasepreservation.common.client.index.CursorIndexResult;
 import com.databasepreservation.common.client.index.IndexResult;
 import com.databasepreservation.common.client.index.IsIndexed;
 import com.databasepreservation.common.client.index.facets.FacetFieldResult;
@@ -58,6 +59,7 @@ import com.google.gwt.user.cellview.client.Header;
 import com.google.gwt.user.cellview.client.LoadingStateChangeEvent;
 import com.google.gwt.user.cellview.client.SafeHtmlHeader;
 import com.google.gwt.user.cellview.client.SimplePager;
+import com.google.gwt.user.client.DOM;
 import com.google.gwt.user.client.Random;
 import com.google.gwt.user.client.Timer;
 import com.google.gwt.user.client.ui.Anchor;
@@ -117,6 +119,7 @@ public abstract class AsyncTableCell<T extends IsIndexed, O> extends FlowPanel
   private boolean selectable;
   private boolean autoUpdating = false;
   private IndexResult<T> result;
+  private final String requestGroup = DOM.createUniqueId();
 
   private final ClientLogger logger = new ClientLogger(getClass().getName());
 
@@ -380,6 +383,34 @@ public abstract class AsyncTableCell<T extends IsIndexed, O> extends FlowPanel
   protected abstract void getData(Sublist sublist, ColumnSortList columnSortList,
     MethodCallback<IndexResult<T>> callback);
 
+  /**
+   * @return the request group of the searches of this list, so that a newer
+   *         search supersedes the ones still in flight
+   */
+  protected String getRequestGroup() {
+    return requestGroup;
+  }
+
+  /**
+   * Gets the cursor of the last result towards the requested page, for the
+   * lists that find their pages with cursors. The server only uses it if it
+   * points exactly to the requested page, otherwise it finds the page by its
+   * offset.
+   *
+   * @return the cursor, or null if the last result has no cursors
+   */
+  protected String getCursor(Sublist sublist) {
+    if (result instanceof CursorIndexResult) {
+      CursorIndexResult<T> cursorResult = (CursorIndexResult<T>) result;
+      if (sublist.getFirstElementIndex() > cursorResult.getOffset()) {
+        return cursorResult.getNextCursor();
+      } else if (sublist.getFirstElementIndex() < cursorResult.getOffset()) {
+        return cursorResult.getPreviousCursor();
+      }
+    }
+    return null;
+  }
+
   protected int getPageSizePagerIncrement() {
     return pageSizeIncrement;
   }
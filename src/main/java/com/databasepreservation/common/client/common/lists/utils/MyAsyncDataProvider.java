@@ -30,6 +30,7 @@ public abstract class MyAsyncDataProvider<T extends Serializable> extends AsyncD
   private final IndexResultDataProvider<T> dataProvider;
   private int rowCount;
   private Date date;
+  private int fetchSequence = 0;
 
   public MyAsyncDataProvider(CellTable<T> display, IndexResultDataProvider<T> dataProvider) {
     super();
@@ -57,15 +58,23 @@ public abstract class MyAsyncDataProvider<T extends Serializable> extends AsyncD
     // Query the data asynchronously.
     final int start = range.getStart();
     int length = range.getLength();
+    final int sequence = ++fetchSequence;
     dataProvider.getData(new Sublist(start, length), columnSortList, new MethodCallback<IndexResult<T>>() {
       @Override
       public void onFailure(Method method, Throwable throwable) {
+        if (sequence != fetchSequence) {
+          // superseded by a newer fetch
+          callback.onSuccess(method, null);
+          return;
+        }
         callback.onFailure(method, throwable);
       }
 
       @Override
       public void onSuccess(Method method, IndexResult<T> result) {
-        if (result != null) {
+        if (sequence != fetchSequence) {
+          // superseded by a newer fetch, its result arrived late
+        } else if (result != null) {
           rowCount = (int) result.getTotalCount();
           date = result.getDate();
           updateRowData((int) result.getOffset(), result.getResults());
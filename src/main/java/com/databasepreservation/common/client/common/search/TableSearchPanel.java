@@ -120,7 +120,7 @@ public class TableSearchPanel extends Composite {
     this.database = database;
     this.table = table;
 
-    tableRowList = new TableRowList(database, table, initialFilter, null, null, false, table.getCountRows() != 0,
+    tableRowList = new TableRowList(database, table, initialFilter, null, null, false, status.getCountRows(table) != 0,
       status, isNested);
     tableRowList.setColumnVisibility(columnDisplayNameToVisibleState);
 
@@ -77,6 +77,9 @@ public class LabelUtils {
       case INGESTING:
         style = "label-info";
         break;
+      case RESUMABLE:
+        style = "label-warning";
+        break;
       case REMOVING:
       case METADATA_ONLY:
       default:
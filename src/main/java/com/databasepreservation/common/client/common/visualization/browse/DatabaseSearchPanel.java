@@ -11,6 +11,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import com.databasepreservation.common.client.ObserverManager;
 import com.databasepreservation.common.client.ViewerConstants;
@@ -136,9 +137,17 @@ public class DatabaseSearchPanel extends RightPanel implements ICollectionStatus
       }
     };
 
+    final List<TableStatus> tablesNotSearchable = status.getTablesNotSearchable();
+    if (!tablesNotSearchable.isEmpty()) {
+      description.setWidget(new Alert(Alert.MessageAlertType.WARNING, messages.resourceNotAvailableTablesNotSearchable(
+        tablesNotSearchable.stream().map(TableStatus::getCustomName).collect(Collectors.joining(", ")))));
+    }
+
     for (ViewerSchema viewerSchema : database.getMetadata().getSchemas()) {
       for (ViewerTable viewerTable : viewerSchema.getTables()) {
-        if (status.showTable(viewerTable.getUuid())) {
+        final TableStatus tableStatus = status.getTableStatus(viewerTable.getUuid());
+        // the tables not ingested yet are reported instead
+        if (status.showTable(viewerTable.getUuid()) && (tableStatus == null || tableStatus.isSearchable())) {
           TableSearchPanelContainer tableSearchPanelContainer = new TableSearchPanelContainer(database, viewerTable,
               searchCompletedCallback, status);
           tableSearchPanelContainers.add(tableSearchPanelContainer);
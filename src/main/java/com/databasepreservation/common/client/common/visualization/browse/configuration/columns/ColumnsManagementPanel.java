@@ -36,6 +36,7 @@ import com.databasepreservation.common.client.common.visualization.browse.config
 import com.databasepreservation.common.client.common.visualization.browse.configuration.columns.helpers.ClobColumnOptionsPanel;
 import com.databasepreservation.common.client.common.visualization.browse.configuration.columns.helpers.ColumnOptionsPanel;
 import com.databasepreservation.common.client.common.visualization.browse.configuration.columns.helpers.CustomizeColumnOptionsPanel;
+import com.databasepreservation.common.client.common.visualization.browse.configuration.columns.helpers.HistogramColumnOptionsPanel;
 import com.databasepreservation.common.client.common.visualization.browse.configuration.columns.helpers.NestedColumnOptionsPanel;
 import com.databasepreservation.common.client.common.visualization.browse.configuration.columns.helpers.NumericColumnOptionsPanel;
 import com.databasepreservation.common.client.configuration.observer.ICollectionStatusObserver;
@@ -521,9 +522,20 @@ public class ColumnsManagementPanel extends RightPanel implements ICollectionSta
     return description;
   }
 
-  private boolean isAnOptionColumn(ViewerType.dbTypes type) {
+  private boolean isAnOptionColumn(ColumnStatus column) {
+    ViewerType.dbTypes type = column.getType();
     return ViewerType.dbTypes.BINARY.equals(type) || ViewerType.dbTypes.NESTED.equals(type)
-      || ViewerType.dbTypes.CLOB.equals(type) || ViewerType.dbTypes.NUMERIC_FLOATING_POINT.equals(type);
+      || ViewerType.dbTypes.CLOB.equals(type) || ViewerType.dbTypes.NUMERIC_FLOATING_POINT.equals(type)
+      || (isAHistogramColumn(type) && HistogramColumnOptionsPanel.hasHistogram(column));
+  }
+
+  /**
+   * @return true if the only option of the columns of the type is the
+   *         histogram of their values
+   */
+  private boolean isAHistogramColumn(ViewerType.dbTypes type) {
+    return ViewerType.dbTypes.NUMERIC_INTEGER.equals(type) || ViewerType.dbTypes.DATETIME.equals(type)
+      || ViewerType.dbTypes.DATETIME_JUST_DATE.equals(type) || ViewerType.dbTypes.DATETIME_JUST_TIME.equals(type);
   }
 
   private Column<ColumnStatus, String> getTableCustomizationColumn() {
@@ -567,7 +579,7 @@ public class ColumnsManagementPanel extends RightPanel implements ICollectionSta
     Column<ColumnStatus, String> options = new ButtonColumn<ColumnStatus>() {
       @Override
       public void render(Cell.Context context, ColumnStatus object, SafeHtmlBuilder sb) {
-        if (isAnOptionColumn(object.getType())) {
+        if (isAnOptionColumn(object)) {
           sb.appendHtmlConstant(
             "<div class=\"center-cell\"><button class=\"btn btn-cell-action\" type=\"button\" tabindex=\"-1\"><i class=\"fa fa-cog\"></i></button></div>");
         } else {
@@ -652,8 +664,8 @@ public class ColumnsManagementPanel extends RightPanel implements ICollectionSta
             }
           });
       } else if (ViewerType.dbTypes.NUMERIC_FLOATING_POINT.equals(columnStatus.getType())) {
-        ColumnOptionsPanel numericColumnOptionPanel = NumericColumnOptionsPanel
-          .createInstance(collectionStatus.getColumnByTableIdAndColumn(tableId, columnStatus.getId()));
+        ColumnOptionsPanel numericColumnOptionPanel = NumericColumnOptionsPanel.createInstance(database, tableId,
+          collectionStatus.getColumnByTableIdAndColumn(tableId, columnStatus.getId()));
 
         Dialogs.showDialogColumnConfiguration(messages.basicTableHeaderOptions(), "400px", messages.basicActionSave(),
           messages.basicActionCancel(), numericColumnOptionPanel, new DefaultAsyncCallback<Boolean>() {
@@ -672,6 +684,17 @@ public class ColumnsManagementPanel extends RightPanel implements ICollectionSta
               }
             }
           });
+      } else if (isAHistogramColumn(columnStatus.getType())) {
+        ColumnOptionsPanel histogramColumnOptionPanel = HistogramColumnOptionsPanel.createInstance(database, tableId,
+          collectionStatus.getColumnByTableIdAndColumn(tableId, columnStatus.getId()));
+
+        Dialogs.showDialogColumnConfiguration(messages.basicTableHeaderOptions(), histogramColumnOptionPanel,
+          messages.basicActionClose(), new DefaultAsyncCallback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+              // the histogram has no options to save
+            }
+          });
       }
     });
     return options;
@@ -0,0 +1,368 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.client.common.visualization.browse.configuration.columns.helpers;
+
+import java.util.Date;
+import java.util.List;
+
+import org.roda.core.data.v2.index.sublist.Sublist;
+
+import com.databasepreservation.common.client.ViewerConstants;
+import com.databasepreservation.common.client.index.FindRequest;
+import com.databasepreservation.common.client.index.IndexResult;
+import com.databasepreservation.common.client.index.facets.FacetFieldResult;
+import com.databasepreservation.common.client.index.facets.FacetValue;
+import com.databasepreservation.common.client.index.facets.Facets;
+import com.databasepreservation.common.client.index.facets.RangeFacetParameter;
+import com.databasepreservation.common.client.index.filter.Filter;
+import com.databasepreservation.common.client.models.status.collection.ColumnStatistics;
+import com.databasepreservation.common.client.models.status.collection.ColumnStatus;
+import com.databasepreservation.common.client.models.status.collection.TemplateStatus;
+import com.databasepreservation.common.client.models.structure.ViewerDatabase;
+import com.databasepreservation.common.client.models.structure.ViewerRow;
+import com.databasepreservation.common.client.models.structure.ViewerTable;
+import com.databasepreservation.common.client.services.CollectionService;
+import com.databasepreservation.common.client.tools.FilterUtils;
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.dom.client.Style;
+import com.google.gwt.i18n.client.DateTimeFormat;
+import com.google.gwt.i18n.client.LocaleInfo;
+import com.google.gwt.i18n.client.NumberFormat;
+import com.google.gwt.i18n.client.TimeZone;
+import com.google.gwt.uibinder.client.UiBinder;
+import com.google.gwt.uibinder.client.UiField;
+import com.google.gwt.user.client.ui.FlowPanel;
+import com.google.gwt.user.client.ui.HTML;
+import com.google.gwt.user.client.ui.Label;
+import com.google.gwt.user.client.ui.Widget;
+
+import config.i18n.client.ClientMessages;
+
+/**
+ * Shows the distribution of the values of a numeric or date column in buckets
+ * between the minimum and maximum values computed after the ingest. The
+ * buckets are counted by Solr with a range facet, without fetching the rows:
+ * equal-width buckets for the floating point columns, buckets of a whole
+ * number of values for the integer columns and buckets of a whole number of
+ * calendar units, e.g. +3MONTHS, for the date columns.
+ */
+public class HistogramColumnOptionsPanel extends ColumnOptionsPanel {
+  private static final int HISTOGRAM_BUCKETS = 20;
+
+  // the date gap units, with their approximate length and the largest number
+  // of units in a gap before the next unit is used
+  private static final String[] DATE_GAP_UNITS = {"SECONDS", "MINUTES", "HOURS", "DAYS", "MONTHS", "YEARS"};
+  private static final double[] DATE_GAP_UNIT_MILLIS = {1000d, 60000d, 3600000d, 86400000d, 2629746000d,
+    31556952000d};
+  private static final long[] DATE_GAP_MAX_UNITS = {30, 30, 12, 15, 6, Long.MAX_VALUE};
+  private static final int DAYS_UNIT = 3;
+
+  interface HistogramColumnOptionsPanelUiBinder extends UiBinder<Widget, HistogramColumnOptionsPanel> {
+  }
+
+  private static HistogramColumnOptionsPanelUiBinder binder = GWT.create(HistogramColumnOptionsPanelUiBinder.class);
+
+  @UiField
+  ClientMessages messages = GWT.create(ClientMessages.class);
+
+  @UiField
+  HTML histogramDescription;
+
+  @UiField
+  FlowPanel histogram;
+
+  @UiField
+  Label histogramStart;
+
+  @UiField
+  Label histogramEnd;
+
+  public static ColumnOptionsPanel createInstance(ViewerDatabase database, String tableId,
+    ColumnStatus columnConfiguration) {
+    HistogramColumnOptionsPanel panel = new HistogramColumnOptionsPanel();
+    panel.load(database, tableId, columnConfiguration);
+    return panel;
+  }
+
+  public HistogramColumnOptionsPanel() {
+    initWidget(binder.createAndBindUi(this));
+  }
+
+  /**
+   * @return true if the column has the statistics from which its histogram is
+   *         requested
+   */
+  public static boolean hasHistogram(ColumnStatus column) {
+    ColumnStatistics statistics = column.getStatistics();
+    String id = column.getId();
+    return id != null && statistics != null && statistics.getMin() != null && statistics.getMax() != null
+      && (id.endsWith(ViewerConstants.SOLR_DYN_DOUBLE) || id.endsWith(ViewerConstants.SOLR_DYN_LONG)
+        || id.endsWith(ViewerConstants.SOLR_DYN_DATE));
+  }
+
+  /**
+   * Requests the histogram of the column and shows it, if the column has more
+   * than one value.
+   */
+  public void load(ViewerDatabase database, String tableId, ColumnStatus config) {
+    ViewerTable table = database.getMetadata().getTableById(tableId);
+    if (table == null || !hasHistogram(config)) {
+      return;
+    }
+
+    final Scale scale = createScale(config);
+    if (scale == null || scale.getGap() == null) {
+      return;
+    }
+
+    RangeFacetParameter facetParameter = new RangeFacetParameter(config.getId(), scale.getStart(), scale.getEnd(),
+      scale.getGap());
+    facetParameter.setMinCount(0);
+
+    Filter filter = FilterUtils.filterByTable(new Filter(), tableId);
+    FindRequest findRequest = new FindRequest(ViewerRow.class.getName(), filter, null, new Sublist(0, 0),
+      new Facets(facetParameter));
+    CollectionService.Util.call((IndexResult<ViewerRow> result) -> {
+      if (!result.getFacetResults().isEmpty()) {
+        showHistogram(result.getFacetResults().get(0), scale);
+      }
+    }, error -> setVisible(false)).findRows(database.getUuid(), database.getUuid(), table.getSchemaName(),
+      table.getName(), findRequest, LocaleInfo.getCurrentLocale().getLocaleName());
+  }
+
+  private static Scale createScale(ColumnStatus config) {
+    try {
+      if (config.getId().endsWith(ViewerConstants.SOLR_DYN_DATE)) {
+        return new DateScale(config.getStatistics());
+      } else if (config.getId().endsWith(ViewerConstants.SOLR_DYN_LONG)) {
+        return new IntegerScale(config.getStatistics());
+      } else {
+        return new FloatingPointScale(config.getStatistics());
+      }
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  private void showHistogram(FacetFieldResult facetResult, Scale scale) {
+    List<FacetValue> values = facetResult.getValues();
+    long maxCount = 0;
+    for (FacetValue value : values) {
+      maxCount = Math.max(maxCount, value.getCount());
+    }
+    if (maxCount == 0) {
+      return;
+    }
+
+    histogram.clear();
+    for (int i = 0; i < values.size(); i++) {
+      FacetValue value = values.get(i);
+      String next = i + 1 < values.size() ? values.get(i + 1).getValue() : null;
+      FlowPanel bar = new FlowPanel();
+      bar.addStyleName("dialog-numeric-histogram-bar");
+      bar.getElement().getStyle().setHeight(100.0 * value.getCount() / maxCount, Style.Unit.PCT);
+      bar.setTitle(messages.columnManagementNumericHistogramBucket(scale.format(value.getValue()),
+        scale.formatBucketEnd(next), value.getCount()));
+      histogram.add(bar);
+    }
+
+    histogramDescription.setHTML(messages.columnManagementNumericHistogramTextForDescription());
+    histogramStart.setText(scale.format(values.get(0).getValue()));
+    histogramEnd.setText(scale.formatBucketEnd(null));
+    setVisible(true);
+  }
+
+  @Override
+  public TemplateStatus getSearchTemplate() {
+    return null;
+  }
+
+  @Override
+  public TemplateStatus getDetailsTemplate() {
+    return null;
+  }
+
+  @Override
+  public TemplateStatus getExportTemplate() {
+    return null;
+  }
+
+  /**
+   * The range facet of a column and the labels of its buckets.
+   */
+  private abstract static class Scale {
+    abstract String getStart();
+
+    abstract String getEnd();
+
+    /**
+     * @return the gap between the buckets, or null if the column has a single
+     *         value
+     */
+    abstract String getGap();
+
+    abstract String format(String value);
+
+    /**
+     * @return the label of the end of the bucket before the next one, or of the
+     *         last bucket, the maximum value, if next is null
+     */
+    abstract String formatBucketEnd(String next);
+  }
+
+  private static class FloatingPointScale extends Scale {
+    private final NumberFormat format = NumberFormat.getDecimalFormat();
+    private final double min;
+    private final double max;
+
+    FloatingPointScale(ColumnStatistics statistics) {
+      min = Double.parseDouble(statistics.getMin());
+      max = Double.parseDouble(statistics.getMax());
+    }
+
+    @Override
+    String getStart() {
+      return String.valueOf(min);
+    }
+
+    @Override
+    String getEnd() {
+      return String.valueOf(max);
+    }
+
+    @Override
+    String getGap() {
+      return max > min ? String.valueOf((max - min) / HISTOGRAM_BUCKETS) : null;
+    }
+
+    @Override
+    String format(String value) {
+      return format.format(Double.parseDouble(value));
+    }
+
+    @Override
+    String formatBucketEnd(String next) {
+      return next != null ? format(next) : format.format(max);
+    }
+  }
+
+  /**
+   * Buckets of a whole number of values, so that each value is counted in a
+   * single bucket. The range ends after the maximum, so that the last bucket
+   * has as many values as the others.
+   */
+  private static class IntegerScale extends Scale {
+    private final NumberFormat format = NumberFormat.getDecimalFormat();
+    private final long min;
+    private final long max;
+    private final long gap;
+
+    IntegerScale(ColumnStatistics statistics) {
+      min = Long.parseLong(statistics.getMin());
+      max = Long.parseLong(statistics.getMax());
+      gap = Math.max(1, (long) Math.ceil(((double) max - min + 1) / HISTOGRAM_BUCKETS));
+    }
+
+    @Override
+    String getStart() {
+      return String.valueOf(min);
+    }
+
+    @Override
+    String getEnd() {
+      return String.valueOf(max < Long.MAX_VALUE ? max + 1 : max);
+    }
+
+    @Override
+    String getGap() {
+      return max > min ? String.valueOf(gap) : null;
+    }
+
+    @Override
+    String format(String value) {
+      return format.format(Long.parseLong(value));
+    }
+
+    @Override
+    String formatBucketEnd(String next) {
+      return format.format(next != null ? Long.parseLong(next) - 1 : max);
+    }
+  }
+
+  /**
+   * Buckets of a whole number of calendar units, in Solr date math, starting
+   * at the minimum rounded down to the unit. The unit is the smallest one with
+   * which there are at most about as many buckets as in the other scales. The
+   * dates are shown in UTC, as they are indexed.
+   */
+  private static class DateScale extends Scale {
+    private static final TimeZone UTC = TimeZone.createTimeZone(0);
+
+    private final String min;
+    private final String max;
+    private final String start;
+    private final String gap;
+    private final DateTimeFormat format;
+
+    DateScale(ColumnStatistics statistics) {
+      min = statistics.getMin();
+      max = statistics.getMax();
+      double span = parse(max).getTime() - parse(min).getTime();
+
+      String dateGap = null;
+      int unit = 0;
+      if (span > 0) {
+        for (; unit < DATE_GAP_UNITS.length; unit++) {
+          long units = Math.max(1, (long) Math.ceil(span / (HISTOGRAM_BUCKETS * DATE_GAP_UNIT_MILLIS[unit])));
+          if (units <= DATE_GAP_MAX_UNITS[unit]) {
+            dateGap = "+" + units + DATE_GAP_UNITS[unit];
+            break;
+          }
+        }
+      }
+      gap = dateGap;
+      start = dateGap != null ? min + "/" + DATE_GAP_UNITS[unit] : min;
+      format = DateTimeFormat.getFormat(unit >= DAYS_UNIT ? "yyyy-MM-dd" : "yyyy-MM-dd HH:mm:ss");
+    }
+
+    /**
+     * Parses the ISO-8601 dates of Solr, e.g. 2020-01-31T10:00:00Z or
+     * 2020-01-31T10:00:00.250Z.
+     */
+    private static Date parse(String value) {
+      String date = value.endsWith("Z") ? value.substring(0, value.length() - 1) + "+0000" : value;
+      return DateTimeFormat.getFormat(date.contains(".") ? "yyyy-MM-dd'T'HH:mm:ss.SSSZ" : "yyyy-MM-dd'T'HH:mm:ssZ")
+        .parse(date);
+    }
+
+    @Override
+    String getStart() {
+      return start;
+    }
+
+    @Override
+    String getEnd() {
+      return max;
+    }
+
+    @Override
+    String getGap() {
+      return gap;
+    }
+
+    @Override
+    String format(String value) {
+      return format.format(parse(value), UTC);
+    }
+
+    @Override
+    String formatBucketEnd(String next) {
+      return format(next != null ? next : max);
+    }
+  }
+}
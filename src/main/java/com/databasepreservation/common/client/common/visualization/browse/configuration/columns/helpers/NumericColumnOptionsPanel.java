@@ -9,12 +9,11 @@ package com.databasepreservation.common.client.common.visualization.browse.confi
 
 import java.math.BigDecimal;
 
-import com.databasepreservation.common.client.ViewerConstants;
 import com.databasepreservation.common.client.models.status.collection.ColumnStatus;
-import com.databasepreservation.common.client.models.status.collection.TableStatus;
 import com.databasepreservation.common.client.models.status.collection.TemplateStatus;
 import com.databasepreservation.common.client.models.status.formatters.Formatter;
 import com.databasepreservation.common.client.models.status.formatters.NumberFormatter;
+import com.databasepreservation.common.client.models.structure.ViewerDatabase;
 import com.databasepreservation.common.client.tools.NumberFormatUtils;
 import com.databasepreservation.common.client.tools.ViewerStringUtils;
 import com.google.gwt.core.client.GWT;
@@ -84,13 +83,17 @@ public class NumericColumnOptionsPanel extends ColumnOptionsPanel {
   @UiField
   TextBox previewContent;
 
+  @UiField
+  HistogramColumnOptionsPanel histogram;
+
   private String customValue = "";
 
-  public static ColumnOptionsPanel createInstance(ColumnStatus columnConfiguration) {
-    return new NumericColumnOptionsPanel(columnConfiguration);
+  public static ColumnOptionsPanel createInstance(ViewerDatabase database, String tableId,
+    ColumnStatus columnConfiguration) {
+    return new NumericColumnOptionsPanel(database, tableId, columnConfiguration);
   }
 
-  private NumericColumnOptionsPanel(ColumnStatus columnConfiguration) {
+  private NumericColumnOptionsPanel(ViewerDatabase database, String tableId, ColumnStatus columnConfiguration) {
     initWidget(binder.createAndBindUi(this));
     description.setHTML(messages.columnManagementNumericFormatterTextForDescription());
     previewDescription.setHTML(messages.columnManagementNumericFormatterTextForPreviewDescription());
@@ -100,6 +103,7 @@ public class NumericColumnOptionsPanel extends ColumnOptionsPanel {
     setupCheckboxOptions();
     setupHandlers();
     setup(columnConfiguration);
+    histogram.load(database, tableId, columnConfiguration);
 
     updatePreviewValue();
   }
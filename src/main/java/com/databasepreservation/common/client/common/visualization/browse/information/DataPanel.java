@@ -155,7 +155,7 @@ public class DataPanel extends Composite implements ICollectionStatusObserver {
       new BasicTablePanel.ColumnInfo<>(messages.schema_numberOfRows(), !advancedMode, 7, new TextColumn<ViewerTable>() {
         @Override
         public String getValue(ViewerTable table) {
-          return String.valueOf(table.getCountRows());
+          return String.valueOf(status.getCountRows(table));
         }
       }),
 
@@ -144,16 +144,14 @@ public class DatabaseInformationPanel extends RightPanel {
   private void loadOnAccess() {
     HistoryManager.gotoIngestSIARDData(database.getUuid(), database.getMetadata().getName());
     if (ViewerDatabaseStatus.METADATA_ONLY.equals(database.getStatus())) {
-      CollectionService.Util.call((String databaseUUID) -> {
+      CollectionService.Util.call((String jobUUID) -> {
+        // the ingest runs in the background, followed by the ingest page
         instances.remove(database.getUuid());
-        HistoryManager.gotoDatabase(databaseUUID);
-        Dialogs.showInformationDialog(messages.SIARDHomePageDialogTitleForBrowsing(),
-          messages.SIARDHomePageTextForIngestSuccess(), messages.basicActionClose(), "btn btn-link");
       }, (String errorMessage) -> {
         instances.remove(database.getUuid());
         HistoryManager.gotoSIARDInfo(database.getUuid());
         Dialogs.showErrors(messages.SIARDHomePageDialogTitleForBrowsing(), errorMessage, messages.basicActionClose());
-      }).createCollection(database.getUuid());
+      }).createCollection(database.getUuid(), null, null);
     }
   }
 
@@ -139,7 +139,9 @@ public class ErDiagram extends Composite implements ICollectionStatusObserver {
           visNode.description = "";
         }
         visNode.numColumns = viewerTable.getColumns().size();
-        visNode.numRows = new Long(viewerTable.getCountRows()).intValue();
+        visNode.numRows = new Long(
+          collectionStatus != null ? collectionStatus.getCountRows(viewerTable) : viewerTable.getCountRows())
+            .intValue();
         visNode.numRelationsOut = viewerTable.getForeignKeys().size();
         int inboundForeignKeys = 0;
         for (ViewerSchema viewerSchema : database.getMetadata().getSchemas()) {
@@ -29,9 +29,11 @@ import com.databasepreservation.common.client.models.status.collection.Collectio
 import com.databasepreservation.common.client.models.structure.ViewerDatabase;
 import com.databasepreservation.common.client.models.structure.ViewerTable;
 import com.databasepreservation.common.client.models.user.User;
+import com.databasepreservation.common.client.services.CollectionService;
 import com.databasepreservation.common.client.tools.BreadcrumbManager;
 import com.databasepreservation.common.client.tools.HistoryManager;
 import com.databasepreservation.common.client.tools.ViewerStringUtils;
+import com.databasepreservation.common.client.widgets.Alert;
 import com.google.gwt.core.client.GWT;
 import com.google.gwt.safehtml.shared.SafeHtmlUtils;
 import com.google.gwt.uibinder.client.UiBinder;
@@ -246,6 +248,11 @@ public class TablePanel extends RightPanel implements ICollectionStatusObserver,
       description.add(instance);
     }
 
+    if (!collectionStatus.getTableStatus(table.getUuid()).isSearchable()) {
+      description.add(new Alert(Alert.MessageAlertType.WARNING, messages.resourceNotAvailableTableNotIngestedDescription(
+        collectionStatus.getTableStatus(table.getUuid()).getCustomName())));
+    }
+
     tableSearchPanel.provideSource(database, table);
   }
 
@@ -300,6 +307,10 @@ public class TablePanel extends RightPanel implements ICollectionStatusObserver,
         messages.resourceNotAvailableTableHiddenDescription(
           collectionStatus.getTableStatusByTableId(table.getId()).getCustomName()),
         messages.basicActionClose());
+    } else if (!collectionStatus.getTableStatusByTableId(table.getId()).isSearchable()) {
+      // the rows of the table are ingested the first time it is browsed
+      CollectionService.Util.call((String jobUUID) -> {
+      }).ingestTable(database.getUuid(), database.getUuid(), table.getUuid());
     }
   }
 }
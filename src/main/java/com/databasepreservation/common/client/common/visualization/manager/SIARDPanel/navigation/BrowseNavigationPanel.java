@@ -67,13 +67,14 @@ public class BrowseNavigationPanel {
   }
 
   private void handleBrowseAction() {
-    if (database.getStatus().equals(ViewerDatabaseStatus.METADATA_ONLY)) { // Initial state
+    if (database.getStatus().equals(ViewerDatabaseStatus.METADATA_ONLY)
+      || database.getStatus().equals(ViewerDatabaseStatus.RESUMABLE)) { // Initial or interrupted state
       if (database.getVersion().equals(ViewerConstants.SIARD_V21)) {
         if (!btnIngestClicked) {
           btnIngestClicked = true;
 
           HistoryManager.gotoIngestSIARDData(database.getUuid(), database.getMetadata().getName());
-          CollectionService.Util.call((String databaseUUID) -> {
+          CollectionService.Util.call((String jobUUID) -> {
             /*HistoryManager.gotoDatabase(databaseUUID);
             Dialogs.showInformationDialog(messages.SIARDHomePageDialogTitleForBrowsing(),
               messages.SIARDHomePageTextForIngestSuccess(), messages.basicActionClose(), "btn btn-link");*/
@@ -82,7 +83,7 @@ public class BrowseNavigationPanel {
             HistoryManager.gotoSIARDInfo(database.getUuid());
             Dialogs.showErrors(messages.SIARDHomePageDialogTitleForBrowsing(), errorMessage,
               messages.basicActionClose());
-          }).createCollection(database.getUuid());
+          }).createCollection(database.getUuid(), null, null);
         }
       } else {
         Dialogs.showInformationDialog(messages.SIARDHomePageDialogTitleForBrowsing(),
@@ -103,7 +104,8 @@ public class BrowseNavigationPanel {
 
     btnDelete.addClickHandler(event -> {
       if (database.getStatus().equals(ViewerDatabaseStatus.AVAILABLE)
-        || database.getStatus().equals(ViewerDatabaseStatus.ERROR)) {
+        || database.getStatus().equals(ViewerDatabaseStatus.ERROR)
+        || database.getStatus().equals(ViewerDatabaseStatus.RESUMABLE)) {
         CommonDialogs.showConfirmDialog(messages.SIARDHomePageDialogTitleForDeleteBrowseContent(),
           messages.SIARDHomePageTextForDeleteFromSolr(), messages.basicActionCancel(), messages.basicActionConfirm(),
           CommonDialogs.Level.DANGER, "500px", new DefaultAsyncCallback<Boolean>() {
@@ -148,7 +150,8 @@ public class BrowseNavigationPanel {
     if (database.getStatus().equals(ViewerDatabaseStatus.AVAILABLE)) {
       btnDelete.setVisible(true);
       btnConfiguration.setVisible(true);
-    } else if (database.getStatus().equals(ViewerDatabaseStatus.ERROR)) {
+    } else if (database.getStatus().equals(ViewerDatabaseStatus.ERROR)
+      || database.getStatus().equals(ViewerDatabaseStatus.RESUMABLE)) {
       btnDelete.setVisible(true);
       btnConfiguration.setVisible(false);
     } else if (database.getStatus().equals(ViewerDatabaseStatus.METADATA_ONLY)) {
@@ -186,6 +189,11 @@ public class BrowseNavigationPanel {
       btnBrowse.setVisible(true);
       btnDelete.setVisible(true);
       btnConfiguration.setVisible(false);
+    } else if (database.getStatus().equals(ViewerDatabaseStatus.RESUMABLE)) {
+      btnBrowse.setVisible(true);
+      btnDelete.setVisible(true);
+      btnConfiguration.setVisible(false);
+      btnIngestClicked = false;
     } else if (database.getStatus().equals(ViewerDatabaseStatus.METADATA_ONLY)) {
       btnBrowse.setVisible(true);
       btnDelete.setVisible(false);
@@ -207,7 +215,8 @@ public class BrowseNavigationPanel {
 
   private void delete() {
     if (database.getStatus().equals(ViewerDatabaseStatus.AVAILABLE)
-      || database.getStatus().equals(ViewerDatabaseStatus.ERROR)) {
+      || database.getStatus().equals(ViewerDatabaseStatus.ERROR)
+      || database.getStatus().equals(ViewerDatabaseStatus.RESUMABLE)) {
       CollectionService.Util.call((Boolean result) -> {
         SIARDManagerPage.getInstance(database).refreshInstance(database.getUuid());
         CollectionService.Util.call((List<CollectionStatus> collectionStatus) -> {
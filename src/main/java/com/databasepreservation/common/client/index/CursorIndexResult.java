@@ -0,0 +1,61 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.client.index;
+
+import java.io.Serializable;
+import java.util.List;
+
+import com.databasepreservation.common.client.index.facets.FacetFieldResult;
+
+/**
+ * An {@link IndexResult} with the opaque cursors of the pages next to it. A
+ * page requested with one of the cursors is found by the Solr cursor mark
+ * instead of by its offset, so it costs the same at any depth.
+ */
+public class CursorIndexResult<T extends Serializable> extends IndexResult<T> {
+
+  private String nextCursor;
+  private String previousCursor;
+
+  public CursorIndexResult() {
+    super();
+  }
+
+  public CursorIndexResult(long offset, long limit, long totalCount, List<T> results,
+    List<FacetFieldResult> facetResults) {
+    super(offset, limit, totalCount, results, facetResults);
+  }
+
+  /**
+   * @return the cursor of the next page, or null if this is the last page
+   */
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  public void setNextCursor(String nextCursor) {
+    this.nextCursor = nextCursor;
+  }
+
+  /**
+   * @return the cursor of the previous page, or null if this is the first page
+   */
+  public String getPreviousCursor() {
+    return previousCursor;
+  }
+
+  public void setPreviousCursor(String previousCursor) {
+    this.previousCursor = previousCursor;
+  }
+
+  @Override
+  public String toString() {
+    return "CursorIndexResult [" + super.toString() + ", nextCursor=" + nextCursor + ", previousCursor="
+      + previousCursor + "]";
+  }
+}
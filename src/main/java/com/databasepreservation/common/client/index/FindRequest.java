@@ -40,6 +40,19 @@ public class FindRequest extends CountRequest {
 
   public Map<String, String> extraParameters;
 
+  /**
+   * The view of the client making the request. A newer request of the same
+   * group supersedes the ones still in flight.
+   */
+  public String requestGroup;
+
+  /**
+   * If the request is of a rows list: when no fields to return are given, only
+   * the fields of the columns shown in the list are returned, and the long
+   * values are truncated.
+   */
+  public boolean listView;
+
   /**
    * Constructor.
    */
@@ -31,6 +31,7 @@ public class IndexResult<T extends Serializable> implements Serializable {
   private List<T> results;
   private List<FacetFieldResult> facetResults;
   private Date date;
+  private boolean partialResults;
 
   public IndexResult() {
     super();
@@ -107,9 +108,21 @@ public class IndexResult<T extends Serializable> implements Serializable {
     this.date = date;
   }
 
+  /**
+   * @return true if the search ran out of time and the results may be
+   *         incomplete
+   */
+  public boolean isPartialResults() {
+    return partialResults;
+  }
+
+  public void setPartialResults(boolean partialResults) {
+    this.partialResults = partialResults;
+  }
+
   @Override
   public String toString() {
     return "IndexResult [offset=" + offset + ", limit=" + limit + ", totalCount=" + totalCount + ", results=" + results
-        + ", facetResults=" + facetResults + ", date=" + date + "]";
+        + ", facetResults=" + facetResults + ", date=" + date + ", partialResults=" + partialResults + "]";
   }
 }
@@ -20,6 +20,7 @@ public class FacetFieldResult implements Serializable {
   private long totalCount;
   private List<FacetValue> values;
   private List<String> selectedValues;
+  private Long uniqueCount;
 
   public FacetFieldResult() {
     super();
@@ -85,9 +86,29 @@ public class FacetFieldResult implements Serializable {
     this.selectedValues = selectedValues;
   }
 
+  /**
+   * @return the approximate (HyperLogLog) number of distinct values of the
+   *         field, if it was requested
+   */
+  public Long getUniqueCount() {
+    return uniqueCount;
+  }
+
+  public void setUniqueCount(Long uniqueCount) {
+    this.uniqueCount = uniqueCount;
+  }
+
+  public FacetValue addFacetValue(String label, String value, long count, List<FacetFieldResult> subFacetResults) {
+    FacetValue facetValue = new FacetValue(label, value, count);
+    facetValue.setSubFacetResults(subFacetResults);
+    values.add(facetValue);
+    return facetValue;
+  }
+
   @Override
   public String toString() {
-    return "FacetFieldResult [field=" + field + ", totalCount=" + totalCount + ", values=" + values + "]";
+    return "FacetFieldResult [field=" + field + ", totalCount=" + totalCount + ", values=" + values
+      + ", uniqueCount=" + uniqueCount + "]";
   }
 
 }
@@ -31,6 +31,8 @@ public abstract class FacetParameter implements Serializable {
   private List<String> values;
   private int minCount = DEFAULT_MIN_COUNT;
   private SORT sort = DEFAULT_SORT;
+  private boolean uniqueCount = false;
+  private List<FacetParameter> subFacets = new ArrayList<>();
 
   public FacetParameter() {
     this(null);
@@ -88,8 +90,36 @@ public abstract class FacetParameter implements Serializable {
     this.sort = sort;
   }
 
+  /**
+   * @return true if the approximate (HyperLogLog) number of distinct values of
+   *         the field is also requested
+   */
+  public boolean isUniqueCount() {
+    return uniqueCount;
+  }
+
+  public void setUniqueCount(boolean uniqueCount) {
+    this.uniqueCount = uniqueCount;
+  }
+
+  /**
+   * @return the facets computed within each value or range of this facet
+   */
+  public List<FacetParameter> getSubFacets() {
+    return subFacets;
+  }
+
+  public void setSubFacets(List<FacetParameter> subFacets) {
+    this.subFacets = subFacets;
+  }
+
+  public void addSubFacet(FacetParameter subFacet) {
+    this.subFacets.add(subFacet);
+  }
+
   @Override
   public String toString() {
-    return "FacetParameter [name=" + name + ", values=" + values + ", minCount=" + minCount + ", sort=" + sort + "]";
+    return "FacetParameter [name=" + name + ", values=" + values + ", minCount=" + minCount + ", sort=" + sort
+      + ", uniqueCount=" + uniqueCount + ", subFacets=" + subFacets + "]";
   }
 }
@@ -8,6 +8,8 @@
 package com.databasepreservation.common.client.index.facets;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 
 public class FacetValue implements Serializable {
   private static final long serialVersionUID = 8898599554012120196L;
@@ -15,6 +17,7 @@ public class FacetValue implements Serializable {
   private String label;
   private String value;
   private long count;
+  private List<FacetFieldResult> subFacetResults = new ArrayList<>();
 
   public FacetValue() {
     super();
@@ -51,9 +54,20 @@ public class FacetValue implements Serializable {
     this.label = label;
   }
 
+  /**
+   * @return the results of the sub-facets within this value or range
+   */
+  public List<FacetFieldResult> getSubFacetResults() {
+    return subFacetResults;
+  }
+
+  public void setSubFacetResults(List<FacetFieldResult> subFacetResults) {
+    this.subFacetResults = subFacetResults;
+  }
+
   @Override
   public String toString() {
-    return "FacetValue [value=" + value + ", count=" + count + "]";
+    return "FacetValue [value=" + value + ", count=" + count + ", subFacetResults=" + subFacetResults + "]";
   }
 
 }
\ No newline at end of file
@@ -39,11 +39,26 @@ public class ProgressData implements Serializable {
   public ProgressData() {
   }
 
-  public void incrementProcessedRows(long value) {
+  public synchronized void incrementProcessedRows(long value) {
     this.processedRows += (value - this.previousProcessedRows);
     this.previousProcessedRows = value;
   }
 
+  /**
+   * Adds rows processed by one of several concurrent ingest workers, each
+   * keeping track of its own table progress.
+   *
+   * @param value
+   *          the number of rows processed since the last call
+   */
+  public synchronized void addProcessedRows(long value) {
+    this.processedRows += value;
+  }
+
+  public synchronized void incrementProcessedTables() {
+    this.processedTables++;
+  }
+
   public void setPreviousProcessedRows(long previousProcessedRows) {
     this.previousProcessedRows = previousProcessedRows;
   }
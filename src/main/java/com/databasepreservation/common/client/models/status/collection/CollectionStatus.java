@@ -15,6 +15,7 @@ import java.util.Set;
 
 import com.databasepreservation.common.client.ViewerConstants;
 import com.databasepreservation.common.client.common.search.SavedSearch;
+import com.databasepreservation.common.client.models.structure.ViewerTable;
 import com.databasepreservation.common.client.tools.MimeTypeUtils;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
@@ -187,6 +188,19 @@ public class CollectionStatus implements Serializable {
     return null;
   }
 
+  /**
+   * @return the row count of the table computed after its ingest, if known,
+   *         otherwise the row count in the metadata of the table
+   */
+  @JsonIgnore
+  public long getCountRows(ViewerTable table) {
+    TableStatus tableStatus = getTableStatusByTableId(table.getId());
+    if (tableStatus != null && tableStatus.getRowCount() != null) {
+      return tableStatus.getRowCount();
+    }
+    return table.getCountRows();
+  }
+
   public boolean showTable(String id) {
     for (TableStatus table : tables) {
       if (table.getUuid().equals(id)) {
@@ -197,6 +211,29 @@ public class CollectionStatus implements Serializable {
     return true;
   }
 
+  /**
+   * @return the visible tables whose rows are not ingested yet
+   */
+  @JsonIgnore
+  public List<TableStatus> getTablesNotSearchable() {
+    List<TableStatus> result = new ArrayList<>();
+    for (TableStatus table : tables) {
+      if (table.isShow() && !table.isSearchable()) {
+        result.add(table);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Marks every table as ingested with the whole database.
+   */
+  public void clearTablesIngestState() {
+    for (TableStatus table : tables) {
+      table.setIngestState(null);
+    }
+  }
+
   public boolean showColumn(String tableId, String columnId) {
     final TableStatus tableStatus = getTableStatus(tableId);
     if (tableStatus != null) {
@@ -0,0 +1,85 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.client.models.status.collection;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Statistics of the values of a column, computed from the rows collection
+ * after the table is ingested. The statistics that do not apply to the type of
+ * the column are null.
+ */
+@JsonPropertyOrder({"nullCount", "min", "max", "distinctCount", "topValues"})
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ColumnStatistics implements Serializable {
+  private long nullCount;
+  private String min;
+  private String max;
+  private Long distinctCount;
+  private LinkedHashMap<String, Long> topValues;
+
+  public ColumnStatistics() {
+  }
+
+  public long getNullCount() {
+    return nullCount;
+  }
+
+  public void setNullCount(long nullCount) {
+    this.nullCount = nullCount;
+  }
+
+  public String getMin() {
+    return min;
+  }
+
+  public void setMin(String min) {
+    this.min = min;
+  }
+
+  public String getMax() {
+    return max;
+  }
+
+  public void setMax(String max) {
+    this.max = max;
+  }
+
+  /**
+   * @return the approximate (HyperLogLog) number of distinct values
+   */
+  public Long getDistinctCount() {
+    return distinctCount;
+  }
+
+  public void setDistinctCount(Long distinctCount) {
+    this.distinctCount = distinctCount;
+  }
+
+  /**
+   * @return the most frequent values and their counts, by descending count, if
+   *         the column has few distinct values
+   */
+  public LinkedHashMap<String, Long> getTopValues() {
+    return topValues;
+  }
+
+  public void setTopValues(LinkedHashMap<String, Long> topValues) {
+    this.topValues = topValues;
+  }
+
+  @Override
+  public String toString() {
+    return "ColumnStatistics{" + "nullCount=" + nullCount + ", min='" + min + '\'' + ", max='" + max + '\''
+      + ", distinctCount=" + distinctCount + ", topValues=" + topValues + '}';
+  }
+}
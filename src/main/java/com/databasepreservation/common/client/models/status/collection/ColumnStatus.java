@@ -22,8 +22,8 @@ import com.fasterxml.jackson.annotation.JsonPropertyOrder;
  * @author Miguel Guimarães <mguimaraes@keep.pt>
  */
 @JsonPropertyOrder({"id", "name", "customName", "description", "customDescription", "originalType", "typeName",
-  "nullable", "type", "columnIndex", "externalLob", "formatter", "applicationType", "nestedColumn", "order",
-  "export", "search", "details"})
+  "nullable", "type", "columnIndex", "externalLob", "formatter", "applicationType", "mimeTypeDetection", "nestedColumn", "order",
+  "export", "search", "details", "statistics"})
 public class ColumnStatus implements Serializable, Comparable<ColumnStatus> {
   private String id;
   private String name;
@@ -39,11 +39,15 @@ public class ColumnStatus implements Serializable, Comparable<ColumnStatus> {
   private boolean externalLob;
   private Formatter formatter;
   private String applicationType;
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private MimeTypeDetectionPolicy mimeTypeDetection;
   private NestedColumnStatus nestedColumns;
   private int order;
   private ExportStatus exportStatus;
   private SearchStatus searchStatus;
   private DetailsStatus detailsStatus;
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private ColumnStatistics statistics;
 
   public ColumnStatus() {
     externalLob = false;
@@ -140,6 +144,30 @@ public class ColumnStatus implements Serializable, Comparable<ColumnStatus> {
     this.applicationType = applicationType;
   }
 
+  /**
+   * @return the MIME type detection policy for the LOBs of this column or null
+   *         to use the one from the configuration
+   */
+  public MimeTypeDetectionPolicy getMimeTypeDetection() {
+    return mimeTypeDetection;
+  }
+
+  public void setMimeTypeDetection(MimeTypeDetectionPolicy mimeTypeDetection) {
+    this.mimeTypeDetection = mimeTypeDetection;
+  }
+
+  /**
+   * @return the statistics of the values of the column, or null if they were
+   *         not computed
+   */
+  public ColumnStatistics getStatistics() {
+    return statistics;
+  }
+
+  public void setStatistics(ColumnStatistics statistics) {
+    this.statistics = statistics;
+  }
+
   public NestedColumnStatus getNestedColumns() {
     return nestedColumns;
   }
@@ -242,7 +270,8 @@ public class ColumnStatus implements Serializable, Comparable<ColumnStatus> {
       + originalType + '\'' + ", typeName='" + typeName + '\'' + ", nullable='" + nullable + '\'' + ", type=" + type
       + ", columnIndex=" + columnIndex + ", externalLob=" + externalLob + ", formatter='" + formatter + '\''
       + ", applicationType='" + applicationType + '\'' + ", nestedColumns=" + nestedColumns + ", order=" + order
-      + ", exportStatus=" + exportStatus + ", searchStatus=" + searchStatus + ", detailsStatus=" + detailsStatus + '}';
+      + ", exportStatus=" + exportStatus + ", searchStatus=" + searchStatus + ", detailsStatus=" + detailsStatus
+      + ", statistics=" + statistics + '}';
   }
 
   @Override
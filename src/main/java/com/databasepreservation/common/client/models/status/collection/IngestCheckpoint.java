@@ -0,0 +1,95 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.client.models.status.collection;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * The progress of the ingest of a database that is known to be committed to
+ * the rows collection: the tables that were completely ingested and, for the
+ * others, the index of the last committed row. Saved next to the collection
+ * status while the ingest runs, so an interrupted ingest can be resumed.
+ */
+@JsonPropertyOrder({"databaseUUID", "lastUpdate", "completedTables", "committedRows"})
+public class IngestCheckpoint implements Serializable {
+
+  private String databaseUUID;
+  private String lastUpdate;
+  private Set<String> completedTables;
+  private Map<String, Long> committedRows;
+
+  public IngestCheckpoint() {
+    completedTables = new HashSet<>();
+    committedRows = new HashMap<>();
+  }
+
+  public IngestCheckpoint(String databaseUUID) {
+    this();
+    this.databaseUUID = databaseUUID;
+  }
+
+  public String getDatabaseUUID() {
+    return databaseUUID;
+  }
+
+  public void setDatabaseUUID(String databaseUUID) {
+    this.databaseUUID = databaseUUID;
+  }
+
+  public String getLastUpdate() {
+    return lastUpdate;
+  }
+
+  public void setLastUpdate(String lastUpdate) {
+    this.lastUpdate = lastUpdate;
+  }
+
+  public Set<String> getCompletedTables() {
+    return completedTables;
+  }
+
+  public void setCompletedTables(Set<String> completedTables) {
+    this.completedTables = completedTables;
+  }
+
+  public Map<String, Long> getCommittedRows() {
+    return committedRows;
+  }
+
+  public void setCommittedRows(Map<String, Long> committedRows) {
+    this.committedRows = committedRows;
+  }
+
+  public boolean isTableCompleted(String tableId) {
+    return completedTables.contains(tableId);
+  }
+
+  public void addCompletedTable(String tableId) {
+    completedTables.add(tableId);
+    committedRows.remove(tableId);
+  }
+
+  /**
+   * @return the index of the last committed row of the table, or 0 if no row
+   *         of the table was committed
+   */
+  public long getCommittedRowIndex(String tableId) {
+    Long index = committedRows.get(tableId);
+    return index != null ? index : 0;
+  }
+
+  public void setCommittedRowIndex(String tableId, long rowIndex) {
+    committedRows.put(tableId, rowIndex);
+  }
+}
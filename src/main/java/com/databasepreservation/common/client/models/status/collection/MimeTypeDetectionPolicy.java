@@ -0,0 +1,23 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.client.models.status.collection;
+
+/**
+ * How the MIME type of the LOBs of a column is detected during ingest.
+ * <ul>
+ * <li>FULL - every LOB is detected, parsing the whole LOB when needed</li>
+ * <li>PREFIX - every LOB is detected using only its first bytes</li>
+ * <li>SAMPLED - the first LOBs of the column are detected using their first
+ * bytes; if they all agree, the result is reused for the rest of the
+ * column</li>
+ * <li>DISABLED - no detection is done</li>
+ * </ul>
+ */
+public enum MimeTypeDetectionPolicy {
+  FULL, PREFIX, SAMPLED, DISABLED
+}
@@ -0,0 +1,16 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.client.models.status.collection;
+
+/**
+ * The ingest state of a table whose rows are only ingested the first time it
+ * is accessed.
+ */
+public enum TableIngestState {
+  PENDING, INGESTING, INGESTED, ERROR
+}
@@ -15,6 +15,7 @@ import java.util.stream.Collectors;
 import com.databasepreservation.common.client.models.structure.ViewerType;
 import com.databasepreservation.common.client.tools.ViewerStringUtils;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import com.google.gwt.core.client.GWT;
 
@@ -22,7 +23,7 @@ import com.google.gwt.core.client.GWT;
  * @author Miguel Guimarães <mguimaraes@keep.pt>
  */
 @JsonPropertyOrder({"uuid", "id", "schemaFolder", "tableFolder", "name", "customName", "description",
-  "customDescription", "show", "columns"})
+  "customDescription", "show", "ingestState", "contentFingerprint", "rowCount", "columns"})
 public class TableStatus implements Serializable {
 
   private String uuid;
@@ -34,6 +35,10 @@ public class TableStatus implements Serializable {
   private String description;
   private String customDescription;
   private boolean show;
+  private TableIngestState ingestState;
+  private String contentFingerprint;
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private Long rowCount;
   private List<ColumnStatus> columns;
 
   public TableStatus() {
@@ -96,6 +101,50 @@ public class TableStatus implements Serializable {
     this.show = show;
   }
 
+  /**
+   * @return the ingest state of the table, or null if its rows were ingested
+   *         with the whole database
+   */
+  public TableIngestState getIngestState() {
+    return ingestState;
+  }
+
+  public void setIngestState(TableIngestState ingestState) {
+    this.ingestState = ingestState;
+  }
+
+  /**
+   * @return true if the rows of the table are ingested and can be searched
+   */
+  @JsonIgnore
+  public boolean isSearchable() {
+    return ingestState == null || TableIngestState.INGESTED.equals(ingestState);
+  }
+
+  /**
+   * @return the fingerprint of the content of the table in the SIARD it was
+   *         ingested from, or null if unknown
+   */
+  public String getContentFingerprint() {
+    return contentFingerprint;
+  }
+
+  public void setContentFingerprint(String contentFingerprint) {
+    this.contentFingerprint = contentFingerprint;
+  }
+
+  /**
+   * @return the number of rows of the table in the rows collection, or null if
+   *         the statistics of the table were not computed
+   */
+  public Long getRowCount() {
+    return rowCount;
+  }
+
+  public void setRowCount(Long rowCount) {
+    this.rowCount = rowCount;
+  }
+
   public List<ColumnStatus> getColumns() {
     return columns;
   }
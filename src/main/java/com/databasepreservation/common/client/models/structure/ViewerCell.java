@@ -16,6 +16,7 @@ public class ViewerCell implements Serializable {
   private String value;
   private String mimeType;
   private String fileExtension;
+  private boolean truncated;
 
   public ViewerCell() {
   }
@@ -59,9 +60,21 @@ public class ViewerCell implements Serializable {
     this.fileExtension = fileExtension;
   }
 
+  /**
+   * @return true if the value was truncated for a rows list, the whole value
+   *         is retrieved with the cell of the row
+   */
+  public boolean isTruncated() {
+    return truncated;
+  }
+
+  public void setTruncated(boolean truncated) {
+    this.truncated = truncated;
+  }
+
   @Override
   public String toString() {
     return "ViewerCell{" + "value='" + value + '\'' + ", mimeType='" + mimeType + '\'' + ", fileExtension='"
-      + fileExtension + '\'' + '}';
+      + fileExtension + '\'' + ", truncated=" + truncated + '}';
   }
 }
@@ -11,5 +11,5 @@ package com.databasepreservation.common.client.models.structure;
  * @author Miguel Guimarães <mguimaraes@keep.pt>
  */
 public enum ViewerDatabaseStatus {
-    INGESTING, AVAILABLE, REMOVING, ERROR, METADATA_ONLY
+    INGESTING, AVAILABLE, REMOVING, ERROR, METADATA_ONLY, RESUMABLE
 }
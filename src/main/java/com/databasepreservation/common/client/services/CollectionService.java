@@ -28,6 +28,7 @@ import com.databasepreservation.common.client.ViewerConstants;
 import com.databasepreservation.common.client.common.DefaultMethodCallback;
 import com.databasepreservation.common.client.common.search.SavedSearch;
 import com.databasepreservation.common.client.common.search.SearchInfo;
+import com.databasepreservation.common.client.index.CursorIndexResult;
 import com.databasepreservation.common.client.index.FindRequest;
 import com.databasepreservation.common.client.index.IndexResult;
 import com.databasepreservation.common.client.models.progress.ProgressData;
@@ -75,8 +76,28 @@ public interface CollectionService extends DirectRestService {
   @POST
   @Path("{databaseUUID}/collection")
   @Produces(MediaType.TEXT_PLAIN)
-  @ApiOperation(value = "Creates a collection for a database", notes = "", response = String.class)
-  String createCollection(@PathParam("databaseUUID") String databaseUUID);
+  @ApiOperation(value = "Queues the creation of the collection for a database", notes = "Returns the UUID of the ingest job", response = String.class)
+  String createCollection(@PathParam("databaseUUID") String databaseUUID,
+    @ApiParam(value = "The priority of the ingest, higher runs first") @QueryParam(ViewerConstants.API_QUERY_PARAM_PRIORITY) Integer priority,
+    @ApiParam(value = "Only ingest these tables, the others are ingested when first accessed") @QueryParam(ViewerConstants.API_QUERY_PARAM_TABLES) List<String> tableUUIDs);
+
+  @POST
+  @Path("{databaseUUID}/collection/{collectionUUID}/table/{tableUUID}/ingest")
+  @Produces(MediaType.TEXT_PLAIN)
+  @ApiOperation(value = "Queues the ingest of a table not ingested yet", notes = "Returns the UUID of the ingest job", response = String.class)
+  String ingestTable(@PathParam("databaseUUID") String databaseUUID,
+    @PathParam("collectionUUID") String collectionUUID, @PathParam("tableUUID") String tableUUID);
+
+  @POST
+  @Path("{databaseUUID}/collection/{collectionUUID}/statistics")
+  @ApiOperation(value = "Queues the computation of the row counts and column statistics of the ingested tables", notes = "", response = Boolean.class)
+  Boolean computeStatistics(@PathParam("databaseUUID") String databaseUUID,
+    @PathParam("collectionUUID") String collectionUUID);
+
+  @DELETE
+  @Path("{databaseUUID}/collection/ingest")
+  @ApiOperation(value = "Cancels the queued or running creation of the collection for a database", notes = "", response = Boolean.class)
+  Boolean cancelCollectionCreation(@PathParam("databaseUUID") String databaseUUID);
 
   @GET
   @Path("{databaseUUID}/collection/{collectionUUID}/status")
@@ -143,6 +164,21 @@ public interface CollectionService extends DirectRestService {
     @PathParam("table") String table, @ApiParam(ViewerConstants.API_QUERY_PARAM_FILTER) FindRequest findRequest,
     @QueryParam(ViewerConstants.API_QUERY_PARAM_LOCALE) String localeString);
 
+  @POST
+  @Path("{databaseUUID}/collection/{collectionUUID}/data/{schema}/{table}/findByCursor")
+  @ApiOperation(value = "Find a page of rows for a specific database using the cursor of an adjacent page", notes = "", response = ViewerRow.class, responseContainer = "CursorIndexResult")
+  CursorIndexResult<ViewerRow> findRowsByCursor(@PathParam("databaseUUID") String databaseUUID,
+    @PathParam("collectionUUID") String collectionUUID, @PathParam("schema") String schema,
+    @PathParam("table") String table, @ApiParam(ViewerConstants.API_QUERY_PARAM_FILTER) FindRequest findRequest,
+    @QueryParam(ViewerConstants.API_QUERY_PARAM_CURSOR) String cursor,
+    @QueryParam(ViewerConstants.API_QUERY_PARAM_LOCALE) String localeString);
+
+  @DELETE
+  @Path("{databaseUUID}/collection/{collectionUUID}/data/find/{requestGroup}")
+  @ApiOperation(value = "Cancels the searches in flight of a request group", notes = "The searches not sent to the index yet are dropped", response = Boolean.class)
+  Boolean cancelFindRows(@PathParam("databaseUUID") String databaseUUID,
+    @PathParam("collectionUUID") String collectionUUID, @PathParam("requestGroup") String requestGroup);
+
   @GET
   @Path("/{databaseUUID}/collection/{collectionUUID}/data/{schema}/{table}/{rowIndex}")
   @ApiOperation(value = "Retrieves a specific row within a specific database", notes = "", response = ViewerRow.class)
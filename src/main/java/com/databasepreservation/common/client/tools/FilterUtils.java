@@ -7,11 +7,14 @@
  */
 package com.databasepreservation.common.client.tools;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
 import com.databasepreservation.common.client.index.filter.Filter;
 import com.databasepreservation.common.client.index.filter.FilterParameter;
+import com.databasepreservation.common.client.index.filter.NotSimpleFilterParameter;
+import com.databasepreservation.common.client.index.filter.OneOfManyFilterParameter;
 import com.databasepreservation.common.client.index.filter.SimpleFilterParameter;
 
 import com.databasepreservation.common.client.ViewerConstants;
@@ -20,6 +23,28 @@ import com.databasepreservation.common.client.ViewerConstants;
  * @author Bruno Ferreira <bferreira@keep.pt>
  */
 public class FilterUtils {
+  // fields of the table, status and database restrictions
+  private static final Set<String> STRUCTURAL_FIELDS = new HashSet<>(Arrays.asList(ViewerConstants.SOLR_ROWS_TABLE_ID,
+    ViewerConstants.SOLR_ROWS_TABLE_UUID, ViewerConstants.SOLR_ROWS_NESTED_TABLE_ID,
+    ViewerConstants.SOLR_DATABASES_STATUS, ViewerConstants.SOLR_DATABASES_VALIDATION_STATUS,
+    ViewerConstants.SOLR_SEARCHES_DATABASE_UUID, ViewerConstants.SOLR_BATCH_JOB_DATABASE_UUID));
+
+  /**
+   * Tells apart the parameters of a filter that score the results from the
+   * ones that only restrict them: exact matches on the table, status and
+   * database fields. The latter do not depend on the search, so they can be
+   * cached and reused by all the searches with the same restriction.
+   *
+   * @return false if the parameter only restricts the results
+   */
+  public static boolean isScoring(FilterParameter parameter) {
+    if (parameter instanceof SimpleFilterParameter || parameter instanceof NotSimpleFilterParameter
+      || parameter instanceof OneOfManyFilterParameter) {
+      return !STRUCTURAL_FIELDS.contains(parameter.getName());
+    }
+    return true;
+  }
+
   public static Filter filterByTable(Filter filter, String tableId) {
     Set<FilterParameter> otherTableFilters = new HashSet<>();
     boolean alreadyPresent = false;
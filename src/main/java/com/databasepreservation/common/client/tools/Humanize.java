@@ -197,6 +197,8 @@ public class Humanize {
         return messages.humanizedTextForSolrRemoving();
       case ERROR:
         return messages.humanizedTextForSolrError();
+      case RESUMABLE:
+        return messages.humanizedTextForSolrResumable();
       default:
         return "";
     }
@@ -13,9 +13,11 @@ import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.SimpleDateFormat;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import org.roda.core.data.exceptions.GenericException;
 import org.roda.core.data.exceptions.NotFoundException;
@@ -28,7 +30,9 @@ import com.databasepreservation.common.client.common.search.SavedSearch;
 import com.databasepreservation.common.client.models.activity.logs.ActivityLogEntry;
 import com.databasepreservation.common.client.models.status.collection.CollectionStatus;
 import com.databasepreservation.common.client.models.status.collection.ColumnStatus;
+import com.databasepreservation.common.client.models.status.collection.IngestCheckpoint;
 import com.databasepreservation.common.client.models.status.collection.NestedColumnStatus;
+import com.databasepreservation.common.client.models.status.collection.TableIngestState;
 import com.databasepreservation.common.client.models.status.collection.TableStatus;
 import com.databasepreservation.common.client.models.status.database.DatabaseStatus;
 import com.databasepreservation.common.client.models.structure.ViewerColumn;
@@ -37,8 +41,10 @@ import com.databasepreservation.common.client.models.structure.ViewerDatabaseVal
 import com.databasepreservation.common.client.models.structure.ViewerType;
 import com.databasepreservation.common.exceptions.ViewerException;
 import com.databasepreservation.common.server.index.utils.JsonTransformer;
+import com.databasepreservation.common.server.storage.SIARDArchive;
 import com.databasepreservation.common.server.storage.fs.FSUtils;
 import com.databasepreservation.common.utils.StatusUtils;
+import com.databasepreservation.common.utils.ViewerUtils;
 
 /**
  * @author Miguel Guimarães <mguimaraes@keep.pt>
@@ -49,6 +55,7 @@ public class ConfigurationManager {
   private final Object logFileLock = new Object();
   private final Object databaseStatusFileLock = new Object();
   private final Object collectionStatusFileLock = new Object();
+  private final Object ingestCheckpointFileLock = new Object();
   private long entryLogLineNumber = -1;
 
   public ConfigurationManager() {
@@ -252,6 +259,45 @@ public class ConfigurationManager {
     return databaseDirectoryPath.resolve(id + ViewerConstants.JSON_EXTENSION);
   }
 
+  private Path getIngestCheckpointPath(String databaseUUID) {
+    final Path databasesDirectoryPath = ViewerFactory.getViewerConfiguration().getDatabasesPath();
+    final Path databaseDirectoryPath = databasesDirectoryPath.resolve(databaseUUID);
+
+    return databaseDirectoryPath
+      .resolve(ViewerConstants.INGEST_CHECKPOINT_PREFIX + databaseUUID + ViewerConstants.JSON_EXTENSION);
+  }
+
+  /**
+   * @return the checkpoint of the last ingest of the database that did not
+   *         finish, or null if there is none
+   */
+  public IngestCheckpoint getIngestCheckpoint(String databaseUUID) throws GenericException {
+    synchronized (ingestCheckpointFileLock) {
+      final Path checkpointFile = getIngestCheckpointPath(databaseUUID);
+      if (!FSUtils.exists(checkpointFile)) {
+        return null;
+      }
+      return JsonUtils.readObjectFromFile(checkpointFile, IngestCheckpoint.class);
+    }
+  }
+
+  public void updateIngestCheckpoint(IngestCheckpoint checkpoint) throws ViewerException {
+    synchronized (ingestCheckpointFileLock) {
+      checkpoint.setLastUpdate(ViewerUtils.dateToString(new Date()));
+      JsonTransformer.writeObjectToFile(checkpoint, getIngestCheckpointPath(checkpoint.getDatabaseUUID()));
+    }
+  }
+
+  public void deleteIngestCheckpoint(String databaseUUID) throws GenericException {
+    synchronized (ingestCheckpointFileLock) {
+      try {
+        Files.deleteIfExists(getIngestCheckpointPath(databaseUUID));
+      } catch (IOException e) {
+        throw new GenericException("Could not delete the ingest checkpoint of database " + databaseUUID, e);
+      }
+    }
+  }
+
   public void updateIndicators(String id, String passed, String failed, String warnings, String skipped) {
     synchronized (databaseStatusFileLock) {
       try {
@@ -287,6 +333,89 @@ public class ConfigurationManager {
       Path statusFile = getCollectionStatusPath(databaseUUID, status.getId());
       JsonTransformer.writeObjectToFile(status, statusFile);
     }
+    ViewerFactory.getSolrManager().invalidateRows(databaseUUID);
+  }
+
+  /**
+   * Marks LOB columns of a table as having auto-detected MIME types and file
+   * extensions, after the rows were updated by the MIME type enrichment job.
+   */
+  public void updateLobColumnsMimeType(String databaseUUID, String tableUUID, List<Integer> columnIndexes)
+    throws GenericException, ViewerException {
+    synchronized (collectionStatusFileLock) {
+      CollectionStatus collectionStatus = getCollectionStatus(databaseUUID,
+        ViewerConstants.SOLR_INDEX_ROW_COLLECTION_NAME_PREFIX + databaseUUID);
+      for (Integer columnIndex : columnIndexes) {
+        collectionStatus.updateColumnMimeType(tableUUID, columnIndex);
+        collectionStatus.updateLobFileName(tableUUID, columnIndex);
+      }
+      updateCollectionStatus(databaseUUID, collectionStatus);
+    }
+  }
+
+  /**
+   * Sets the ingest state of tables of a database. Once ingested, the status of
+   * each table is replaced by the given one, updated by the ingest (e.g. with
+   * the MIME types of its LOB columns).
+   */
+  public void updateTablesIngestState(String databaseUUID, Collection<TableStatus> tables, TableIngestState state)
+    throws GenericException, ViewerException {
+    synchronized (collectionStatusFileLock) {
+      CollectionStatus collectionStatus = getCollectionStatus(databaseUUID,
+        ViewerConstants.SOLR_INDEX_ROW_COLLECTION_NAME_PREFIX + databaseUUID);
+      List<TableStatus> statuses = collectionStatus.getTables();
+      for (TableStatus table : tables) {
+        for (int i = 0; i < statuses.size(); i++) {
+          if (statuses.get(i).getId().equals(table.getId())) {
+            if (TableIngestState.INGESTED.equals(state)) {
+              statuses.set(i, table);
+            }
+            statuses.get(i).setIngestState(state);
+          }
+        }
+      }
+      updateCollectionStatus(databaseUUID, collectionStatus);
+    }
+  }
+
+  /**
+   * Sets the fingerprints of the content of the tables of a database, by table
+   * folder (see {@link SIARDArchive#getTableFingerprints()}).
+   */
+  public void updateTablesFingerprint(String databaseUUID, Map<String, String> fingerprints)
+    throws GenericException, ViewerException {
+    synchronized (collectionStatusFileLock) {
+      CollectionStatus collectionStatus = getCollectionStatus(databaseUUID,
+        ViewerConstants.SOLR_INDEX_ROW_COLLECTION_NAME_PREFIX + databaseUUID);
+      for (TableStatus table : collectionStatus.getTables()) {
+        table.setContentFingerprint(
+          fingerprints.get(SIARDArchive.getTableFolder(table.getSchemaFolder(), table.getTableFolder())));
+      }
+      updateCollectionStatus(databaseUUID, collectionStatus);
+    }
+  }
+
+  /**
+   * Stores the row counts and column statistics computed for some tables.
+   */
+  public void updateTablesStatistics(String databaseUUID, Collection<TableStatus> tables)
+    throws GenericException, ViewerException {
+    synchronized (collectionStatusFileLock) {
+      CollectionStatus collectionStatus = getCollectionStatus(databaseUUID,
+        ViewerConstants.SOLR_INDEX_ROW_COLLECTION_NAME_PREFIX + databaseUUID);
+      for (TableStatus computed : tables) {
+        TableStatus table = collectionStatus.getTableStatusByTableId(computed.getId());
+        if (table == null) {
+          continue;
+        }
+        table.setRowCount(computed.getRowCount());
+        for (ColumnStatus column : table.getColumns()) {
+          ColumnStatus computedColumn = computed.getColumnById(column.getId());
+          column.setStatistics(computedColumn != null ? computedColumn.getStatistics() : null);
+        }
+      }
+      updateCollectionStatus(databaseUUID, collectionStatus);
+    }
   }
 
   public void updateCollectionStatus(String databaseUUID, List<TableStatus> list, boolean updateCustomDescription)
@@ -19,19 +19,41 @@ import com.databasepreservation.model.structure.TableStructure;
  */
 public class SIARDProgressObserver implements ModuleObserver {
   private ProgressData progressData;
+  private final boolean partial;
+  private long previousTableRows = 0;
 
   public SIARDProgressObserver(String UUID) {
+    this(UUID, false);
+  }
+
+  /**
+   * @param UUID
+   *          the database UUID
+   * @param partial
+   *          true if this observer follows one of several concurrent
+   *          migrations of the same database. In that case the totals, reset
+   *          and finish of the progress are handled by whoever started the
+   *          migrations and this observer only adds its own rows and tables.
+   */
+  public SIARDProgressObserver(String UUID, boolean partial) {
     progressData = ProgressData.getInstance(UUID);
+    this.partial = partial;
   }
 
   @Override
   public void notifyOpenDatabase() {
+    if (partial) {
+      return;
+    }
     progressData.reset();
     progressData.setDatabaseStructureRetrieved(false);
   }
 
   @Override
   public void notifyStructureObtained(DatabaseStructure databaseStructure) {
+    if (partial) {
+      return;
+    }
     long totalRows = 0;
     for (SchemaStructure schema : databaseStructure.getSchemas()) {
       for (TableStructure table : schema.getTables()) {
@@ -47,6 +69,9 @@ public class SIARDProgressObserver implements ModuleObserver {
   public void notifyOpenSchema(DatabaseStructure databaseStructure, SchemaStructure schemaStructure,
     long completedSchemas, long completedTablesInSchema) {
     progressData.setCurrentSchemaName(schemaStructure.getName());
+    if (partial) {
+      return;
+    }
     progressData.setProcessedSchemas(completedSchemas);
     progressData.setTotalTables(schemaStructure.getTables().size());
   }
@@ -56,6 +81,7 @@ public class SIARDProgressObserver implements ModuleObserver {
     long completedTablesInSchema) {
     progressData.setCurrentTableName(tableStructure.getName());
     progressData.setCurrentProcessedTableRows(0);
+    previousTableRows = 0;
     progressData.setPreviousProcessedRows(0);
     progressData.setCurrentTableTotalRows(tableStructure.getRows());
   }
@@ -63,21 +89,33 @@ public class SIARDProgressObserver implements ModuleObserver {
   @Override
   public void notifyTableProgressSparse(DatabaseStructure databaseStructure, TableStructure tableStructure,
     long completedRows, long totalRows) {
-    progressData.setCurrentProcessedTableRows(completedRows + 1);
-    progressData.incrementProcessedRows(completedRows + 1);
+    updateTableProgress(completedRows + 1);
   }
 
   @Override
   public void notifyTableProgressDetailed(DatabaseStructure databaseStructure, TableStructure tableStructure, Row row,
     long completedRows, long totalRows) {
-    progressData.setCurrentProcessedTableRows(completedRows + 1);
-    progressData.incrementProcessedRows(completedRows + 1);
+    updateTableProgress(completedRows + 1);
+  }
+
+  private void updateTableProgress(long processedTableRows) {
+    progressData.setCurrentProcessedTableRows(processedTableRows);
+    if (partial) {
+      progressData.addProcessedRows(processedTableRows - previousTableRows);
+      previousTableRows = processedTableRows;
+    } else {
+      progressData.incrementProcessedRows(processedTableRows);
+    }
   }
 
   @Override
   public void notifyCloseTable(DatabaseStructure databaseStructure, TableStructure tableStructure,
     long completedSchemas, long completedTablesInSchema) {
-    progressData.setProcessedTables(completedTablesInSchema);
+    if (partial) {
+      progressData.incrementProcessedTables();
+    } else {
+      progressData.setProcessedTables(completedTablesInSchema);
+    }
   }
 
   @Override
@@ -88,6 +126,9 @@ public class SIARDProgressObserver implements ModuleObserver {
 
   @Override
   public void notifyCloseDatabase(DatabaseStructure databaseStructure) {
+    if (partial) {
+      return;
+    }
     progressData.reset();
     progressData.setFinished(true);
   }
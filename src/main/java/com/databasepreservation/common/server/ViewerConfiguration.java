@@ -107,6 +107,7 @@ public class ViewerConfiguration extends ViewerAbstractConfiguration {
 
   public static final String PROPERTY_DISABLE_SIARD_DELETION = "ui.disable.siard.deletion";
   public static final String PROPERTY_PLUGIN_LOAD_ON_ACCESS = "ui.plugin.loadOnAccess";
+  public static final String PROPERTY_PLUGIN_LOAD_ON_ACCESS_PER_TABLE = "ui.plugin.loadOnAccess.perTable";
 
   public static final String PROPERTY_DISABLE_WHITELIST_CACHE = "ui.disable.whitelist.cache";
 
@@ -116,6 +117,43 @@ public class ViewerConfiguration extends ViewerAbstractConfiguration {
 
   public static final String PROPERTY_BLOB_PREFIX_NAME ="ui.blob.prefix.name";
 
+  public static final String PROPERTY_INGEST_BATCH_SIZE = "ingest.batch.size";
+  public static final String PROPERTY_INGEST_BATCH_MAX_BYTES = "ingest.batch.maxBytes";
+  public static final String PROPERTY_INGEST_BATCH_RETRIES = "ingest.batch.retries";
+  public static final String PROPERTY_INGEST_SENDER_THREADS = "ingest.senderThreads";
+  public static final String PROPERTY_INGEST_QUEUE_SIZE = "ingest.queueSize";
+  public static final String PROPERTY_INGEST_PARALLEL_WORKERS = "ingest.parallel.workers";
+  public static final String PROPERTY_INGEST_MIME_DETECTION = "ingest.mimeDetection.policy";
+  public static final String PROPERTY_INGEST_MIME_DETECTION_PREFIX_BYTES = "ingest.mimeDetection.prefixBytes";
+  public static final String PROPERTY_INGEST_MIME_DETECTION_SAMPLE_SIZE = "ingest.mimeDetection.sampleSize";
+  public static final String PROPERTY_INGEST_MIME_DETECTION_DEFERRED = "ingest.mimeDetection.deferred";
+  public static final String PROPERTY_INGEST_MIME_DETECTION_CHUNK_SIZE = "ingest.mimeDetection.job.chunkSize";
+  public static final String PROPERTY_INGEST_MIME_DETECTION_THREADS = "ingest.mimeDetection.job.threads";
+  public static final String PROPERTY_INGEST_CHECKPOINT_ROWS = "ingest.checkpoint.rows";
+  public static final String PROPERTY_INGEST_BULK_LOAD = "ingest.bulkLoad.enabled";
+  public static final String PROPERTY_INGEST_BULK_LOAD_RAM_BUFFER = "ingest.bulkLoad.ramBufferSizeMB";
+  public static final String PROPERTY_INGEST_BULK_LOAD_MERGE_SEGMENTS = "ingest.bulkLoad.mergeSegments";
+  public static final String PROPERTY_INGEST_JOBS_MAX_CONCURRENT = "ingest.jobs.maxConcurrent";
+  public static final String PROPERTY_INGEST_OFFLINE_INDEX = "ingest.offlineIndex.enabled";
+  public static final String PROPERTY_INGEST_OFFLINE_INDEX_THREADS = "ingest.offlineIndex.threads";
+  public static final String PROPERTY_INGEST_OFFLINE_INDEX_RAM_BUFFER = "ingest.offlineIndex.ramBufferSizeMB";
+  public static final String PROPERTY_INGEST_STREAMING_READER = "ingest.streamingReader.enabled";
+
+  public static final String PROPERTY_ROWS_CACHE_SIZE = "rows.cache.maxSizeMB";
+  public static final String PROPERTY_ROWS_CACHE_EXPIRE = "rows.cache.expireSeconds";
+  public static final String PROPERTY_ROWS_TEXT_MAX_LENGTH = "rows.text.maxLength";
+
+  public static final String PROPERTY_SEARCH_TIME_ALLOWED = "search.timeAllowed_ms";
+
+  public static final String PROPERTY_STATISTICS_ENABLED = "statistics.enabled";
+  public static final String PROPERTY_STATISTICS_TOP_VALUES_SIZE = "statistics.topValues.size";
+  public static final String PROPERTY_STATISTICS_TOP_VALUES_MAX_DISTINCT = "statistics.topValues.maxDistinct";
+
+  public static final String PROPERTY_EXPORT_STREAMING = "export.streaming";
+  public static final String PROPERTY_EXPORT_DOC_VALUES = "export.docValues";
+
+  public static final String PROPERTY_SOLR_LANES_PREFIX = "solr.lanes";
+
   private static boolean instantiatedWithoutErrors = true;
   private static String applicationEnvironment = ViewerConstants.APPLICATION_ENV_SERVER;
 
@@ -64,8 +64,11 @@ public class JobController {
     ViewerJob viewerJob = createMinimalViewerJob(parameters);
     ViewerDatabase database = solrManager.retrieve(ViewerDatabase.class, viewerJob.getDatabaseUuid());
     viewerJob.setDatabaseName(database.getMetadata().getName());
-    viewerJob.setTableName(database.getMetadata().getTable(viewerJob.getTableUuid()).getName());
-    viewerJob.setSchemaName(database.getMetadata().getTable(viewerJob.getTableUuid()).getSchemaName());
+    // jobs on the whole database, like the ingest, have no table
+    if (viewerJob.getTableUuid() != null) {
+      viewerJob.setTableName(database.getMetadata().getTable(viewerJob.getTableUuid()).getName());
+      viewerJob.setSchemaName(database.getMetadata().getTable(viewerJob.getTableUuid()).getSchemaName());
+    }
     solrManager.addBatchJob(viewerJob);
     LOGGER.info("Job CREATED for " + database.getUuid() + "/" + viewerJob.getTableUuid() + " ("
       + viewerJob.getDatabaseName() + "/" + viewerJob.getTableName() + ")");
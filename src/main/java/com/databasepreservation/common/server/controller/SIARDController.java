@@ -18,6 +18,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -29,6 +30,7 @@ import org.joda.time.DateTime;
 import org.roda.core.data.exceptions.GenericException;
 import org.roda.core.data.exceptions.NotFoundException;
 import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.v2.index.sublist.Sublist;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,8 +39,11 @@ import com.databasepreservation.SIARDEdition;
 import com.databasepreservation.SIARDValidation;
 import com.databasepreservation.common.client.ViewerConstants;
 import com.databasepreservation.common.client.common.search.SavedSearch;
+import com.databasepreservation.common.client.index.IndexResult;
+import com.databasepreservation.common.client.index.facets.Facets;
 import com.databasepreservation.common.client.index.filter.Filter;
 import com.databasepreservation.common.client.index.filter.SimpleFilterParameter;
+import com.databasepreservation.common.client.index.sort.Sorter;
 import com.databasepreservation.common.client.models.dbptk.Module;
 import com.databasepreservation.common.client.models.parameters.PreservationParameter;
 import com.databasepreservation.common.client.models.parameters.SIARDUpdateParameters;
@@ -49,6 +54,7 @@ import com.databasepreservation.common.client.models.structure.ViewerDatabaseSta
 import com.databasepreservation.common.client.models.structure.ViewerDatabaseValidationStatus;
 import com.databasepreservation.common.client.models.structure.ViewerMetadata;
 import com.databasepreservation.common.client.models.structure.ViewerSIARDBundle;
+import com.databasepreservation.common.client.models.structure.ViewerTable;
 import com.databasepreservation.common.client.models.wizard.connection.ConnectionParameters;
 import com.databasepreservation.common.client.models.wizard.connection.ConnectionResponse;
 import com.databasepreservation.common.client.models.wizard.customViews.CustomViewsParameters;
@@ -63,9 +69,13 @@ import com.databasepreservation.common.server.ValidationProgressObserver;
 import com.databasepreservation.common.server.ViewerConfiguration;
 import com.databasepreservation.common.server.ViewerFactory;
 import com.databasepreservation.common.server.index.DatabaseRowsSolrManager;
+import com.databasepreservation.common.server.index.OfflineRowsIndexBuilder;
 import com.databasepreservation.common.server.index.factory.SolrClientFactory;
 import com.databasepreservation.common.server.index.schema.SolrDefaultCollectionRegistry;
+import com.databasepreservation.common.server.index.schema.SolrRowsCollectionRegistry;
+import com.databasepreservation.common.server.index.schema.collections.RowsCollection;
 import com.databasepreservation.common.server.index.utils.SolrUtils;
+import com.databasepreservation.common.server.storage.SIARDArchive;
 import com.databasepreservation.common.transformers.ToolkitStructure2ViewerStructure;
 import com.databasepreservation.common.utils.StatusUtils;
 import com.databasepreservation.model.exception.ModuleException;
@@ -81,12 +91,16 @@ import com.databasepreservation.model.parameters.Parameters;
 import com.databasepreservation.model.reporters.NoOpReporter;
 import com.databasepreservation.model.reporters.Reporter;
 import com.databasepreservation.model.structure.DatabaseStructure;
+import com.databasepreservation.model.structure.SchemaStructure;
+import com.databasepreservation.model.structure.TableStructure;
 import com.databasepreservation.modules.config.ImportConfigurationModuleFactory;
 import com.databasepreservation.modules.jdbc.in.JDBCImportModule;
 import com.databasepreservation.modules.siard.SIARD2ModuleFactory;
 import com.databasepreservation.modules.siard.SIARDEditFactory;
 import com.databasepreservation.modules.siard.SIARDValidateFactory;
+import com.databasepreservation.modules.viewer.DbvtkExportModule;
 import com.databasepreservation.modules.viewer.DbvtkModuleFactory;
+import com.databasepreservation.modules.viewer.IngestCheckpointRecorder;
 import com.databasepreservation.utils.ReflectionUtils;
 
 /**
@@ -675,15 +689,99 @@ public class SIARDController {
     return databaseUUID;
   }
 
+  /**
+   * Ingests only some tables of the SIARD of a database, creating its rows
+   * collection with every other table pending if it does not exist yet.
+   *
+   * @param tableUUIDs
+   *          the UUIDs of the tables to ingest
+   */
+  public static String loadTablesFromLocal(String localPath, String databaseUUID, Collection<String> tableUUIDs)
+    throws GenericException {
+    LOGGER.info("Preparing {} tables of the SIARD to be browsable ({})", tableUUIDs.size(), databaseUUID);
+    Path basePath = Paths.get(ViewerConfiguration.getInstance().getViewerConfigurationAsString("/",
+      ViewerConfiguration.PROPERTY_BASE_UPLOAD_PATH));
+    Path siardPath = basePath.resolve(localPath);
+    validateSIARDLocation(siardPath);
+
+    try (Reporter reporter = getReporter(databaseUUID, ReporterType.BROWSE);
+      SIARDArchive siardArchive = SIARDArchive.open(siardPath)) {
+      final int workers = ViewerConfiguration.getInstance().getViewerConfigurationAsInt(1,
+        ViewerConfiguration.PROPERTY_INGEST_PARALLEL_WORKERS);
+      SIARDParallelIngest.convertTables(siardPath, databaseUUID, tableUUIDs, siardArchive.getTableFingerprints(),
+        Math.max(1, workers), reporter);
+    } catch (IOException e) {
+      throw new GenericException("Could not initialize conversion modules", e);
+    } catch (RuntimeException e) {
+      throw new GenericException("Could not convert the tables of the database.", e);
+    } catch (GenericException e) {
+      LOGGER.error("Conversion of the tables of database {} failed", databaseUUID, e);
+      throw e;
+    }
+    return databaseUUID;
+  }
+
   private static void convertSIARDtoSolr(Path siardPath, String databaseUUID) throws GenericException {
     validateSIARDLocation(siardPath);
 
     LOGGER.info("starting to convert database {}", siardPath.toAbsolutePath());
 
+    // an interrupted ingest is resumed from its checkpoints if its rows
+    // collection is still there
+    IngestCheckpointRecorder checkpointRecorder = IngestCheckpointRecorder.resume(databaseUUID);
+    final boolean resume = checkpointRecorder != null && SolrRowsCollectionRegistry.get(databaseUUID) != null;
+
+    // an available database is updated in place, only for the tables whose
+    // content changed
+    if (!resume && SolrRowsCollectionRegistry.get(databaseUUID) != null) {
+      ViewerDatabase database;
+      try {
+        database = ViewerFactory.getSolrManager().retrieve(ViewerDatabase.class, databaseUUID);
+      } catch (NotFoundException e) {
+        throw new GenericException("Could not find the database " + databaseUUID, e);
+      }
+      if (ViewerDatabaseStatus.AVAILABLE.equals(database.getStatus())) {
+        reingestChangedTables(siardPath, database);
+        return;
+      }
+    }
+
     // build the SIARD import module, Solr export module, and start the
-    // conversion
-    try (Reporter reporter = getReporter(databaseUUID, ReporterType.BROWSE)) {
+    // conversion. The archive stays open during the conversion so that the
+    // LOB MIME type detection reuses it
+    try (Reporter reporter = getReporter(databaseUUID, ReporterType.BROWSE);
+      SIARDArchive siardArchive = SIARDArchive.open(siardPath)) {
       ViewerConfiguration configuration = ViewerConfiguration.getInstance();
+      // the modules save the fingerprints with the tables they ingest
+      ViewerFactory.getConfigurationManager().updateTablesFingerprint(databaseUUID,
+        siardArchive.getTableFingerprints());
+      if (!resume && OfflineRowsIndexBuilder.isEnabled()) {
+        // the rows are only committed when the offline index is attached, so
+        // there are no checkpoints to resume from
+        ViewerFactory.getConfigurationManager().deleteIngestCheckpoint(databaseUUID);
+        checkpointRecorder = null;
+      } else if (!resume) {
+        checkpointRecorder = IngestCheckpointRecorder.start(databaseUUID);
+      }
+
+      final int workers = configuration.getViewerConfigurationAsInt(1,
+        ViewerConfiguration.PROPERTY_INGEST_PARALLEL_WORKERS);
+      // only the parallel ingest can read just the tables left to ingest, and
+      // it is the one using the streaming reader
+      if (workers > 1 || resume || SIARDStreamingIngest.isEnabled()) {
+        if (resume) {
+          LOGGER.info("Resuming the interrupted conversion of database {}", databaseUUID);
+        }
+        long startTime = System.currentTimeMillis();
+        SIARDParallelIngest.convert(siardPath, databaseUUID, Math.max(1, workers), reporter, checkpointRecorder,
+          resume);
+        long duration = System.currentTimeMillis() - startTime;
+        LOGGER.info("Conversion time {}m {}s", duration / 60000, duration % 60000 / 1000);
+        if (checkpointRecorder != null) {
+          checkpointRecorder.finish();
+        }
+        return;
+      }
 
       DatabaseMigration databaseMigration = DatabaseMigration.newInstance();
 
@@ -694,7 +792,8 @@ public class SIARDController {
         .importModuleParameter(SIARD2ModuleFactory.PARAMETER_FILE, siardPath.toAbsolutePath().toString())
         .importModuleParameter(SIARD2ModuleFactory.PARAMETER_IGNORE_LOBS, "true");
 
-      databaseMigration.exportModule(new DbvtkModuleFactory())
+      final DbvtkModuleFactory exportModuleFactory = new DbvtkModuleFactory(checkpointRecorder);
+      databaseMigration.exportModule(exportModuleFactory)
         .exportModuleParameter(DbvtkModuleFactory.PARAMETER_DATABASE_UUID, databaseUUID);
 
       databaseMigration.filter(new ObservableFilter(new SIARDProgressObserver(databaseUUID)));
@@ -703,14 +802,133 @@ public class SIARDController {
 
       long startTime = System.currentTimeMillis();
 
-      databaseMigration.migrate();
+      try {
+        databaseMigration.migrate();
+      } catch (ModuleException | RuntimeException e) {
+        exportModuleFactory.abort();
+        throw e;
+      }
 
       long duration = System.currentTimeMillis() - startTime;
       LOGGER.info("Conversion time {}m {}s", duration / 60000, duration % 60000 / 1000);
+      if (checkpointRecorder != null) {
+        checkpointRecorder.finish();
+      }
     } catch (IOException e) {
+      markInterruptedIngest(databaseUUID);
       throw new GenericException("Could not initialize conversion modules", e);
     } catch (ModuleException | RuntimeException e) {
+      markInterruptedIngest(databaseUUID);
       throw new GenericException("Could not convert the database.", e);
+    } catch (GenericException e) {
+      markInterruptedIngest(databaseUUID);
+      throw e;
+    }
+  }
+
+  /**
+   * Re-ingests the tables of an available database whose content in the SIARD
+   * changed, comparing the fingerprints of their content with the ones of the
+   * last ingest. The structure of the database must be the same.
+   *
+   * As row UUIDs are sequential over the whole database, the tables after one
+   * whose number of rows changed are re-ingested as well.
+   */
+  private static void reingestChangedTables(Path siardPath, ViewerDatabase database) throws GenericException {
+    final String databaseUUID = database.getUuid();
+    LOGGER.info("Re-ingesting the changed tables of database {}", databaseUUID);
+
+    try (Reporter reporter = getReporter(databaseUUID, ReporterType.BROWSE);
+      SIARDArchive siardArchive = SIARDArchive.open(siardPath)) {
+      SIARDEdition siardEdition = SIARDEdition.newInstance();
+      siardEdition.editModule(new SIARDEditFactory()).editModuleParameter(SIARDEditFactory.PARAMETER_FILE,
+        Collections.singletonList(siardPath.toAbsolutePath().toString()));
+      siardEdition.reporter(new NoOpReporter());
+      final DatabaseStructure structure = siardEdition.getMetadata();
+
+      final ViewerMetadata metadata = database.getMetadata();
+      final Map<String, Long> previousFirstRowIndexes = DbvtkExportModule.getFirstRowIndexByTableId(database);
+      long siardTables = 0;
+      for (SchemaStructure schema : structure.getSchemas()) {
+        for (TableStructure table : schema.getTables()) {
+          final ViewerTable viewerTable = metadata.getTableById(table.getId());
+          if (viewerTable == null || viewerTable.getColumns().size() != table.getColumns().size()) {
+            throw new GenericException("The structure of table " + table.getId()
+              + " changed, the database must be added again");
+          }
+          siardTables++;
+        }
+      }
+      if (siardTables != metadata.getTables().values().stream().filter(table -> !table.isCustomView()).count()) {
+        throw new GenericException("The tables of the database changed, the database must be added again");
+      }
+
+      ToolkitStructure2ViewerStructure.mergeMetadata(structure, metadata);
+      for (SchemaStructure schema : structure.getSchemas()) {
+        for (TableStructure table : schema.getTables()) {
+          metadata.getTableById(table.getId()).setCountRows(table.getRows());
+        }
+      }
+      ViewerFactory.getSolrManager().updateDatabaseMetadata(databaseUUID, metadata);
+
+      final int workers = ViewerConfiguration.getInstance().getViewerConfigurationAsInt(1,
+        ViewerConfiguration.PROPERTY_INGEST_PARALLEL_WORKERS);
+      long startTime = System.currentTimeMillis();
+      SIARDParallelIngest.convertChangedTables(siardPath, database, previousFirstRowIndexes,
+        siardArchive.getTableFingerprints(), Math.max(1, workers), reporter);
+      long duration = System.currentTimeMillis() - startTime;
+      LOGGER.info("Re-ingest time {}m {}s", duration / 60000, duration % 60000 / 1000);
+    } catch (IOException e) {
+      throw new GenericException("Could not initialize conversion modules", e);
+    } catch (ModuleException | RuntimeException e) {
+      throw new GenericException("Could not re-ingest the database.", e);
+    }
+  }
+
+  /**
+   * Marks a database whose ingest did not finish as resumable, if there are
+   * checkpoints to resume it from and its rows collection exists, or as failed
+   * otherwise.
+   */
+  public static void markInterruptedIngest(String databaseUUID) {
+    final RowsCollection collection = SolrRowsCollectionRegistry.get(databaseUUID);
+    if (collection != null) {
+      OfflineRowsIndexBuilder.abort(collection.getIndexName());
+      SolrClientFactory.get().abortBulkLoad(collection.getIndexName());
+    }
+
+    boolean resumable = false;
+    try {
+      resumable = ViewerFactory.getConfigurationManager().getIngestCheckpoint(databaseUUID) != null
+        && collection != null;
+    } catch (GenericException e) {
+      LOGGER.warn("Could not read the ingest checkpoint of database {}", databaseUUID, e);
+    }
+    ViewerFactory.getSolrManager().markDatabaseCollection(databaseUUID,
+      resumable ? ViewerDatabaseStatus.RESUMABLE : ViewerDatabaseStatus.ERROR);
+  }
+
+  /**
+   * Marks the databases left ingesting when the application stopped, as no
+   * ingest survives a restart.
+   */
+  public static void markInterruptedIngests() {
+    Filter filter = new Filter(
+      new SimpleFilterParameter(ViewerConstants.SOLR_DATABASES_STATUS, ViewerDatabaseStatus.INGESTING.toString()));
+    try {
+      final DatabaseRowsSolrManager solrManager = ViewerFactory.getSolrManager();
+      final long count = solrManager.count(ViewerDatabase.class, filter);
+      if (count == 0) {
+        return;
+      }
+      final IndexResult<ViewerDatabase> databases = solrManager.find(ViewerDatabase.class, filter, Sorter.NONE,
+        new Sublist(0, (int) count), Facets.NONE, Collections.singletonList(ViewerConstants.INDEX_ID));
+      for (ViewerDatabase database : databases.getResults()) {
+        LOGGER.info("The conversion of database {} was interrupted", database.getUuid());
+        markInterruptedIngest(database.getUuid());
+      }
+    } catch (GenericException | RequestNotValidException | RuntimeException e) {
+      LOGGER.error("Could not check for interrupted conversions", e);
     }
   }
 
@@ -851,7 +1069,8 @@ public class SIARDController {
     }
 
     if (database.getStatus().equals(ViewerDatabaseStatus.AVAILABLE)
-      || database.getStatus().equals(ViewerDatabaseStatus.ERROR)) {
+      || database.getStatus().equals(ViewerDatabaseStatus.ERROR)
+      || database.getStatus().equals(ViewerDatabaseStatus.RESUMABLE)) {
       final String collectionName = SOLR_INDEX_ROW_COLLECTION_NAME_PREFIX + databaseUUID;
       if (SolrClientFactory.get().deleteCollection(collectionName)) {
         Filter savedSearchFilter = new Filter(new SimpleFilterParameter(SOLR_SEARCHES_DATABASE_UUID, databaseUUID));
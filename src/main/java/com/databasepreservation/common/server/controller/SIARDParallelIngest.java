@@ -0,0 +1,459 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.server.controller;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.databasepreservation.DatabaseMigration;
+import com.databasepreservation.common.client.models.progress.ProgressData;
+import com.databasepreservation.common.client.models.status.collection.CollectionStatus;
+import com.databasepreservation.common.client.models.status.collection.LargeObjectConsolidateProperty;
+import com.databasepreservation.common.client.models.status.collection.TableIngestState;
+import com.databasepreservation.common.client.models.status.collection.TableStatus;
+import com.databasepreservation.common.client.models.structure.ViewerDatabase;
+import com.databasepreservation.common.client.models.structure.ViewerDatabaseStatus;
+import com.databasepreservation.common.client.models.structure.ViewerTable;
+import com.databasepreservation.common.exceptions.ViewerException;
+import com.databasepreservation.common.server.SIARDProgressObserver;
+import com.databasepreservation.common.server.ViewerFactory;
+import com.databasepreservation.common.server.index.DatabaseRowsSolrManager;
+import com.databasepreservation.common.server.index.OfflineRowsIndexBuilder;
+import com.databasepreservation.common.server.index.factory.SolrClientFactory;
+import com.databasepreservation.common.server.index.schema.SolrRowsCollectionRegistry;
+import com.databasepreservation.common.server.storage.SIARDArchive;
+import com.databasepreservation.common.transformers.LobMimeTypeDetector;
+import com.databasepreservation.model.exception.ModuleException;
+import com.databasepreservation.model.modules.filters.ObservableFilter;
+import com.databasepreservation.model.reporters.Reporter;
+import com.databasepreservation.modules.config.ImportConfigurationModuleFactory;
+import com.databasepreservation.modules.viewer.DbvtkExportModule;
+import com.databasepreservation.modules.viewer.DbvtkModuleFactory;
+import com.databasepreservation.modules.viewer.IngestCheckpointRecorder;
+
+/**
+ * Ingests the tables of a SIARD into its rows collection using several
+ * concurrent migrations. The tables are split into work units of similar size
+ * (by number of rows) and each unit is migrated by a worker of a fixed pool,
+ * reading only its tables from the SIARD.
+ *
+ * When resuming an interrupted ingest, the rows collection is kept and only the
+ * tables not completed according to the checkpoints are migrated, skipping
+ * their rows already committed.
+ *
+ * With the streaming reader enabled, the tables it can read are ingested by
+ * {@link SIARDStreamingIngest} and only the others by DBPTK.
+ */
+public class SIARDParallelIngest {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SIARDParallelIngest.class);
+
+  // more units than workers keep all workers busy when table sizes vary a lot
+  private static final int WORK_UNITS_PER_WORKER = 4;
+
+  private SIARDParallelIngest() {
+  }
+
+  static void convert(Path siardPath, String databaseUUID, int workers, Reporter reporter,
+    IngestCheckpointRecorder checkpointRecorder, boolean resume) throws GenericException {
+    final DatabaseRowsSolrManager solrManager = ViewerFactory.getSolrManager();
+    final ViewerDatabase database;
+    final CollectionStatus collectionConfiguration;
+    try {
+      database = solrManager.retrieve(ViewerDatabase.class, databaseUUID);
+      collectionConfiguration = ViewerFactory.getConfigurationManager().getConfigurationCollection(databaseUUID,
+        databaseUUID);
+    } catch (NotFoundException e) {
+      throw new GenericException("Could not find the database " + databaseUUID, e);
+    }
+
+    Collection<ViewerTable> tables = database.getMetadata().getTables().values();
+    List<ViewerTable> pendingTables = tables.stream()
+      .filter(table -> checkpointRecorder == null || !checkpointRecorder.isTableCompleted(table.getId()))
+      .collect(Collectors.toList());
+    List<List<ViewerTable>> workUnits = splitInWorkUnits(pendingTables, workers * WORK_UNITS_PER_WORKER);
+    LOGGER.info("Ingesting {} of {} tables of database {} in {} work units using {} workers", pendingTables.size(),
+      tables.size(), databaseUUID, workUnits.size(), workers);
+
+    if (resume) {
+      solrManager.markDatabaseCollection(databaseUUID, ViewerDatabaseStatus.INGESTING);
+    } else {
+      try {
+        solrManager.addDatabaseRowCollection(databaseUUID);
+      } catch (ViewerException e) {
+        throw new GenericException("Could not create the rows collection", e);
+      }
+    }
+    final String collectionName = SolrRowsCollectionRegistry.get(databaseUUID).getIndexName();
+    SolrClientFactory.get().beginBulkLoad(collectionName);
+    // the offline index is only attached at the end, so it has no checkpoints
+    if (checkpointRecorder == null && OfflineRowsIndexBuilder.isEnabled()) {
+      try {
+        OfflineRowsIndexBuilder.begin(collectionName);
+      } catch (ViewerException e) {
+        throw new GenericException("Could not start the offline index", e);
+      }
+    }
+
+    ProgressData progressData = ProgressData.getInstance(databaseUUID);
+    progressData.reset();
+    progressData.setDatabaseStructureRetrieved(true);
+    progressData.setTotalSchemas(database.getMetadata().getSchemas().size());
+    progressData.setTotalTables(tables.size());
+    progressData.setTotalRows(tables.stream().mapToLong(ViewerTable::getCountRows).sum());
+    progressData.setProcessedTables(tables.size() - pendingTables.size());
+    progressData.setProcessedRows(progressData.getTotalRows()
+      - pendingTables.stream().mapToLong(ViewerTable::getCountRows).sum());
+
+    LobMimeTypeDetector mimeTypeDetector = LobMimeTypeDetector.isDeferred() ? null : new LobMimeTypeDetector();
+    migrateWorkUnits(siardPath, database, workUnits, workers, collectionConfiguration, mimeTypeDetector,
+      checkpointRecorder, reporter);
+
+    try {
+      OfflineRowsIndexBuilder.finish(collectionName);
+      SolrClientFactory.get().endBulkLoad(collectionName);
+      solrManager.markDatabaseAsReady(databaseUUID);
+      collectionConfiguration.setConsolidateProperty(LargeObjectConsolidateProperty.NOT_CONSOLIDATED);
+      collectionConfiguration.clearTablesIngestState();
+      ViewerFactory.getConfigurationManager().updateCollectionStatus(databaseUUID, collectionConfiguration);
+    } catch (ViewerException e) {
+      throw new GenericException("Could not finish the conversion of the database", e);
+    }
+
+    if (mimeTypeDetector != null) {
+      mimeTypeDetector.logStatistics(databaseUUID);
+    }
+    progressData.reset();
+    progressData.setFinished(true);
+  }
+
+  /**
+   * Ingests only some tables of a SIARD into its rows collection, while the
+   * database is available, for the ingest of the tables on first access. The
+   * first time, the rows collection is created with every table pending and
+   * the database is made available once the requested tables are ingested.
+   *
+   * @param tableUUIDs
+   *          the UUIDs of the tables to ingest, the ones already ingested are
+   *          skipped
+   * @param fingerprints
+   *          the fingerprints of the content of the tables in the SIARD
+   */
+  static void convertTables(Path siardPath, String databaseUUID, Collection<String> tableUUIDs,
+    Map<String, String> fingerprints, int workers, Reporter reporter) throws GenericException {
+    final DatabaseRowsSolrManager solrManager = ViewerFactory.getSolrManager();
+    final ViewerDatabase database;
+    try {
+      database = solrManager.retrieve(ViewerDatabase.class, databaseUUID);
+    } catch (NotFoundException e) {
+      throw new GenericException("Could not find the database " + databaseUUID, e);
+    }
+
+    final CollectionStatus collectionConfiguration;
+    boolean created = false;
+    synchronized (SIARDParallelIngest.class) {
+      collectionConfiguration = ViewerFactory.getConfigurationManager().getConfigurationCollection(databaseUUID,
+        databaseUUID);
+      if (SolrRowsCollectionRegistry.get(databaseUUID) == null) {
+        try {
+          solrManager.addDatabaseRowCollection(databaseUUID);
+          for (TableStatus tableStatus : collectionConfiguration.getTables()) {
+            tableStatus.setIngestState(TableIngestState.PENDING);
+          }
+          collectionConfiguration.setConsolidateProperty(LargeObjectConsolidateProperty.NOT_CONSOLIDATED);
+          ViewerFactory.getConfigurationManager().updateCollectionStatus(databaseUUID, collectionConfiguration);
+        } catch (ViewerException e) {
+          throw new GenericException("Could not create the rows collection", e);
+        }
+        created = true;
+      }
+    }
+
+    List<ViewerTable> tables = new ArrayList<>();
+    List<TableStatus> tableStatuses = new ArrayList<>();
+    for (String tableUUID : tableUUIDs) {
+      ViewerTable table = database.getMetadata().getTable(tableUUID);
+      TableStatus tableStatus = collectionConfiguration.getTableStatus(tableUUID);
+      if (table != null && tableStatus != null && !tableStatus.isSearchable()) {
+        tables.add(table);
+        tableStatuses.add(tableStatus);
+      }
+    }
+    LOGGER.info("Ingesting {} tables of database {} on access", tables.size(), databaseUUID);
+
+    final String collectionName = SolrRowsCollectionRegistry.get(databaseUUID).getIndexName();
+    ProgressData progressData = ProgressData.getInstance(databaseUUID);
+    if (created) {
+      progressData.reset();
+      progressData.setDatabaseStructureRetrieved(true);
+      progressData.setTotalSchemas(database.getMetadata().getSchemas().size());
+      progressData.setTotalTables(tables.size());
+      progressData.setTotalRows(tables.stream().mapToLong(ViewerTable::getCountRows).sum());
+    }
+
+    LobMimeTypeDetector mimeTypeDetector = LobMimeTypeDetector.isDeferred() ? null : new LobMimeTypeDetector();
+    try {
+      ViewerFactory.getConfigurationManager().updateTablesIngestState(databaseUUID, tableStatuses,
+        TableIngestState.INGESTING);
+      if (!tables.isEmpty()) {
+        migrateWorkUnits(siardPath, database, splitInWorkUnits(tables, workers * WORK_UNITS_PER_WORKER), workers,
+          collectionConfiguration, mimeTypeDetector, null, reporter);
+        SolrClientFactory.get().commit(collectionName);
+      }
+      setContentFingerprints(tableStatuses, fingerprints);
+      ViewerFactory.getConfigurationManager().updateTablesIngestState(databaseUUID, tableStatuses,
+        TableIngestState.INGESTED);
+      if (created) {
+        solrManager.markDatabaseAsReady(databaseUUID);
+      }
+    } catch (ViewerException | GenericException e) {
+      try {
+        ViewerFactory.getConfigurationManager().updateTablesIngestState(databaseUUID, tableStatuses,
+          TableIngestState.ERROR);
+      } catch (ViewerException | GenericException ex) {
+        LOGGER.warn("Could not mark the tables of database {} as failed", databaseUUID, ex);
+      }
+      if (created) {
+        solrManager.markDatabaseCollection(databaseUUID, ViewerDatabaseStatus.ERROR);
+      }
+      throw e instanceof GenericException ? (GenericException) e
+        : new GenericException("Could not finish the conversion of the tables", e);
+    }
+
+    if (mimeTypeDetector != null) {
+      mimeTypeDetector.logStatistics(databaseUUID);
+    }
+    if (created) {
+      progressData.reset();
+      progressData.setFinished(true);
+    }
+  }
+
+  /**
+   * Re-ingests, in place, the tables of an available database whose content
+   * changed since they were ingested: the ones with a different fingerprint
+   * and the ones whose rows now start at another index. Tables not ingested yet
+   * are left to be ingested on access.
+   *
+   * @param database
+   *          the database, with the row counts of the tables in the SIARD
+   * @param previousFirstRowIndexes
+   *          the index of the first row of each table in the last ingest
+   * @param fingerprints
+   *          the fingerprints of the content of the tables in the SIARD
+   */
+  static void convertChangedTables(Path siardPath, ViewerDatabase database,
+    Map<String, Long> previousFirstRowIndexes, Map<String, String> fingerprints, int workers, Reporter reporter)
+    throws GenericException {
+    final String databaseUUID = database.getUuid();
+    final CollectionStatus collectionConfiguration = ViewerFactory.getConfigurationManager()
+      .getConfigurationCollection(databaseUUID, databaseUUID);
+    final Map<String, Long> firstRowIndexes = DbvtkExportModule.getFirstRowIndexByTableId(database);
+
+    List<ViewerTable> tables = new ArrayList<>();
+    List<TableStatus> tableStatuses = new ArrayList<>();
+    for (ViewerTable table : database.getMetadata().getTables().values()) {
+      TableStatus tableStatus = collectionConfiguration.getTableStatus(table.getUuid());
+      if (tableStatus == null || !tableStatus.isSearchable() || table.isCustomView()) {
+        continue;
+      }
+      String fingerprint = fingerprints
+        .get(SIARDArchive.getTableFolder(tableStatus.getSchemaFolder(), tableStatus.getTableFolder()));
+      if (fingerprint == null || !fingerprint.equals(tableStatus.getContentFingerprint())
+        || !firstRowIndexes.get(table.getId()).equals(previousFirstRowIndexes.get(table.getId()))) {
+        tables.add(table);
+        tableStatuses.add(tableStatus);
+      }
+    }
+    LOGGER.info("Re-ingesting {} of {} tables of database {}", tables.size(),
+      database.getMetadata().getTables().size(), databaseUUID);
+    if (tables.isEmpty()) {
+      return;
+    }
+
+    ProgressData progressData = ProgressData.getInstance(databaseUUID);
+    progressData.reset();
+    progressData.setDatabaseStructureRetrieved(true);
+    progressData.setTotalSchemas(database.getMetadata().getSchemas().size());
+    progressData.setTotalTables(tables.size());
+    progressData.setTotalRows(tables.stream().mapToLong(ViewerTable::getCountRows).sum());
+
+    final DatabaseRowsSolrManager solrManager = ViewerFactory.getSolrManager();
+    final String collectionName = SolrRowsCollectionRegistry.get(databaseUUID).getIndexName();
+    LobMimeTypeDetector mimeTypeDetector = LobMimeTypeDetector.isDeferred() ? null : new LobMimeTypeDetector();
+    try {
+      ViewerFactory.getConfigurationManager().updateTablesIngestState(databaseUUID, tableStatuses,
+        TableIngestState.INGESTING);
+      for (ViewerTable table : tables) {
+        solrManager.deleteTableRows(databaseUUID, table.getId());
+      }
+      migrateWorkUnits(siardPath, database, splitInWorkUnits(tables, workers * WORK_UNITS_PER_WORKER), workers,
+        collectionConfiguration, mimeTypeDetector, null, reporter);
+      SolrClientFactory.get().commit(collectionName);
+      setContentFingerprints(tableStatuses, fingerprints);
+      ViewerFactory.getConfigurationManager().updateTablesIngestState(databaseUUID, tableStatuses,
+        TableIngestState.INGESTED);
+    } catch (ViewerException | GenericException e) {
+      try {
+        ViewerFactory.getConfigurationManager().updateTablesIngestState(databaseUUID, tableStatuses,
+          TableIngestState.ERROR);
+      } catch (ViewerException | GenericException ex) {
+        LOGGER.warn("Could not mark the tables of database {} as failed", databaseUUID, ex);
+      }
+      throw e instanceof GenericException ? (GenericException) e
+        : new GenericException("Could not finish the re-ingest of the tables", e);
+    }
+
+    if (mimeTypeDetector != null) {
+      mimeTypeDetector.logStatistics(databaseUUID);
+    }
+    progressData.reset();
+    progressData.setFinished(true);
+  }
+
+  private static void setContentFingerprints(List<TableStatus> tableStatuses, Map<String, String> fingerprints) {
+    for (TableStatus tableStatus : tableStatuses) {
+      tableStatus.setContentFingerprint(
+        fingerprints.get(SIARDArchive.getTableFolder(tableStatus.getSchemaFolder(), tableStatus.getTableFolder())));
+    }
+  }
+
+  /**
+   * Migrates the work units using a fixed pool of workers, failing as soon as
+   * one of them fails.
+   */
+  private static void migrateWorkUnits(Path siardPath, ViewerDatabase database, List<List<ViewerTable>> workUnits,
+    int workers, CollectionStatus collectionConfiguration, LobMimeTypeDetector mimeTypeDetector,
+    IngestCheckpointRecorder checkpointRecorder, Reporter reporter) throws GenericException {
+    AtomicInteger threadNumber = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(workers,
+      r -> new Thread(r, "siard-ingest-" + database.getUuid() + "-" + threadNumber.getAndIncrement()));
+    ExecutorCompletionService<Void> completionService = new ExecutorCompletionService<>(executor);
+
+    try {
+      for (List<ViewerTable> workUnit : workUnits) {
+        completionService.submit(() -> {
+          migrateWorkUnit(siardPath, database, workUnit, collectionConfiguration, mimeTypeDetector,
+            checkpointRecorder, reporter);
+          return null;
+        });
+      }
+
+      for (int i = 0; i < workUnits.size(); i++) {
+        completionService.take().get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new GenericException("Interrupted while converting the database", e);
+    } catch (ExecutionException e) {
+      throw new GenericException("Could not convert the database.", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static void migrateWorkUnit(Path siardPath, ViewerDatabase database, List<ViewerTable> workUnit,
+    CollectionStatus collectionConfiguration, LobMimeTypeDetector mimeTypeDetector,
+    IngestCheckpointRecorder checkpointRecorder, Reporter reporter) throws GenericException, ModuleException {
+    List<ViewerTable> tables = workUnit;
+    if (SIARDStreamingIngest.isEnabled()) {
+      tables = SIARDStreamingIngest.ingest(siardPath, database, workUnit, collectionConfiguration, mimeTypeDetector,
+        checkpointRecorder);
+      if (tables.isEmpty()) {
+        return;
+      }
+    }
+
+    String importConfigTmpPath = SiardControllerHelper.buildModuleConfigurationForSIARDTables(database.getVersion(),
+      siardPath.toAbsolutePath().toString(), tables);
+
+    try {
+      DatabaseMigration databaseMigration = DatabaseMigration.newInstance();
+
+      // XXX remove this workaround after fix of NPE
+      databaseMigration.filterFactories(new ArrayList<>());
+
+      databaseMigration.importModule(new ImportConfigurationModuleFactory())
+        .importModuleParameter(ImportConfigurationModuleFactory.PARAMETER_FILE, importConfigTmpPath);
+
+      final DbvtkModuleFactory exportModuleFactory = new DbvtkModuleFactory(collectionConfiguration,
+        mimeTypeDetector, checkpointRecorder);
+      databaseMigration.exportModule(exportModuleFactory)
+        .exportModuleParameter(DbvtkModuleFactory.PARAMETER_DATABASE_UUID, database.getUuid());
+
+      databaseMigration.filter(new ObservableFilter(new SIARDProgressObserver(database.getUuid(), true)));
+
+      databaseMigration.reporter(reporter);
+
+      try {
+        databaseMigration.migrate();
+      } catch (ModuleException | RuntimeException e) {
+        exportModuleFactory.abort();
+        throw e;
+      }
+    } finally {
+      try {
+        Files.deleteIfExists(Paths.get(importConfigTmpPath));
+      } catch (IOException e) {
+        LOGGER.debug("Could not delete the temporary import-config {}", importConfigTmpPath, e);
+      }
+    }
+  }
+
+  /**
+   * Splits the tables in (at most) the requested number of work units, placing
+   * each table, from the largest to the smallest, in the unit with less rows.
+   * Units are returned from the largest to the smallest so they are started in
+   * that order.
+   */
+  static List<List<ViewerTable>> splitInWorkUnits(Collection<ViewerTable> tables, int maxUnits) {
+    int numberOfUnits = Math.max(1, Math.min(maxUnits, tables.size()));
+    List<List<ViewerTable>> units = new ArrayList<>(numberOfUnits);
+    long[] unitRows = new long[numberOfUnits];
+    for (int i = 0; i < numberOfUnits; i++) {
+      units.add(new ArrayList<>());
+    }
+
+    List<ViewerTable> sorted = new ArrayList<>(tables);
+    sorted.sort(Comparator.comparingLong(ViewerTable::getCountRows).reversed());
+
+    for (ViewerTable table : sorted) {
+      int smallest = 0;
+      for (int i = 1; i < numberOfUnits; i++) {
+        if (unitRows[i] < unitRows[smallest]) {
+          smallest = i;
+        }
+      }
+      units.get(smallest).add(table);
+      // count one extra row so that empty tables are also spread
+      unitRows[smallest] += table.getCountRows() + 1;
+    }
+
+    units.removeIf(List::isEmpty);
+    units.sort(Comparator.comparingLong(
+      (List<ViewerTable> unit) -> unit.stream().mapToLong(ViewerTable::getCountRows).sum()).reversed());
+    return units;
+  }
+}
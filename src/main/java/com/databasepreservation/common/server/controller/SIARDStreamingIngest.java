@@ -0,0 +1,189 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.server.controller;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.solr.common.SolrInputDocument;
+import org.roda.core.data.exceptions.GenericException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.databasepreservation.common.client.models.progress.ProgressData;
+import com.databasepreservation.common.client.models.status.collection.CollectionStatus;
+import com.databasepreservation.common.client.models.structure.ViewerDatabase;
+import com.databasepreservation.common.client.models.structure.ViewerTable;
+import com.databasepreservation.common.exceptions.ViewerException;
+import com.databasepreservation.common.server.ViewerConfiguration;
+import com.databasepreservation.common.server.ViewerFactory;
+import com.databasepreservation.common.server.index.DatabaseRowsSolrManager;
+import com.databasepreservation.common.server.index.RowsWriter;
+import com.databasepreservation.common.server.index.factory.SolrClientFactory;
+import com.databasepreservation.common.server.index.schema.SolrRowsCollectionRegistry;
+import com.databasepreservation.common.server.storage.SIARDArchive;
+import com.databasepreservation.common.transformers.LobMimeTypeDetector;
+import com.databasepreservation.common.transformers.SIARDTableReader;
+import com.databasepreservation.common.transformers.TableConversionPlan;
+import com.databasepreservation.modules.viewer.DbvtkExportModule;
+import com.databasepreservation.modules.viewer.IngestCheckpointRecorder;
+
+/**
+ * Ingests the tables of a work unit of {@link SIARDParallelIngest} reading
+ * their XML with a {@link SIARDTableReader} instead of a DBPTK migration. For
+ * each table it does what the DBVTK export module does in a partial
+ * migration: the row indexes, the checkpoints and the progress.
+ */
+final class SIARDStreamingIngest {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SIARDStreamingIngest.class);
+
+  // rows between updates of the progress of a table
+  private static final int PROGRESS_ROWS = 1000;
+
+  private SIARDStreamingIngest() {
+  }
+
+  static boolean isEnabled() {
+    return ViewerConfiguration.getInstance().getViewerConfigurationAsBoolean(false,
+      ViewerConfiguration.PROPERTY_INGEST_STREAMING_READER);
+  }
+
+  /**
+   * Ingests the tables of a work unit that can be read directly.
+   *
+   * @return the tables that could not be read, to be migrated by DBPTK
+   */
+  static List<ViewerTable> ingest(Path siardPath, ViewerDatabase database, List<ViewerTable> workUnit,
+    CollectionStatus collectionConfiguration, LobMimeTypeDetector mimeTypeDetector,
+    IngestCheckpointRecorder checkpointRecorder) throws GenericException {
+    final String databaseUUID = database.getUuid();
+    final DatabaseRowsSolrManager solrManager = ViewerFactory.getSolrManager();
+    final Map<String, Long> firstRowIndexes = DbvtkExportModule.getFirstRowIndexByTableId(database);
+    List<ViewerTable> unreadable = new ArrayList<>();
+
+    try (SIARDArchive siardArchive = SIARDArchive.open(siardPath)) {
+      RowsWriter rowsWriter = solrManager.createRowsIndexWriter(databaseUUID);
+      try {
+        for (ViewerTable table : workUnit) {
+          if (checkpointRecorder != null && checkpointRecorder.isTableCompleted(table.getId())) {
+            continue;
+          }
+
+          TableConversionPlan plan = new TableConversionPlan(collectionConfiguration, table);
+          if (!SIARDTableReader.canRead(siardArchive, plan)) {
+            LOGGER.debug("Table {} of database {} is migrated by DBPTK", table.getId(), databaseUUID);
+            unreadable.add(table);
+            continue;
+          }
+
+          solrManager.addTable(databaseUUID, table);
+          TableIngest tableIngest = new TableIngest(databaseUUID, table, collectionConfiguration, rowsWriter,
+            checkpointRecorder, firstRowIndexes.get(table.getId()));
+          long endRowIndex = new SIARDTableReader(plan, siardArchive, mimeTypeDetector)
+            .read(tableIngest.firstRowIndex, tableIngest.committedRowIndex, tableIngest);
+          tableIngest.finish(endRowIndex);
+        }
+      } finally {
+        rowsWriter.close();
+      }
+    } catch (IOException e) {
+      throw new GenericException("Could not open the SIARD " + siardPath, e);
+    } catch (ViewerException e) {
+      throw new GenericException("Could not convert the tables of the database.", e);
+    }
+    return unreadable;
+  }
+
+  /**
+   * The ingest of the rows of one table.
+   */
+  private static class TableIngest implements SIARDTableReader.RowConsumer {
+    private final String databaseUUID;
+    private final ViewerTable table;
+    private final CollectionStatus collectionConfiguration;
+    private final RowsWriter rowsWriter;
+    private final IngestCheckpointRecorder checkpointRecorder;
+    private final ProgressData progressData;
+    private final long firstRowIndex;
+    private final long endRowIndex;
+    private final long committedRowIndex;
+
+    private long rowsSinceCheckpoint = 0;
+    private long reportedRows = 0;
+
+    TableIngest(String databaseUUID, ViewerTable table, CollectionStatus collectionConfiguration,
+      RowsWriter rowsWriter, IngestCheckpointRecorder checkpointRecorder, long firstRowIndex) {
+      this.databaseUUID = databaseUUID;
+      this.table = table;
+      this.collectionConfiguration = collectionConfiguration;
+      this.rowsWriter = rowsWriter;
+      this.checkpointRecorder = checkpointRecorder;
+      this.firstRowIndex = firstRowIndex;
+      this.endRowIndex = DbvtkExportModule.getEndRowIndex(table, firstRowIndex);
+      this.committedRowIndex = checkpointRecorder != null ? checkpointRecorder.getCommittedRowIndex(table.getId())
+        : 0;
+
+      progressData = ProgressData.getInstance(databaseUUID);
+      progressData.setCurrentSchemaName(table.getSchemaName());
+      progressData.setCurrentTableName(table.getName());
+      progressData.setCurrentTableTotalRows(table.getCountRows());
+      progressData.setCurrentProcessedTableRows(0);
+    }
+
+    @Override
+    public void accept(long rowIndex, SolrInputDocument doc) throws ViewerException {
+      if (rowIndex >= endRowIndex) {
+        throw new ViewerException(DbvtkExportModule.getRowCountExceededMessage(table));
+      }
+      rowsWriter.add(doc);
+
+      if (rowIndex - firstRowIndex + 1 - reportedRows >= PROGRESS_ROWS) {
+        reportProgress(rowIndex + 1);
+      }
+
+      if (checkpointRecorder != null && checkpointRecorder.getCheckpointRows() > 0
+        && ++rowsSinceCheckpoint >= checkpointRecorder.getCheckpointRows()) {
+        commit();
+        checkpointRecorder.committed(table.getId(), rowIndex, Collections.emptyList(), collectionConfiguration);
+        rowsSinceCheckpoint = 0;
+      }
+    }
+
+    void finish(long readEndRowIndex) throws ViewerException {
+      if (readEndRowIndex > endRowIndex) {
+        throw new ViewerException(DbvtkExportModule.getRowCountExceededMessage(table));
+      } else if (readEndRowIndex < endRowIndex) {
+        LOGGER.warn("Table {} has {} rows, less than the {} declared in the SIARD metadata", table.getId(),
+          readEndRowIndex - firstRowIndex, table.getCountRows());
+      }
+      reportProgress(readEndRowIndex);
+      progressData.incrementProcessedTables();
+
+      if (checkpointRecorder != null) {
+        commit();
+        checkpointRecorder.committed(null, 0, Collections.singletonList(table.getId()), collectionConfiguration);
+      }
+    }
+
+    private void reportProgress(long endRowIndex) {
+      long processedRows = endRowIndex - firstRowIndex;
+      progressData.setCurrentProcessedTableRows(processedRows);
+      progressData.addProcessedRows(processedRows - reportedRows);
+      reportedRows = processedRows;
+    }
+
+    private void commit() throws ViewerException {
+      rowsWriter.flush();
+      SolrClientFactory.get().commit(SolrRowsCollectionRegistry.get(databaseUUID).getIndexName());
+    }
+  }
+}
@@ -26,6 +26,8 @@ import org.roda.core.data.exceptions.GenericException;
 
 import com.databasepreservation.DatabaseMigration;
 import com.databasepreservation.common.client.ViewerConstants;
+import com.databasepreservation.common.client.models.structure.ViewerColumn;
+import com.databasepreservation.common.client.models.structure.ViewerTable;
 import com.databasepreservation.common.client.models.wizard.connection.ConnectionParameters;
 import com.databasepreservation.common.client.models.wizard.connection.SSHConfiguration;
 import com.databasepreservation.common.client.models.wizard.customViews.CustomViewsParameters;
@@ -70,6 +72,52 @@ public class SiardControllerHelper {
     }
   }
 
+  /**
+   * Builds an import-config that reads only some tables of a SIARD, ignoring
+   * the LOBs, as needed to ingest part of a database into Solr.
+   */
+  public static String buildModuleConfigurationForSIARDTables(String siardVersion, String siardPath,
+    List<ViewerTable> tables) throws GenericException {
+    try {
+      File tmpDir = new File(System.getProperty("java.io.tmpdir"));
+      final File tmpFile = File.createTempFile(SolrUtils.randomUUID(), ViewerConstants.YAML_SUFFIX, tmpDir);
+
+      ModuleConfiguration moduleConfiguration = ModuleConfigurationUtils.getDefaultModuleConfiguration();
+      Map<String, String> properties = new HashMap<>();
+      properties.put(SIARD2ModuleFactory.PARAMETER_IGNORE_LOBS, "true");
+      buildImportModuleConfiguration(moduleConfiguration, siardVersion, siardPath, properties);
+
+      for (ViewerTable table : tables) {
+        SchemaConfiguration schemaConfiguration = moduleConfiguration.getSchemaConfigurations()
+          .get(table.getSchemaName());
+
+        if (schemaConfiguration == null) {
+          schemaConfiguration = new SchemaConfiguration();
+        }
+
+        TableConfiguration tableConfiguration = new TableConfiguration();
+        tableConfiguration.setName(table.getName());
+        List<ColumnConfiguration> columnConfigurations = new ArrayList<>();
+        for (ViewerColumn column : table.getColumns()) {
+          ColumnConfiguration columnConfiguration = new ColumnConfiguration();
+          columnConfiguration.setName(column.getDisplayName());
+          columnConfigurations.add(columnConfiguration);
+        }
+        tableConfiguration.setColumns(columnConfigurations);
+
+        schemaConfiguration.getTableConfigurations().add(tableConfiguration);
+        moduleConfiguration.getSchemaConfigurations().put(table.getSchemaName(), schemaConfiguration);
+      }
+
+      ObjectMapper mapper = new ObjectMapper(new YAMLFactory().disable(YAMLGenerator.Feature.WRITE_DOC_START_MARKER));
+      mapper.writeValue(tmpFile, moduleConfiguration);
+
+      return tmpFile.getPath();
+    } catch (IOException e) {
+      throw new GenericException("Could not create the import-config YAML file", e);
+    }
+  }
+
   public static String buildModuleConfiguration(ConnectionParameters connectionParameters,
     TableAndColumnsParameters tableAndColumnsParameters, CustomViewsParameters customViewsParameters)
     throws GenericException {
@@ -91,6 +139,11 @@ public class SiardControllerHelper {
   }
 
   private static void buildImportModuleConfiguration(ModuleConfiguration moduleConfiguration, String siardVersion, String siardPath) {
+    buildImportModuleConfiguration(moduleConfiguration, siardVersion, siardPath, new HashMap<>());
+  }
+
+  private static void buildImportModuleConfiguration(ModuleConfiguration moduleConfiguration, String siardVersion,
+    String siardPath, Map<String, String> properties) {
     String moduleName;
     if (siardVersion.equals("2.0") || siardVersion.equals("2.1")) {
       moduleName = "siard-2";
@@ -100,7 +153,6 @@ public class SiardControllerHelper {
       moduleName = "";
     }
 
-    Map<String, String> properties = new HashMap<>();
     properties.put(SIARD2ModuleFactory.PARAMETER_FILE, siardPath);
 
     ModuleConfigurationUtils.addImportParameters(moduleConfiguration, moduleName, properties, null);
@@ -12,7 +12,9 @@ import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -22,9 +24,11 @@ import org.apache.solr.client.solrj.SolrRequest;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.request.CollectionAdminRequest;
 import org.apache.solr.client.solrj.response.UpdateResponse;
+import org.apache.solr.client.solrj.util.ClientUtils;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.SolrInputField;
+import org.apache.solr.schema.IndexSchema;
 import org.joda.time.DateTime;
 import org.roda.core.data.exceptions.AuthorizationDeniedException;
 import org.roda.core.data.exceptions.GenericException;
@@ -37,13 +41,17 @@ import org.slf4j.LoggerFactory;
 import com.databasepreservation.common.client.ViewerConstants;
 import com.databasepreservation.common.client.common.search.SavedSearch;
 import com.databasepreservation.common.client.exceptions.SavedSearchException;
+import com.databasepreservation.common.client.index.CursorIndexResult;
 import com.databasepreservation.common.client.index.IndexResult;
 import com.databasepreservation.common.client.index.IsIndexed;
+import com.databasepreservation.common.client.index.facets.FacetFieldResult;
+import com.databasepreservation.common.client.index.facets.FacetParameter;
 import com.databasepreservation.common.client.index.facets.Facets;
 import com.databasepreservation.common.client.index.filter.Filter;
 import com.databasepreservation.common.client.index.filter.SimpleFilterParameter;
 import com.databasepreservation.common.client.index.sort.Sorter;
 import com.databasepreservation.common.client.models.activity.logs.ActivityLogEntry;
+import com.databasepreservation.common.client.models.status.collection.TableStatus;
 import com.databasepreservation.common.client.models.structure.ViewerDatabase;
 import com.databasepreservation.common.client.models.structure.ViewerDatabaseFromToolkit;
 import com.databasepreservation.common.client.models.structure.ViewerDatabaseStatus;
@@ -62,6 +70,8 @@ import com.databasepreservation.common.server.index.utils.IterableIndexResult;
 import com.databasepreservation.common.server.index.utils.IterableNestedIndexResult;
 import com.databasepreservation.common.server.index.utils.JsonTransformer;
 import com.databasepreservation.common.server.index.utils.Pair;
+import com.databasepreservation.common.server.index.utils.QueryGroupTracker;
+import com.databasepreservation.common.server.index.utils.RowsCursor;
 import com.databasepreservation.common.server.index.utils.SolrUtils;
 import com.databasepreservation.utils.FileUtils;
 
@@ -75,9 +85,42 @@ public class DatabaseRowsSolrManager {
   private static final long INSERT_DOCUMENT_TIMEOUT = 60000; // 60 seconds
 
   private final SolrClient client;
+  private final RowsQueryCache rowsCache;
+  private final RowsQueryCoalescer rowsCoalescer;
+  private final StoredTableStatistics storedStatistics;
+  private final Map<SolrQueryLane.Type, SolrQueryLane> lanes = new EnumMap<>(SolrQueryLane.Type.class);
 
   public DatabaseRowsSolrManager(SolrClient client) {
     this.client = client;
+    this.rowsCache = RowsQueryCache.create();
+    this.rowsCoalescer = new RowsQueryCoalescer();
+    this.storedStatistics = new StoredTableStatistics();
+    for (SolrQueryLane.Type type : SolrQueryLane.Type.values()) {
+      lanes.put(type, new SolrQueryLane(type));
+    }
+  }
+
+  /**
+   * @return the lane that limits the concurrent Solr queries of a kind of work
+   */
+  public SolrQueryLane getLane(SolrQueryLane.Type type) {
+    return lanes.get(type);
+  }
+
+  /**
+   * Discards the pages of rows of a database cached by
+   * {@link #findRows(String, Filter, Sorter, Sublist, Facets, List, Map)} and
+   * the statistics of its tables kept in memory, as its rows or its
+   * configuration changed.
+   *
+   * @param databaseUUID
+   *          the database UUID
+   */
+  public void invalidateRows(String databaseUUID) {
+    storedStatistics.invalidate(databaseUUID);
+    if (rowsCache != null) {
+      rowsCache.invalidate(databaseUUID);
+    }
   }
 
   /**
@@ -102,9 +145,12 @@ public class DatabaseRowsSolrManager {
       Pair.of(ViewerConstants.SOLR_DATABASES_STATUS, ViewerDatabaseStatus.INGESTING.toString()));
     RowsCollection collection = new RowsCollection(databaseUUID);
     collection.createRowsCollection();
+    invalidateRows(databaseUUID);
   }
 
   public void removeDatabase(ViewerDatabase database, Path lobFolder) throws ViewerException {
+    invalidateRows(database.getUuid());
+
     // delete the LOBs
     if (lobFolder != null) {
       try {
@@ -161,6 +207,7 @@ public class DatabaseRowsSolrManager {
     } catch (RequestNotValidException | GenericException | NotFoundException | AuthorizationDeniedException e) {
       throw new ViewerException(e);
     }
+    invalidateRows(databaseUUID);
   }
 
   public void addRow(ViewerDatabaseFromToolkit viewerDatabase, ViewerRow row) throws ViewerException {
@@ -173,10 +220,88 @@ public class DatabaseRowsSolrManager {
     }
   }
 
+  /**
+   * Deletes the rows of a table, and the documents nested in them, without
+   * committing.
+   *
+   * @param databaseUUID
+   *          the database UUID
+   * @param tableId
+   *          the table id
+   */
+  public void deleteTableRows(String databaseUUID, String tableId) throws ViewerException {
+    final String collection = SolrRowsCollectionRegistry.get(databaseUUID).getIndexName();
+    final String tableQuery = ViewerConstants.SOLR_ROWS_TABLE_ID + ":" + ClientUtils.escapeQueryChars(tableId);
+    try {
+      client.deleteByQuery(collection,
+        "{!join from=" + ViewerConstants.INDEX_ID + " to=" + IndexSchema.ROOT_FIELD_NAME + "}" + tableQuery);
+      client.deleteByQuery(collection, tableQuery);
+      invalidateRows(databaseUUID);
+    } catch (SolrServerException | IOException | SolrException e) {
+      throw new ViewerException("Could not delete the rows of table " + tableId, e);
+    }
+  }
+
+  /**
+   * Creates a writer that sends the rows of a database to its rows collection
+   * in batches, or to its offline index if it is being built. The caller must
+   * close the writer when the ingest finishes.
+   *
+   * @param databaseUUID
+   *          the database UUID
+   * @return the writer
+   */
+  public RowsWriter createRowsIndexWriter(String databaseUUID) {
+    final String collection = SolrRowsCollectionRegistry.get(databaseUUID).getIndexName();
+    final RowsWriter offlineWriter = OfflineRowsIndexBuilder.newWriter(collection);
+    return offlineWriter != null ? offlineWriter : new RowsIndexWriter(client, collection);
+  }
+
+  public void addRow(String databaseUUID, ViewerRow row, RowsWriter writer) throws ViewerException {
+    RowsCollection collection = SolrRowsCollectionRegistry.get(databaseUUID);
+
+    try {
+      writer.add(collection.toSolrDocument(row));
+    } catch (RequestNotValidException | GenericException | NotFoundException | AuthorizationDeniedException e) {
+      throw new ViewerException(e);
+    }
+  }
+
+  /**
+   * Applies partial (atomic) updates to rows of a database. Each document must
+   * have the row UUID and the fields to update, as field modifiers.
+   *
+   * @param databaseUUID
+   *          the database UUID
+   * @param updates
+   *          the partial documents
+   * @throws ViewerException
+   *           if the updates could not be sent
+   */
+  public void updateRows(String databaseUUID, List<SolrInputDocument> updates) throws ViewerException {
+    if (updates.isEmpty()) {
+      return;
+    }
+
+    RowsCollection collection = SolrRowsCollectionRegistry.get(databaseUUID);
+    try {
+      UpdateResponse response = client.add(collection.getIndexName(), updates, 1000);
+      if (response.getStatus() != 0) {
+        throw new ViewerException("Could not update " + updates.size() + " rows in collection "
+          + collection.getIndexName() + ". Response: " + response);
+      }
+    } catch (SolrException | SolrServerException | IOException e) {
+      throw new ViewerException("Could not update " + updates.size() + " rows in collection "
+        + collection.getIndexName(), e);
+    }
+    invalidateRows(databaseUUID);
+  }
+
   public <T extends IsIndexed> IndexResult<T> find(Class<T> classToReturn, Filter filter, Sorter sorter,
     Sublist sublist, Facets facets, List<String> fieldsToReturn) throws GenericException, RequestNotValidException {
-    return SolrUtils.find(client, SolrDefaultCollectionRegistry.get(classToReturn), filter, sorter, sublist, facets,
-      fieldsToReturn, new HashMap<>());
+    return getLane(SolrQueryLane.Type.INTERACTIVE).execute(() -> SolrUtils.find(client,
+      SolrDefaultCollectionRegistry.get(classToReturn), filter, sorter, sublist, facets, fieldsToReturn,
+      new HashMap<>()));
   }
 
   public <T extends IsIndexed> IndexResult<T> find(Class<T> classToReturn, Filter filter, Sorter sorter,
@@ -186,7 +311,8 @@ public class DatabaseRowsSolrManager {
 
   public <T extends IsIndexed> Long count(Class<T> classToReturn, Filter filter)
     throws GenericException, RequestNotValidException {
-    return SolrUtils.count(client, SolrDefaultCollectionRegistry.get(classToReturn), filter);
+    return getLane(SolrQueryLane.Type.INTERACTIVE)
+      .execute(() -> SolrUtils.count(client, SolrDefaultCollectionRegistry.get(classToReturn), filter));
   }
 
   public <T extends IsIndexed> T retrieve(Class<T> classToReturn, String id)
@@ -196,18 +322,140 @@ public class DatabaseRowsSolrManager {
 
   public IndexResult<ViewerRow> findRows(String databaseUUID, Filter filter, Sorter sorter, Sublist sublist,
     Facets facets) throws GenericException, RequestNotValidException {
-    return SolrUtils.findRows(client, databaseUUID, filter, sorter, sublist, facets);
+    return findRows(databaseUUID, filter, sorter, sublist, facets, new ArrayList<>(), new HashMap<>());
   }
 
   public IndexResult<ViewerRow> findRows(String databaseUUID, Filter filter, Sorter sorter, Sublist sublist,
     Facets facets, List<String> fieldsToReturn) throws GenericException, RequestNotValidException {
-    return SolrUtils.findRows(client, databaseUUID, filter, sorter, sublist, facets, fieldsToReturn, new HashMap<>());
+    return findRows(databaseUUID, filter, sorter, sublist, facets, fieldsToReturn, new HashMap<>());
   }
 
+  /**
+   * Finds the rows, with the row count and the facets of a whole table answered
+   * from the statistics of the table kept in memory, so that only the page of
+   * rows and the other facets are queried, if any.
+   */
   public IndexResult<ViewerRow> findRows(String databaseUUID, Filter filter, Sorter sorter, Sublist sublist,
     Facets facets, List<String> fieldsToReturn, Map<String, String> extraParameters)
     throws GenericException, RequestNotValidException {
-    return SolrUtils.findRows(client, databaseUUID, filter, sorter, sublist, facets, fieldsToReturn, extraParameters);
+    final TableStatus table = storedStatistics.getTable(databaseUUID, filter);
+    if (table == null) {
+      return findRowsInIndex(databaseUUID, filter, sorter, sublist, facets, fieldsToReturn, extraParameters);
+    }
+    final Map<String, FacetFieldResult> storedFacets = StoredTableStatistics.getFacetResults(table, facets);
+    final Map<String, FacetParameter> otherFacets = new LinkedHashMap<>();
+    if (facets != null) {
+      facets.getParameters().forEach((name, parameter) -> {
+        if (!storedFacets.containsKey(name)) {
+          otherFacets.put(name, parameter);
+        }
+      });
+    }
+
+    if (sublist.getMaximumElementCount() == 0 && otherFacets.isEmpty()) {
+      return new IndexResult<>(sublist.getFirstElementIndex(), 0, table.getRowCount(), new ArrayList<>(),
+        new ArrayList<>(storedFacets.values()));
+    } else if (storedFacets.isEmpty()) {
+      return findRowsInIndex(databaseUUID, filter, sorter, sublist, facets, fieldsToReturn, extraParameters);
+    }
+
+    final IndexResult<ViewerRow> found = findRowsInIndex(databaseUUID, filter, sorter, sublist,
+      otherFacets.isEmpty() ? Facets.NONE : new Facets(otherFacets, facets.getQuery()), fieldsToReturn,
+      extraParameters);
+    // the facets in the order of the parameters; the found rows may be shared with
+    // other requests, so they are not changed
+    final Map<String, FacetFieldResult> foundFacets = new HashMap<>();
+    for (FacetFieldResult facetResult : found.getFacetResults()) {
+      foundFacets.put(facetResult.getField(), facetResult);
+    }
+    final List<FacetFieldResult> facetResults = new ArrayList<>();
+    for (String name : facets.getParameters().keySet()) {
+      FacetFieldResult facetResult = storedFacets.containsKey(name) ? storedFacets.get(name) : foundFacets.get(name);
+      if (facetResult != null) {
+        facetResults.add(facetResult);
+      }
+    }
+    IndexResult<ViewerRow> result = new IndexResult<>(found.getOffset(), found.getLimit(), found.getTotalCount(),
+      found.getResults(), facetResults);
+    result.setPartialResults(found.isPartialResults());
+    return result;
+  }
+
+  private IndexResult<ViewerRow> findRowsInIndex(String databaseUUID, Filter filter, Sorter sorter, Sublist sublist,
+    Facets facets, List<String> fieldsToReturn, Map<String, String> extraParameters)
+    throws GenericException, RequestNotValidException {
+    final String coalescingKey = getCoalescingKey(
+      RowsQueryCache.getQueryKey(databaseUUID, filter, sorter, sublist, facets, fieldsToReturn, extraParameters));
+    final SolrQueryLane lane = getLane(SolrQueryLane.Type.INTERACTIVE);
+    final RowsQueryCache.Loader loader = () -> rowsCoalescer.execute(coalescingKey, () -> lane.execute(() -> SolrUtils
+      .findRows(client, databaseUUID, filter, sorter, sublist, facets, fieldsToReturn, extraParameters)));
+    if (rowsCache == null) {
+      return loader.load();
+    }
+    return rowsCache.get(databaseUUID, filter, sorter, sublist, facets, fieldsToReturn, extraParameters, loader);
+  }
+
+  /**
+   * @return the key under which identical concurrent queries share one Solr
+   *         query, as the queries with a time budget may return partial
+   *         results
+   */
+  private static String getCoalescingKey(String queryKey) {
+    return (QueryGroupTracker.isInteractive() ? "interactive|" : "batch|") + queryKey;
+  }
+
+  /**
+   * Finds a page of rows with the cursor of a previous {@link CursorIndexResult}
+   * of the same query. The page is found by its Solr cursor mark when the
+   * cursor has one, otherwise by its offset as in
+   * {@link #findRows(String, Filter, Sorter, Sublist, Facets, List, Map)}.
+   *
+   * @param cursor
+   *          the next or previous cursor of the result of the page before or
+   *          after the requested one, or null to find the page by its offset
+   */
+  public CursorIndexResult<ViewerRow> findRowsWithCursor(String databaseUUID, Filter filter, Sorter sorter,
+    Sublist sublist, List<String> fieldsToReturn, Map<String, String> extraParameters, String cursor)
+    throws GenericException, RequestNotValidException {
+    final List<String> fields = fieldsToReturn != null ? fieldsToReturn : Collections.emptyList();
+    final Map<String, String> parameters = extraParameters != null ? extraParameters : new HashMap<>();
+    final int pageSize = sublist.getMaximumElementCount();
+    final String queryKey = RowsCursor.getQueryKey(databaseUUID, filter, sorter);
+    final SolrQueryLane lane = getLane(SolrQueryLane.Type.INTERACTIVE);
+
+    RowsCursor position = RowsCursor.decode(cursor, queryKey, sublist.getFirstElementIndex());
+    if (position == null) {
+      position = RowsCursor.atOffset(queryKey, sublist.getFirstElementIndex());
+    }
+
+    IndexResult<ViewerRow> page;
+    String nextCursorMark = null;
+    if (position.getCursorMark() != null) {
+      final String cursorMark = position.getCursorMark();
+      final String coalescingKey = getCoalescingKey(RowsQueryCache.getQueryKey(databaseUUID, filter, sorter,
+        new Sublist(0, pageSize), Facets.NONE, fields, parameters)) + "|" + cursorMark;
+      Pair<IndexResult<ViewerRow>, String> cursorPage = rowsCoalescer.execute(coalescingKey, () -> lane.execute(
+        () -> SolrUtils.findRows(client, databaseUUID, filter, sorter, pageSize, cursorMark, fields, parameters)));
+      page = cursorPage.getFirst();
+      // the cursor mark after a partial page would skip the rows not found
+      nextCursorMark = page.isPartialResults() ? null : cursorPage.getSecond();
+    } else {
+      final String coalescingKey = getCoalescingKey(
+        RowsQueryCache.getQueryKey(databaseUUID, filter, sorter, sublist, Facets.NONE, fields, parameters));
+      page = rowsCoalescer.execute(coalescingKey, () -> lane.execute(
+        () -> SolrUtils.findRows(client, databaseUUID, filter, sorter, sublist, Facets.NONE, fields, parameters)));
+    }
+
+    CursorIndexResult<ViewerRow> result = new CursorIndexResult<>(position.getOffset(), page.getLimit(),
+      page.getTotalCount(), page.getResults(), page.getFacetResults());
+    if (position.getOffset() + page.getResults().size() < page.getTotalCount()) {
+      result.setNextCursor(position.next(pageSize, nextCursorMark).encode());
+    }
+    RowsCursor previous = position.previous(pageSize);
+    if (previous != null) {
+      result.setPreviousCursor(previous.encode());
+    }
+    return result;
   }
 
   public IterableIndexResult findAllRows(String databaseUUID, final Filter filter, final Sorter sorter,
@@ -217,21 +465,40 @@ public class DatabaseRowsSolrManager {
 
   public IterableIndexResult findAllRows(String databaseUUID, final Filter filter, final Sorter sorter,
     final List<String> fieldsToReturn, Map<String, String> extraParameters) {
-    return new IterableIndexResult(client, databaseUUID, filter, sorter, fieldsToReturn, extraParameters);
+    return findAllRows(databaseUUID, filter, sorter, fieldsToReturn, extraParameters, SolrQueryLane.Type.EXPORT);
+  }
+
+  /**
+   * Iterates over all the rows found, with the pages queried in the given lane,
+   * e.g. {@link SolrQueryLane.Type#BATCH} for the background jobs.
+   */
+  public IterableIndexResult findAllRows(String databaseUUID, final Filter filter, final Sorter sorter,
+    final List<String> fieldsToReturn, Map<String, String> extraParameters, SolrQueryLane.Type lane) {
+    return new IterableIndexResult(client, getLane(lane), databaseUUID, filter, sorter, fieldsToReturn,
+      extraParameters);
   }
 
   public IterableNestedIndexResult findAllRows(String databaseUUID, SolrQuery query, final Sorter sorter) {
-    return new IterableNestedIndexResult(client, databaseUUID, query, sorter);
+    return new IterableNestedIndexResult(client, getLane(SolrQueryLane.Type.EXPORT), databaseUUID, query, sorter);
   }
 
   public IndexResult<ViewerRow> findRows(String databaseUUID, List<SolrQuery> queryList)
     throws GenericException, RequestNotValidException {
-    return SolrUtils.findRowsWithSubQuery(client, databaseUUID, queryList);
+    return getLane(SolrQueryLane.Type.INTERACTIVE)
+      .execute(() -> SolrUtils.findRowsWithSubQuery(client, databaseUUID, queryList));
   }
 
+  /**
+   * Counts the rows, with the row count of a whole table answered from the
+   * statistics of the table kept in memory.
+   */
   public <T extends IsIndexed> Long countRows(String databaseUUID, Filter filter)
     throws GenericException, RequestNotValidException {
-    return SolrUtils.countRows(client, databaseUUID, filter);
+    final Long rowCount = storedStatistics.getRowCount(databaseUUID, filter);
+    if (rowCount != null) {
+      return rowCount;
+    }
+    return getLane(SolrQueryLane.Type.INTERACTIVE).execute(() -> SolrUtils.countRows(client, databaseUUID, filter));
   }
 
   public ViewerRow retrieveRows(String databaseUUID, String rowUUID) throws NotFoundException, GenericException {
@@ -424,9 +691,11 @@ public class DatabaseRowsSolrManager {
 
   public void markDatabaseCollection(final String databaseUUID, ViewerDatabaseStatus status) {
     updateDatabaseFields(databaseUUID, Pair.of(ViewerConstants.SOLR_DATABASES_STATUS, status.toString()));
+    invalidateRows(databaseUUID);
   }
 
   public void markDatabaseAsReady(final String databaseUUID) throws ViewerException {
+    invalidateRows(databaseUUID);
     updateDatabaseFields(databaseUUID,
       Pair.of(ViewerConstants.SOLR_DATABASES_STATUS, ViewerDatabaseStatus.AVAILABLE.toString()),
       Pair.of(ViewerConstants.SOLR_DATABASES_BROWSE_LOAD_DATE, new DateTime().toString()));
@@ -543,6 +812,7 @@ public class DatabaseRowsSolrManager {
     } catch (ViewerException e) {
       LOGGER.error("Could not update database progress for {}", databaseUUID, e);
     }
+    invalidateRows(databaseUUID);
   }
 
   public SolrInputDocument createNestedDocument(String uuid, String originalRowUUID, String tableRowUUID,
@@ -573,5 +843,6 @@ public class DatabaseRowsSolrManager {
     } catch (ViewerException e) {
       LOGGER.error("Could not delete nested document for {}", databaseUUID, e);
     }
+    invalidateRows(databaseUUID);
   }
 }
@@ -0,0 +1,371 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.server.index;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.embedded.EmbeddedSolrServer;
+import org.apache.solr.client.solrj.request.CoreAdminRequest;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.update.DocumentBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.databasepreservation.common.exceptions.ViewerException;
+import com.databasepreservation.common.server.ViewerConfiguration;
+import com.databasepreservation.common.server.index.factory.SolrClientFactory;
+
+/**
+ * Builds the index of a rows collection offline, with Lucene, instead of
+ * sending the rows to Solr. The documents are converted with the schema of the
+ * collection, exactly as Solr would, and added to a separate index by a pool
+ * of threads. When the ingest finishes the index is merged into the (empty)
+ * collection, which copies its segments, and committed.
+ *
+ * Only available with embedded Solr, where the schema and codec of the
+ * collection are at hand. The rows are not visible, nor committed, until the
+ * index is attached, so an ingest using it cannot be resumed.
+ */
+public class OfflineRowsIndexBuilder {
+  private static final Logger LOGGER = LoggerFactory.getLogger(OfflineRowsIndexBuilder.class);
+
+  private static final int DEFAULT_THREADS = 2;
+  private static final int DEFAULT_RAM_BUFFER_MB = 512;
+  private static final int DEFAULT_BATCH_SIZE = 1000;
+  private static final long RETRY_WAIT = 1000;
+  private static final String OFFLINE_INDEX_DIR = "offline-index";
+
+  private static final List<SolrInputDocument> POISON = new ArrayList<>();
+  private static final Map<String, OfflineRowsIndexBuilder> BUILDERS = new ConcurrentHashMap<>();
+
+  private final String collection;
+  private final IndexSchema schema;
+  private final Path indexDir;
+  private final IndexWriter writer;
+  private final int batchSize;
+  private final BlockingQueue<List<SolrInputDocument>> queue;
+  private final List<Thread> indexers;
+  private final AtomicReference<ViewerException> failure = new AtomicReference<>();
+  // same scheme as the version clock of Solr: milliseconds shifted left 20 bits
+  private final AtomicLong versionClock = new AtomicLong(System.currentTimeMillis() << 20);
+
+  private OfflineRowsIndexBuilder(String collection, IndexSchema schema, Path indexDir, IndexWriter writer,
+    int batchSize, int threads) {
+    this.collection = collection;
+    this.schema = schema;
+    this.indexDir = indexDir;
+    this.writer = writer;
+    this.batchSize = Math.max(1, batchSize);
+    this.queue = new ArrayBlockingQueue<>(2 * threads);
+    this.indexers = new ArrayList<>(threads);
+    for (int i = 0; i < threads; i++) {
+      Thread indexer = new Thread(this::indexLoop, "offline-index-" + collection + "-" + i);
+      indexer.setDaemon(true);
+      indexers.add(indexer);
+      indexer.start();
+    }
+  }
+
+  /**
+   * @return true if the configuration asks for offline indexing and Solr is
+   *         embedded
+   */
+  public static boolean isEnabled() {
+    return ViewerConfiguration.getInstance().getViewerConfigurationAsBoolean(false,
+      ViewerConfiguration.PROPERTY_INGEST_OFFLINE_INDEX)
+      && SolrClientFactory.get().getSolrClient() instanceof EmbeddedSolrServer;
+  }
+
+  public static boolean isActive(String collection) {
+    return BUILDERS.containsKey(collection);
+  }
+
+  /**
+   * Starts building the index of an empty rows collection. The rows written
+   * afterwards to the collection, by writers obtained from
+   * {@link #newWriter(String)}, go to the offline index.
+   *
+   * @param collection
+   *          the collection name
+   */
+  public static void begin(String collection) throws ViewerException {
+    ViewerConfiguration configuration = ViewerConfiguration.getInstance();
+    EmbeddedSolrServer client = (EmbeddedSolrServer) SolrClientFactory.get().getSolrClient();
+
+    IndexSchema schema;
+    IndexWriterConfig config;
+    Path indexDir;
+    try (SolrCore core = client.getCoreContainer().getCore(collection)) {
+      if (core == null) {
+        throw new ViewerException("Could not find collection " + collection);
+      }
+      schema = core.getLatestSchema();
+      config = new IndexWriterConfig(schema.getIndexAnalyzer());
+      config.setCodec(core.getCodec());
+      config.setSimilarity(schema.getSimilarity());
+      indexDir = Paths.get(core.getDataDir()).resolve(OFFLINE_INDEX_DIR);
+    }
+    config.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+    config.setRAMBufferSizeMB(configuration.getViewerConfigurationAsInt(DEFAULT_RAM_BUFFER_MB,
+      ViewerConfiguration.PROPERTY_INGEST_OFFLINE_INDEX_RAM_BUFFER));
+
+    IndexWriter writer;
+    try {
+      FileUtils.deleteDirectory(indexDir.toFile());
+      Files.createDirectories(indexDir);
+      writer = new IndexWriter(FSDirectory.open(indexDir), config);
+    } catch (IOException e) {
+      throw new ViewerException("Could not create the offline index of collection " + collection, e);
+    }
+
+    int threads = Math.max(1, configuration.getViewerConfigurationAsInt(DEFAULT_THREADS,
+      ViewerConfiguration.PROPERTY_INGEST_OFFLINE_INDEX_THREADS));
+    int batchSize = configuration.getViewerConfigurationAsInt(DEFAULT_BATCH_SIZE,
+      ViewerConfiguration.PROPERTY_INGEST_BATCH_SIZE);
+    BUILDERS.put(collection, new OfflineRowsIndexBuilder(collection, schema, indexDir, writer, batchSize, threads));
+    LOGGER.info("Building the index of collection {} offline at {} using {} threads", collection, indexDir, threads);
+  }
+
+  /**
+   * Creates a writer that adds rows to the offline index of a collection. Each
+   * thread ingesting rows must use its own writer and close it, which does not
+   * finish the index.
+   *
+   * @return the writer, or null if the index of the collection is not being
+   *         built offline
+   */
+  public static RowsWriter newWriter(String collection) {
+    OfflineRowsIndexBuilder builder = BUILDERS.get(collection);
+    return builder != null ? builder.new Writer() : null;
+  }
+
+  /**
+   * Waits for every row to be indexed and attaches the index to the
+   * collection, committing it. The writers must be closed before.
+   */
+  public static void finish(String collection) throws ViewerException {
+    OfflineRowsIndexBuilder builder = BUILDERS.remove(collection);
+    if (builder == null) {
+      return;
+    }
+
+    try {
+      builder.stopIndexers(false);
+      builder.rethrowFailure();
+      builder.writer.commit();
+      builder.writer.close();
+      LOGGER.info("Offline index of collection {} built, attaching it", collection);
+
+      CoreAdminRequest.mergeIndexes(collection, new String[] {builder.indexDir.toString()}, new String[0],
+        SolrClientFactory.get().getSolrClient());
+      SolrClientFactory.get().commit(collection);
+    } catch (IOException | SolrServerException | SolrException e) {
+      builder.rollback();
+      throw new ViewerException("Could not attach the offline index of collection " + collection, e);
+    } catch (ViewerException e) {
+      builder.rollback();
+      throw e;
+    } finally {
+      builder.deleteIndexDir();
+    }
+  }
+
+  /**
+   * Discards the offline index of a collection whose ingest did not finish.
+   */
+  public static void abort(String collection) {
+    OfflineRowsIndexBuilder builder = BUILDERS.remove(collection);
+    if (builder != null) {
+      builder.stopIndexers(true);
+      builder.rollback();
+      builder.deleteIndexDir();
+      LOGGER.info("Offline index of collection {} discarded", collection);
+    }
+  }
+
+  private void rethrowFailure() throws ViewerException {
+    ViewerException e = failure.get();
+    if (e != null) {
+      throw new ViewerException(e.getMessage(), e);
+    }
+  }
+
+  private void enqueue(List<SolrInputDocument> batch) throws ViewerException {
+    try {
+      // wait for a free slot, checking from time to time if the indexers failed
+      while (!queue.offer(batch, RETRY_WAIT, TimeUnit.MILLISECONDS)) {
+        rethrowFailure();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ViewerException("Interrupted while waiting to index rows of collection " + collection, e);
+    }
+  }
+
+  private void indexLoop() {
+    while (true) {
+      List<SolrInputDocument> batch;
+      try {
+        batch = queue.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+
+      if (batch == POISON) {
+        return;
+      }
+
+      if (failure.get() == null) {
+        try {
+          for (SolrInputDocument doc : batch) {
+            writer.addDocument(toDocument(doc));
+          }
+        } catch (IOException | SolrException | IllegalArgumentException e) {
+          failure.compareAndSet(null,
+            new ViewerException("Could not index rows offline for collection " + collection, e));
+        }
+      }
+    }
+  }
+
+  /**
+   * Converts a document as the update handler of Solr does, including the
+   * fields Solr adds to every document.
+   */
+  private org.apache.lucene.document.Document toDocument(SolrInputDocument doc) {
+    if (doc.hasChildDocuments()) {
+      throw new IllegalArgumentException("Nested documents cannot be indexed offline");
+    }
+    if (schema.isUsableForChildDocs()) {
+      doc.setField(IndexSchema.ROOT_FIELD_NAME, doc.getFieldValue(schema.getUniqueKeyField().getName()));
+    }
+    if (schema.getFieldOrNull(CommonParams.VERSION_FIELD) != null) {
+      doc.setField(CommonParams.VERSION_FIELD, versionClock.incrementAndGet());
+    }
+    return DocumentBuilder.toDocument(doc, schema);
+  }
+
+  private void stopIndexers(boolean discard) {
+    if (discard) {
+      queue.clear();
+      failure.compareAndSet(null, new ViewerException("Offline index of collection " + collection + " discarded"));
+    }
+    for (int i = 0; i < indexers.size(); i++) {
+      try {
+        while (!queue.offer(POISON, RETRY_WAIT, TimeUnit.MILLISECONDS)) {
+          if (discard) {
+            // a writer enqueued a batch in the meantime
+            queue.clear();
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        indexers.forEach(Thread::interrupt);
+        break;
+      }
+    }
+    for (Thread indexer : indexers) {
+      try {
+        indexer.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        indexers.forEach(Thread::interrupt);
+      }
+    }
+  }
+
+  private void rollback() {
+    try {
+      if (writer.isOpen()) {
+        writer.rollback();
+      }
+    } catch (IOException e) {
+      LOGGER.debug("Could not roll back the offline index of collection {}", collection, e);
+    }
+  }
+
+  private void deleteIndexDir() {
+    try {
+      FileUtils.deleteDirectory(indexDir.toFile());
+    } catch (IOException e) {
+      LOGGER.warn("Could not delete the offline index {}", indexDir, e);
+    }
+  }
+
+  /**
+   * Buffers the rows of one ingesting thread into batches for the indexers.
+   */
+  private class Writer implements RowsWriter {
+    private List<SolrInputDocument> currentBatch = new ArrayList<>(batchSize);
+    private boolean closed = false;
+
+    @Override
+    public String getCollection() {
+      return collection;
+    }
+
+    @Override
+    public void add(SolrInputDocument doc) throws ViewerException {
+      if (closed) {
+        throw new ViewerException("Rows writer for collection " + collection + " is already closed");
+      }
+      rethrowFailure();
+      currentBatch.add(doc);
+      if (currentBatch.size() >= batchSize) {
+        flush();
+      }
+    }
+
+    @Override
+    public void flush() throws ViewerException {
+      rethrowFailure();
+      if (!currentBatch.isEmpty()) {
+        List<SolrInputDocument> batch = currentBatch;
+        currentBatch = new ArrayList<>(batchSize);
+        enqueue(batch);
+      }
+    }
+
+    @Override
+    public void close() throws ViewerException {
+      if (!closed) {
+        closed = true;
+        flush();
+      }
+    }
+
+    @Override
+    public void abort() {
+      // the offline index itself is discarded by OfflineRowsIndexBuilder#abort
+      closed = true;
+      currentBatch = new ArrayList<>();
+    }
+  }
+}
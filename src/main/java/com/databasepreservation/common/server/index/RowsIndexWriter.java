@@ -0,0 +1,353 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.server.index;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.response.UpdateResponse;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.SolrInputField;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.databasepreservation.common.exceptions.ViewerException;
+import com.databasepreservation.common.server.ViewerConfiguration;
+
+/**
+ * Buffers row documents into batches and sends them to a Solr collection
+ * using a pool of sender threads, so that the conversion of new rows overlaps
+ * with the indexing of the previous ones.
+ *
+ * Batches are closed when they reach the configured number of documents or
+ * the configured (estimated) size in bytes. Closed batches wait in a bounded
+ * queue; when Solr falls behind the queue fills up and {@link #add} blocks
+ * the producer until a sender frees a slot.
+ */
+public class RowsIndexWriter implements RowsWriter {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RowsIndexWriter.class);
+
+  private static final int DEFAULT_BATCH_SIZE = 1000;
+  private static final int DEFAULT_BATCH_MAX_BYTES = 8 * 1024 * 1024;
+  private static final int DEFAULT_BATCH_RETRIES = 5;
+  private static final int DEFAULT_SENDER_THREADS = 2;
+  private static final int DEFAULT_QUEUE_SIZE = 4;
+  private static final long RETRY_WAIT = 1000;
+
+  private static final List<SolrInputDocument> POISON = new ArrayList<>();
+
+  private final SolrClient client;
+  private final String collection;
+  private final int batchSize;
+  private final long batchMaxBytes;
+  private final int retries;
+
+  private final BlockingQueue<List<SolrInputDocument>> queue;
+  private final List<Thread> senders;
+  private final AtomicReference<ViewerException> failure = new AtomicReference<>();
+  private final Object pendingLock = new Object();
+
+  private List<SolrInputDocument> currentBatch;
+  private long currentBatchBytes = 0;
+  private long pendingBatches = 0;
+  private long sentDocuments = 0;
+  private boolean closed = false;
+
+  public RowsIndexWriter(SolrClient client, String collection) {
+    this(client, collection, ViewerConfiguration.getInstance());
+  }
+
+  private RowsIndexWriter(SolrClient client, String collection, ViewerConfiguration configuration) {
+    this(client, collection,
+      configuration.getViewerConfigurationAsInt(DEFAULT_BATCH_SIZE, ViewerConfiguration.PROPERTY_INGEST_BATCH_SIZE),
+      configuration.getViewerConfigurationAsInt(DEFAULT_BATCH_MAX_BYTES,
+        ViewerConfiguration.PROPERTY_INGEST_BATCH_MAX_BYTES),
+      configuration.getViewerConfigurationAsInt(DEFAULT_BATCH_RETRIES,
+        ViewerConfiguration.PROPERTY_INGEST_BATCH_RETRIES),
+      configuration.getViewerConfigurationAsInt(DEFAULT_SENDER_THREADS,
+        ViewerConfiguration.PROPERTY_INGEST_SENDER_THREADS),
+      configuration.getViewerConfigurationAsInt(DEFAULT_QUEUE_SIZE, ViewerConfiguration.PROPERTY_INGEST_QUEUE_SIZE));
+  }
+
+  public RowsIndexWriter(SolrClient client, String collection, int batchSize, long batchMaxBytes, int retries,
+    int senderThreads, int queueSize) {
+    this.client = client;
+    this.collection = collection;
+    this.batchSize = Math.max(1, batchSize);
+    this.batchMaxBytes = Math.max(1, batchMaxBytes);
+    this.retries = Math.max(0, retries);
+    this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+    this.currentBatch = new ArrayList<>(this.batchSize);
+
+    int threads = Math.max(1, senderThreads);
+    this.senders = new ArrayList<>(threads);
+    for (int i = 0; i < threads; i++) {
+      Thread sender = new Thread(this::sendLoop, "rows-index-writer-" + collection + "-" + i);
+      sender.setDaemon(true);
+      senders.add(sender);
+      sender.start();
+    }
+  }
+
+  @Override
+  public String getCollection() {
+    return collection;
+  }
+
+  /**
+   * Adds a document to the current batch, handing the batch to the senders
+   * when it is full. Blocks while the queue of pending batches is full.
+   *
+   * @throws ViewerException
+   *           if a previous batch could not be sent
+   */
+  @Override
+  public void add(SolrInputDocument doc) throws ViewerException {
+    checkState();
+    currentBatch.add(doc);
+    currentBatchBytes += estimateSize(doc);
+    if (currentBatch.size() >= batchSize || currentBatchBytes >= batchMaxBytes) {
+      enqueueCurrentBatch();
+    }
+  }
+
+  /**
+   * Sends the partial batch and waits until every batch handed to the senders
+   * so far has been indexed, e.g. before a commit.
+   *
+   * @throws ViewerException
+   *           if any batch could not be sent
+   */
+  @Override
+  public void flush() throws ViewerException {
+    checkState();
+    enqueueCurrentBatch();
+    synchronized (pendingLock) {
+      while (pendingBatches > 0 && failure.get() == null) {
+        try {
+          pendingLock.wait(RETRY_WAIT);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new ViewerException("Interrupted while waiting for rows to be indexed", e);
+        }
+      }
+    }
+    rethrowFailure();
+  }
+
+  /**
+   * Flushes the pending documents and stops the sender threads.
+   *
+   * @throws ViewerException
+   *           if any batch could not be sent
+   */
+  @Override
+  public void close() throws ViewerException {
+    if (closed) {
+      return;
+    }
+    try {
+      if (failure.get() == null) {
+        flush();
+      }
+    } finally {
+      stopSenders();
+    }
+    rethrowFailure();
+  }
+
+  /**
+   * Discards the pending batches and stops the sender threads, without waiting
+   * for the batches being sent.
+   */
+  @Override
+  public void abort() {
+    if (closed) {
+      return;
+    }
+    // the senders skip the batches still queued once there is a failure
+    failure.compareAndSet(null, new ViewerException("Rows writer for collection " + collection + " was aborted"));
+    currentBatch = new ArrayList<>();
+    queue.clear();
+    stopSenders();
+  }
+
+  private void stopSenders() {
+    closed = true;
+    for (int i = 0; i < senders.size(); i++) {
+      // senders may have stopped after a failure, do not block forever
+      offerQuietly(POISON);
+    }
+    for (Thread sender : senders) {
+      try {
+        sender.join(RETRY_WAIT);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    LOGGER.debug("Sent {} documents to collection {}", sentDocuments, collection);
+  }
+
+  private void checkState() throws ViewerException {
+    if (closed) {
+      throw new ViewerException("Rows writer for collection " + collection + " is already closed");
+    }
+    rethrowFailure();
+  }
+
+  private void rethrowFailure() throws ViewerException {
+    ViewerException e = failure.get();
+    if (e != null) {
+      throw new ViewerException(e.getMessage(), e);
+    }
+  }
+
+  private void enqueueCurrentBatch() throws ViewerException {
+    if (currentBatch.isEmpty()) {
+      return;
+    }
+
+    List<SolrInputDocument> batch = currentBatch;
+    currentBatch = new ArrayList<>(batchSize);
+    currentBatchBytes = 0;
+
+    synchronized (pendingLock) {
+      pendingBatches++;
+    }
+
+    try {
+      // wait for a free slot, checking from time to time if the senders failed
+      while (!queue.offer(batch, RETRY_WAIT, TimeUnit.MILLISECONDS)) {
+        rethrowFailure();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ViewerException("Interrupted while waiting to send rows to collection " + collection, e);
+    }
+  }
+
+  private void offerQuietly(List<SolrInputDocument> batch) {
+    try {
+      queue.offer(batch, RETRY_WAIT, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void sendLoop() {
+    while (true) {
+      List<SolrInputDocument> batch;
+      try {
+        batch = queue.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+
+      if (batch == POISON) {
+        return;
+      }
+
+      try {
+        if (failure.get() == null) {
+          send(batch);
+        }
+      } catch (ViewerException e) {
+        failure.compareAndSet(null, e);
+      } finally {
+        synchronized (pendingLock) {
+          pendingBatches--;
+          pendingLock.notifyAll();
+        }
+      }
+    }
+  }
+
+  /**
+   * Sends a batch, retrying a limited number of times. The collection may not
+   * be available right after creation, so a 404 is also retried.
+   */
+  private void send(List<SolrInputDocument> batch) throws ViewerException {
+    Exception lastError = null;
+    for (int attempt = 0; attempt <= retries; attempt++) {
+      UpdateResponse response = null;
+      try {
+        response = client.add(collection, batch);
+        if (response.getStatus() == 0) {
+          synchronized (pendingLock) {
+            sentDocuments += batch.size();
+          }
+          return;
+        }
+        LOGGER.warn("Could not insert a document batch in collection {}. Response: {}", collection, response);
+      } catch (SolrException e) {
+        if (e.code() == 404) {
+          LOGGER.debug("Collection {} does not exist (yet). Retrying ({})", collection, attempt);
+        } else {
+          LOGGER.warn("Could not insert a document batch in collection {}. Last response (if any): {}", collection,
+            response, e);
+        }
+        lastError = e;
+      } catch (SolrServerException | IOException e) {
+        LOGGER.warn("Could not insert a document batch in collection {} (attempt {})", collection, attempt, e);
+        lastError = e;
+      }
+
+      try {
+        Thread.sleep(RETRY_WAIT * (attempt + 1));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new ViewerException("Interrupted while sending rows to collection " + collection, e);
+      }
+    }
+
+    throw new ViewerException("Could not insert a batch of " + batch.size() + " documents in collection " + collection
+      + " after " + (retries + 1) + " attempts", lastError);
+  }
+
+  /**
+   * Rough estimate of the size of a document on the wire, only used to bound
+   * the batches when rows are very large (e.g. CLOBs or embedded LOBs).
+   */
+  private static long estimateSize(SolrInputDocument doc) {
+    long size = 0;
+    for (SolrInputField field : doc) {
+      size += field.getName().length();
+      Object value = field.getValue();
+      if (value instanceof Collection) {
+        for (Object v : (Collection<?>) value) {
+          size += estimateValueSize(v);
+        }
+      } else {
+        size += estimateValueSize(value);
+      }
+    }
+    return size;
+  }
+
+  private static long estimateValueSize(Object value) {
+    if (value == null) {
+      return 0;
+    } else if (value instanceof CharSequence) {
+      return ((CharSequence) value).length();
+    } else if (value instanceof SolrInputDocument) {
+      return estimateSize((SolrInputDocument) value);
+    } else {
+      return 16;
+    }
+  }
+}
@@ -0,0 +1,183 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.server.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.utils.JsonUtils;
+import org.roda.core.data.v2.index.sublist.Sublist;
+
+import com.databasepreservation.common.client.index.IndexResult;
+import com.databasepreservation.common.client.index.facets.Facets;
+import com.databasepreservation.common.client.index.filter.Filter;
+import com.databasepreservation.common.client.index.sort.Sorter;
+import com.databasepreservation.common.client.models.structure.ViewerCell;
+import com.databasepreservation.common.client.models.structure.ViewerRow;
+import com.databasepreservation.common.server.ViewerConfiguration;
+import com.databasepreservation.common.server.index.utils.QueryGroupTracker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+
+/**
+ * Cache of the pages of rows found in the rows collections, bounded by an
+ * estimate of their size in memory. The pages are cached per database and
+ * version of its rows collection; a new version is started whenever the rows
+ * or the configuration of the collection change, so a query that was already
+ * running then does not cache an outdated page for the new version. As the
+ * changes sent to Solr only become visible with the next commit, the pages
+ * of a database are not cached for a while after each change.
+ *
+ * The hits, misses and evictions are reported to Micrometer as the
+ * {@value #METRICS_NAME} cache.
+ */
+public class RowsQueryCache {
+  private static final String METRICS_NAME = "dbvtk.rows.find";
+
+  // estimated bytes of a cached row and of each of its cells, besides the
+  // characters of the values
+  private static final int ROW_OVERHEAD = 128;
+  private static final int CELL_OVERHEAD = 64;
+
+  // time after a change in which the pages are not cached, longer than the
+  // commitWithin of the updates
+  private static final long QUIET_PERIOD_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+  private final Cache<String, IndexResult<ViewerRow>> cache;
+  private final Map<String, Long> versions = new ConcurrentHashMap<>();
+  private final Map<String, Long> lastChanges = new ConcurrentHashMap<>();
+
+  /**
+   * @return the cache with the configured size, or null if it is disabled
+   */
+  static RowsQueryCache create() {
+    ViewerConfiguration configuration = ViewerConfiguration.getInstance();
+    int maxSizeMB = configuration.getViewerConfigurationAsInt(64, ViewerConfiguration.PROPERTY_ROWS_CACHE_SIZE);
+    if (maxSizeMB <= 0) {
+      return null;
+    }
+    int expireSeconds = configuration.getViewerConfigurationAsInt(600,
+      ViewerConfiguration.PROPERTY_ROWS_CACHE_EXPIRE);
+    return new RowsQueryCache(maxSizeMB * 1024L * 1024L, expireSeconds);
+  }
+
+  private RowsQueryCache(long maxBytes, int expireSeconds) {
+    CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().maximumWeight(maxBytes).recordStats();
+    if (expireSeconds > 0) {
+      builder.expireAfterWrite(expireSeconds, TimeUnit.SECONDS);
+    }
+    Weigher<String, IndexResult<ViewerRow>> weigher = RowsQueryCache::estimateSize;
+    cache = builder.weigher(weigher).build();
+    GuavaCacheMetrics.monitor(Metrics.globalRegistry, cache, METRICS_NAME);
+  }
+
+  public interface Loader {
+    IndexResult<ViewerRow> load() throws GenericException, RequestNotValidException;
+  }
+
+  /**
+   * Gets a page of rows from the cache, or finds it with the loader if it is
+   * not cached. Concurrent requests for the same page wait for the same load.
+   */
+  public IndexResult<ViewerRow> get(String databaseUUID, Filter filter, Sorter sorter, Sublist sublist,
+    Facets facets, List<String> fieldsToReturn, Map<String, String> extraParameters, Loader loader)
+    throws GenericException, RequestNotValidException {
+    Long lastChange = lastChanges.get(databaseUUID);
+    if (lastChange != null) {
+      if (System.nanoTime() - lastChange < QUIET_PERIOD_NANOS) {
+        return loader.load();
+      }
+      lastChanges.remove(databaseUUID, lastChange);
+    }
+
+    String key = versions.getOrDefault(databaseUUID, 0L) + "@"
+      + getQueryKey(databaseUUID, filter, sorter, sublist, facets, fieldsToReturn, extraParameters);
+    try {
+      IndexResult<ViewerRow> result = cache.get(key, loader::load);
+      if (result.isPartialResults()) {
+        // the search ran out of time, the next request may find all results
+        cache.invalidate(key);
+      }
+      return result;
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof QueryGroupTracker.SupersededException) {
+        // the load was superseded for the request that started it, not this one
+        return loader.load();
+      } else if (cause instanceof RequestNotValidException) {
+        throw (RequestNotValidException) cause;
+      } else if (cause instanceof GenericException) {
+        throw (GenericException) cause;
+      }
+      throw new GenericException("Could not find the rows of database " + databaseUUID, cause);
+    }
+  }
+
+  /**
+   * Starts a new version of the rows collection of a database. The pages cached
+   * for the previous versions are no longer found and are evicted in time.
+   */
+  public void invalidate(String databaseUUID) {
+    lastChanges.put(databaseUUID, System.nanoTime());
+    versions.merge(databaseUUID, 1L, Long::sum);
+  }
+
+  /**
+   * @return a key of the query, independent of the order of the fields and of
+   *         the parameters
+   */
+  static String getQueryKey(String databaseUUID, Filter filter, Sorter sorter, Sublist sublist, Facets facets,
+    List<String> fieldsToReturn, Map<String, String> extraParameters) {
+    List<String> fields = fieldsToReturn != null ? new ArrayList<>(fieldsToReturn) : new ArrayList<>();
+    Collections.sort(fields);
+    Map<String, String> parameters = extraParameters != null ? new TreeMap<>(extraParameters) : new TreeMap<>();
+
+    return databaseUUID + "|" + JsonUtils.getJsonFromObject(filter)
+      + "|" + JsonUtils.getJsonFromObject(sorter) + "|" + sublist.getFirstElementIndex() + ","
+      + sublist.getMaximumElementCount() + "|" + JsonUtils.getJsonFromObject(facets != null ? facets : Facets.NONE)
+      + "|" + fields + "|" + parameters;
+  }
+
+  private static int estimateSize(String key, IndexResult<ViewerRow> result) {
+    long size = 2L * key.length();
+    if (result.getResults() != null) {
+      for (ViewerRow row : result.getResults()) {
+        size += estimateSize(row);
+      }
+    }
+    return (int) Math.min(size, Integer.MAX_VALUE);
+  }
+
+  private static long estimateSize(ViewerRow row) {
+    long size = ROW_OVERHEAD;
+    if (row.getCells() != null) {
+      for (ViewerCell cell : row.getCells().values()) {
+        size += CELL_OVERHEAD + (cell.getValue() != null ? 2L * cell.getValue().length() : 0);
+      }
+    }
+    if (row.getNestedRowList() != null) {
+      for (ViewerRow nestedRow : row.getNestedRowList()) {
+        size += estimateSize(nestedRow);
+      }
+    }
+    return size;
+  }
+}
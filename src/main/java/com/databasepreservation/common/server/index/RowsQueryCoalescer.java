@@ -0,0 +1,98 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.server.index;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.RequestNotValidException;
+
+import com.databasepreservation.common.server.index.utils.QueryGroupTracker;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+
+/**
+ * Coalesces the concurrent queries of rows with the same key: the first query
+ * is sent to Solr and the queries that arrive while it is in flight wait for
+ * it and share its result, instead of sending the same query again. Nothing is
+ * kept once the query finishes, caching is left to {@link RowsQueryCache}.
+ *
+ * The queries sent and the queries coalesced are counted in the
+ * {@value #METRICS_NAME} counter, tagged by result, and the keys in flight in
+ * the {@value #METRICS_NAME}.inflight gauge.
+ */
+public class RowsQueryCoalescer {
+  private static final String METRICS_NAME = "dbvtk.rows.find.coalescing";
+
+  private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+  private final Counter executed;
+  private final Counter coalesced;
+
+  RowsQueryCoalescer() {
+    executed = Counter.builder(METRICS_NAME).tag("result", "executed")
+      .description("Queries of rows sent to Solr").register(Metrics.globalRegistry);
+    coalesced = Counter.builder(METRICS_NAME).tag("result", "coalesced")
+      .description("Queries of rows that shared the result of an identical query in flight")
+      .register(Metrics.globalRegistry);
+    Gauge.builder(METRICS_NAME + ".inflight", inFlight, Map::size).register(Metrics.globalRegistry);
+  }
+
+  public interface Query<T> {
+    T run() throws GenericException, RequestNotValidException;
+  }
+
+  /**
+   * Runs the query, or waits for the identical query in flight and returns its
+   * result. The key must identify the query and everything that changes its
+   * result, including whether it has a time budget.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T execute(String key, Query<T> query) throws GenericException, RequestNotValidException {
+    CompletableFuture<Object> future = new CompletableFuture<>();
+    CompletableFuture<Object> existing = inFlight.putIfAbsent(key, future);
+    if (existing == null) {
+      executed.increment();
+      try {
+        T result = query.run();
+        future.complete(result);
+        return result;
+      } catch (GenericException | RequestNotValidException | RuntimeException e) {
+        future.completeExceptionally(e);
+        throw e;
+      } finally {
+        inFlight.remove(key, future);
+      }
+    }
+
+    coalesced.increment();
+    try {
+      return (T) existing.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new GenericException("Interrupted while waiting for the query of rows", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof QueryGroupTracker.SupersededException) {
+        // only the group of the first query was superseded, not this one
+        return query.run();
+      } else if (cause instanceof RequestNotValidException) {
+        throw (RequestNotValidException) cause;
+      } else if (cause instanceof GenericException) {
+        throw (GenericException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new GenericException("Could not find the rows", cause);
+    }
+  }
+}
@@ -0,0 +1,52 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.server.index;
+
+import org.apache.solr.common.SolrInputDocument;
+
+import com.databasepreservation.common.exceptions.ViewerException;
+
+/**
+ * Receives the row documents of a database being ingested and indexes them in
+ * its rows collection.
+ */
+public interface RowsWriter extends AutoCloseable {
+
+  String getCollection();
+
+  /**
+   * Adds a document, possibly blocking while previous ones are indexed.
+   *
+   * @throws ViewerException
+   *           if a previous document could not be indexed
+   */
+  void add(SolrInputDocument doc) throws ViewerException;
+
+  /**
+   * Hands every document added so far to the index, e.g. before a commit.
+   *
+   * @throws ViewerException
+   *           if any document could not be indexed
+   */
+  void flush() throws ViewerException;
+
+  /**
+   * Flushes the pending documents and releases the writer.
+   *
+   * @throws ViewerException
+   *           if any document could not be indexed
+   */
+  @Override
+  void close() throws ViewerException;
+
+  /**
+   * Discards the pending documents and releases the writer, e.g. when the
+   * ingest failed or was cancelled. Does nothing if the writer is closed.
+   */
+  void abort();
+}
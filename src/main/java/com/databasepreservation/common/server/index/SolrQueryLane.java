@@ -0,0 +1,124 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.server.index;
+
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.RequestNotValidException;
+
+import com.databasepreservation.common.server.ViewerConfiguration;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Limits the number of concurrent Solr queries of one kind of work, so that
+ * the queries of exports and background jobs cannot take all the capacity of
+ * Solr away from the queries of the users browsing the databases. A query
+ * waits for a free slot of its lane, up to the timeout of the lane, before
+ * being sent.
+ *
+ * The queries waiting and running are exposed in the
+ * {@value #METRICS_NAME}.queue and {@value #METRICS_NAME}.active gauges, and
+ * the time waiting and the time running in the {@value #METRICS_NAME}.wait
+ * and {@value #METRICS_NAME}.latency timers, all tagged by lane.
+ */
+public class SolrQueryLane {
+  private static final String METRICS_NAME = "dbvtk.solr.lane";
+
+  public enum Type {
+    /** queries of the users browsing and searching the databases */
+    INTERACTIVE(16, 10000),
+    /** queries of the exports of rows, e.g. CSV and ZIP */
+    EXPORT(2, 0),
+    /** queries of the background jobs, e.g. denormalization */
+    BATCH(4, 0);
+
+    private final int defaultMaxConcurrent;
+    private final int defaultTimeout;
+
+    Type(int defaultMaxConcurrent, int defaultTimeout) {
+      this.defaultMaxConcurrent = defaultMaxConcurrent;
+      this.defaultTimeout = defaultTimeout;
+    }
+
+    String getName() {
+      return name().toLowerCase(Locale.ROOT);
+    }
+  }
+
+  public interface Query<T> {
+    T run() throws GenericException, RequestNotValidException;
+  }
+
+  private final Type type;
+  private final int maxConcurrent;
+  private final long timeout;
+  private final Semaphore permits;
+  private final Timer waitTimer;
+  private final Timer latencyTimer;
+
+  SolrQueryLane(Type type) {
+    ViewerConfiguration configuration = ViewerConfiguration.getInstance();
+    this.type = type;
+    this.maxConcurrent = Math.max(1, configuration.getViewerConfigurationAsInt(type.defaultMaxConcurrent,
+      ViewerConfiguration.PROPERTY_SOLR_LANES_PREFIX, type.getName(), "maxConcurrent"));
+    this.timeout = configuration.getViewerConfigurationAsInt(type.defaultTimeout,
+      ViewerConfiguration.PROPERTY_SOLR_LANES_PREFIX, type.getName(), "timeout_ms");
+    this.permits = new Semaphore(maxConcurrent, true);
+
+    waitTimer = Timer.builder(METRICS_NAME + ".wait").tag("lane", type.getName())
+      .description("Time the Solr queries waited for a slot of their lane").register(Metrics.globalRegistry);
+    latencyTimer = Timer.builder(METRICS_NAME + ".latency").tag("lane", type.getName())
+      .description("Time the Solr queries took once sent").register(Metrics.globalRegistry);
+    Gauge.builder(METRICS_NAME + ".queue", permits, Semaphore::getQueueLength).tag("lane", type.getName())
+      .description("Solr queries waiting for a slot of their lane").register(Metrics.globalRegistry);
+    Gauge.builder(METRICS_NAME + ".active", permits, p -> maxConcurrent - p.availablePermits())
+      .tag("lane", type.getName()).description("Solr queries running").register(Metrics.globalRegistry);
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  /**
+   * Runs the query once the lane has a free slot.
+   *
+   * @throws GenericException
+   *           if the lane had no free slot within its timeout
+   */
+  public <T> T execute(Query<T> query) throws GenericException, RequestNotValidException {
+    long start = System.nanoTime();
+    try {
+      if (timeout > 0) {
+        if (!permits.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+          waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+          throw new GenericException("Too many " + type.getName() + " queries, Solr is busy, please try again later");
+        }
+      } else {
+        permits.acquire();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new GenericException("Interrupted while waiting for the " + type.getName() + " lane", e);
+    }
+
+    long sent = System.nanoTime();
+    waitTimer.record(sent - start, TimeUnit.NANOSECONDS);
+    try {
+      return query.run();
+    } finally {
+      latencyTimer.record(System.nanoTime() - sent, TimeUnit.NANOSECONDS);
+      permits.release();
+    }
+  }
+}
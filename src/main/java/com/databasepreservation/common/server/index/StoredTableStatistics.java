@@ -0,0 +1,206 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.server.index;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.roda.core.data.exceptions.GenericException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.databasepreservation.common.client.ViewerConstants;
+import com.databasepreservation.common.client.index.facets.FacetFieldResult;
+import com.databasepreservation.common.client.index.facets.FacetParameter;
+import com.databasepreservation.common.client.index.facets.Facets;
+import com.databasepreservation.common.client.index.facets.SimpleFacetParameter;
+import com.databasepreservation.common.client.index.filter.Filter;
+import com.databasepreservation.common.client.index.filter.FilterParameter;
+import com.databasepreservation.common.client.index.filter.SimpleFilterParameter;
+import com.databasepreservation.common.client.models.status.collection.CollectionStatus;
+import com.databasepreservation.common.client.models.status.collection.ColumnStatistics;
+import com.databasepreservation.common.client.models.status.collection.ColumnStatus;
+import com.databasepreservation.common.client.models.status.collection.TableStatus;
+import com.databasepreservation.common.server.ViewerFactory;
+
+/**
+ * Answers the queries of the rows of a whole table from the statistics
+ * computed after its ingest, kept in memory with the collection status of the
+ * database: the row count and the facets of the columns whose values were all
+ * kept as their most frequent values. Only the queries without a search and
+ * without selected facet values are answered, as the statistics are of all
+ * the rows of the table.
+ *
+ * The facets that keep the minimum count of 0 of the classic facets also list
+ * the values of the field in the other tables, which the statistics of a table
+ * do not have, so they are still queried.
+ */
+public class StoredTableStatistics {
+  private static final Logger LOGGER = LoggerFactory.getLogger(StoredTableStatistics.class);
+
+  private final Map<String, CollectionStatus> statuses = new ConcurrentHashMap<>();
+
+  /**
+   * Discards the collection status of a database, as its rows or its
+   * configuration changed.
+   */
+  public void invalidate(String databaseUUID) {
+    statuses.remove(databaseUUID);
+  }
+
+  /**
+   * @return the statistics of the table the filter restricts the rows to, or
+   *         null if the filter does more than that or the statistics of the
+   *         table are not known
+   */
+  public TableStatus getTable(String databaseUUID, Filter filter) {
+    String tableId = getTableId(filter);
+    if (tableId == null) {
+      return null;
+    }
+    // the status is loaded under the lock of its key, so an invalidation during
+    // the load waits for it and discards it
+    CollectionStatus status = statuses.computeIfAbsent(databaseUUID, this::load);
+    TableStatus table = status != null ? status.getTableStatusByTableId(tableId) : null;
+    if (table == null || !table.isSearchable() || table.getRowCount() == null) {
+      return null;
+    }
+    return table;
+  }
+
+  /**
+   * @return the row count of the table the filter restricts the rows to, or
+   *         null if it is not known
+   */
+  public Long getRowCount(String databaseUUID, Filter filter) {
+    TableStatus table = getTable(databaseUUID, filter);
+    return table != null ? table.getRowCount() : null;
+  }
+
+  /**
+   * @return the results of the facets that the statistics of the table answer,
+   *         by facet name, or an empty map if a facet has selected values
+   */
+  public static Map<String, FacetFieldResult> getFacetResults(TableStatus table, Facets facets) {
+    Map<String, FacetFieldResult> results = new LinkedHashMap<>();
+    if (facets == null) {
+      return results;
+    }
+    for (FacetParameter parameter : facets.getParameters().values()) {
+      if (parameter.getValues() != null && !parameter.getValues().isEmpty()) {
+        // the selected values restrict the rows, so no facet is of the whole table
+        return new LinkedHashMap<>();
+      }
+    }
+    for (FacetParameter parameter : facets.getParameters().values()) {
+      FacetFieldResult result = getFacetResult(table, parameter);
+      if (result != null) {
+        results.put(parameter.getName(), result);
+      }
+    }
+    return results;
+  }
+
+  /**
+   * @return the result of the facet, with the bucket values sorted and limited
+   *         as in the JSON facet request, or null if the statistics of the
+   *         column do not answer it
+   */
+  static FacetFieldResult getFacetResult(TableStatus table, FacetParameter parameter) {
+    // the default minimum count is requested as the minimum count of 0
+    if (!(parameter instanceof SimpleFacetParameter) || !parameter.getSubFacets().isEmpty()
+      || parameter.getMinCount() == FacetParameter.DEFAULT_MIN_COUNT || parameter.getMinCount() < 1) {
+      return null;
+    }
+    ColumnStatus column = table.getColumnById(parameter.getName());
+    ColumnStatistics statistics = column != null ? column.getStatistics() : null;
+    if (statistics == null || !hasAllValues(statistics, table.getRowCount())) {
+      return null;
+    }
+
+    List<Map.Entry<String, Long>> values = new ArrayList<>();
+    for (Map.Entry<String, Long> value : statistics.getTopValues().entrySet()) {
+      if (value.getValue() >= parameter.getMinCount()) {
+        values.add(value);
+      }
+    }
+    // the top values are sorted by descending count, as the count sort
+    if (!FacetParameter.SORT.COUNT.equals(parameter.getSort())) {
+      values.sort(Map.Entry.comparingByKey(getIndexOrder(parameter.getName())));
+    }
+    int limit = ((SimpleFacetParameter) parameter).getLimit();
+    if (limit >= 0 && values.size() > limit) {
+      values = values.subList(0, limit);
+    }
+
+    FacetFieldResult result = new FacetFieldResult(parameter.getName(), values.size(), parameter.getValues());
+    for (Map.Entry<String, Long> value : values) {
+      result.addFacetValue(value.getKey(), value.getKey(), value.getValue());
+    }
+    if (parameter.isUniqueCount()) {
+      result.setUniqueCount((long) statistics.getTopValues().size());
+    }
+    return result;
+  }
+
+  /**
+   * @return true if the top values are all the values of the column
+   */
+  private static boolean hasAllValues(ColumnStatistics statistics, long rowCount) {
+    if (statistics.getTopValues() == null) {
+      return false;
+    }
+    long count = statistics.getNullCount();
+    for (Long valueCount : statistics.getTopValues().values()) {
+      count += valueCount;
+    }
+    return count == rowCount;
+  }
+
+  /**
+   * @return the order of the values of the field in the index
+   */
+  private static Comparator<String> getIndexOrder(String field) {
+    if (field.endsWith(ViewerConstants.SOLR_DYN_LONG)) {
+      return Comparator.comparing((String value) -> Long.valueOf(value));
+    } else if (field.endsWith(ViewerConstants.SOLR_DYN_DOUBLE)) {
+      return Comparator.comparing((String value) -> Double.valueOf(value));
+    } else if (field.endsWith(ViewerConstants.SOLR_DYN_DATE)) {
+      return Comparator.comparing((String value) -> Instant.parse(value));
+    }
+    return Comparator.naturalOrder();
+  }
+
+  /**
+   * @return the table of the filter if it only restricts the rows to a table
+   */
+  private static String getTableId(Filter filter) {
+    if (filter == null || filter.getParameters().size() != 1) {
+      return null;
+    }
+    FilterParameter parameter = filter.getParameters().get(0);
+    if (parameter instanceof SimpleFilterParameter && ViewerConstants.SOLR_ROWS_TABLE_ID.equals(parameter.getName())) {
+      return ((SimpleFilterParameter) parameter).getValue();
+    }
+    return null;
+  }
+
+  private CollectionStatus load(String databaseUUID) {
+    try {
+      return ViewerFactory.getConfigurationManager().getConfigurationCollection(databaseUUID, databaseUUID);
+    } catch (GenericException e) {
+      LOGGER.debug("Could not read the configuration of database {}, querying the index", databaseUUID, e);
+      return null;
+    }
+  }
+}
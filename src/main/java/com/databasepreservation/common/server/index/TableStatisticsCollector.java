@@ -0,0 +1,218 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.server.index;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.response.FacetField;
+import org.apache.solr.client.solrj.response.FieldStatsInfo;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.client.solrj.util.ClientUtils;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.StatsParams;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.RequestNotValidException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.databasepreservation.common.client.ViewerConstants;
+import com.databasepreservation.common.client.models.status.collection.ColumnStatistics;
+import com.databasepreservation.common.client.models.status.collection.ColumnStatus;
+import com.databasepreservation.common.client.models.status.collection.TableStatus;
+import com.databasepreservation.common.exceptions.ViewerException;
+import com.databasepreservation.common.server.ViewerConfiguration;
+import com.databasepreservation.common.server.index.schema.SolrRowsCollectionRegistry;
+
+/**
+ * Computes the row count of a table and the statistics of its columns from the
+ * rows collection, with the Solr stats and facet components: the null count of
+ * every column and, for the columns indexed as strings, numbers or dates, the
+ * minimum, maximum and the approximate number of distinct values, estimated
+ * with HyperLogLog. The most frequent values are also kept for the columns
+ * with few distinct values and for the boolean columns.
+ *
+ * Text columns are tokenized, so only their null count is computed. The
+ * queries are sent through the given lane.
+ */
+public class TableStatisticsCollector {
+  private static final Logger LOGGER = LoggerFactory.getLogger(TableStatisticsCollector.class);
+
+  private static final String MISSING_KEY_SUFFIX = "_missing";
+
+  private final SolrClient client;
+  private final SolrQueryLane lane;
+  private final int topValuesSize;
+  private final int topValuesMaxDistinct;
+
+  public TableStatisticsCollector(SolrClient client, SolrQueryLane lane) {
+    this.client = client;
+    this.lane = lane;
+    ViewerConfiguration configuration = ViewerConfiguration.getInstance();
+    this.topValuesSize = configuration.getViewerConfigurationAsInt(10,
+      ViewerConfiguration.PROPERTY_STATISTICS_TOP_VALUES_SIZE);
+    this.topValuesMaxDistinct = configuration.getViewerConfigurationAsInt(100,
+      ViewerConfiguration.PROPERTY_STATISTICS_TOP_VALUES_MAX_DISTINCT);
+  }
+
+  /**
+   * Sets the row count of the table and the statistics of its columns.
+   */
+  public void collect(String databaseUUID, TableStatus table) throws ViewerException {
+    final String collection = SolrRowsCollectionRegistry.get(databaseUUID).getIndexName();
+    final String tableFilter = ViewerConstants.SOLR_ROWS_TABLE_ID + ":"
+      + ClientUtils.escapeQueryChars(table.getId());
+
+    SolrQuery query = newQuery(tableFilter);
+    List<ColumnStatus> rangedColumns = new ArrayList<>();
+    List<ColumnStatus> otherColumns = new ArrayList<>();
+    for (ColumnStatus column : table.getColumns()) {
+      if (column.getId() == null || !column.getId().startsWith(ViewerConstants.SOLR_INDEX_ROW_COLUMN_NAME_PREFIX)) {
+        continue;
+      }
+      if (isRanged(column.getId())) {
+        query.add(StatsParams.STATS_FIELD, "{!min=true max=true missing=true cardinality=true}" + column.getId());
+        rangedColumns.add(column);
+      } else {
+        query.addFacetQuery(
+          "{!key=" + column.getId() + MISSING_KEY_SUFFIX + "}*:* -" + column.getId() + ":[* TO *]");
+        otherColumns.add(column);
+      }
+    }
+    query.setGetFieldStatistics(!rangedColumns.isEmpty());
+    query.setFacet(!otherColumns.isEmpty());
+
+    QueryResponse response = query(collection, query);
+    table.setRowCount(response.getResults().getNumFound());
+
+    List<ColumnStatus> topValuesColumns = new ArrayList<>();
+    Map<String, FieldStatsInfo> fieldStats = response.getFieldStatsInfo();
+    for (ColumnStatus column : rangedColumns) {
+      FieldStatsInfo stats = fieldStats != null ? fieldStats.get(column.getId()) : null;
+      ColumnStatistics statistics = new ColumnStatistics();
+      if (stats != null) {
+        statistics.setNullCount(stats.getMissing() != null ? stats.getMissing() : 0);
+        statistics.setMin(format(column.getId(), stats.getMin()));
+        statistics.setMax(format(column.getId(), stats.getMax()));
+        statistics.setDistinctCount(stats.getCardinality());
+        if (stats.getCardinality() != null && stats.getCardinality() > 0
+          && stats.getCardinality() <= topValuesMaxDistinct) {
+          topValuesColumns.add(column);
+        }
+      }
+      column.setStatistics(statistics);
+    }
+
+    Map<String, Integer> facetQueries = response.getFacetQuery();
+    for (ColumnStatus column : otherColumns) {
+      ColumnStatistics statistics = new ColumnStatistics();
+      Integer missing = facetQueries != null ? facetQueries.get(column.getId() + MISSING_KEY_SUFFIX) : null;
+      statistics.setNullCount(missing != null ? missing : 0);
+      if (column.getId().endsWith(ViewerConstants.SOLR_DYN_BOOLEAN)) {
+        topValuesColumns.add(column);
+      }
+      column.setStatistics(statistics);
+    }
+
+    if (!topValuesColumns.isEmpty() && topValuesSize > 0) {
+      collectTopValues(collection, tableFilter, topValuesColumns);
+    }
+  }
+
+  private void collectTopValues(String collection, String tableFilter, List<ColumnStatus> columns)
+    throws ViewerException {
+    SolrQuery query = newQuery(tableFilter);
+    query.setFacet(true);
+    query.setFacetLimit(topValuesSize);
+    query.setFacetMinCount(1);
+    for (ColumnStatus column : columns) {
+      query.addFacetField(column.getId());
+    }
+
+    QueryResponse response = query(collection, query);
+    for (ColumnStatus column : columns) {
+      FacetField facetField = response.getFacetField(column.getId());
+      if (facetField == null) {
+        continue;
+      }
+      LinkedHashMap<String, Long> topValues = new LinkedHashMap<>();
+      for (FacetField.Count count : facetField.getValues()) {
+        topValues.put(count.getName(), count.getCount());
+      }
+      column.getStatistics().setTopValues(topValues);
+    }
+  }
+
+  private static SolrQuery newQuery(String tableFilter) {
+    SolrQuery query = new SolrQuery("*:*");
+    query.addFilterQuery(tableFilter);
+    query.setRows(0);
+    return query;
+  }
+
+  private QueryResponse query(String collection, SolrQuery query) throws ViewerException {
+    try {
+      return lane.execute(() -> {
+        try {
+          return client.query(collection, query);
+        } catch (SolrServerException | IOException | SolrException e) {
+          throw new GenericException("Could not compute the statistics of collection " + collection, e);
+        }
+      });
+    } catch (GenericException | RequestNotValidException e) {
+      throw new ViewerException(e.getMessage(), e);
+    }
+  }
+
+  /**
+   * @return true if the Solr stats component computes the range and the
+   *         cardinality of the field
+   */
+  private static boolean isRanged(String field) {
+    return field.endsWith(ViewerConstants.SOLR_DYN_STRING) || field.endsWith(ViewerConstants.SOLR_DYN_LONG)
+      || field.endsWith(ViewerConstants.SOLR_DYN_DOUBLE) || field.endsWith(ViewerConstants.SOLR_DYN_DATE);
+  }
+
+  private static String format(String field, Object value) {
+    if (value == null) {
+      return null;
+    } else if (value instanceof Date) {
+      return ((Date) value).toInstant().toString();
+    } else if (value instanceof Number && field.endsWith(ViewerConstants.SOLR_DYN_LONG)) {
+      return Long.toString(((Number) value).longValue());
+    } else {
+      return value.toString();
+    }
+  }
+
+  /**
+   * Computes the statistics of the given tables, logging the tables whose
+   * statistics could not be computed.
+   *
+   * @return the number of tables whose statistics were computed
+   */
+  public int collect(String databaseUUID, List<TableStatus> tables) {
+    int collected = 0;
+    for (TableStatus table : tables) {
+      try {
+        collect(databaseUUID, table);
+        collected++;
+      } catch (ViewerException e) {
+        LOGGER.warn("Could not compute the statistics of table {} of database {}", table.getId(), databaseUUID, e);
+      }
+    }
+    return collected;
+  }
+}
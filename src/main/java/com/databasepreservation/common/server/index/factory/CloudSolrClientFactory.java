@@ -217,6 +217,12 @@ public class CloudSolrClientFactory extends SolrClientFactory<CloudSolrClient> {
         }
     }
 
+    @Override
+    protected boolean isUpdateLogRequired() {
+        // replicas recover from the update log of the leader
+        return true;
+    }
+
     @Override
     protected Collection<String> getCollectionList() {
         Collection<String> ret = new ArrayList<>();
@@ -11,12 +11,29 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.request.AbstractUpdateRequest;
+import org.apache.solr.client.solrj.request.GenericSolrRequest;
+import org.apache.solr.client.solrj.request.RequestWriter;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.params.UpdateParams;
+import org.roda.core.data.utils.JsonUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.databasepreservation.common.client.ViewerConstants;
 import com.databasepreservation.common.server.ViewerConfiguration;
+import com.databasepreservation.common.server.ViewerFactory;
 import com.databasepreservation.common.server.index.schema.Field;
 import com.databasepreservation.common.server.index.schema.SolrBootstrapUtils;
 import com.databasepreservation.common.server.index.schema.SolrDefaultCollectionRegistry;
@@ -46,6 +63,14 @@ public abstract class SolrClientFactory<T extends SolrClient> {
 
     private T solrClient;
 
+    // bulk load user properties, referenced by solrconfig.xml
+    private static final String BULK_LOAD_RAM_BUFFER = "dbvtk.ramBufferSizeMB";
+    private static final String BULK_LOAD_AUTO_COMMIT = "dbvtk.autoCommit.maxTime";
+    private static final String BULK_LOAD_AUTO_SOFT_COMMIT = "dbvtk.autoSoftCommit.maxTime";
+    private static final String BULK_LOAD_UPDATE_LOG = "dbvtk.updateLog.enable";
+
+    private final Set<String> bulkLoadingCollections = ConcurrentHashMap.newKeySet();
+
     private void init() {
         ViewerConfiguration configuration = ViewerConfiguration.getInstance();
         Field.initialize(configuration);
@@ -91,6 +116,150 @@ public abstract class SolrClientFactory<T extends SolrClient> {
 
     }
 
+    /**
+     * Switches a collection to the bulk load profile while it is being
+     * ingested: a large RAM buffer, no automatic (soft) commits and, if the
+     * factory allows it, no update log. Does nothing if the profile is disabled
+     * in the configuration or already active.
+     *
+     * @param collection
+     *          the collection name
+     */
+    public void beginBulkLoad(String collection) {
+        ViewerConfiguration configuration = ViewerConfiguration.getInstance();
+        if (!configuration.getViewerConfigurationAsBoolean(true, ViewerConfiguration.PROPERTY_INGEST_BULK_LOAD)
+                || !bulkLoadingCollections.add(collection)) {
+            return;
+        }
+
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put(BULK_LOAD_RAM_BUFFER, Integer.toString(configuration.getViewerConfigurationAsInt(512,
+                ViewerConfiguration.PROPERTY_INGEST_BULK_LOAD_RAM_BUFFER)));
+        properties.put(BULK_LOAD_AUTO_COMMIT, "-1");
+        properties.put(BULK_LOAD_AUTO_SOFT_COMMIT, "-1");
+        if (!isUpdateLogRequired()) {
+            properties.put(BULK_LOAD_UPDATE_LOG, "false");
+        }
+
+        try {
+            updateConfig(collection, Collections.singletonMap("set-user-property", properties));
+            LOGGER.info("Collection {} switched to the bulk load profile", collection);
+        } catch (ViewerException e) {
+            bulkLoadingCollections.remove(collection);
+            LOGGER.warn("Could not switch collection {} to the bulk load profile", collection, e);
+        }
+    }
+
+    /**
+     * Hard commits a collection. During a bulk load no searcher is opened, as
+     * nobody searches the collection until it is loaded.
+     *
+     * @param collection
+     *          the collection name
+     */
+    public void commit(String collection) throws ViewerException {
+        UpdateRequest request = new UpdateRequest();
+        request.setAction(AbstractUpdateRequest.ACTION.COMMIT, true, true);
+        if (bulkLoadingCollections.contains(collection)) {
+            request.setParam(UpdateParams.OPEN_SEARCHER, Boolean.FALSE.toString());
+        }
+        try {
+            request.process(getSolrClient(), collection);
+        } catch (SolrServerException | IOException | SolrException e) {
+            throw new ViewerException("Could not commit collection " + collection, e);
+        }
+
+        if (collection.startsWith(ViewerConstants.SOLR_INDEX_ROW_COLLECTION_NAME_PREFIX)) {
+            ViewerFactory.getSolrManager()
+                .invalidateRows(collection.substring(ViewerConstants.SOLR_INDEX_ROW_COLLECTION_NAME_PREFIX.length()));
+        }
+    }
+
+    /**
+     * Commits a collection after it is loaded, opening a searcher. If it was
+     * being bulk loaded, restores the interactive profile and, if configured,
+     * force-merges it in the background.
+     *
+     * @param collection
+     *          the collection name
+     */
+    public void endBulkLoad(String collection) throws ViewerException {
+        boolean bulkLoading = bulkLoadingCollections.remove(collection);
+        commit(collection);
+        if (!bulkLoading) {
+            return;
+        }
+
+        updateConfig(collection, Collections.singletonMap("unset-user-property", getBulkLoadProperties()));
+        LOGGER.info("Collection {} switched back to the interactive profile", collection);
+
+        int maxSegments = ViewerConfiguration.getInstance().getViewerConfigurationAsInt(0,
+                ViewerConfiguration.PROPERTY_INGEST_BULK_LOAD_MERGE_SEGMENTS);
+        if (maxSegments > 0) {
+            Thread merge = new Thread(() -> {
+                try {
+                    getSolrClient().optimize(collection, true, true, maxSegments);
+                    LOGGER.info("Collection {} merged into at most {} segments", collection, maxSegments);
+                } catch (SolrServerException | IOException | SolrException e) {
+                    LOGGER.warn("Could not merge the segments of collection {}", collection, e);
+                }
+            }, "solr-merge-" + collection);
+            merge.setDaemon(true);
+            merge.start();
+        }
+    }
+
+    /**
+     * Restores the interactive profile of a collection whose load did not
+     * finish, including one left in the bulk load profile by a restart. The
+     * uncommitted rows are not committed.
+     *
+     * @param collection
+     *          the collection name
+     */
+    public void abortBulkLoad(String collection) {
+        bulkLoadingCollections.remove(collection);
+        for (String property : getBulkLoadProperties()) {
+            try {
+                updateConfig(collection, Collections.singletonMap("unset-user-property", property));
+            } catch (ViewerException e) {
+                // not set
+                LOGGER.debug("Could not unset {} of collection {}", property, collection, e);
+            }
+        }
+    }
+
+    private String[] getBulkLoadProperties() {
+        return isUpdateLogRequired()
+                ? new String[] {BULK_LOAD_RAM_BUFFER, BULK_LOAD_AUTO_COMMIT, BULK_LOAD_AUTO_SOFT_COMMIT}
+                : new String[] {BULK_LOAD_RAM_BUFFER, BULK_LOAD_AUTO_COMMIT, BULK_LOAD_AUTO_SOFT_COMMIT,
+                        BULK_LOAD_UPDATE_LOG};
+    }
+
+    /**
+     * Sends commands to the Config API of a collection. Changing user properties
+     * reloads the collection with them.
+     */
+    private void updateConfig(String collection, Map<String, ?> commands) throws ViewerException {
+        GenericSolrRequest request = new GenericSolrRequest(SolrRequest.METHOD.POST, "/config",
+                new ModifiableSolrParams());
+        request.setContentWriter(
+                new RequestWriter.StringPayloadContentWriter(JsonUtils.getJsonFromObject(commands), "application/json"));
+        try {
+            request.process(getSolrClient(), collection);
+        } catch (SolrServerException | IOException | SolrException e) {
+            throw new ViewerException("Could not update the configuration of collection " + collection, e);
+        }
+    }
+
+    /**
+     * @return true if collections must keep their update log, e.g. because
+     *         replicas recover from it
+     */
+    protected boolean isUpdateLogRequired() {
+        return false;
+    }
+
     protected abstract T configureSolrClient();
 
     protected abstract void waitForSolrToInitialize();
@@ -12,6 +12,7 @@ import java.util.Map;
 import java.util.Optional;
 
 import org.apache.solr.client.solrj.request.schema.SchemaRequest.AddDynamicField;
+import org.apache.solr.client.solrj.request.schema.SchemaRequest.ReplaceDynamicField;
 import org.apache.solr.client.solrj.request.schema.SchemaRequest.Update;
 
 public class DynamicField {
@@ -235,6 +236,10 @@ public class DynamicField {
     return new AddDynamicField(getFieldAttributes());
   }
 
+  public Update buildReplace() {
+    return new ReplaceDynamicField(getFieldAttributes());
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -30,6 +30,7 @@ public class SchemaBuilder {
   private final Set<Field> fields = new HashSet<>();
   private final Set<CopyField> copyFields = new HashSet<>();
   private final Set<DynamicField> dynamicFields = new HashSet<>();
+  private final Set<DynamicField> replacedDynamicFields = new HashSet<>();
 
   public Field addField(Field field) {
     fields.add(field);
@@ -56,6 +57,15 @@ public class SchemaBuilder {
     return addDynamicField(new DynamicField(name, type));
   }
 
+  /**
+   * Replaces the definition of an existing dynamic field, which only applies to
+   * the documents indexed afterwards.
+   */
+  public DynamicField replaceDynamicField(DynamicField field) {
+    replacedDynamicFields.add(field);
+    return field;
+  }
+
   public CopyField addCopyField(CopyField copyField) {
     copyFields.add(copyField);
     return copyField;
@@ -70,7 +80,7 @@ public class SchemaBuilder {
   }
 
   public boolean isEmpty() {
-    return fields.isEmpty() && dynamicFields.isEmpty() && copyFields.isEmpty();
+    return fields.isEmpty() && dynamicFields.isEmpty() && replacedDynamicFields.isEmpty() && copyFields.isEmpty();
   }
 
   @SuppressWarnings("unchecked")
@@ -79,12 +89,13 @@ public class SchemaBuilder {
 
     fields.forEach(f -> updates.add(f.buildCreate()));
     dynamicFields.forEach(df -> updates.add(df.buildCreate()));
+    replacedDynamicFields.forEach(df -> updates.add(df.buildReplace()));
     copyFields.forEach(cf -> updates.add(cf.buildCreate()));
 
     MultiUpdate multi = new MultiUpdate(updates);
     try {
       LOGGER.info("Updating {} collection schema with {} fields, {} dynamic fields and {} copy fields", collection,
-        fields.size(), dynamicFields.size(), copyFields.size());
+        fields.size(), dynamicFields.size() + replacedDynamicFields.size(), copyFields.size());
 
       multi.process(client, collection);
 
@@ -98,6 +109,7 @@ public class SchemaBuilder {
       LOGGER.info("Collection {} details:", collection);
       fields.forEach(f -> LOGGER.info("> {}", f));
       dynamicFields.forEach(f -> LOGGER.info("> {}", f));
+      replacedDynamicFields.forEach(f -> LOGGER.info("> {}", f));
       copyFields.forEach(f -> LOGGER.info("> {}", f));
 
       throw new ViewerException("Error bootstraping schemas", e);
@@ -43,7 +43,7 @@ public class SolrBootstrapUtils {
     }
   }
 
-  private static Map<String, DynamicField> getDynamicFields(SolrClient client, String collectionName)
+  public static Map<String, DynamicField> getDynamicFields(SolrClient client, String collectionName)
     throws ViewerException {
 
     SchemaRequest.DynamicFields fields = new SchemaRequest.DynamicFields();
@@ -71,12 +71,21 @@ public class SolrBootstrapUtils {
 
   // TODO use T instead of M, everywhere
 
+  /**
+   * Bootstraps the schema of a new rows collection. As it has no documents
+   * yet, the dynamic fields that differ from the ones required are replaced.
+   */
   public static void bootstrapRowsCollection(SolrClient client, RowsCollection collection) throws ViewerException {
-    bootstrapCollection(client, collection);
+    bootstrapCollection(client, collection, true);
   }
 
   private static <M extends IsIndexed> void bootstrapCollection(SolrClient client, SolrCollection<M> collection)
     throws ViewerException {
+    bootstrapCollection(client, collection, false);
+  }
+
+  private static <M extends IsIndexed> void bootstrapCollection(SolrClient client, SolrCollection<M> collection,
+    boolean replaceDynamicFields) throws ViewerException {
 
     // check if fields already exist, only create if they do not
     Map<String, Field> fields = getFields(client, collection.getIndexName());
@@ -105,6 +114,10 @@ public class SolrBootstrapUtils {
     collection.getDynamicFields().forEach(df -> {
       if (!dynamicFields.containsKey(df.getName())) {
         b.addDynamicField(df);
+      } else if (replaceDynamicFields && !dynamicFields.get(df.getName()).getFieldAttributes().entrySet()
+        .containsAll(df.getFieldAttributes().entrySet())) {
+        // unlike isEquivalentTo, attributes omitted in the existing field count
+        b.replaceDynamicField(df);
       } else if (!dynamicFields.get(df.getName()).isEquivalentTo(df)) {
         LOGGER.warn("Dynamic field {} of collection {} should be updated. Existing: {}. Required: {}", df.getName(),
           collection.getIndexName(), dynamicFields.get(df.getName()), df);
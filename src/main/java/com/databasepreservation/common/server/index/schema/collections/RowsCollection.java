@@ -29,9 +29,11 @@ import com.databasepreservation.common.client.ViewerConstants;
 import com.databasepreservation.common.client.models.structure.ViewerCell;
 import com.databasepreservation.common.client.models.structure.ViewerRow;
 import com.databasepreservation.common.exceptions.ViewerException;
+import com.databasepreservation.common.server.ViewerConfiguration;
 import com.databasepreservation.common.server.index.factory.SolrClientFactory;
 import com.databasepreservation.common.server.index.schema.AbstractSolrCollection;
 import com.databasepreservation.common.server.index.schema.CopyField;
+import com.databasepreservation.common.server.index.schema.DynamicField;
 import com.databasepreservation.common.server.index.schema.Field;
 import com.databasepreservation.common.server.index.schema.SolrBootstrapUtils;
 import com.databasepreservation.common.server.index.schema.SolrCollection;
@@ -76,6 +78,21 @@ public class RowsCollection extends AbstractSolrCollection<ViewerRow> {
     return fields;
   }
 
+  @Override
+  public List<DynamicField> getDynamicFields() {
+    List<DynamicField> dynamicFields = new ArrayList<>(super.getDynamicFields());
+
+    // the other column types have docValues in the configset, so the columns
+    // can be exported with the /export handler
+    if (ViewerConfiguration.getInstance().getViewerConfigurationAsBoolean(false,
+      ViewerConfiguration.PROPERTY_EXPORT_DOC_VALUES)) {
+      dynamicFields.add(new DynamicField("*" + ViewerConstants.SOLR_DYN_BOOLEAN, Field.TYPE_BOOLEAN).setIndexed(true)
+        .setStored(true).setDocValues(true));
+    }
+
+    return dynamicFields;
+  }
+
   private Field newIndexedStoredNotRequiredField(String name, String type) {
     return new Field(name, type).setIndexed(true).setStored(true).setRequired(false);
   }
@@ -183,21 +200,7 @@ public class RowsCollection extends AbstractSolrCollection<ViewerRow> {
     Optional<ViewerCell> viewerCell = Optional.empty();
 
     if (columnName.startsWith(ViewerConstants.SOLR_INDEX_ROW_COLUMN_NAME_PREFIX)) {
-      if (value instanceof Date) {
-        // DateTime date = new DateTime(value, JodaUtils.DEFAULT_CHRONOLOGY);
-        final String dateTimeString = ((Date) value).toInstant().toString();
-        if (columnName.endsWith(ViewerConstants.SOLR_DYN_TDATE)) {
-          viewerCell = Optional.of(new ViewerCell(dateTimeString));
-        } else if (columnName.endsWith(ViewerConstants.SOLR_DYN_TTIME)) {
-          viewerCell = Optional.of(new ViewerCell(dateTimeString));
-        } else if (columnName.endsWith(ViewerConstants.SOLR_DYN_TDATETIME)) {
-          viewerCell = Optional.of(new ViewerCell(dateTimeString));
-        } else {
-          viewerCell = Optional.of(new ViewerCell(value.toString()));
-        }
-      } else {
-        viewerCell = Optional.of(new ViewerCell(value.toString()));
-      }
+      viewerCell = Optional.of(new ViewerCell(toCellValue(columnName, value)));
     } else if (columnName.startsWith(ViewerConstants.SOLR_INDEX_ROW_LOB_COLUMN_NAME_PREFIX)) {
       if (!columnName.endsWith(MimeTypeUtils.getMimeTypeSuffix())
         && !columnName.endsWith(MimeTypeUtils.getFileExtensionSuffix())) {
@@ -218,6 +221,18 @@ public class RowsCollection extends AbstractSolrCollection<ViewerRow> {
     return viewerCell;
   }
 
+  /**
+   * @return the value of the cell of a column with the given Solr value, e.g.
+   *         the ISO-8601 instant of a date
+   */
+  public static String toCellValue(String columnName, Object value) {
+    // the date, time and datetime columns are all indexed as dates
+    if (value instanceof Date && columnName.endsWith(ViewerConstants.SOLR_DYN_DATE)) {
+      return ((Date) value).toInstant().toString();
+    }
+    return value.toString();
+  }
+
   public void createRowsCollection() {
     LOGGER.info("Creating SOLR collection {}", getIndexName());
     if (SolrClientFactory.get().createCollection(getIndexName())) {
@@ -23,6 +23,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.databasepreservation.common.client.models.structure.ViewerRow;
+import com.databasepreservation.common.server.index.SolrQueryLane;
 
 /**
  * @author Miguel Guimarães <mguimaraes@keep.pt>
@@ -45,6 +46,7 @@ public class IndexResultIterator implements Iterator<ViewerRow> {
   private String nextCursorMark = CursorMarkParams.CURSOR_MARK_START;
 
   private final SolrClient index;
+  private final SolrQueryLane lane;
   private final Filter filter;
   private final Sorter sorter;
   private final String databaseUUID;
@@ -53,8 +55,10 @@ public class IndexResultIterator implements Iterator<ViewerRow> {
 
   private ViewerRow next = null;
 
-  public IndexResultIterator(SolrClient index, String databaseUUID, Filter filter, Sorter sorter, List<String> fieldsToReturn, Map<String, String> extraParameters) {
+  public IndexResultIterator(SolrClient index, SolrQueryLane lane, String databaseUUID, Filter filter, Sorter sorter,
+    List<String> fieldsToReturn, Map<String, String> extraParameters) {
     this.index = index;
+    this.lane = lane;
     this.filter = filter;
     this.sorter = sorter;
     this.databaseUUID = databaseUUID;
@@ -78,8 +82,8 @@ public class IndexResultIterator implements Iterator<ViewerRow> {
 
       do {
         try {
-          Pair<IndexResult<ViewerRow>, String> page = SolrUtils.findRows(index, databaseUUID, filter, sorter, pageSize,
-            cursorMark, fieldsToReturn, extraParameters);
+          Pair<IndexResult<ViewerRow>, String> page = lane.execute(() -> SolrUtils.findRows(index, databaseUUID,
+            filter, sorter, pageSize, cursorMark, fieldsToReturn, extraParameters));
           result = page.getFirst();
           nextCursorMark = page.getSecond();
 
@@ -17,6 +17,7 @@ import org.apache.solr.client.solrj.SolrClient;
 import com.databasepreservation.common.client.index.filter.Filter;
 
 import com.databasepreservation.common.client.models.structure.ViewerRow;
+import com.databasepreservation.common.server.index.SolrQueryLane;
 import com.databasepreservation.common.utils.CloseableIterable;
 
 /**
@@ -29,9 +30,11 @@ public class IterableIndexResult implements CloseableIterable<ViewerRow> {
 
   private final IndexResultIterator iterator;
 
-  public IterableIndexResult(final SolrClient solrClient, String databaseUUID, final Filter filter, final Sorter sorter,
-    final List<String> fieldsToReturn, final Map<String, String> extraParameters) {
-    iterator = new IndexResultIterator(solrClient, databaseUUID, filter, sorter, fieldsToReturn, extraParameters);
+  public IterableIndexResult(final SolrClient solrClient, final SolrQueryLane lane, String databaseUUID,
+    final Filter filter, final Sorter sorter, final List<String> fieldsToReturn,
+    final Map<String, String> extraParameters) {
+    iterator = new IndexResultIterator(solrClient, lane, databaseUUID, filter, sorter, fieldsToReturn,
+      extraParameters);
 
     if (PAGE_SIZE > 0) {
       iterator.setPageSize(PAGE_SIZE);
@@ -17,6 +17,7 @@ import com.databasepreservation.common.client.index.filter.Filter;
 
 import com.databasepreservation.common.client.index.sort.Sorter;
 import com.databasepreservation.common.client.models.structure.ViewerRow;
+import com.databasepreservation.common.server.index.SolrQueryLane;
 import com.databasepreservation.common.utils.CloseableIterable;
 
 /**
@@ -29,8 +30,9 @@ public class IterableNestedIndexResult implements CloseableIterable<ViewerRow> {
 
   private final NestedIndexResultIterator iterator;
 
-  public IterableNestedIndexResult(final SolrClient solrClient, String databaseUUID, SolrQuery query, final Sorter sorter) {
-    iterator = new NestedIndexResultIterator(solrClient, databaseUUID, query, sorter);
+  public IterableNestedIndexResult(final SolrClient solrClient, final SolrQueryLane lane, String databaseUUID,
+    SolrQuery query, final Sorter sorter) {
+    iterator = new NestedIndexResultIterator(solrClient, lane, databaseUUID, query, sorter);
 
     if (PAGE_SIZE > 0) {
       iterator.setPageSize(PAGE_SIZE);
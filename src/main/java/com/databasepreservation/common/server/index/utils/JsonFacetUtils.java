@@ -0,0 +1,138 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.server.index.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.response.json.BucketBasedJsonFacet;
+import org.apache.solr.client.solrj.response.json.BucketJsonFacet;
+import org.apache.solr.client.solrj.response.json.NestableJsonFacet;
+import org.roda.core.data.utils.JsonUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.databasepreservation.common.client.index.facets.FacetFieldResult;
+import com.databasepreservation.common.client.index.facets.FacetParameter;
+import com.databasepreservation.common.client.index.facets.RangeFacetParameter;
+import com.databasepreservation.common.client.index.facets.SimpleFacetParameter;
+
+/**
+ * Requests the facets with the Solr JSON Facet API and maps its response to
+ * {@link FacetFieldResult}. The simple facets are terms facets and the range
+ * facets are range buckets, computed from the docValues of the numeric and
+ * date fields, which makes them suitable for histograms. Every facet may have
+ * sub-facets, computed within each of its buckets, and may request the
+ * approximate (HyperLogLog) number of distinct values of its field. Unless
+ * the caller sets them, the sort and the minimum count are the ones of the
+ * classic facets: by value and including the values without rows.
+ */
+public final class JsonFacetUtils {
+  private static final Logger LOGGER = LoggerFactory.getLogger(JsonFacetUtils.class);
+
+  private static final String JSON_FACET_PARAM = "json.facet";
+  private static final String UNIQUE_COUNT_PREFIX = "unique_";
+  // the defaults of the classic facets, which the JSON Facet API does not share
+  private static final int CLASSIC_MIN_COUNT = 0;
+  private static final String CLASSIC_SORT = "index asc";
+
+  private JsonFacetUtils() {
+  }
+
+  /**
+   * Adds the JSON facet request of the facet parameters to the query.
+   */
+  public static void configure(SolrQuery query, Collection<FacetParameter> parameters) {
+    Map<String, Object> request = buildRequest(parameters);
+    if (!request.isEmpty()) {
+      query.setParam(JSON_FACET_PARAM, JsonUtils.getJsonFromObject(request));
+    }
+  }
+
+  private static Map<String, Object> buildRequest(Collection<FacetParameter> parameters) {
+    Map<String, Object> request = new LinkedHashMap<>();
+    for (FacetParameter parameter : parameters) {
+      Map<String, Object> facet = new LinkedHashMap<>();
+      if (parameter instanceof SimpleFacetParameter) {
+        facet.put("type", "terms");
+        facet.put("field", parameter.getName());
+        facet.put("limit", ((SimpleFacetParameter) parameter).getLimit());
+        facet.put("sort", FacetParameter.SORT.COUNT.equals(parameter.getSort()) ? "count desc" : CLASSIC_SORT);
+      } else if (parameter instanceof RangeFacetParameter) {
+        RangeFacetParameter rangeParameter = (RangeFacetParameter) parameter;
+        facet.put("type", "range");
+        facet.put("field", parameter.getName());
+        facet.put("start", rangeParameter.getStart());
+        facet.put("end", rangeParameter.getEnd());
+        facet.put("gap", rangeParameter.getGap());
+        // the last bucket ends at the end and includes it, e.g. the maximum of a histogram
+        facet.put("hardend", true);
+        facet.put("include", "lower,edge");
+      } else {
+        LOGGER.error("Unsupported facet parameter class: {}", parameter.getClass().getName());
+        continue;
+      }
+      // as with the classic facets, only a minimum count other than the default is
+      // used, so the facets that do not set it keep the minimum count of 0
+      facet.put("mincount",
+        parameter.getMinCount() != FacetParameter.DEFAULT_MIN_COUNT ? parameter.getMinCount() : CLASSIC_MIN_COUNT);
+
+      Map<String, Object> subFacets = buildRequest(parameter.getSubFacets());
+      if (!subFacets.isEmpty()) {
+        facet.put("facet", subFacets);
+      }
+
+      request.put(parameter.getName(), facet);
+      if (parameter.isUniqueCount()) {
+        request.put(UNIQUE_COUNT_PREFIX + parameter.getName(), "hll(" + parameter.getName() + ")");
+      }
+    }
+    return request;
+  }
+
+  /**
+   * @return the results of the facets, in the order of the parameters
+   */
+  public static List<FacetFieldResult> getResults(NestableJsonFacet response, Collection<FacetParameter> parameters) {
+    List<FacetFieldResult> results = new ArrayList<>();
+    if (response == null) {
+      return results;
+    }
+
+    for (FacetParameter parameter : parameters) {
+      BucketBasedJsonFacet facet = response.getBucketBasedFacets(parameter.getName());
+      List<BucketJsonFacet> buckets = facet != null ? facet.getBuckets() : Collections.emptyList();
+
+      FacetFieldResult result = new FacetFieldResult(parameter.getName(), buckets.size(), parameter.getValues());
+      for (BucketJsonFacet bucket : buckets) {
+        String value = formatValue(bucket.getVal());
+        result.addFacetValue(value, value, bucket.getCount(), getResults(bucket, parameter.getSubFacets()));
+      }
+
+      Object uniqueCount = response.getStatValue(UNIQUE_COUNT_PREFIX + parameter.getName());
+      if (uniqueCount instanceof Number) {
+        result.setUniqueCount(((Number) uniqueCount).longValue());
+      }
+      results.add(result);
+    }
+    return results;
+  }
+
+  private static String formatValue(Object value) {
+    if (value instanceof Date) {
+      return ((Date) value).toInstant().toString();
+    }
+    return value != null ? value.toString() : null;
+  }
+}
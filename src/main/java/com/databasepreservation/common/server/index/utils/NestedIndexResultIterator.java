@@ -23,6 +23,7 @@ import org.slf4j.LoggerFactory;
 import com.databasepreservation.common.client.index.IndexResult;
 import com.databasepreservation.common.client.index.sort.Sorter;
 import com.databasepreservation.common.client.models.structure.ViewerRow;
+import com.databasepreservation.common.server.index.SolrQueryLane;
 
 /**
  * @author Gabriel Barros <gbarros@keep.pt>
@@ -45,14 +46,17 @@ public class NestedIndexResultIterator implements Iterator<ViewerRow> {
   private String nextCursorMark = CursorMarkParams.CURSOR_MARK_START;
 
   private final SolrClient index;
+  private final SolrQueryLane lane;
   private final String databaseUUID;
   private final SolrQuery query;
   private final Sorter sorter;
 
   private ViewerRow next = null;
 
-  public NestedIndexResultIterator(SolrClient index, String databaseUUID, SolrQuery query, Sorter sorter) {
+  public NestedIndexResultIterator(SolrClient index, SolrQueryLane lane, String databaseUUID, SolrQuery query,
+    Sorter sorter) {
     this.index = index;
+    this.lane = lane;
     this.databaseUUID = databaseUUID;
     this.query = query;
     this.sorter = sorter;
@@ -74,8 +78,8 @@ public class NestedIndexResultIterator implements Iterator<ViewerRow> {
 
       do {
         try {
-          Pair<IndexResult<ViewerRow>, String> page = SolrUtils.findRows(index, databaseUUID, query, sorter, pageSize,
-            cursorMark);
+          Pair<IndexResult<ViewerRow>, String> page = lane.execute(() -> SolrUtils.findRows(index, databaseUUID,
+            query, sorter, pageSize, cursorMark));
           result = page.getFirst();
           nextCursorMark = page.getSecond();
 
@@ -0,0 +1,138 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.server.index.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.roda.core.data.exceptions.RequestNotValidException;
+
+/**
+ * Tracks the queries in flight per request group, i.e. per list or search
+ * view of a client. A newer query of a group, or the cancellation of the group
+ * by the client, supersedes the queries of the group still in flight, which
+ * are then not sent to Solr if they did not start yet. The groups are scoped
+ * by their owner, e.g. the HTTP session of the client, so a client can neither
+ * supersede nor cancel the queries of another one.
+ *
+ * The query of the current thread is kept in a thread local, so that the
+ * places where a query waits before being sent can check it, and the queries
+ * of the clients can be told from the others, without having it passed
+ * along.
+ */
+public final class QueryGroupTracker {
+  private static final String OWNER_SEPARATOR = "|";
+
+  private static final Map<String, AtomicLong> LATEST = new ConcurrentHashMap<>();
+  private static final ThreadLocal<Ticket> CURRENT = new ThreadLocal<>();
+
+  private QueryGroupTracker() {
+  }
+
+  /**
+   * Registers a query of a group as the current query of the thread,
+   * superseding the previous queries of the group. The ticket must be closed
+   * when the query finishes.
+   *
+   * @param owner
+   *          the owner of the group, e.g. the HTTP session ID
+   * @param group
+   *          the request group, or null if the query has none
+   */
+  public static Ticket begin(String owner, String group) {
+    Ticket ticket;
+    if (group == null || group.isEmpty()) {
+      ticket = new Ticket(null, null, null, 0);
+    } else {
+      String key = getKey(owner, group);
+      AtomicLong latest = LATEST.computeIfAbsent(key, k -> new AtomicLong());
+      ticket = new Ticket(group, key, latest, latest.incrementAndGet());
+    }
+    CURRENT.set(ticket);
+    return ticket;
+  }
+
+  /**
+   * Supersedes all the queries of a group in flight, if the group belongs to
+   * the owner.
+   *
+   * @param owner
+   *          the owner of the group, e.g. the HTTP session ID
+   * @return true if the owner had queries of the group in flight
+   */
+  public static boolean cancel(String owner, String group) {
+    AtomicLong latest = LATEST.remove(getKey(owner, group));
+    if (latest == null) {
+      return false;
+    }
+    latest.incrementAndGet();
+    return true;
+  }
+
+  private static String getKey(String owner, String group) {
+    return owner + OWNER_SEPARATOR + group;
+  }
+
+  /**
+   * @return true if the current thread is running a query of a client view,
+   *         which has a time budget
+   */
+  public static boolean isInteractive() {
+    return CURRENT.get() != null;
+  }
+
+  /**
+   * Fails if the query of the current thread was superseded, so that it is not
+   * sent to Solr.
+   */
+  public static void checkCurrent() throws RequestNotValidException {
+    Ticket ticket = CURRENT.get();
+    if (ticket != null && ticket.isSuperseded()) {
+      throw new SupersededException(ticket.group);
+    }
+  }
+
+  /**
+   * Thrown instead of sending a superseded query to Solr.
+   */
+  public static final class SupersededException extends RequestNotValidException {
+    private static final long serialVersionUID = 1L;
+
+    private SupersededException(String group) {
+      super("Query superseded by a newer request of group " + group);
+    }
+  }
+
+  public static final class Ticket implements AutoCloseable {
+    private final String group;
+    private final String key;
+    private final AtomicLong latest;
+    private final long sequence;
+
+    private Ticket(String group, String key, AtomicLong latest, long sequence) {
+      this.group = group;
+      this.key = key;
+      this.latest = latest;
+      this.sequence = sequence;
+    }
+
+    public boolean isSuperseded() {
+      return latest != null && (latest.get() != sequence || LATEST.get(key) != latest);
+    }
+
+    @Override
+    public void close() {
+      CURRENT.remove();
+      if (latest != null) {
+        // forget the group if no newer query arrived meanwhile
+        LATEST.computeIfPresent(key, (k, value) -> value == latest && value.get() == sequence ? null : value);
+      }
+    }
+  }
+}
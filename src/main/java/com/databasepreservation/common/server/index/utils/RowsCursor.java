@@ -0,0 +1,181 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.server.index.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.apache.solr.common.params.CursorMarkParams;
+import org.roda.core.data.utils.JsonUtils;
+
+import com.databasepreservation.common.client.index.filter.Filter;
+import com.databasepreservation.common.client.index.sort.Sorter;
+
+/**
+ * The position of a page of rows in a query paged with Solr cursor marks,
+ * encoded as the opaque cursor sent to the clients. Besides the cursor mark of
+ * the page it keeps the marks of the pages before it, so that going back is
+ * done with cursor marks too.
+ */
+public final class RowsCursor {
+  // pages before the current one that can be reached back with a cursor mark
+  private static final int MAX_HISTORY = 20;
+
+  private static final String FIELD_SEPARATOR = "|";
+  private static final String POSITION_SEPARATOR = ":";
+  private static final String NO_MARK = "-";
+
+  private final String queryKey;
+  private final Position position;
+  private final List<Position> history;
+
+  private RowsCursor(String queryKey, Position position, List<Position> history) {
+    this.queryKey = queryKey;
+    this.position = position;
+    this.history = history;
+  }
+
+  /**
+   * Gets the position of a page requested by its offset, with the cursor mark
+   * of the start of the results if it is the first page.
+   */
+  public static RowsCursor atOffset(String queryKey, long offset) {
+    return new RowsCursor(queryKey, new Position(offset, offset == 0 ? CursorMarkParams.CURSOR_MARK_START : null),
+      Collections.emptyList());
+  }
+
+  /**
+   * Decodes a cursor sent by a client.
+   *
+   * @return the cursor, or null if it is not valid, belongs to another query or
+   *         does not point to the requested offset
+   */
+  public static RowsCursor decode(String cursor, String queryKey, long offset) {
+    if (cursor == null || cursor.isEmpty()) {
+      return null;
+    }
+
+    try {
+      String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      String[] fields = decoded.split("\\" + FIELD_SEPARATOR);
+      if (fields.length < 2 || !fields[0].equals(queryKey)) {
+        return null;
+      }
+
+      Position position = Position.decode(fields[1]);
+      if (position.offset != offset) {
+        return null;
+      }
+
+      List<Position> history = new ArrayList<>();
+      for (int i = 2; i < fields.length; i++) {
+        history.add(Position.decode(fields[i]));
+      }
+      return new RowsCursor(queryKey, position, history);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Gets the key that ties the cursors to a query, so that a cursor is not used
+   * with a different filter or sort order.
+   */
+  public static String getQueryKey(String databaseUUID, Filter filter, Sorter sorter) {
+    CRC32 crc = new CRC32();
+    crc.update((databaseUUID + FIELD_SEPARATOR + JsonUtils.getJsonFromObject(filter) + FIELD_SEPARATOR
+      + JsonUtils.getJsonFromObject(sorter)).getBytes(StandardCharsets.UTF_8));
+    return Long.toHexString(crc.getValue());
+  }
+
+  public long getOffset() {
+    return position.offset;
+  }
+
+  /**
+   * @return the cursor mark of the page, or null if the page has to be found by
+   *         its offset
+   */
+  public String getCursorMark() {
+    return position.cursorMark;
+  }
+
+  /**
+   * Gets the position of the page after this one.
+   *
+   * @param nextCursorMark
+   *          the cursor mark Solr returned for this page, or null if it was
+   *          found by its offset
+   */
+  public RowsCursor next(long pageSize, String nextCursorMark) {
+    List<Position> nextHistory = new ArrayList<>(history);
+    if (position.cursorMark != null) {
+      nextHistory.add(position);
+      if (nextHistory.size() > MAX_HISTORY) {
+        nextHistory.remove(0);
+      }
+    }
+    return new RowsCursor(queryKey, new Position(position.offset + pageSize, nextCursorMark), nextHistory);
+  }
+
+  /**
+   * Gets the position of the page before this one, or null if this is the
+   * first page. Without a cursor mark kept for it, the previous page has to be
+   * found by its offset.
+   */
+  public RowsCursor previous(long pageSize) {
+    if (position.offset == 0) {
+      return null;
+    }
+
+    long previousOffset = Math.max(0, position.offset - pageSize);
+    if (!history.isEmpty()) {
+      Position last = history.get(history.size() - 1);
+      if (last.offset == previousOffset) {
+        return new RowsCursor(queryKey, last, new ArrayList<>(history.subList(0, history.size() - 1)));
+      }
+    }
+    return atOffset(queryKey, previousOffset);
+  }
+
+  public String encode() {
+    StringBuilder builder = new StringBuilder(queryKey).append(FIELD_SEPARATOR).append(position.encode());
+    for (Position previous : history) {
+      builder.append(FIELD_SEPARATOR).append(previous.encode());
+    }
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(builder.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static final class Position {
+    private final long offset;
+    private final String cursorMark;
+
+    private Position(long offset, String cursorMark) {
+      this.offset = offset;
+      this.cursorMark = cursorMark;
+    }
+
+    private String encode() {
+      return offset + POSITION_SEPARATOR + (cursorMark == null ? NO_MARK : cursorMark);
+    }
+
+    private static Position decode(String encoded) {
+      int separator = encoded.indexOf(POSITION_SEPARATOR);
+      if (separator < 0) {
+        throw new IllegalArgumentException("Invalid cursor position " + encoded);
+      }
+      String cursorMark = encoded.substring(separator + 1);
+      return new Position(Long.parseLong(encoded.substring(0, separator)),
+        NO_MARK.equals(cursorMark) ? null : cursorMark);
+    }
+  }
+}
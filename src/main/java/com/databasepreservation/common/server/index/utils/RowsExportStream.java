@@ -0,0 +1,212 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.server.index.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.impl.CloudSolrClient;
+import org.apache.solr.client.solrj.io.SolrClientCache;
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.stream.CloudSolrStream;
+import org.apache.solr.client.solrj.io.stream.StreamContext;
+import org.apache.solr.client.solrj.io.stream.TupleStream;
+import org.apache.solr.common.params.CommonParams;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.RequestNotValidException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.databasepreservation.common.client.ViewerConstants;
+import com.databasepreservation.common.client.index.filter.Filter;
+import com.databasepreservation.common.client.index.sort.Sorter;
+import com.databasepreservation.common.client.models.status.collection.ColumnStatus;
+import com.databasepreservation.common.client.models.status.collection.TableStatus;
+import com.databasepreservation.common.client.models.structure.ViewerType;
+import com.databasepreservation.common.client.tools.ViewerStringUtils;
+import com.databasepreservation.common.exceptions.ViewerException;
+import com.databasepreservation.common.server.ViewerConfiguration;
+import com.databasepreservation.common.server.index.schema.DynamicField;
+import com.databasepreservation.common.server.index.schema.SolrBootstrapUtils;
+import com.databasepreservation.common.server.index.schema.SolrRowsCollectionRegistry;
+import com.databasepreservation.common.server.index.schema.collections.RowsCollection;
+
+/**
+ * Streams the values of the rows of a table from the Solr /export handler,
+ * which reads them from docValues and writes them as they are found, instead
+ * of paging through the stored fields and building a {@code ViewerRow} for
+ * each row.
+ *
+ * It is only available with SolrCloud, and for the exports whose columns and
+ * sort fields all have docValues and whose values are written as they are
+ * indexed, without export templates.
+ */
+public class RowsExportStream implements Closeable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RowsExportStream.class);
+
+  private static final String EXPORT_HANDLER = "/export";
+
+  private final List<String> fields;
+  private final SolrClientCache clientCache;
+  private final TupleStream stream;
+
+  RowsExportStream(List<String> fields, SolrClientCache clientCache, TupleStream stream) {
+    this.fields = fields;
+    this.clientCache = clientCache;
+    this.stream = stream;
+  }
+
+  /**
+   * Opens the stream of the values of the given columns of the rows found by
+   * the filter, if the export can be streamed.
+   *
+   * @return the stream, or null if the rows must be exported from the stored
+   *         fields
+   */
+  public static RowsExportStream open(SolrClient client, String databaseUUID, TableStatus configTable, Filter filter,
+    Sorter sorter, List<String> fieldsToReturn) throws RequestNotValidException, IOException {
+    if (!(client instanceof CloudSolrClient) || !ViewerConfiguration.getInstance()
+      .getViewerConfigurationAsBoolean(true, ViewerConfiguration.PROPERTY_EXPORT_STREAMING)) {
+      return null;
+    }
+
+    final String collection = SolrRowsCollectionRegistry.get(databaseUUID).getIndexName();
+    final boolean booleanDocValues = hasBooleanDocValues(client, collection);
+    final List<String> fields = fieldsToReturn.stream()
+      .filter(field -> !ViewerConstants.SOLR_ROWS_TABLE_ID.equals(field)
+        && !ViewerConstants.SOLR_ROWS_TABLE_UUID.equals(field))
+      .collect(Collectors.toList());
+
+    if (fields.isEmpty()) {
+      return null;
+    }
+    for (String field : fields) {
+      if (!isExportable(configTable.getColumnById(field), booleanDocValues)) {
+        LOGGER.debug("Column {} cannot be exported from docValues, exporting the stored fields", field);
+        return null;
+      }
+    }
+
+    final List<SolrQuery.SortClause> sortClauses = SolrUtils.parseSorter(sorter);
+    for (SolrQuery.SortClause sortClause : sortClauses) {
+      if (!hasDocValues(sortClause.getItem(), booleanDocValues)) {
+        LOGGER.debug("Sort field {} has no docValues, exporting the stored fields", sortClause.getItem());
+        return null;
+      }
+    }
+    sortClauses.add(SolrQuery.SortClause.asc(RodaConstants.INDEX_UUID));
+
+    SolrQuery query = new SolrQuery();
+    SolrUtils.setFilter(query, filter);
+    query.setSorts(sortClauses);
+    query.setFields(fields.toArray(new String[0]));
+    query.set(CommonParams.QT, EXPORT_HANDLER);
+
+    SolrClientCache clientCache = new SolrClientCache();
+    CloudSolrStream stream = new CloudSolrStream(((CloudSolrClient) client).getZkHost(), collection, query);
+    StreamContext context = new StreamContext();
+    context.setSolrClientCache(clientCache);
+    stream.setStreamContext(context);
+    try {
+      stream.open();
+    } catch (IOException e) {
+      clientCache.close();
+      throw e;
+    }
+    return new RowsExportStream(fields, clientCache, stream);
+  }
+
+  /**
+   * @return the exported columns, in the order of the values
+   */
+  public List<String> getFields() {
+    return fields;
+  }
+
+  /**
+   * Reads the values of the next row, the values of the null cells are empty.
+   * The values are the same as the values of the cells of the rows read from
+   * the stored fields.
+   *
+   * @return the values, or null at the end of the stream
+   */
+  public List<String> read() throws IOException {
+    Tuple tuple = stream.read();
+    if (tuple.EXCEPTION) {
+      throw new IOException("Could not export the rows: " + tuple.getException());
+    } else if (tuple.EOF) {
+      return null;
+    }
+
+    List<String> values = new ArrayList<>(fields.size());
+    for (String field : fields) {
+      Object value = tuple.get(field);
+      values.add(value != null ? RowsCollection.toCellValue(field, toStoredValue(field, value)) : "");
+    }
+    return values;
+  }
+
+  /**
+   * @return the value as read from the stored field, as the /export handler
+   *         writes the dates as text and may write the integral doubles as
+   *         integers
+   */
+  private static Object toStoredValue(String field, Object value) {
+    if (value instanceof String && field.endsWith(ViewerConstants.SOLR_DYN_DATE)) {
+      return Date.from(Instant.parse((String) value));
+    } else if (value instanceof Number && field.endsWith(ViewerConstants.SOLR_DYN_DOUBLE)) {
+      return ((Number) value).doubleValue();
+    }
+    return value;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      stream.close();
+    } finally {
+      clientCache.close();
+    }
+  }
+
+  private static boolean isExportable(ColumnStatus column, boolean booleanDocValues) {
+    return column != null && !ViewerType.dbTypes.NESTED.equals(column.getType())
+      && !ViewerType.dbTypes.BINARY.equals(column.getType())
+      && ViewerStringUtils.isBlank(column.getExportStatus().getTemplateStatus().getTemplate())
+      && hasDocValues(column.getId(), booleanDocValues);
+  }
+
+  private static boolean hasDocValues(String field, boolean booleanDocValues) {
+    return RodaConstants.INDEX_UUID.equals(field) || field.endsWith(ViewerConstants.SOLR_DYN_STRING)
+      || field.endsWith(ViewerConstants.SOLR_DYN_LONG) || field.endsWith(ViewerConstants.SOLR_DYN_DOUBLE)
+      || field.endsWith(ViewerConstants.SOLR_DYN_DATE)
+      || (booleanDocValues && field.endsWith(ViewerConstants.SOLR_DYN_BOOLEAN));
+  }
+
+  /**
+   * @return true if the boolean columns of the collection have docValues, i.e.
+   *         the collection was created with the docValues schema option
+   */
+  private static boolean hasBooleanDocValues(SolrClient client, String collection) {
+    try {
+      DynamicField booleanField = SolrBootstrapUtils.getDynamicFields(client, collection)
+        .get("*" + ViewerConstants.SOLR_DYN_BOOLEAN);
+      return booleanField != null && booleanField.getDocValues().orElse(false);
+    } catch (ViewerException e) {
+      LOGGER.debug("Could not get the schema of collection {}", collection, e);
+      return false;
+    }
+  }
+}
@@ -0,0 +1,152 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.server.index.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.roda.core.data.exceptions.GenericException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.databasepreservation.common.client.ViewerConstants;
+import com.databasepreservation.common.client.models.status.collection.ColumnStatus;
+import com.databasepreservation.common.client.models.status.collection.TableStatus;
+import com.databasepreservation.common.client.models.structure.ViewerCell;
+import com.databasepreservation.common.client.models.structure.ViewerRow;
+import com.databasepreservation.common.client.tools.MimeTypeUtils;
+import com.databasepreservation.common.server.ViewerConfiguration;
+import com.databasepreservation.common.server.ViewerFactory;
+
+/**
+ * Keeps the pages of rows of the rows lists small: selects the fields to
+ * return from Solr when the list did not, from the columns of the table shown
+ * in the lists, and truncates the long values of the cells, such as large
+ * texts or embedded large objects. Only applied to the requests of the rows
+ * lists, the other callers get the whole rows.
+ */
+public final class RowsProjection {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RowsProjection.class);
+
+  private RowsProjection() {
+  }
+
+  /**
+   * @return the fields of the columns shown in the rows list of the table, with
+   *         the mime type fields of its large objects. The nested columns are
+   *         left out, as they are found with sub-queries.
+   */
+  public static List<String> getFieldsToReturn(TableStatus table) {
+    List<String> fieldsToReturn = new ArrayList<>();
+    fieldsToReturn.add(ViewerConstants.INDEX_ID);
+    fieldsToReturn.add(ViewerConstants.SOLR_ROWS_TABLE_ID);
+    fieldsToReturn.add(ViewerConstants.SOLR_ROWS_TABLE_UUID);
+    for (ColumnStatus column : table.getVisibleColumnsList()) {
+      if (column.getNestedColumns() != null) {
+        continue;
+      }
+      fieldsToReturn.add(column.getId());
+      if (column.getId().startsWith(ViewerConstants.SOLR_INDEX_ROW_LOB_COLUMN_NAME_PREFIX)) {
+        fieldsToReturn.add(MimeTypeUtils.getMimeTypeSolrName(column.getId()));
+        fieldsToReturn.add(MimeTypeUtils.getFileExtensionSolrName(column.getId()));
+      }
+    }
+    return fieldsToReturn;
+  }
+
+  /**
+   * @return the fields to return for a query of the rows of a table, or an
+   *         empty list, to return all stored fields, if the table is not known
+   */
+  public static List<String> getFieldsToReturn(String databaseUUID, String tableId) {
+    if (tableId != null) {
+      try {
+        TableStatus table = ViewerFactory.getConfigurationManager()
+          .getConfigurationCollection(databaseUUID, databaseUUID).getTableStatusByTableId(tableId);
+        if (table != null) {
+          return getFieldsToReturn(table);
+        }
+      } catch (GenericException e) {
+        LOGGER.debug("Could not read the configuration of database {}, returning all fields", databaseUUID, e);
+      }
+    }
+    return new ArrayList<>();
+  }
+
+  /**
+   * @return the configured maximum length of the values of the rows lists, or
+   *         0 if they are not truncated
+   */
+  public static int getMaxValueLength() {
+    return ViewerConfiguration.getInstance().getViewerConfigurationAsInt(1000,
+      ViewerConfiguration.PROPERTY_ROWS_TEXT_MAX_LENGTH);
+  }
+
+  /**
+   * Truncates the values of the cells longer than the maximum length. The rows
+   * may be shared with other requests, so the rows with long values are copied
+   * instead of changed.
+   *
+   * @return the rows, with copies of the rows that had long values
+   */
+  public static List<ViewerRow> truncate(List<ViewerRow> rows, int maxLength) {
+    if (rows == null || maxLength <= 0) {
+      return rows;
+    }
+    List<ViewerRow> truncatedRows = new ArrayList<>(rows.size());
+    for (ViewerRow row : rows) {
+      truncatedRows.add(hasLongValues(row, maxLength) ? truncate(row, maxLength) : row);
+    }
+    return truncatedRows;
+  }
+
+  private static boolean hasLongValues(ViewerRow row, int maxLength) {
+    for (ViewerCell cell : row.getCells().values()) {
+      if (cell.getValue() != null && cell.getValue().length() > maxLength) {
+        return true;
+      }
+    }
+    for (ViewerRow nestedRow : row.getNestedRowList()) {
+      if (hasLongValues(nestedRow, maxLength)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static ViewerRow truncate(ViewerRow row, int maxLength) {
+    ViewerRow copy = new ViewerRow();
+    copy.setUuid(row.getUuid());
+    copy.setTableId(row.getTableId());
+    copy.setTableUUID(row.getTableUUID());
+    copy.setNestedUUID(row.getNestedUUID());
+    copy.setNestedTableId(row.getNestedTableId());
+    copy.setNestedOriginalUUID(row.getNestedOriginalUUID());
+    copy.setColsMimeTypeList(row.getColsMimeTypeList());
+
+    Map<String, ViewerCell> cells = new LinkedHashMap<>();
+    for (Map.Entry<String, ViewerCell> entry : row.getCells().entrySet()) {
+      ViewerCell cell = entry.getValue();
+      if (cell.getValue() != null && cell.getValue().length() > maxLength) {
+        // do not split a surrogate pair
+        int length = Character.isHighSurrogate(cell.getValue().charAt(maxLength - 1)) ? maxLength - 1 : maxLength;
+        ViewerCell truncatedCell = new ViewerCell(cell.getValue().substring(0, length), cell.getMimeType(),
+          cell.getFileExtension());
+        truncatedCell.setTruncated(true);
+        cells.put(entry.getKey(), truncatedCell);
+      } else {
+        cells.put(entry.getKey(), cell);
+      }
+    }
+    copy.setCells(cells);
+    copy.setNestedRowList(truncate(row.getNestedRowList(), maxLength));
+    return copy;
+  }
+}
@@ -32,13 +32,12 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServerException;
-import org.apache.solr.client.solrj.response.FacetField;
 import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.client.solrj.response.json.NestableJsonFacet;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.params.CursorMarkParams;
-import org.apache.solr.common.params.FacetParams;
 import org.apache.solr.common.params.MapSolrParams;
 import org.apache.solr.common.params.SolrParams;
 import org.roda.core.data.common.RodaConstants;
@@ -55,7 +54,6 @@ import com.databasepreservation.common.client.index.IsIndexed;
 import com.databasepreservation.common.client.index.facets.FacetFieldResult;
 import com.databasepreservation.common.client.index.facets.FacetParameter;
 import com.databasepreservation.common.client.index.facets.Facets;
-import com.databasepreservation.common.client.index.facets.RangeFacetParameter;
 import com.databasepreservation.common.client.index.facets.SimpleFacetParameter;
 import com.databasepreservation.common.client.index.filter.AndFiltersParameters;
 import com.databasepreservation.common.client.index.filter.BasicSearchFilterParameter;
@@ -76,8 +74,10 @@ import com.databasepreservation.common.client.index.sort.SortParameter;
 import com.databasepreservation.common.client.index.sort.Sorter;
 import com.databasepreservation.common.client.models.structure.ViewerDatabase;
 import com.databasepreservation.common.client.models.structure.ViewerRow;
+import com.databasepreservation.common.client.tools.FilterUtils;
 import com.databasepreservation.common.exceptions.ViewerException;
 import com.databasepreservation.common.filter.solr.TermsFilterParameter;
+import com.databasepreservation.common.server.ViewerConfiguration;
 import com.databasepreservation.common.server.index.schema.SolrCollection;
 import com.databasepreservation.common.server.index.schema.SolrRowsCollectionRegistry;
 import com.databasepreservation.common.server.index.schema.collections.RowsCollection;
@@ -88,6 +88,7 @@ import com.databasepreservation.common.server.index.schema.collections.RowsColle
 public class SolrUtils {
   private static final Logger LOGGER = LoggerFactory.getLogger(SolrUtils.class);
   private static final String DEFAULT_QUERY_PARSER_OPERATOR = "AND";
+  private static final String PARTIAL_RESULTS_KEY = "partialResults";
   private static final Set<String> NON_REPEATABLE_FIELDS = new HashSet<>(Arrays.asList(RodaConstants.AIP_TITLE,
     RodaConstants.AIP_LEVEL, RodaConstants.AIP_DATE_INITIAL, RodaConstants.AIP_DATE_FINAL));
 
@@ -131,7 +132,7 @@ public class SolrUtils {
     throws GenericException, RequestNotValidException {
     IndexResult<T> ret;
     SolrQuery query = new SolrQuery();
-    query.setQuery(parseFilter(filter));
+    setFilter(query, filter);
     final List<SolrQuery.SortClause> sortClauses = parseSorter(sorter);
     sortClauses.add(SolrQuery.SortClause.asc(RodaConstants.INDEX_UUID));
     query.setSorts(sortClauses);
@@ -150,6 +151,8 @@ public class SolrUtils {
       query.setFields(fieldsToReturn.toArray(new String[0]));
     }
     parseAndConfigureFacets(facets, query);
+    setTimeAllowed(query);
+    QueryGroupTracker.checkCurrent();
 
     try {
       QueryResponse response = index.query(collection.getIndexName(), query);
@@ -208,7 +211,7 @@ public class SolrUtils {
     Pair<IndexResult<ViewerRow>, String> ret;
     SolrQuery query = new SolrQuery();
     query.setParam("q.op", DEFAULT_QUERY_PARSER_OPERATOR);
-    query.setQuery(parseFilter(filter));
+    setFilter(query, filter);
 
     query.set(CursorMarkParams.CURSOR_MARK_PARAM, cursorMark);
     query.setRows(pageSize);
@@ -227,6 +230,8 @@ public class SolrUtils {
     if (!fieldsToReturn.isEmpty()) {
       query.setFields(fieldsToReturn.toArray(new String[0]));
     }
+    setTimeAllowed(query);
+    QueryGroupTracker.checkCurrent();
 
     final RowsCollection collection = SolrRowsCollectionRegistry.get(databaseUUID);
 
@@ -339,23 +344,17 @@ public class SolrUtils {
 
   private static void parseAndConfigureFacets(Facets facets, SolrQuery query) {
     if (facets != null) {
-      query.setFacetSort(FacetParams.FACET_SORT_INDEX);
       if (!"".equals(facets.getQuery())) {
         query.addFacetQuery(facets.getQuery());
       }
       StringBuilder filterQuery = new StringBuilder();
       for (Map.Entry<String, FacetParameter> parameter : facets.getParameters().entrySet()) {
         FacetParameter facetParameter = parameter.getValue();
-
         if (facetParameter instanceof SimpleFacetParameter) {
-          setQueryFacetParameter(query, (SimpleFacetParameter) facetParameter);
           appendValuesUsingOROperator(filterQuery, facetParameter.getName(), facetParameter.getValues());
-        } else if (facetParameter instanceof RangeFacetParameter) {
-          LOGGER.error("Unsupported facet parameter class: {}", facetParameter.getClass().getName());
-        } else {
-          LOGGER.error("Unsupported facet parameter class: {}", facetParameter.getClass().getName());
         }
       }
+      JsonFacetUtils.configure(query, facets.getParameters().values());
       if (filterQuery.length() > 0) {
         query.addFilterQuery(filterQuery.toString());
         LOGGER.trace("Query after defining facets: " + query.toString());
@@ -363,17 +362,6 @@ public class SolrUtils {
     }
   }
 
-  private static void setQueryFacetParameter(SolrQuery query, SimpleFacetParameter facetParameter) {
-    query.addFacetField(facetParameter.getName());
-    if (facetParameter.getMinCount() != FacetParameter.DEFAULT_MIN_COUNT) {
-      query.add(String.format("f.%s.facet.mincount", facetParameter.getName()),
-        String.valueOf(facetParameter.getMinCount()));
-    }
-    if (facetParameter.getLimit() != SimpleFacetParameter.DEFAULT_LIMIT) {
-      query.add(String.format("f.%s.facet.limit", facetParameter.getName()), String.valueOf(facetParameter.getLimit()));
-    }
-  }
-
   public static <T extends IsIndexed> IndexResult<T> queryResponseToIndexResult(QueryResponse response,
     SolrCollection<T> collection, Facets facets) throws GenericException {
     return queryResponseToIndexResult(response, collection, null, facets);
@@ -382,7 +370,7 @@ public class SolrUtils {
   public static <T extends IsIndexed> IndexResult<T> queryResponseToIndexResult(QueryResponse response,
     SolrCollection<T> collection, List<String> columnNames, Facets facets) throws GenericException {
     final SolrDocumentList docList = response.getResults();
-    final List<FacetFieldResult> facetResults = processFacetFields(facets, response.getFacetFields());
+    final List<FacetFieldResult> facetResults = processFacetFields(facets, response.getJsonFacetingResponse());
     final long offset = docList.getStart();
     final long limit = docList.size();
     final long totalCount = docList.getNumFound();
@@ -398,25 +386,37 @@ public class SolrUtils {
       docs.add(result);
     }
 
-    return new IndexResult<>(offset, limit, totalCount, docs, facetResults);
+    IndexResult<T> result = new IndexResult<>(offset, limit, totalCount, docs, facetResults);
+    result.setPartialResults(isPartialResults(response));
+    return result;
   }
 
-  private static List<FacetFieldResult> processFacetFields(Facets facets, List<FacetField> facetFields) {
-    List<FacetFieldResult> ret = new ArrayList<FacetFieldResult>();
-    FacetFieldResult facetResult;
-    if (facetFields != null) {
-      for (FacetField facet : facetFields) {
-        LOGGER.trace("facet:{} count:{}", facet.getName(), facet.getValueCount());
-        facetResult = new FacetFieldResult(facet.getName(), facet.getValueCount(),
-          facets.getParameters().get(facet.getName()).getValues());
-        for (FacetField.Count count : facet.getValues()) {
-          LOGGER.trace("   value:{} value:{}", count.getName(), count.getCount());
-          facetResult.addFacetValue(count.getName(), count.getName(), count.getCount());
-        }
-        ret.add(facetResult);
-      }
+  /**
+   * Sets the time budget of an interactive query, after which Solr stops
+   * collecting documents and returns the results found so far. Other queries,
+   * e.g. of exports, must not return partial results.
+   */
+  private static void setTimeAllowed(SolrQuery query) {
+    if (!QueryGroupTracker.isInteractive()) {
+      return;
+    }
+    int timeAllowed = ViewerConfiguration.getInstance().getViewerConfigurationAsInt(30000,
+      ViewerConfiguration.PROPERTY_SEARCH_TIME_ALLOWED);
+    if (timeAllowed > 0) {
+      query.setTimeAllowed(timeAllowed);
     }
-    return ret;
+  }
+
+  private static boolean isPartialResults(QueryResponse response) {
+    return response.getResponseHeader() != null
+      && Boolean.TRUE.equals(response.getResponseHeader().get(PARTIAL_RESULTS_KEY));
+  }
+
+  private static List<FacetFieldResult> processFacetFields(Facets facets, NestableJsonFacet facetResponse) {
+    if (facets == null) {
+      return new ArrayList<>();
+    }
+    return JsonFacetUtils.getResults(facetResponse, facets.getParameters().values());
   }
 
   public static <T extends IsIndexed> Long count(SolrClient index, SolrCollection<T> collection, Filter filter)
@@ -500,6 +500,26 @@ public class SolrUtils {
     return query.toQueryString();
   }
 
+  /**
+   * Sets the query of a search from a filter. The parameters that only restrict
+   * the results (see {@link FilterUtils#isScoring}) are sent as filter queries,
+   * which Solr caches on their own and reuses across pages, sorts and searches,
+   * and the others as the main query.
+   */
+  static void setFilter(SolrQuery query, Filter filter) throws RequestNotValidException {
+    Filter scoringFilter = new Filter();
+    if (filter != null) {
+      for (FilterParameter parameter : filter.getParameters()) {
+        if (FilterUtils.isScoring(parameter)) {
+          scoringFilter.add(parameter);
+        } else {
+          query.addFilterQuery(parseFilter(new Filter(parameter)));
+        }
+      }
+    }
+    query.setQuery(parseFilter(scoringFilter));
+  }
+
   public static String parseFilter(Filter filter) throws RequestNotValidException {
     StringBuilder ret = new StringBuilder();
 
@@ -0,0 +1,57 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.server.jobs;
+
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
+import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.batch.core.launch.support.RunIdIncrementer;
+import org.springframework.batch.core.launch.support.SimpleJobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SyncTaskExecutor;
+
+/**
+ * Job that ingests the rows of a SIARD into its rows collection. The jobs are
+ * queued and run by the {@link IngestJobScheduler}, so the launcher runs them
+ * on the calling thread.
+ */
+@Configuration
+public class IngestBatchConfiguration {
+  public static final String JOB_NAME = "ingestJob";
+
+  @Autowired
+  public JobBuilderFactory jobBuilderFactory;
+
+  @Autowired
+  public StepBuilderFactory stepBuilderFactory;
+
+  @Bean(name = "ingestJobLauncher")
+  public JobLauncher ingestJobLauncher(JobRepository jobRepository) {
+    SimpleJobLauncher jobLauncher = new SimpleJobLauncher();
+    jobLauncher.setTaskExecutor(new SyncTaskExecutor());
+    jobLauncher.setJobRepository(jobRepository);
+    return jobLauncher;
+  }
+
+  @Bean(name = JOB_NAME)
+  public Job ingestJob(JobListener listener, @Qualifier("ingestStep") Step ingestStep) {
+    return jobBuilderFactory.get(JOB_NAME).incrementer(new RunIdIncrementer()).listener(listener).flow(ingestStep)
+      .end().build();
+  }
+
+  @Bean(name = "ingestStep")
+  public Step ingestStep() {
+    return stepBuilderFactory.get("ingestStep").tasklet(new IngestProcessor()).build();
+  }
+}
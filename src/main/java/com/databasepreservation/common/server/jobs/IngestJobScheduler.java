@@ -0,0 +1,477 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.server.jobs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.JobParametersInvalidException;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.batch.core.repository.JobExecutionAlreadyRunningException;
+import org.springframework.batch.core.repository.JobInstanceAlreadyCompleteException;
+import org.springframework.batch.core.repository.JobRestartException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import com.databasepreservation.common.client.ViewerConstants;
+import com.databasepreservation.common.client.models.status.collection.CollectionStatus;
+import com.databasepreservation.common.client.models.status.collection.TableStatus;
+import com.databasepreservation.common.client.models.structure.ViewerJob;
+import com.databasepreservation.common.client.models.structure.ViewerJobStatus;
+import com.databasepreservation.common.client.models.structure.ViewerType;
+import com.databasepreservation.common.exceptions.ViewerException;
+import com.databasepreservation.common.server.ViewerConfiguration;
+import com.databasepreservation.common.server.ViewerFactory;
+import com.databasepreservation.common.server.controller.JobController;
+import com.databasepreservation.common.server.index.SolrQueryLane;
+import com.databasepreservation.common.server.index.TableStatisticsCollector;
+import com.databasepreservation.common.server.index.utils.SolrUtils;
+import com.databasepreservation.common.transformers.LobMimeTypeDetector;
+
+/**
+ * Queues the ingest jobs of all the databases and runs at most a configured
+ * number of them at a time, so that concurrent ingests do not starve Solr.
+ * Queued jobs run by descending priority and, with the same priority, in the
+ * order they were submitted. The ingests queued or running of a database never
+ * overlap: a request already covered by one of them returns its job, and a
+ * request sharing only some tables with one of them is rejected. The
+ * statistics and the deferred MIME type detection of an ingested database run
+ * afterwards in a separate thread, so they do not hold an ingest slot.
+ */
+@Component
+public class IngestJobScheduler {
+  private static final Logger LOGGER = LoggerFactory.getLogger(IngestJobScheduler.class);
+
+  private static final String CANCELLED_MESSAGE = "Cancelled";
+  private static final String KEY_SEPARATOR = "/";
+  private static final String TABLE_IDS_SEPARATOR = ",";
+
+  @Autowired
+  @Qualifier(IngestBatchConfiguration.JOB_NAME)
+  Job ingestJob;
+
+  @Autowired
+  @Qualifier("ingestJobLauncher")
+  JobLauncher ingestJobLauncher;
+
+  @Autowired
+  @Qualifier(MimeTypeEnrichmentBatchConfiguration.JOB_NAME)
+  Job mimeTypeEnrichmentJob;
+
+  @Autowired
+  @Qualifier("customJobLauncher")
+  JobLauncher jobLauncher;
+
+  private final PriorityBlockingQueue<IngestRequest> queue = new PriorityBlockingQueue<>(11,
+    Comparator.comparingInt(IngestRequest::getPriority).reversed().thenComparingLong(IngestRequest::getSequence));
+  // the requests queued or running, by database UUID, only changed while synchronized
+  private final Map<String, List<IngestRequest>> requestsByDatabase = new HashMap<>();
+  private final AtomicLong sequence = new AtomicLong();
+  private Thread[] runners;
+  private ExecutorService postIngestExecutor;
+
+  @PostConstruct
+  public void start() {
+    int maxConcurrent = Math.max(1, ViewerConfiguration.getInstance().getViewerConfigurationAsInt(1,
+      ViewerConfiguration.PROPERTY_INGEST_JOBS_MAX_CONCURRENT));
+    runners = new Thread[maxConcurrent];
+    for (int i = 0; i < maxConcurrent; i++) {
+      runners[i] = new Thread(this::runQueuedIngests, "ingest-scheduler-" + i);
+      runners[i].setDaemon(true);
+      runners[i].start();
+    }
+
+    postIngestExecutor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "ingest-post-processing");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @PreDestroy
+  public void stop() {
+    for (Thread runner : runners) {
+      runner.interrupt();
+    }
+    postIngestExecutor.shutdownNow();
+  }
+
+  /**
+   * Queues the computation of the row counts and column statistics of the
+   * ingested tables of a database.
+   *
+   * @param databaseUUID
+   *          the database UUID
+   */
+  public void submitStatistics(String databaseUUID) {
+    postIngestExecutor.execute(() -> computeStatistics(databaseUUID, null));
+  }
+
+  /**
+   * Queues the ingest of a database, unless it is already queued or running.
+   * Fails if the ingest of some of its tables is queued or running.
+   *
+   * @param databaseUUID
+   *          the database UUID
+   * @param priority
+   *          the priority of the ingest, higher runs first
+   * @return the UUID of the ingest job
+   */
+  public String submit(String databaseUUID, int priority) throws NotFoundException, GenericException {
+    return submit(databaseUUID, null, priority);
+  }
+
+  /**
+   * Queues the ingest of some tables of a database, unless the same tables or
+   * the whole database are already queued or running. Fails if only some of
+   * the tables are already queued or running. The first ingest of tables of a
+   * database also creates its rows collection.
+   *
+   * @param databaseUUID
+   *          the database UUID
+   * @param tableUUIDs
+   *          the UUIDs of the tables to ingest, possibly none
+   * @param priority
+   *          the priority of the ingest, higher runs first
+   * @return the UUID of the ingest job
+   */
+  public String submitTables(String databaseUUID, Collection<String> tableUUIDs, int priority)
+    throws NotFoundException, GenericException {
+    return submit(databaseUUID, new TreeSet<>(tableUUIDs), priority);
+  }
+
+  private synchronized String submit(String databaseUUID, Set<String> tableUUIDs, int priority)
+    throws NotFoundException, GenericException {
+    List<IngestRequest> requests = requestsByDatabase.computeIfAbsent(databaseUUID, k -> new ArrayList<>());
+    for (IngestRequest existing : requests) {
+      if (existing.covers(tableUUIDs)) {
+        return existing.getJobUUID();
+      }
+      if (existing.overlaps(tableUUIDs)) {
+        throw new GenericException("The ingest of " + existing.getKey()
+          + " is already queued or running, cancel it or wait for it to finish before ingesting "
+          + getKey(databaseUUID, tableUUIDs));
+      }
+    }
+
+    JobParametersBuilder jobBuilder = new JobParametersBuilder();
+    jobBuilder.addDate(ViewerConstants.SOLR_SEARCHES_DATE_ADDED, new Date());
+    jobBuilder.addString(ViewerConstants.INDEX_ID, SolrUtils.randomUUID());
+    jobBuilder.addString(ViewerConstants.CONTROLLER_COLLECTION_ID_PARAM, databaseUUID);
+    jobBuilder.addString(ViewerConstants.CONTROLLER_DATABASE_ID_PARAM, databaseUUID);
+    if (tableUUIDs != null) {
+      jobBuilder.addString(ViewerConstants.CONTROLLER_TABLE_IDS_PARAM, String.join(TABLE_IDS_SEPARATOR, tableUUIDs));
+      if (tableUUIDs.size() == 1) {
+        jobBuilder.addString(ViewerConstants.CONTROLLER_TABLE_ID_PARAM, tableUUIDs.iterator().next());
+      }
+    }
+    JobParameters jobParameters = jobBuilder.toJobParameters();
+    JobController.addMinimalSolrBatchJob(jobParameters);
+
+    IngestRequest request = new IngestRequest(databaseUUID, tableUUIDs, getKey(databaseUUID, tableUUIDs),
+      jobParameters, priority, sequence.getAndIncrement());
+    requests.add(request);
+    queue.add(request);
+    LOGGER.info("Ingest of {} queued with priority {} ({} queued)", request.getKey(), priority, queue.size());
+    return request.getJobUUID();
+  }
+
+  private static String getKey(String databaseUUID, Set<String> tableUUIDs) {
+    return tableUUIDs == null ? databaseUUID
+      : databaseUUID + KEY_SEPARATOR + String.join(TABLE_IDS_SEPARATOR, tableUUIDs);
+  }
+
+  /**
+   * @return the UUIDs of the tables an ingest job is limited to, or null if it
+   *         ingests the whole database
+   */
+  public static List<String> getTableUUIDs(JobParameters jobParameters) {
+    String tableUUIDs = jobParameters.getString(ViewerConstants.CONTROLLER_TABLE_IDS_PARAM);
+    if (tableUUIDs == null) {
+      return null;
+    }
+    return tableUUIDs.isEmpty() ? Collections.emptyList() : Arrays.asList(tableUUIDs.split(TABLE_IDS_SEPARATOR));
+  }
+
+  /**
+   * Cancels the ingests of a database, including the ones of its tables. A
+   * queued ingest is removed from the queue; a running one is interrupted,
+   * leaving the database resumable from its last checkpoint.
+   *
+   * @return true if there was an ingest to cancel
+   */
+  public synchronized boolean cancel(String databaseUUID) {
+    List<IngestRequest> requests = requestsByDatabase.getOrDefault(databaseUUID, Collections.emptyList());
+    boolean cancelled = !requests.isEmpty();
+    for (IngestRequest request : new ArrayList<>(requests)) {
+      request.cancel();
+      if (queue.remove(request)) {
+        remove(request);
+        markJob(request, ViewerJobStatus.ABANDONED, CANCELLED_MESSAGE);
+        LOGGER.info("Queued ingest of {} cancelled", request.getKey());
+      } else {
+        LOGGER.info("Cancelling the ingest of {}", request.getKey());
+      }
+    }
+    return cancelled;
+  }
+
+  private void runQueuedIngests() {
+    while (!Thread.currentThread().isInterrupted()) {
+      IngestRequest request;
+      try {
+        request = queue.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+
+      try {
+        run(request);
+      } finally {
+        request.finish();
+        remove(request);
+        // clear an interruption that cancelled the ingest
+        Thread.interrupted();
+      }
+    }
+  }
+
+  private synchronized void remove(IngestRequest request) {
+    List<IngestRequest> requests = requestsByDatabase.get(request.getDatabaseUUID());
+    if (requests != null) {
+      requests.remove(request);
+      if (requests.isEmpty()) {
+        requestsByDatabase.remove(request.getDatabaseUUID());
+      }
+    }
+  }
+
+  private void run(IngestRequest request) {
+    if (!request.start(Thread.currentThread())) {
+      // cancelled while being taken from the queue
+      markJob(request, ViewerJobStatus.ABANDONED, CANCELLED_MESSAGE);
+      return;
+    }
+
+    String databaseUUID = request.getDatabaseUUID();
+    try {
+      JobExecution jobExecution = ingestJobLauncher.run(ingestJob, request.getJobParameters());
+      if (request.isCancelled()) {
+        JobController.setMessageToSolrBatchJob(jobExecution, CANCELLED_MESSAGE);
+      } else if (jobExecution.getStatus() == BatchStatus.COMPLETED) {
+        final List<String> tableUUIDs = getTableUUIDs(request.getJobParameters());
+        postIngestExecutor.execute(() -> {
+          computeStatistics(databaseUUID, tableUUIDs);
+          if (LobMimeTypeDetector.isDeferred()) {
+            runMimeTypeEnrichment(databaseUUID, tableUUIDs);
+          }
+        });
+      }
+    } catch (JobExecutionAlreadyRunningException | JobRestartException | JobInstanceAlreadyCompleteException
+      | JobParametersInvalidException | NotFoundException | GenericException e) {
+      LOGGER.error("Could not run the ingest of database {}", databaseUUID, e);
+      markJob(request, ViewerJobStatus.FAILED, e.getMessage());
+    }
+  }
+
+  /**
+   * Computes and stores the row counts and column statistics of the ingested
+   * tables of a database, unless disabled in the configuration.
+   *
+   * @param tableUUIDs
+   *          the tables ingested, or null if the whole database was
+   */
+  private void computeStatistics(String databaseUUID, List<String> tableUUIDs) {
+    if (!ViewerConfiguration.getInstance().getViewerConfigurationAsBoolean(true,
+      ViewerConfiguration.PROPERTY_STATISTICS_ENABLED)) {
+      return;
+    }
+
+    try {
+      final CollectionStatus collectionStatus = ViewerFactory.getConfigurationManager()
+        .getConfigurationCollection(databaseUUID, databaseUUID);
+      final List<TableStatus> tables = collectionStatus.getTables().stream()
+        .filter(table -> (tableUUIDs == null || tableUUIDs.contains(table.getUuid())) && table.isSearchable())
+        .collect(Collectors.toList());
+      final int collected = new TableStatisticsCollector(ViewerFactory.getSolrClient(),
+        ViewerFactory.getSolrManager().getLane(SolrQueryLane.Type.BATCH)).collect(databaseUUID, tables);
+      ViewerFactory.getConfigurationManager().updateTablesStatistics(databaseUUID, tables);
+      LOGGER.info("Computed the statistics of {} of {} tables of database {}", collected, tables.size(),
+        databaseUUID);
+    } catch (GenericException | ViewerException e) {
+      LOGGER.error("Could not compute the statistics of database {}", databaseUUID, e);
+    }
+  }
+
+  /**
+   * Starts a job per table with BLOB columns to detect the MIME types that were
+   * not detected during the ingest. The database is already available.
+   *
+   * @param tableUUIDs
+   *          the tables ingested, or null if the whole database was
+   */
+  private void runMimeTypeEnrichment(String databaseUUID, List<String> tableUUIDs) {
+    try {
+      final CollectionStatus collectionStatus = ViewerFactory.getConfigurationManager()
+        .getConfigurationCollection(databaseUUID, databaseUUID);
+      for (TableStatus table : collectionStatus.getTables()) {
+        if ((tableUUIDs != null && !tableUUIDs.contains(table.getUuid()))
+          || table.getColumns().stream().noneMatch(c -> ViewerType.dbTypes.BINARY.equals(c.getType()))) {
+          continue;
+        }
+
+        JobParametersBuilder jobBuilder = new JobParametersBuilder();
+        jobBuilder.addDate(ViewerConstants.SOLR_SEARCHES_DATE_ADDED, new Date());
+        jobBuilder.addString(ViewerConstants.INDEX_ID, SolrUtils.randomUUID());
+        jobBuilder.addString(ViewerConstants.CONTROLLER_COLLECTION_ID_PARAM, databaseUUID);
+        jobBuilder.addString(ViewerConstants.CONTROLLER_DATABASE_ID_PARAM, databaseUUID);
+        jobBuilder.addString(ViewerConstants.CONTROLLER_TABLE_ID_PARAM, table.getUuid());
+        JobParameters jobParameters = jobBuilder.toJobParameters();
+
+        JobController.addMinimalSolrBatchJob(jobParameters);
+        JobExecution jobExecution = jobLauncher.run(mimeTypeEnrichmentJob, jobParameters);
+        JobController.editSolrBatchJob(jobExecution);
+      }
+    } catch (JobExecutionAlreadyRunningException | JobRestartException | JobInstanceAlreadyCompleteException
+      | JobParametersInvalidException | NotFoundException | GenericException e) {
+      LOGGER.error("Could not start the MIME type detection of database {}", databaseUUID, e);
+    }
+  }
+
+  private static void markJob(IngestRequest request, ViewerJobStatus status, String message) {
+    ViewerJob viewerJob = new ViewerJob();
+    viewerJob.setUuid(request.getJobUUID());
+    viewerJob.setStatus(status);
+    viewerJob.setEndTime(new Date());
+    viewerJob.setExitDescription(message);
+    try {
+      ViewerFactory.getSolrManager().editBatchJob(viewerJob);
+    } catch (NotFoundException | GenericException e) {
+      LOGGER.error("Cannot update job on SOLR", e);
+    }
+  }
+
+  private static class IngestRequest {
+    private final String databaseUUID;
+    private final Set<String> tableUUIDs;
+    private final String key;
+    private final JobParameters jobParameters;
+    private final int priority;
+    private final long sequence;
+    private Thread runner;
+    private boolean cancelled = false;
+
+    IngestRequest(String databaseUUID, Set<String> tableUUIDs, String key, JobParameters jobParameters, int priority,
+      long sequence) {
+      this.databaseUUID = databaseUUID;
+      this.tableUUIDs = tableUUIDs;
+      this.key = key;
+      this.jobParameters = jobParameters;
+      this.priority = priority;
+      this.sequence = sequence;
+    }
+
+    String getDatabaseUUID() {
+      return databaseUUID;
+    }
+
+    String getKey() {
+      return key;
+    }
+
+    /**
+     * @param otherTableUUIDs
+     *          the tables of another request of the same database, or null for
+     *          the whole database
+     * @return true if this request ingests all the tables of the other
+     */
+    boolean covers(Set<String> otherTableUUIDs) {
+      return tableUUIDs == null || (otherTableUUIDs != null && tableUUIDs.containsAll(otherTableUUIDs));
+    }
+
+    /**
+     * @param otherTableUUIDs
+     *          the tables of another request of the same database, or null for
+     *          the whole database
+     * @return true if both requests ingest some table
+     */
+    boolean overlaps(Set<String> otherTableUUIDs) {
+      return tableUUIDs == null || otherTableUUIDs == null || !Collections.disjoint(tableUUIDs, otherTableUUIDs);
+    }
+
+    JobParameters getJobParameters() {
+      return jobParameters;
+    }
+
+    String getJobUUID() {
+      return jobParameters.getString(ViewerConstants.INDEX_ID);
+    }
+
+    int getPriority() {
+      return priority;
+    }
+
+    long getSequence() {
+      return sequence;
+    }
+
+    /**
+     * @return false if the request was cancelled before starting
+     */
+    synchronized boolean start(Thread runner) {
+      this.runner = runner;
+      return !cancelled;
+    }
+
+    /**
+     * After this, cancelling no longer interrupts the runner.
+     */
+    synchronized void finish() {
+      this.runner = null;
+    }
+
+    synchronized void cancel() {
+      cancelled = true;
+      if (runner != null) {
+        runner.interrupt();
+      }
+    }
+
+    synchronized boolean isCancelled() {
+      return cancelled;
+    }
+  }
+}
@@ -0,0 +1,61 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.server.jobs;
+
+import java.util.List;
+
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+
+import com.databasepreservation.common.client.ViewerConstants;
+import com.databasepreservation.common.client.models.structure.ViewerDatabase;
+import com.databasepreservation.common.client.models.structure.ViewerJobStatus;
+import com.databasepreservation.common.server.ViewerFactory;
+import com.databasepreservation.common.server.controller.JobController;
+import com.databasepreservation.common.server.controller.SIARDController;
+
+/**
+ * Ingests the rows of the SIARD of a database, or only of some of its tables.
+ */
+public class IngestProcessor implements Tasklet {
+  private static final Logger LOGGER = LoggerFactory.getLogger(IngestProcessor.class);
+
+  @Override
+  public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws GenericException {
+    JobParameters jobParameters = chunkContext.getStepContext().getStepExecution().getJobParameters();
+    String databaseUUID = jobParameters.getString(ViewerConstants.CONTROLLER_DATABASE_ID_PARAM);
+    List<String> tableUUIDs = IngestJobScheduler.getTableUUIDs(jobParameters);
+    try {
+      final ViewerDatabase database = ViewerFactory.getSolrManager().retrieve(ViewerDatabase.class, databaseUUID);
+      if (tableUUIDs != null) {
+        SIARDController.loadTablesFromLocal(database.getPath(), databaseUUID, tableUUIDs);
+      } else {
+        SIARDController.loadFromLocal(database.getPath(), databaseUUID);
+      }
+    } catch (GenericException | NotFoundException e) {
+      chunkContext.getStepContext().getStepExecution()
+        .setExitStatus(new ExitStatus(ViewerJobStatus.FAILED.name(), e.getMessage()));
+      try {
+        JobController.setMessageToSolrBatchJob(chunkContext.getStepContext().getStepExecution().getJobExecution(),
+          e.getMessage());
+      } catch (NotFoundException | GenericException ex) {
+        LOGGER.error("Cannot update job on SOLR", ex);
+      }
+      throw new GenericException("Could not ingest database " + databaseUUID, e);
+    }
+    return RepeatStatus.FINISHED;
+  }
+}
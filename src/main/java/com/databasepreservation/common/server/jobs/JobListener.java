@@ -35,6 +35,7 @@ import com.databasepreservation.common.server.index.utils.JsonTransformer;
 @Component
 public class JobListener extends JobExecutionListenerSupport {
   private static final Logger LOGGER = LoggerFactory.getLogger(JobListener.class);
+  private static final String DENORMALIZE_JOB_NAME = "denormalizeJob";
 
   @Override
   public void beforeJob(JobExecution jobExecution) {
@@ -44,7 +45,7 @@ public class JobListener extends JobExecutionListenerSupport {
     try {
       JobController.editSolrBatchJob(jobExecution);
       updateConfigurationFile(databaseUUID, tableUUID, ViewerJobStatus.valueOf(jobExecution.getStatus().name()),
-        jobExecution.getJobId());
+        jobExecution);
       LOGGER.info("Job STARTED for " + databaseUUID + "/" + tableUUID);
     } catch (GenericException | NotFoundException e) {
       LOGGER.error("Cannot update job on SOLR for " + databaseUUID + "/" + tableUUID, e);
@@ -62,10 +63,10 @@ public class JobListener extends JobExecutionListenerSupport {
       JobController.editSolrBatchJob(jobExecution);
       if (jobExecution.getStatus() == BatchStatus.COMPLETED) {
         updateConfigurationFile(databaseUUID, tableUUID, ViewerJobStatus.valueOf(jobExecution.getStatus().name()),
-          jobExecution.getJobId());
+          jobExecution);
         LOGGER.info("Job FINISHED for " + databaseUUID + "/" + tableUUID);
       } else {
-        updateConfigurationFile(databaseUUID, tableUUID, ViewerJobStatus.FAILED, jobExecution.getJobId());
+        updateConfigurationFile(databaseUUID, tableUUID, ViewerJobStatus.FAILED, jobExecution);
         LOGGER.error("Job FINISHED for " + databaseUUID + "/" + tableUUID + "with error: "
           + jobExecution.getExitStatus().getExitDescription());
       }
@@ -76,13 +77,17 @@ public class JobListener extends JobExecutionListenerSupport {
     }
   }
 
-  private void updateConfigurationFile(String databaseUUID, String tableUUID, ViewerJobStatus status, Long jobId)
-    throws ViewerException {
+  private void updateConfigurationFile(String databaseUUID, String tableUUID, ViewerJobStatus status,
+    JobExecution jobExecution) throws ViewerException {
+    if (!DENORMALIZE_JOB_NAME.equals(jobExecution.getJobInstance().getJobName())) {
+      // only the denormalization jobs have a configuration file
+      return;
+    }
     Path path = ViewerConfiguration.getInstance().getDatabasesPath().resolve(databaseUUID)
       .resolve(ViewerConstants.DENORMALIZATION_STATUS_PREFIX + tableUUID + ViewerConstants.JSON_EXTENSION);
     if (Files.exists(path)) {
       DenormalizeConfiguration configuration = JsonTransformer.readObjectFromFile(path, DenormalizeConfiguration.class);
-      configuration.setJob(jobId);
+      configuration.setJob(jobExecution.getJobId());
       configuration.setState(status);
       JsonTransformer.writeObjectToFile(configuration, path);
     }
@@ -0,0 +1,103 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.server.jobs;
+
+import org.apache.solr.common.SolrInputDocument;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
+import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.launch.support.RunIdIncrementer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import com.databasepreservation.common.client.ViewerConstants;
+import com.databasepreservation.common.client.models.structure.ViewerRow;
+import com.databasepreservation.common.server.ViewerConfiguration;
+
+/**
+ * Job that detects the MIME type of the LOBs of a table after the ingest,
+ * filling the MIME type fields of its rows with partial updates. The rows are
+ * processed in chunks by several threads.
+ */
+@Configuration
+public class MimeTypeEnrichmentBatchConfiguration {
+  public static final String JOB_NAME = "mimeTypeEnrichmentJob";
+
+  private static final String DATABASE_UUID_PARAMETER = "#{jobParameters['"
+    + ViewerConstants.CONTROLLER_DATABASE_ID_PARAM + "']}";
+  private static final String TABLE_UUID_PARAMETER = "#{jobParameters['" + ViewerConstants.CONTROLLER_TABLE_ID_PARAM
+    + "']}";
+  private static final String JOB_UUID_PARAMETER = "#{jobParameters['" + ViewerConstants.INDEX_ID + "']}";
+
+  @Autowired
+  public JobBuilderFactory jobBuilderFactory;
+
+  @Autowired
+  public StepBuilderFactory stepBuilderFactory;
+
+  @Bean(name = "mimeTypeEnrichmentTaskExecutor")
+  public ThreadPoolTaskExecutor mimeTypeEnrichmentTaskExecutor() {
+    ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+    int threads = getThreads();
+    taskExecutor.setCorePoolSize(threads);
+    taskExecutor.setMaxPoolSize(threads);
+    taskExecutor.setThreadNamePrefix("mime-type-enrichment-");
+    return taskExecutor;
+  }
+
+  @Bean(name = JOB_NAME)
+  public Job mimeTypeEnrichmentJob(JobListener listener,
+    @Qualifier("mimeTypeEnrichmentStep") Step mimeTypeEnrichmentStep) {
+    return jobBuilderFactory.get(JOB_NAME).incrementer(new RunIdIncrementer()).listener(listener)
+      .flow(mimeTypeEnrichmentStep).end().build();
+  }
+
+  @Bean(name = "mimeTypeEnrichmentStep")
+  public Step mimeTypeEnrichmentStep(MimeTypeEnrichmentReader reader, MimeTypeEnrichmentProcessor processor,
+    MimeTypeEnrichmentWriter writer,
+    @Qualifier("mimeTypeEnrichmentTaskExecutor") ThreadPoolTaskExecutor taskExecutor) {
+    int chunkSize = ViewerConfiguration.getInstance().getViewerConfigurationAsInt(100,
+      ViewerConfiguration.PROPERTY_INGEST_MIME_DETECTION_CHUNK_SIZE);
+
+    return stepBuilderFactory.get("mimeTypeEnrichmentStep").<ViewerRow, SolrInputDocument> chunk(chunkSize)
+      .reader(reader).processor(processor).writer(writer).taskExecutor(taskExecutor).throttleLimit(getThreads())
+      .build();
+  }
+
+  @Bean
+  @StepScope
+  public MimeTypeEnrichmentReader mimeTypeEnrichmentReader(@Value(DATABASE_UUID_PARAMETER) String databaseUUID,
+    @Value(TABLE_UUID_PARAMETER) String tableUUID) {
+    return new MimeTypeEnrichmentReader(databaseUUID, tableUUID);
+  }
+
+  @Bean
+  @StepScope
+  public MimeTypeEnrichmentProcessor mimeTypeEnrichmentProcessor(@Value(DATABASE_UUID_PARAMETER) String databaseUUID,
+    @Value(TABLE_UUID_PARAMETER) String tableUUID) {
+    return new MimeTypeEnrichmentProcessor(databaseUUID, tableUUID);
+  }
+
+  @Bean
+  @StepScope
+  public MimeTypeEnrichmentWriter mimeTypeEnrichmentWriter(@Value(DATABASE_UUID_PARAMETER) String databaseUUID,
+    @Value(JOB_UUID_PARAMETER) String jobUUID) {
+    return new MimeTypeEnrichmentWriter(databaseUUID, jobUUID);
+  }
+
+  private static int getThreads() {
+    return Math.max(1, ViewerConfiguration.getInstance().getViewerConfigurationAsInt(4,
+      ViewerConfiguration.PROPERTY_INGEST_MIME_DETECTION_THREADS));
+  }
+}
@@ -0,0 +1,183 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.server.jobs;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.tika.mime.MimeTypeException;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.ItemProcessor;
+
+import com.databasepreservation.common.client.ViewerConstants;
+import com.databasepreservation.common.client.models.status.collection.ColumnStatus;
+import com.databasepreservation.common.client.models.status.collection.TableStatus;
+import com.databasepreservation.common.client.models.structure.ViewerCell;
+import com.databasepreservation.common.client.models.structure.ViewerDatabase;
+import com.databasepreservation.common.client.models.structure.ViewerMimeType;
+import com.databasepreservation.common.client.models.structure.ViewerRow;
+import com.databasepreservation.common.client.models.structure.ViewerType;
+import com.databasepreservation.common.client.tools.MimeTypeUtils;
+import com.databasepreservation.common.exceptions.ViewerException;
+import com.databasepreservation.common.server.ViewerFactory;
+import com.databasepreservation.common.server.index.schema.SolrRowsCollectionRegistry;
+import com.databasepreservation.common.server.index.utils.SolrUtils;
+import com.databasepreservation.common.server.storage.SIARDArchive;
+import com.databasepreservation.common.transformers.LobMimeTypeDetector;
+import com.databasepreservation.common.utils.LobManagerUtils;
+
+/**
+ * Detects the MIME type of the BLOB cells of a row and creates the partial
+ * update that sets the MIME type and file extension fields of the row. When
+ * the step completes, the collection status is updated for the columns that
+ * got a MIME type.
+ */
+public class MimeTypeEnrichmentProcessor
+  implements ItemProcessor<ViewerRow, SolrInputDocument>, StepExecutionListener {
+  private static final Logger LOGGER = LoggerFactory.getLogger(MimeTypeEnrichmentProcessor.class);
+
+  private final String databaseUUID;
+  private final String tableUUID;
+  private final LobMimeTypeDetector mimeTypeDetector = new LobMimeTypeDetector();
+  private final Set<Integer> detectedColumns = ConcurrentHashMap.newKeySet();
+
+  private TableStatus tableStatus;
+  private List<ColumnStatus> binaryColumns;
+  private SIARDArchive siardArchive;
+  private Path siardFilesPath;
+
+  public MimeTypeEnrichmentProcessor(String databaseUUID, String tableUUID) {
+    this.databaseUUID = databaseUUID;
+    this.tableUUID = tableUUID;
+  }
+
+  static List<ColumnStatus> getBinaryColumns(TableStatus tableStatus) {
+    return tableStatus.getColumns().stream().filter(c -> ViewerType.dbTypes.BINARY.equals(c.getType()))
+      .collect(Collectors.toList());
+  }
+
+  @Override
+  public void beforeStep(StepExecution stepExecution) {
+    siardFilesPath = ViewerFactory.getViewerConfiguration().getSIARDFilesPath();
+    try {
+      ViewerDatabase database = ViewerFactory.getSolrManager().retrieve(ViewerDatabase.class, databaseUUID);
+      tableStatus = ViewerFactory.getConfigurationManager().getConfigurationCollection(databaseUUID, databaseUUID)
+        .getTableStatus(tableUUID);
+      binaryColumns = getBinaryColumns(tableStatus);
+      siardArchive = SIARDArchive.open(database.getPath());
+    } catch (NotFoundException | GenericException | IOException e) {
+      // process will fail for every row
+      LOGGER.error("Could not prepare the MIME type detection of {}/{}", databaseUUID, tableUUID, e);
+    }
+  }
+
+  @Override
+  public ExitStatus afterStep(StepExecution stepExecution) {
+    if (siardArchive != null) {
+      try {
+        siardArchive.close();
+      } catch (IOException e) {
+        LOGGER.debug("Could not close the SIARD archive of database {}", databaseUUID, e);
+      }
+    }
+
+    mimeTypeDetector.logStatistics(databaseUUID);
+
+    if (BatchStatus.COMPLETED.equals(stepExecution.getStatus()) && !detectedColumns.isEmpty()) {
+      try {
+        ViewerFactory.getSolrClient().commit(SolrRowsCollectionRegistry.get(databaseUUID).getIndexName());
+        ViewerFactory.getSolrManager().invalidateRows(databaseUUID);
+        ViewerFactory.getConfigurationManager().updateLobColumnsMimeType(databaseUUID, tableUUID,
+          new ArrayList<>(detectedColumns));
+      } catch (SolrServerException | IOException | GenericException | ViewerException e) {
+        LOGGER.error("Could not finish the MIME type detection of {}/{}", databaseUUID, tableUUID, e);
+        return ExitStatus.FAILED.addExitDescription(e);
+      }
+    }
+    return stepExecution.getExitStatus();
+  }
+
+  @Override
+  public SolrInputDocument process(ViewerRow row) throws ViewerException {
+    if (tableStatus == null || siardArchive == null) {
+      throw new ViewerException("MIME type detection of " + databaseUUID + "/" + tableUUID + " is not available");
+    }
+
+    SolrInputDocument update = null;
+    for (ColumnStatus column : binaryColumns) {
+      ViewerCell cell = row.getCells().get(column.getId());
+      if (cell == null || cell.getValue() == null
+        || mimeTypeDetector.skipIfDisabled(column.getMimeTypeDetection())) {
+        continue;
+      }
+
+      ViewerMimeType mimeType;
+      try {
+        mimeType = mimeTypeDetector.detect(tableStatus.getId(), column.getColumnIndex(),
+          column.getMimeTypeDetection(), () -> openLob(row, column, cell.getValue()));
+      } catch (IOException | MimeTypeException e) {
+        LOGGER.error("Could not calculate mimeType for cell: [{}] of row {}", column.getId(), row.getUuid(), e);
+        continue;
+      }
+
+      if (mimeType != null) {
+        if (update == null) {
+          update = new SolrInputDocument();
+          update.addField(ViewerConstants.INDEX_ID, row.getUuid());
+        }
+        update.addField(MimeTypeUtils.getMimeTypeSolrName(column.getId()),
+          SolrUtils.asValueUpdate(mimeType.getMimeType()));
+        update.addField(MimeTypeUtils.getFileExtensionSolrName(column.getId()),
+          SolrUtils.asValueUpdate(mimeType.getFileExtension()));
+        detectedColumns.add(column.getColumnIndex());
+      }
+    }
+
+    // rows without LOBs are filtered out
+    return update;
+  }
+
+  private InputStream openLob(ViewerRow row, ColumnStatus column, String value) throws IOException {
+    if (column.isExternalLob()) {
+      return new FileInputStream(siardFilesPath.resolve(value).toFile());
+    } else if (LobManagerUtils.isLobStored(value)) {
+      return Files.newInputStream(LobManagerUtils.getStoredLobPath(ViewerFactory.getViewerConfiguration(),
+        databaseUUID, tableStatus, column.getColumnIndex(), row));
+    } else if (value.startsWith(ViewerConstants.SIARD_EMBEDDED_LOB_PREFIX)) {
+      String encoded = value.substring(ViewerConstants.SIARD_EMBEDDED_LOB_PREFIX.length());
+      return new ByteArrayInputStream(Base64.decodeBase64(encoded.getBytes()));
+    } else {
+      String entryName = LobManagerUtils.getZipFilePath(tableStatus, column.getColumnIndex(), row);
+      ZipEntry entry = siardArchive.getEntry(entryName);
+      if (entry == null) {
+        throw new IOException("Zip archive entry is missing: " + entryName);
+      }
+      return siardArchive.getInputStream(entry);
+    }
+  }
+}
@@ -0,0 +1,92 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.server.jobs;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+import org.roda.core.data.exceptions.GenericException;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+
+import com.databasepreservation.common.client.ViewerConstants;
+import com.databasepreservation.common.client.index.filter.Filter;
+import com.databasepreservation.common.client.models.status.collection.ColumnStatus;
+import com.databasepreservation.common.client.models.status.collection.TableStatus;
+import com.databasepreservation.common.client.models.structure.ViewerRow;
+import com.databasepreservation.common.client.tools.FilterUtils;
+import com.databasepreservation.common.server.ViewerFactory;
+import com.databasepreservation.common.server.index.SolrQueryLane;
+import com.databasepreservation.common.server.index.utils.IterableIndexResult;
+
+/**
+ * Reads the rows of a table with their BLOB cells only. Thread safe, so that
+ * several chunks can be processed at the same time.
+ */
+public class MimeTypeEnrichmentReader implements ItemStreamReader<ViewerRow> {
+  static final String ROWS_TO_PROCESS = "rowsToProcess";
+
+  private final String databaseUUID;
+  private final String tableUUID;
+
+  private IterableIndexResult rows;
+  private Iterator<ViewerRow> iterator;
+
+  public MimeTypeEnrichmentReader(String databaseUUID, String tableUUID) {
+    this.databaseUUID = databaseUUID;
+    this.tableUUID = tableUUID;
+  }
+
+  @Override
+  public synchronized void open(ExecutionContext executionContext) {
+    final TableStatus tableStatus;
+    try {
+      tableStatus = ViewerFactory.getConfigurationManager().getConfigurationCollection(databaseUUID, databaseUUID)
+        .getTableStatus(tableUUID);
+    } catch (GenericException e) {
+      throw new ItemStreamException("Could not read the collection status of database " + databaseUUID, e);
+    }
+
+    List<String> fieldsToReturn = new ArrayList<>();
+    fieldsToReturn.add(ViewerConstants.INDEX_ID);
+    for (ColumnStatus column : MimeTypeEnrichmentProcessor.getBinaryColumns(tableStatus)) {
+      fieldsToReturn.add(column.getId());
+    }
+
+    Filter filter = FilterUtils.filterByTable(new Filter(), tableStatus.getId());
+    rows = ViewerFactory.getSolrManager().findAllRows(databaseUUID, filter, null, fieldsToReturn, new HashMap<>(),
+      SolrQueryLane.Type.BATCH);
+    iterator = rows.iterator();
+    executionContext.putLong(ROWS_TO_PROCESS, rows.getTotalCount());
+  }
+
+  @Override
+  public synchronized ViewerRow read() {
+    return iterator.hasNext() ? iterator.next() : null;
+  }
+
+  @Override
+  public void update(ExecutionContext executionContext) {
+    // not restartable, the whole table is processed again
+  }
+
+  @Override
+  public synchronized void close() {
+    if (rows != null) {
+      try {
+        rows.close();
+      } catch (IOException e) {
+        throw new ItemStreamException("Could not close the rows of table " + tableUUID, e);
+      }
+    }
+  }
+}
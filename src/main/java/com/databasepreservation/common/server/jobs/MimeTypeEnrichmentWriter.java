@@ -0,0 +1,58 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.server.jobs;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.solr.common.SolrInputDocument;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.ItemWriter;
+
+import com.databasepreservation.common.exceptions.ViewerException;
+import com.databasepreservation.common.server.ViewerFactory;
+import com.databasepreservation.common.server.index.DatabaseRowsSolrManager;
+
+/**
+ * Sends the MIME type partial updates of a chunk of rows and reports the
+ * progress of the job.
+ */
+public class MimeTypeEnrichmentWriter implements ItemWriter<SolrInputDocument>, StepExecutionListener {
+  private final String databaseUUID;
+  private final String jobUUID;
+  private final DatabaseRowsSolrManager solrManager;
+
+  private StepExecution stepExecution;
+
+  public MimeTypeEnrichmentWriter(String databaseUUID, String jobUUID) {
+    this.databaseUUID = databaseUUID;
+    this.jobUUID = jobUUID;
+    this.solrManager = ViewerFactory.getSolrManager();
+  }
+
+  @Override
+  public void beforeStep(StepExecution stepExecution) {
+    this.stepExecution = stepExecution;
+  }
+
+  @Override
+  public ExitStatus afterStep(StepExecution stepExecution) {
+    return stepExecution.getExitStatus();
+  }
+
+  @Override
+  public void write(List<? extends SolrInputDocument> items) throws ViewerException {
+    solrManager.updateRows(databaseUUID, new ArrayList<>(items));
+
+    // read count is only approximate while other chunks are running
+    long rowsToProcess = stepExecution.getExecutionContext().getLong(MimeTypeEnrichmentReader.ROWS_TO_PROCESS, 0);
+    solrManager.editBatchJob(jobUUID, rowsToProcess, stepExecution.getReadCount());
+  }
+}
@@ -0,0 +1,232 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.server.storage;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reference-counted access to a SIARD archive. The first {@link #open} of a
+ * path opens the zip file and indexes its entries in memory; further opens of
+ * the same path, while any handle is still open, share that zip file and
+ * index. The zip file is closed when the last handle is closed.
+ *
+ * An ingest keeps a handle open from start to end so that everything reading
+ * LOBs from the SIARD in the meantime reuses it instead of reading the central
+ * directory again.
+ */
+public class SIARDArchive implements Closeable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SIARDArchive.class);
+
+  private static final String CONTENT_FOLDER = "content/";
+  private static final Map<Path, SharedArchive> OPEN_ARCHIVES = new HashMap<>();
+
+  private final SharedArchive archive;
+  private boolean closed = false;
+
+  private SIARDArchive(SharedArchive archive) {
+    this.archive = archive;
+  }
+
+  public static SIARDArchive open(String siardPath) throws IOException {
+    return open(Paths.get(siardPath));
+  }
+
+  /**
+   * Obtains a handle to the SIARD archive, opening it if no other handle for
+   * the same path is open. The handle must be closed after use.
+   */
+  public static SIARDArchive open(Path siardPath) throws IOException {
+    final Path key = siardPath.toAbsolutePath().normalize();
+    synchronized (OPEN_ARCHIVES) {
+      SharedArchive archive = OPEN_ARCHIVES.get(key);
+      if (archive == null) {
+        archive = new SharedArchive(key);
+        OPEN_ARCHIVES.put(key, archive);
+      }
+      archive.references++;
+      return new SIARDArchive(archive);
+    }
+  }
+
+  public Path getPath() {
+    return archive.path;
+  }
+
+  /**
+   * @return the entry with the given name or null if the archive has no such
+   *         entry
+   */
+  public ZipEntry getEntry(String name) {
+    return archive.entries.get(name);
+  }
+
+  /**
+   * @return true if the archive has entries inside the folder (e.g.
+   *         {@code content/schema0/table0/lob3})
+   */
+  public boolean hasFolder(String folder) {
+    return archive.getFolders().contains(folder);
+  }
+
+  public InputStream getInputStream(ZipEntry entry) throws IOException {
+    checkOpen();
+    return archive.zipFile.getInputStream(entry);
+  }
+
+  /**
+   * Opens an entry with its own handle to the archive, which is closed
+   * together with the returned stream. Used when the stream outlives the code
+   * that opened it (e.g. streamed downloads).
+   *
+   * @return the stream or null if the archive has no such entry
+   */
+  public static InputStream openEntry(String siardPath, String name) throws IOException {
+    final SIARDArchive siardArchive = open(siardPath);
+    try {
+      final ZipEntry entry = siardArchive.getEntry(name);
+      if (entry == null) {
+        siardArchive.close();
+        return null;
+      }
+
+      return new FilterInputStream(siardArchive.getInputStream(entry)) {
+        @Override
+        public void close() throws IOException {
+          try {
+            super.close();
+          } finally {
+            siardArchive.close();
+          }
+        }
+      };
+    } catch (IOException | RuntimeException e) {
+      siardArchive.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Fingerprints the content of each table using only the central directory:
+   * the total size and a checksum of the names, sizes and CRCs of the entries
+   * in the folder of the table, including its internal LOBs.
+   *
+   * @return the fingerprints by table folder ({@code schemaFolder/tableFolder})
+   */
+  public Map<String, String> getTableFingerprints() {
+    Map<String, CRC32> checksums = new HashMap<>();
+    Map<String, Long> sizes = new HashMap<>();
+    List<String> names = new ArrayList<>(archive.entries.keySet());
+    Collections.sort(names);
+
+    ByteBuffer buffer = ByteBuffer.allocate(2 * Long.BYTES);
+    for (String name : names) {
+      ZipEntry entry = archive.entries.get(name);
+      int schemaEnd = name.startsWith(CONTENT_FOLDER) ? name.indexOf('/', CONTENT_FOLDER.length()) : -1;
+      int tableEnd = schemaEnd >= 0 ? name.indexOf('/', schemaEnd + 1) : -1;
+      if (tableEnd < 0 || entry.isDirectory()) {
+        continue;
+      }
+
+      String tableFolder = name.substring(CONTENT_FOLDER.length(), tableEnd);
+      CRC32 checksum = checksums.computeIfAbsent(tableFolder, k -> new CRC32());
+      checksum.update(name.getBytes(StandardCharsets.UTF_8));
+      buffer.clear();
+      buffer.putLong(entry.getSize()).putLong(entry.getCrc());
+      checksum.update(buffer.array());
+      sizes.merge(tableFolder, entry.getSize(), Long::sum);
+    }
+
+    Map<String, String> fingerprints = new HashMap<>();
+    for (Map.Entry<String, CRC32> checksum : checksums.entrySet()) {
+      fingerprints.put(checksum.getKey(),
+        sizes.get(checksum.getKey()) + "-" + Long.toHexString(checksum.getValue().getValue()));
+    }
+    return fingerprints;
+  }
+
+  public static String getTableFolder(String schemaFolder, String tableFolder) {
+    return schemaFolder + "/" + tableFolder;
+  }
+
+  private void checkOpen() throws IOException {
+    if (closed) {
+      throw new IOException("SIARD archive handle for " + archive.path + " is already closed");
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    synchronized (OPEN_ARCHIVES) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      archive.references--;
+      if (archive.references > 0) {
+        return;
+      }
+      OPEN_ARCHIVES.remove(archive.path);
+    }
+    LOGGER.debug("Closing SIARD archive {}", archive.path);
+    archive.zipFile.close();
+  }
+
+  private static class SharedArchive {
+    private final Path path;
+    private final ZipFile zipFile;
+    private final Map<String, ZipEntry> entries;
+    private Set<String> folders = null;
+    private int references = 0;
+
+    SharedArchive(Path path) throws IOException {
+      this.path = path;
+      this.zipFile = new ZipFile(path.toFile());
+      this.entries = new HashMap<>(Math.max(16, zipFile.size() * 4 / 3 + 1));
+      Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
+      while (zipEntries.hasMoreElements()) {
+        ZipEntry entry = zipEntries.nextElement();
+        entries.put(entry.getName(), entry);
+      }
+      LOGGER.debug("Opened SIARD archive {} with {} entries", path, entries.size());
+    }
+
+    synchronized Set<String> getFolders() {
+      if (folders == null) {
+        folders = new HashSet<>();
+        for (String name : entries.keySet()) {
+          int end = name.lastIndexOf('/');
+          while (end > 0 && folders.add(name.substring(0, end))) {
+            end = name.lastIndexOf('/', end - 1);
+          }
+        }
+      }
+      return folders;
+    }
+  }
+}
@@ -0,0 +1,383 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.transformers;
+
+import org.joda.time.DateTimeZone;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.databasepreservation.utils.JodaUtils;
+
+/**
+ * Converts the values of the simple cells of a SIARD to the values that are
+ * indexed, without allocating more than the result.
+ *
+ * The xs:dateTime, xs:date and xs:time values are converted to the UTC instant
+ * printed as Joda-Time does (e.g. 2000-01-01T10:30:00.000Z). Values in the
+ * lexical forms commonly used in SIARDs are converted directly, any other value
+ * is parsed with {@link JodaUtils}, so the result is always the same.
+ */
+public final class CellValueConverters {
+  private static final Logger LOGGER = LoggerFactory.getLogger(CellValueConverters.class);
+
+  // before the Gregorian cutover the calendar used to parse may not matter
+  private static final int MIN_YEAR = 1583;
+  private static final int MAX_YEAR = 9999;
+
+  private static final long DAYS_0000_TO_1970 = 719468L;
+
+  // how JodaUtils parses the values, checked once so the direct conversion
+  // never differs from it
+  private static final boolean DATETIME_WITHOUT_OFFSET_IS_UTC = sameAsJoda(
+    () -> jodaDateTime("2000-02-29T23:59:58.5"), "2000-02-29T23:59:58.500Z");
+  private static final boolean DATETIME_OFFSET_IS_PARSED = sameAsJoda(
+    () -> jodaDateTime("2000-03-01T01:29:58-23:30"), "2000-03-02T00:59:58.000Z");
+  private static final boolean DATE_WITHOUT_OFFSET_IS_UTC = sameAsJoda(() -> jodaDate("2000-02-29"),
+    "2000-02-29T00:00:00.000Z");
+  private static final boolean TIME_WITHOUT_OFFSET_IS_UTC = sameAsJoda(() -> jodaTime("23:59:58.25"),
+    "1970-01-01T23:59:58.250Z");
+
+  private CellValueConverters() {
+  }
+
+  private interface JodaConversion {
+    String convert();
+  }
+
+  private static boolean sameAsJoda(JodaConversion conversion, String expected) {
+    try {
+      String converted = conversion.convert();
+      if (expected.equals(converted)) {
+        return true;
+      }
+      LOGGER.debug("Date and time values are always converted by Joda-Time, expected {} but got {}", expected,
+        converted);
+    } catch (RuntimeException e) {
+      LOGGER.debug("Date and time values are always converted by Joda-Time", e);
+    }
+    return false;
+  }
+
+  static String jodaDateTime(String value) {
+    return JodaUtils.xsDatetimeParse(value).withZone(DateTimeZone.UTC).toString();
+  }
+
+  static String jodaDate(String value) {
+    return JodaUtils.xsDateParse(value).withTime(0, 0, 0, 0).withZone(DateTimeZone.UTC).toString();
+  }
+
+  static String jodaTime(String value) {
+    return JodaUtils.xsTimeParse(value).withDate(1970, 1, 1).withZone(DateTimeZone.UTC).toString();
+  }
+
+  /**
+   * Converts a xs:dateTime (e.g. 2000-01-01T12:30:00.123+01:00) to UTC.
+   */
+  public static String dateTimeToUTC(String value) {
+    final int length = value.length();
+    if (length < 19 || value.charAt(4) != '-' || value.charAt(7) != '-' || value.charAt(10) != 'T'
+      || value.charAt(13) != ':' || value.charAt(16) != ':') {
+      return jodaDateTime(value);
+    }
+
+    int year = digits(value, 0, 4);
+    int month = digits(value, 5, 2);
+    int day = digits(value, 8, 2);
+    int hour = digits(value, 11, 2);
+    int minute = digits(value, 14, 2);
+    int second = digits(value, 17, 2);
+    if (!isValidDate(year, month, day) || !isValidTime(hour, minute, second)) {
+      return jodaDateTime(value);
+    }
+
+    int position = 19;
+    int millis = 0;
+    if (position < length && value.charAt(position) == '.') {
+      int end = fractionEnd(value, position + 1);
+      millis = millis(value, position + 1, end);
+      if (millis < 0) {
+        return jodaDateTime(value);
+      }
+      position = end;
+    }
+
+    int offsetMinutes;
+    if (position == length) {
+      if (!DATETIME_WITHOUT_OFFSET_IS_UTC) {
+        return jodaDateTime(value);
+      }
+      offsetMinutes = 0;
+    } else {
+      offsetMinutes = DATETIME_OFFSET_IS_PARSED ? offsetMinutes(value, position) : Integer.MIN_VALUE;
+      if (offsetMinutes == Integer.MIN_VALUE) {
+        return jodaDateTime(value);
+      }
+    }
+
+    int minuteOfDay = hour * 60 + minute - offsetMinutes;
+    long epochDay = epochDay(year, month, day);
+    if (minuteOfDay < 0) {
+      minuteOfDay += 24 * 60;
+      epochDay--;
+    } else if (minuteOfDay >= 24 * 60) {
+      minuteOfDay -= 24 * 60;
+      epochDay++;
+    }
+
+    if (offsetMinutes != 0) {
+      // the date changed, obtain it again from the day
+      long date = civilDate(epochDay);
+      year = (int) (date / 10000);
+      month = (int) (date / 100 % 100);
+      day = (int) (date % 100);
+      if (year < MIN_YEAR || year > MAX_YEAR) {
+        return jodaDateTime(value);
+      }
+    }
+
+    return format(year, month, day, minuteOfDay / 60, minuteOfDay % 60, second, millis);
+  }
+
+  /**
+   * Converts a xs:date (e.g. 2000-01-01) to the UTC instant of its start.
+   */
+  public static String dateToUTC(String value) {
+    if (!DATE_WITHOUT_OFFSET_IS_UTC || value.length() != 10 || value.charAt(4) != '-' || value.charAt(7) != '-') {
+      return jodaDate(value);
+    }
+
+    int year = digits(value, 0, 4);
+    int month = digits(value, 5, 2);
+    int day = digits(value, 8, 2);
+    if (!isValidDate(year, month, day)) {
+      return jodaDate(value);
+    }
+
+    return format(year, month, day, 0, 0, 0, 0);
+  }
+
+  /**
+   * Converts a xs:time (e.g. 12:30:00.123) to UTC, on 1970-01-01.
+   */
+  public static String timeToUTC(String value) {
+    final int length = value.length();
+    if (!TIME_WITHOUT_OFFSET_IS_UTC || length < 8 || value.charAt(2) != ':' || value.charAt(5) != ':') {
+      return jodaTime(value);
+    }
+
+    int hour = digits(value, 0, 2);
+    int minute = digits(value, 3, 2);
+    int second = digits(value, 6, 2);
+    if (!isValidTime(hour, minute, second)) {
+      return jodaTime(value);
+    }
+
+    int millis = 0;
+    if (length > 8) {
+      int end = value.charAt(8) == '.' ? fractionEnd(value, 9) : 8;
+      millis = end == length ? millis(value, 9, end) : -1;
+      if (millis < 0) {
+        return jodaTime(value);
+      }
+    }
+
+    return format(1970, 1, 1, hour, minute, second, millis);
+  }
+
+  /**
+   * Removes any invisible control characters and unused code points (the
+   * Unicode "Other" category, as matched by \p{C}). A string without such
+   * characters is returned as is.
+   * <p>
+   * More info:
+   * https://en.wikipedia.org/wiki/Unicode_character_property#General_Category
+   */
+  public static String removeControlCharacters(String value) {
+    final int length = value.length();
+    int i = 0;
+    while (i < length) {
+      int codePoint = value.codePointAt(i);
+      if (isOther(codePoint)) {
+        break;
+      }
+      i += Character.charCount(codePoint);
+    }
+
+    if (i == length) {
+      return value;
+    }
+
+    StringBuilder builder = new StringBuilder(length);
+    builder.append(value, 0, i);
+    while (i < length) {
+      int codePoint = value.codePointAt(i);
+      if (!isOther(codePoint)) {
+        builder.appendCodePoint(codePoint);
+      }
+      i += Character.charCount(codePoint);
+    }
+    return builder.toString();
+  }
+
+  private static boolean isOther(int codePoint) {
+    // ASCII is checked first as it is the most common case
+    if (codePoint >= 0x20 && codePoint < 0x7F) {
+      return false;
+    }
+    switch (Character.getType(codePoint)) {
+      case Character.CONTROL:
+      case Character.FORMAT:
+      case Character.PRIVATE_USE:
+      case Character.SURROGATE:
+      case Character.UNASSIGNED:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * @return the value of the digits or -1 if some character is not a digit
+   */
+  private static int digits(String value, int start, int count) {
+    int result = 0;
+    for (int i = start; i < start + count; i++) {
+      char c = value.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      result = result * 10 + (c - '0');
+    }
+    return result;
+  }
+
+  private static int fractionEnd(String value, int start) {
+    int end = start;
+    while (end < value.length() && value.charAt(end) >= '0' && value.charAt(end) <= '9') {
+      end++;
+    }
+    return end;
+  }
+
+  /**
+   * @return the milliseconds of a fraction of 1 to 3 digits, or -1 for any
+   *         other fraction
+   */
+  private static int millis(String value, int start, int end) {
+    int count = end - start;
+    if (count < 1 || count > 3) {
+      return -1;
+    }
+    int result = digits(value, start, count);
+    for (int i = count; i < 3; i++) {
+      result *= 10;
+    }
+    return result;
+  }
+
+  /**
+   * @return the offset (Z, +hh:mm or -hh:mm) in minutes, or Integer.MIN_VALUE
+   *         if the rest of the value is not an offset
+   */
+  private static int offsetMinutes(String value, int position) {
+    int remaining = value.length() - position;
+    char sign = value.charAt(position);
+    if (remaining == 1 && sign == 'Z') {
+      return 0;
+    }
+    if (remaining != 6 || (sign != '+' && sign != '-') || value.charAt(position + 3) != ':') {
+      return Integer.MIN_VALUE;
+    }
+    int hours = digits(value, position + 1, 2);
+    int minutes = digits(value, position + 4, 2);
+    if (hours < 0 || hours > 23 || minutes < 0 || minutes > 59) {
+      return Integer.MIN_VALUE;
+    }
+    int offset = hours * 60 + minutes;
+    return sign == '-' ? -offset : offset;
+  }
+
+  private static boolean isValidTime(int hour, int minute, int second) {
+    return hour >= 0 && hour <= 23 && minute >= 0 && minute <= 59 && second >= 0 && second <= 59;
+  }
+
+  private static boolean isValidDate(int year, int month, int day) {
+    return year >= MIN_YEAR && year <= MAX_YEAR && month >= 1 && month <= 12 && day >= 1
+      && day <= daysInMonth(year, month);
+  }
+
+  private static int daysInMonth(int year, int month) {
+    switch (month) {
+      case 2:
+        return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+      case 4:
+      case 6:
+      case 9:
+      case 11:
+        return 30;
+      default:
+        return 31;
+    }
+  }
+
+  /**
+   * Days since 1970-01-01 of a date of the proleptic Gregorian calendar. See
+   * http://howardhinnant.github.io/date_algorithms.html#days_from_civil
+   */
+  private static long epochDay(int year, int month, int day) {
+    long y = month <= 2 ? year - 1 : year;
+    long era = (y >= 0 ? y : y - 399) / 400;
+    long yearOfEra = y - era * 400;
+    long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+    long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * 146097 + dayOfEra - DAYS_0000_TO_1970;
+  }
+
+  /**
+   * The inverse of {@link #epochDay}, returning the date as yyyyMMdd. See
+   * http://howardhinnant.github.io/date_algorithms.html#civil_from_days
+   */
+  private static long civilDate(long epochDay) {
+    long z = epochDay + DAYS_0000_TO_1970;
+    long era = (z >= 0 ? z : z - 146096) / 146097;
+    long dayOfEra = z - era * 146097;
+    long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+    long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    long mp = (5 * dayOfYear + 2) / 153;
+    long day = dayOfYear - (153 * mp + 2) / 5 + 1;
+    long month = mp < 10 ? mp + 3 : mp - 9;
+    long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+    return year * 10000 + month * 100 + day;
+  }
+
+  private static String format(int year, int month, int day, int hour, int minute, int second, int millis) {
+    char[] chars = new char[24];
+    put(chars, 0, year, 4);
+    chars[4] = '-';
+    put(chars, 5, month, 2);
+    chars[7] = '-';
+    put(chars, 8, day, 2);
+    chars[10] = 'T';
+    put(chars, 11, hour, 2);
+    chars[13] = ':';
+    put(chars, 14, minute, 2);
+    chars[16] = ':';
+    put(chars, 17, second, 2);
+    chars[19] = '.';
+    put(chars, 20, millis, 3);
+    chars[23] = 'Z';
+    return new String(chars);
+  }
+
+  private static void put(char[] chars, int start, int value, int count) {
+    for (int i = start + count - 1; i >= start; i--) {
+      chars[i] = (char) ('0' + value % 10);
+      value /= 10;
+    }
+  }
+}
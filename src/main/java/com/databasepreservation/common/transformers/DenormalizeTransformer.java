@@ -37,6 +37,7 @@ import com.databasepreservation.common.client.tools.FilterUtils;
 import com.databasepreservation.common.server.ViewerConfiguration;
 import com.databasepreservation.common.server.ViewerFactory;
 import com.databasepreservation.common.server.index.DatabaseRowsSolrManager;
+import com.databasepreservation.common.server.index.SolrQueryLane;
 import com.databasepreservation.common.server.index.utils.IterableIndexResult;
 import com.databasepreservation.common.server.index.utils.JsonTransformer;
 import com.databasepreservation.model.exception.ModuleException;
@@ -73,7 +74,8 @@ public class DenormalizeTransformer {
   private void cleanNestedDocuments() {
     Filter filter = FilterUtils.filterByTable(new Filter(), denormalizeConfiguration.getTableID());
 
-    IterableIndexResult allRows = solrManager.findAllRows(databaseUUID, filter, null, new ArrayList<>());
+    IterableIndexResult allRows = solrManager.findAllRows(databaseUUID, filter, null, new ArrayList<>(),
+      new HashMap<>(), SolrQueryLane.Type.BATCH);
     for (ViewerRow row : allRows) {
       solrManager.deleteNestedDocuments(databaseUUID, row.getUuid());
     }
@@ -173,7 +175,8 @@ public class DenormalizeTransformer {
       }
     }
 
-    IterableIndexResult sourceRows = solrManager.findAllRows(databaseUUID, filter, null, fieldsToReturn);
+    IterableIndexResult sourceRows = solrManager.findAllRows(databaseUUID, filter, null, fieldsToReturn,
+      new HashMap<>(), SolrQueryLane.Type.BATCH);
     long processedRows = 0;
     long rowToProcess = sourceRows.getTotalCount();
 
@@ -244,7 +247,8 @@ public class DenormalizeTransformer {
     fieldsToReturn.addAll(auxColumns);
     fieldsToReturn.addAll(columnsToDisplay);
 
-    IterableIndexResult nestedRows = solrManager.findAllRows(databaseUUID, resultingFilter, null, fieldsToReturn);
+    IterableIndexResult nestedRows = solrManager.findAllRows(databaseUUID, resultingFilter, null,
+      fieldsToReturn, new HashMap<>(), SolrQueryLane.Type.BATCH);
     for (ViewerRow nestedRow : nestedRows) {
       for (RelatedTablesConfiguration innerRelatedTable : relatedTable.getRelatedTables()) {
         queryOverRelatedTables(nestedRow, innerRelatedTable, nestedDocuments);
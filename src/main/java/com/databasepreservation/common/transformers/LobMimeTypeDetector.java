@@ -0,0 +1,250 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.transformers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.tika.Tika;
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.metadata.HttpHeaders;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.mime.MimeTypeException;
+import org.apache.tika.mime.MimeTypes;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.sax.BodyContentHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXException;
+
+import com.databasepreservation.common.client.models.status.collection.MimeTypeDetectionPolicy;
+import com.databasepreservation.common.client.models.structure.ViewerMimeType;
+import com.databasepreservation.common.server.ViewerConfiguration;
+
+/**
+ * Detects the MIME type of the LOBs of a database during ingest, according to
+ * a {@link MimeTypeDetectionPolicy}. The policy comes from the configuration
+ * and can be overridden per column. One detector is used per ingest, as it
+ * keeps the samples of each column and counts the detections saved by each
+ * policy.
+ */
+public class LobMimeTypeDetector {
+  private static final Logger LOGGER = LoggerFactory.getLogger(LobMimeTypeDetector.class);
+
+  private static final MimeTypeDetectionPolicy DEFAULT_POLICY = MimeTypeDetectionPolicy.FULL;
+  private static final int DEFAULT_PREFIX_BYTES = 64 * 1024;
+  private static final int DEFAULT_SAMPLE_SIZE = 10;
+  private static final boolean DEFAULT_DEFERRED = false;
+
+  private static final Tika tika = new Tika();
+
+  private final MimeTypeDetectionPolicy defaultPolicy;
+  private final int prefixBytes;
+  private final int sampleSize;
+
+  private final Map<String, ColumnSample> samples = new ConcurrentHashMap<>();
+
+  private final AtomicLong detections = new AtomicLong();
+  private final AtomicLong boundedParses = new AtomicLong();
+  private final AtomicLong reusedSamples = new AtomicLong();
+  private final AtomicLong skipped = new AtomicLong();
+
+  /**
+   * Provides a new stream over the contents of a LOB each time it is called.
+   */
+  public interface LobInputStreamProvider {
+    InputStream createInputStream() throws IOException;
+  }
+
+  public LobMimeTypeDetector() {
+    this(getConfiguredPolicy(),
+      ViewerConfiguration.getInstance().getViewerConfigurationAsInt(DEFAULT_PREFIX_BYTES,
+        ViewerConfiguration.PROPERTY_INGEST_MIME_DETECTION_PREFIX_BYTES),
+      ViewerConfiguration.getInstance().getViewerConfigurationAsInt(DEFAULT_SAMPLE_SIZE,
+        ViewerConfiguration.PROPERTY_INGEST_MIME_DETECTION_SAMPLE_SIZE));
+  }
+
+  public LobMimeTypeDetector(MimeTypeDetectionPolicy defaultPolicy, int prefixBytes, int sampleSize) {
+    this.defaultPolicy = defaultPolicy;
+    this.prefixBytes = Math.max(1, prefixBytes);
+    this.sampleSize = Math.max(1, sampleSize);
+  }
+
+  /**
+   * @return true if the MIME types are not detected during ingest, but
+   *         afterwards by the MIME type enrichment job
+   */
+  public static boolean isDeferred() {
+    return ViewerConfiguration.getInstance().getViewerConfigurationAsBoolean(DEFAULT_DEFERRED,
+      ViewerConfiguration.PROPERTY_INGEST_MIME_DETECTION_DEFERRED);
+  }
+
+  private static MimeTypeDetectionPolicy getConfiguredPolicy() {
+    String value = ViewerConfiguration.getInstance().getViewerConfigurationAsString(DEFAULT_POLICY.name(),
+      ViewerConfiguration.PROPERTY_INGEST_MIME_DETECTION);
+    try {
+      return MimeTypeDetectionPolicy.valueOf(value.trim().toUpperCase());
+    } catch (IllegalArgumentException e) {
+      LOGGER.warn("Unknown MIME type detection policy '{}', using {}", value, DEFAULT_POLICY);
+      return DEFAULT_POLICY;
+    }
+  }
+
+  /**
+   * Detects the MIME type of a LOB.
+   *
+   * @param tableId
+   *          the table of the LOB
+   * @param columnIndex
+   *          the column of the LOB
+   * @param columnPolicy
+   *          the policy of the column, or null to use the default one
+   * @param lob
+   *          provides the LOB contents
+   * @return the MIME type and extension, or null if detection is disabled for
+   *         the column
+   */
+  public ViewerMimeType detect(String tableId, int columnIndex, MimeTypeDetectionPolicy columnPolicy,
+    LobInputStreamProvider lob) throws IOException, MimeTypeException {
+    MimeTypeDetectionPolicy policy = columnPolicy != null ? columnPolicy : defaultPolicy;
+
+    switch (policy) {
+      case DISABLED:
+        skipped.incrementAndGet();
+        return null;
+      case FULL:
+        return detect(lob, false);
+      case SAMPLED:
+        ColumnSample sample = samples.computeIfAbsent(tableId + "." + columnIndex, k -> new ColumnSample());
+        ViewerMimeType agreed = sample.getAgreedMimeType(sampleSize);
+        if (agreed != null) {
+          reusedSamples.incrementAndGet();
+          return agreed;
+        }
+        ViewerMimeType detected = detect(lob, true);
+        sample.add(detected);
+        return detected;
+      case PREFIX:
+      default:
+        return detect(lob, true);
+    }
+  }
+
+  /**
+   * Counts a skipped detection if detection is disabled for the column, so the
+   * caller can avoid even opening the LOB.
+   *
+   * @return true if detection is disabled for the column
+   */
+  public boolean skipIfDisabled(MimeTypeDetectionPolicy columnPolicy) {
+    MimeTypeDetectionPolicy policy = columnPolicy != null ? columnPolicy : defaultPolicy;
+    if (MimeTypeDetectionPolicy.DISABLED.equals(policy)) {
+      skipped.incrementAndGet();
+      return true;
+    }
+    return false;
+  }
+
+  private ViewerMimeType detect(LobInputStreamProvider lob, boolean bounded) throws IOException, MimeTypeException {
+    detections.incrementAndGet();
+
+    String mimeType;
+    try (InputStream inputStream = open(lob, bounded)) {
+      mimeType = tika.detect(inputStream);
+    }
+    String fileExtension = MimeTypes.getDefaultMimeTypes().forName(mimeType).getExtension();
+
+    if (StringUtils.isAllBlank(fileExtension)) {
+      if (bounded) {
+        boundedParses.incrementAndGet();
+      }
+
+      try (InputStream inputStream = open(lob, bounded)) {
+        AutoDetectParser parser = new AutoDetectParser();
+        Metadata metadata = new Metadata();
+
+        boolean parsed = false;
+        try {
+          parser.parse(inputStream, new BodyContentHandler(), metadata, new ParseContext());
+          parsed = true;
+        } catch (SAXException | TikaException e) {
+          // a prefix is usually not a complete document, the content type is
+          // already known when the parser fails
+          if (!bounded) {
+            LOGGER.error("Could not calculate mimeType for special extensions", e);
+          }
+        }
+
+        String contentType = metadata.get(HttpHeaders.CONTENT_TYPE);
+        if (contentType != null && (parsed || bounded)) {
+          mimeType = contentType;
+          fileExtension = MimeTypes.getDefaultMimeTypes().forName(mimeType).getExtension();
+        }
+      }
+    }
+
+    return new ViewerMimeType(mimeType, fileExtension);
+  }
+
+  private InputStream open(LobInputStreamProvider lob, boolean bounded) throws IOException {
+    InputStream inputStream = lob.createInputStream();
+    return bounded ? new BoundedInputStream(inputStream, prefixBytes) : inputStream;
+  }
+
+  public void logStatistics(String databaseUUID) {
+    LOGGER.info(
+      "MIME type detection for database {}: {} LOBs detected ({} parsed from a prefix only), {} reused from the column"
+        + " samples, {} skipped by disabled columns",
+      databaseUUID, detections.get(), boundedParses.get(), reusedSamples.get(), skipped.get());
+  }
+
+  public long getDetections() {
+    return detections.get();
+  }
+
+  public long getBoundedParses() {
+    return boundedParses.get();
+  }
+
+  public long getReusedSamples() {
+    return reusedSamples.get();
+  }
+
+  public long getSkipped() {
+    return skipped.get();
+  }
+
+  /**
+   * The first detections of a column. Once enough LOBs were detected, their
+   * common MIME type (if any) is reused for the rest of the column.
+   */
+  private static class ColumnSample {
+    private int size = 0;
+    private ViewerMimeType mimeType = null;
+    private boolean agree = true;
+
+    synchronized void add(ViewerMimeType detected) {
+      if (size == 0) {
+        mimeType = detected;
+      } else if (!mimeType.equals(detected)) {
+        agree = false;
+      }
+      size++;
+    }
+
+    synchronized ViewerMimeType getAgreedMimeType(int sampleSize) {
+      return agree && size >= sampleSize ? mimeType : null;
+    }
+  }
+}
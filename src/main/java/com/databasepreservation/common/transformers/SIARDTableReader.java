@@ -0,0 +1,334 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.transformers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.solr.common.SolrInputDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.databasepreservation.common.client.ViewerConstants;
+import com.databasepreservation.common.client.models.status.collection.TableStatus;
+import com.databasepreservation.common.client.models.structure.ViewerMimeType;
+import com.databasepreservation.common.client.models.structure.ViewerType;
+import com.databasepreservation.common.client.tools.MimeTypeUtils;
+import com.databasepreservation.common.exceptions.ViewerException;
+import com.databasepreservation.common.server.ViewerFactory;
+import com.databasepreservation.common.server.storage.SIARDArchive;
+import com.databasepreservation.common.utils.LobManagerUtils;
+
+/**
+ * Reads the rows of a table from its XML inside a SIARD 2 archive
+ * ({@code content/schemaX/tableY/tableY.xml}) with StAX, converting each row
+ * directly to the document indexed in the rows collection. Neither the DBPTK
+ * row and cell models nor {@link com.databasepreservation.common.client.models.structure.ViewerRow}
+ * are built; the values are converted as
+ * {@link ToolkitStructure2ViewerStructure#getRow} does, using the conversion
+ * plan of the table.
+ *
+ * Only tables whose LOBs are inside the SIARD, in the folder of each LOB
+ * column, can be read (see {@link #canRead}). A reader must only be used by
+ * one thread, but several readers may read tables of the same archive at the
+ * same time.
+ */
+public class SIARDTableReader {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SIARDTableReader.class);
+
+  private static final String CONTENT_FOLDER = "content";
+  private static final String ROW_ELEMENT = "row";
+  private static final String FILE_ATTRIBUTE = "file";
+
+  private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
+  /**
+   * Receives the rows read, in order.
+   */
+  public interface RowConsumer {
+    void accept(long rowIndex, SolrInputDocument doc) throws ViewerException;
+  }
+
+  private final TableConversionPlan plan;
+  private final SIARDArchive siardArchive;
+  private final String databasePath;
+  private final LobMimeTypeDetector mimeTypeDetector;
+  private final ViewerType.dbTypes[] columnTypes;
+
+  /**
+   * @param plan
+   *          the conversion plan of the table
+   * @param siardArchive
+   *          the SIARD archive, kept open by the caller while reading
+   * @param mimeTypeDetector
+   *          the MIME type detector of the LOBs, or null if deferred
+   */
+  public SIARDTableReader(TableConversionPlan plan, SIARDArchive siardArchive, LobMimeTypeDetector mimeTypeDetector) {
+    this.plan = plan;
+    this.siardArchive = siardArchive;
+    this.databasePath = siardArchive.getPath().toString();
+    this.mimeTypeDetector = mimeTypeDetector;
+    this.columnTypes = new ViewerType.dbTypes[plan.getColumns().length];
+    for (int i = 0; i < columnTypes.length; i++) {
+      columnTypes[i] = plan.getTable().getColumns().get(i).getType().getDbType();
+    }
+  }
+
+  private static XMLInputFactory createInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    return factory;
+  }
+
+  public static String getTableEntryName(TableStatus tableStatus) {
+    return CONTENT_FOLDER + "/" + tableStatus.getSchemaFolder() + "/" + tableStatus.getTableFolder() + "/"
+      + tableStatus.getTableFolder() + ".xml";
+  }
+
+  /**
+   * Checks whether a table can be read: its XML is in the archive and every
+   * LOB column has its folder in the archive. The LOBs of a column without a
+   * folder are either all inside the XML or external to the SIARD, which is
+   * only known while reading, so those tables are left to DBPTK.
+   */
+  public static boolean canRead(SIARDArchive siardArchive, TableConversionPlan plan) {
+    final TableStatus tableStatus = plan.getTableStatus();
+    if (tableStatus.getSchemaFolder() == null || tableStatus.getTableFolder() == null
+      || siardArchive.getEntry(getTableEntryName(tableStatus)) == null) {
+      return false;
+    }
+
+    for (TableConversionPlan.ColumnPlan column : plan.getColumns()) {
+      ViewerType.dbTypes dbType = plan.getTable().getColumns().get(column.getIndex()).getType().getDbType();
+      if (isLob(dbType) && !siardArchive.hasFolder(CONTENT_FOLDER + "/" + tableStatus.getSchemaFolder() + "/"
+        + tableStatus.getTableFolder() + "/" + ViewerConstants.SIARD_LOB_FOLDER_PREFIX + (column.getIndex() + 1))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Reads all the rows of the table.
+   *
+   * @param firstRowIndex
+   *          the index of the first row of the table
+   * @param committedRowIndex
+   *          the rows up to this index are skipped, as they were already
+   *          committed by a previous ingest
+   * @param consumer
+   *          receives the documents of the rows not skipped
+   * @return the index after the last row of the table
+   */
+  public long read(long firstRowIndex, long committedRowIndex, RowConsumer consumer) throws ViewerException {
+    final String entryName = getTableEntryName(plan.getTableStatus());
+    final ZipEntry entry = siardArchive.getEntry(entryName);
+    if (entry == null) {
+      throw new ViewerException("Could not find " + entryName + " in the SIARD");
+    }
+
+    long rowIndex = firstRowIndex;
+    XMLStreamReader reader = null;
+    try (InputStream inputStream = siardArchive.getInputStream(entry)) {
+      reader = XML_INPUT_FACTORY.createXMLStreamReader(inputStream);
+      while (reader.hasNext()) {
+        if (reader.next() != XMLStreamConstants.START_ELEMENT || !ROW_ELEMENT.equals(reader.getLocalName())) {
+          continue;
+        }
+        if (Thread.currentThread().isInterrupted()) {
+          throw new ViewerException(
+            "The ingest of database " + plan.getDatabaseUUID() + " was cancelled");
+        }
+
+        if (rowIndex <= committedRowIndex) {
+          skipElement(reader);
+        } else {
+          consumer.accept(rowIndex, readRow(reader, rowIndex));
+        }
+        rowIndex++;
+      }
+    } catch (IOException | XMLStreamException e) {
+      throw new ViewerException("Could not read " + entryName + " from the SIARD", e);
+    } finally {
+      if (reader != null) {
+        try {
+          reader.close();
+        } catch (XMLStreamException e) {
+          LOGGER.debug("Could not close the reader of {}", entryName, e);
+        }
+      }
+    }
+    return rowIndex;
+  }
+
+  private SolrInputDocument readRow(XMLStreamReader reader, long rowIndex) throws XMLStreamException {
+    final String rowUUID = String.valueOf(rowIndex);
+    final TableConversionPlan.ColumnPlan[] columns = plan.getColumns();
+
+    SolrInputDocument doc = new SolrInputDocument();
+    doc.setField(ViewerConstants.INDEX_ID, rowUUID);
+    doc.setField(ViewerConstants.SOLR_ROWS_TABLE_ID, plan.getTable().getId());
+    doc.setField(ViewerConstants.SOLR_ROWS_TABLE_UUID, plan.getTable().getUuid());
+
+    while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+      final int colIndex = getColumnIndex(reader.getLocalName());
+      if (colIndex < 0 || colIndex >= columns.length || isComposed(columnTypes[colIndex])) {
+        // composed cells are not supported yet
+        skipElement(reader);
+        continue;
+      }
+
+      final TableConversionPlan.ColumnPlan column = columns[colIndex];
+      try {
+        if (isLob(columnTypes[colIndex])) {
+          readLobCell(reader, doc, column, columnTypes[colIndex], rowUUID);
+        } else {
+          doc.addField(column.getSolrName(), column.getConverter().convert(decode(reader.getElementText())));
+        }
+      } catch (ViewerException e) {
+        LOGGER.error("Problem converting cell, omitted it (as if it were NULL)", e);
+      }
+    }
+    return doc;
+  }
+
+  private void readLobCell(XMLStreamReader reader, SolrInputDocument doc, TableConversionPlan.ColumnPlan column,
+    ViewerType.dbTypes dbType, String rowUUID) throws XMLStreamException, ViewerException {
+    final String file = reader.getAttributeValue(null, FILE_ATTRIBUTE);
+    final String value;
+    final String lobName;
+    if (file != null) {
+      // LOB inside the SIARD, in the folder of the column
+      skipElement(reader);
+      lobName = file.substring(file.lastIndexOf('/') + 1);
+      value = lobName;
+    } else if (dbType == ViewerType.dbTypes.BINARY) {
+      // BLOB inside the XML, stored in the LOB store
+      final String text = reader.getElementText();
+      final Path storedLobPath = LobManagerUtils.getConsolidatedPath(ViewerFactory.getViewerConfiguration(),
+        plan.getDatabaseUUID(), plan.getTable().getId(), column.getIndex(), rowUUID);
+      try {
+        Files.createDirectories(storedLobPath.getParent());
+        Files.write(storedLobPath, Hex.decodeHex(text.trim().toCharArray()));
+      } catch (DecoderException e) {
+        throw new ViewerException("Could not decode the LOB of row " + rowUUID, e);
+      } catch (IOException e) {
+        throw new ViewerException("Could not store the LOB in " + storedLobPath, e);
+      }
+      lobName = LobManagerUtils.getDefaultFilename(rowUUID);
+      value = LobManagerUtils.getStoredLobReference(storedLobPath);
+    } else {
+      // CLOB inside the XML, indexed as text
+      doc.addField(column.getSolrName(), column.getConverter().convert(decode(reader.getElementText())));
+      return;
+    }
+
+    column.setExternalLob(false);
+    doc.addField(column.getSolrName(), value);
+
+    ViewerMimeType mimeType = ToolkitStructure2ViewerStructure.detectLobMimeType(plan, column, rowUUID, value,
+      lobName, true, databasePath, mimeTypeDetector);
+    if (mimeType != null) {
+      String solrColumnName = column.getStatus().getId();
+      doc.addField(MimeTypeUtils.getMimeTypeSolrName(solrColumnName), mimeType.getMimeType());
+      doc.addField(MimeTypeUtils.getFileExtensionSolrName(solrColumnName), mimeType.getFileExtension());
+    }
+  }
+
+  /**
+   * @return the index of the column of a cell element ({@code c1} is the
+   *         first), or -1 if it is not a cell
+   */
+  static int getColumnIndex(String elementName) {
+    if (elementName.length() < 2 || elementName.charAt(0) != 'c') {
+      return -1;
+    }
+    int index = 0;
+    for (int i = 1; i < elementName.length(); i++) {
+      char c = elementName.charAt(i);
+      if (c < '0' || c > '9' || index > (Integer.MAX_VALUE - (c - '0')) / 10) {
+        return -1;
+      }
+      index = index * 10 + (c - '0');
+    }
+    return index - 1;
+  }
+
+  private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+    int depth = 1;
+    while (depth > 0) {
+      int event = reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        depth++;
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+      }
+    }
+  }
+
+  private static boolean isLob(ViewerType.dbTypes dbType) {
+    return dbType == ViewerType.dbTypes.BINARY || dbType == ViewerType.dbTypes.CLOB;
+  }
+
+  private static boolean isComposed(ViewerType.dbTypes dbType) {
+    return dbType == ViewerType.dbTypes.COMPOSED_ARRAY || dbType == ViewerType.dbTypes.COMPOSED_STRUCTURE
+      || dbType == ViewerType.dbTypes.NESTED;
+  }
+
+  /**
+   * Decodes the escapes used in SIARD for the characters that cannot be in XML
+   * and for the backslash ({@code \}).
+   */
+  static String decode(String value) {
+    int escape = value.indexOf('\\');
+    if (escape < 0) {
+      return value;
+    }
+
+    StringBuilder builder = new StringBuilder(value.length());
+    int start = 0;
+    while (escape >= 0) {
+      // a backslash that is not followed by u and 4 hexadecimal digits is kept as is
+      int c = escape + 6 <= value.length() && value.charAt(escape + 1) == 'u' ? parseHex(value, escape + 2) : -1;
+      if (c >= 0) {
+        builder.append(value, start, escape).append((char) c);
+        start = escape + 6;
+      }
+      escape = value.indexOf('\\', Math.max(start, escape + 1));
+    }
+    return builder.append(value, start, value.length()).toString();
+  }
+
+  /**
+   * @return the value of the 4 hexadecimal digits at the index, or -1 if they
+   *         are not all hexadecimal digits, e.g. a sign
+   */
+  private static int parseHex(String value, int index) {
+    int c = 0;
+    for (int i = index; i < index + 4; i++) {
+      int digit = Character.digit(value.charAt(i), 16);
+      if (digit < 0) {
+        return -1;
+      }
+      c = c * 16 + digit;
+    }
+    return c;
+  }
+}
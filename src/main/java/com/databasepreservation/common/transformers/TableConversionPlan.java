@@ -0,0 +1,167 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.transformers;
+
+import java.util.List;
+
+import com.databasepreservation.common.client.models.status.collection.CollectionStatus;
+import com.databasepreservation.common.client.models.status.collection.ColumnStatus;
+import com.databasepreservation.common.client.models.status.collection.TableStatus;
+import com.databasepreservation.common.client.models.structure.ViewerColumn;
+import com.databasepreservation.common.client.models.structure.ViewerTable;
+import com.databasepreservation.common.client.models.structure.ViewerType;
+
+/**
+ * Everything needed to convert the rows of a table that does not change from
+ * row to row, resolved once when the table is opened: the table status and,
+ * for each column by position, its Solr name, status and value converter.
+ *
+ * The column status flags set during ingest (LOB location, auto-detected MIME
+ * type) are only updated when they change, instead of on every row. A plan
+ * must only be used by one thread at a time.
+ */
+public class TableConversionPlan {
+  private final CollectionStatus collectionConfiguration;
+  private final ViewerTable table;
+  private final TableStatus tableStatus;
+  private final ColumnPlan[] columns;
+
+  public TableConversionPlan(CollectionStatus collectionConfiguration, ViewerTable table) {
+    this.collectionConfiguration = collectionConfiguration;
+    this.table = table;
+    this.tableStatus = collectionConfiguration.getTableStatusByTableId(table.getId());
+
+    List<ViewerColumn> viewerColumns = table.getColumns();
+    this.columns = new ColumnPlan[viewerColumns.size()];
+    for (int i = 0; i < columns.length; i++) {
+      columns[i] = new ColumnPlan(i, viewerColumns.get(i), tableStatus.getColumnByIndex(i));
+    }
+  }
+
+  public String getDatabaseUUID() {
+    return collectionConfiguration.getDatabaseUUID();
+  }
+
+  public ViewerTable getTable() {
+    return table;
+  }
+
+  public TableStatus getTableStatus() {
+    return tableStatus;
+  }
+
+  public ColumnPlan[] getColumns() {
+    return columns;
+  }
+
+  /**
+   * Converts the value of a simple cell to the value that is indexed.
+   */
+  public enum ValueConverter {
+    DATETIME {
+      @Override
+      public String convert(String value) {
+        return CellValueConverters.dateTimeToUTC(value);
+      }
+    },
+    DATE {
+      @Override
+      public String convert(String value) {
+        return CellValueConverters.dateToUTC(value);
+      }
+    },
+    TIME {
+      @Override
+      public String convert(String value) {
+        return CellValueConverters.timeToUTC(value);
+      }
+    },
+    TEXT {
+      @Override
+      public String convert(String value) {
+        return CellValueConverters.removeControlCharacters(value);
+      }
+    };
+
+    public abstract String convert(String value);
+
+    static ValueConverter forType(ViewerType.dbTypes dbType) {
+      if (dbType == null) {
+        return TEXT;
+      }
+      switch (dbType) {
+        case DATETIME:
+          return DATETIME;
+        case DATETIME_JUST_DATE:
+          return DATE;
+        case DATETIME_JUST_TIME:
+          return TIME;
+        default:
+          return TEXT;
+      }
+    }
+  }
+
+  /**
+   * The conversion of a column.
+   */
+  public class ColumnPlan {
+    private final int index;
+    private final String solrName;
+    private final ColumnStatus status;
+    private final ValueConverter converter;
+
+    private Boolean externalLob = null;
+    private boolean mimeTypeDetected = false;
+
+    ColumnPlan(int index, ViewerColumn viewerColumn, ColumnStatus status) {
+      this.index = index;
+      this.solrName = viewerColumn.getSolrName();
+      this.status = status;
+      this.converter = ValueConverter.forType(viewerColumn.getType().getDbType());
+    }
+
+    public int getIndex() {
+      return index;
+    }
+
+    public String getSolrName() {
+      return solrName;
+    }
+
+    public ColumnStatus getStatus() {
+      return status;
+    }
+
+    public ValueConverter getConverter() {
+      return converter;
+    }
+
+    /**
+     * Sets where the LOBs of the column are stored, when it changes.
+     */
+    public void setExternalLob(boolean external) {
+      if (externalLob == null || externalLob != external) {
+        status.setExternalLob(external);
+        externalLob = external;
+      }
+    }
+
+    /**
+     * Sets the column to use the auto-detected MIME types of its LOBs, on the
+     * first detection.
+     */
+    public void setMimeTypeDetected() {
+      if (!mimeTypeDetected) {
+        collectionConfiguration.updateColumnMimeType(table.getUuid(), index);
+        collectionConfiguration.updateLobFileName(table.getUuid(), index);
+        mimeTypeDetected = true;
+      }
+    }
+  }
+}
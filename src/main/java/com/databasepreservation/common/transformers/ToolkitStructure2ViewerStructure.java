@@ -7,11 +7,11 @@
  */
 package com.databasepreservation.common.transformers;
 
-import java.io.ByteArrayInputStream;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -20,29 +20,17 @@ import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
-import org.apache.commons.codec.binary.Base64;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
-import org.apache.tika.Tika;
-import org.apache.tika.exception.TikaException;
-import org.apache.tika.metadata.Metadata;
 import org.apache.tika.mime.MimeTypeException;
-import org.apache.tika.mime.MimeTypes;
-import org.apache.tika.parser.AutoDetectParser;
-import org.apache.tika.parser.ParseContext;
-import org.apache.tika.sax.BodyContentHandler;
 import org.joda.time.DateTimeZone;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.xml.sax.SAXException;
 
 import com.databasepreservation.common.client.ViewerConstants;
-import com.databasepreservation.common.client.models.status.collection.CollectionStatus;
-import com.databasepreservation.common.client.models.status.collection.TableStatus;
+import com.databasepreservation.common.client.models.status.collection.ColumnStatus;
 import com.databasepreservation.common.client.models.structure.ViewerCandidateKey;
 import com.databasepreservation.common.client.models.structure.ViewerCell;
 import com.databasepreservation.common.client.models.structure.ViewerCheckConstraint;
@@ -72,6 +60,7 @@ import com.databasepreservation.common.io.providers.PathInputStreamProvider;
 import com.databasepreservation.common.io.providers.TemporaryPathInputStreamProvider;
 import com.databasepreservation.common.server.ViewerFactory;
 import com.databasepreservation.common.server.index.utils.SolrUtils;
+import com.databasepreservation.common.server.storage.SIARDArchive;
 import com.databasepreservation.common.utils.LobManagerUtils;
 import com.databasepreservation.common.utils.ViewerUtils;
 import com.databasepreservation.model.data.BinaryCell;
@@ -108,7 +97,6 @@ import com.databasepreservation.model.structure.type.SimpleTypeNumericApproximat
 import com.databasepreservation.model.structure.type.SimpleTypeNumericExact;
 import com.databasepreservation.model.structure.type.SimpleTypeString;
 import com.databasepreservation.model.structure.type.Type;
-import com.databasepreservation.utils.JodaUtils;
 import com.databasepreservation.utils.XMLUtils;
 
 /**
@@ -122,7 +110,6 @@ public class ToolkitStructure2ViewerStructure {
   private static boolean simpleMetadata = false;
   private static final Pattern rowIndexPattern = Pattern.compile("^(.*\\.)?(\\d+)$");
 
-  private static final Tika tika = new Tika();
   private static String currentTable;
 
   /**
@@ -742,8 +729,9 @@ public class ToolkitStructure2ViewerStructure {
     return result;
   }
 
-  public static ViewerRow getRow(CollectionStatus collectionConfiguration, ViewerTable table, Row row, long rowIndex,
-    String databasePath) {
+  public static ViewerRow getRow(TableConversionPlan plan, Row row, long rowIndex, String databasePath,
+    LobMimeTypeDetector mimeTypeDetector) {
+    ViewerTable table = plan.getTable();
     setCurrentTable(table);
 
     ViewerRow result = new ViewerRow();
@@ -752,7 +740,7 @@ public class ToolkitStructure2ViewerStructure {
     result.setTableId(table.getId());
     result.setTableUUID(table.getUuid());
     result.setUuid(rowUUID);
-    result.setCells(getCells(collectionConfiguration, table, row, databasePath, result));
+    result.setCells(getCells(plan, row, databasePath, result, mimeTypeDetector));
     return result;
   }
 
@@ -762,17 +750,17 @@ public class ToolkitStructure2ViewerStructure {
     }
   }
 
-  private static Map<String, ViewerCell> getCells(CollectionStatus collectionConfiguration, ViewerTable table, Row row,
-    String databasePath, ViewerRow actualViewerRow) {
-    Map<String, ViewerCell> result = new LinkedHashMap<>();
+  private static Map<String, ViewerCell> getCells(TableConversionPlan plan, Row row, String databasePath,
+    ViewerRow actualViewerRow, LobMimeTypeDetector mimeTypeDetector) {
+    TableConversionPlan.ColumnPlan[] columns = plan.getColumns();
+    Map<String, ViewerCell> result = new LinkedHashMap<>(columns.length * 4 / 3 + 1);
 
-    int colIndex = 0;
     List<Cell> toolkitCells = row.getCells();
-    for (ViewerColumn viewerColumn : table.getColumns()) {
-      String solrColumnName = viewerColumn.getSolrName();
+    for (int colIndex = 0; colIndex < columns.length; colIndex++) {
+      TableConversionPlan.ColumnPlan column = columns[colIndex];
       try {
-        result.put(solrColumnName, getCell(collectionConfiguration, table, toolkitCells.get(colIndex), colIndex++,
-          databasePath, actualViewerRow));
+        result.put(column.getSolrName(), getCell(plan, column, toolkitCells.get(colIndex), databasePath,
+          actualViewerRow, mimeTypeDetector));
       } catch (ViewerException e) {
         LOGGER.error("Problem converting cell, omitted it (as if it were NULL)", e);
       }
@@ -781,36 +769,34 @@ public class ToolkitStructure2ViewerStructure {
     return result;
   }
 
-  private static ViewerCell getCell(CollectionStatus collectionConfiguration, ViewerTable table, Cell cell,
-    int colIndex, String databasePath, ViewerRow actualViewerRow) throws ViewerException {
+  private static ViewerCell getCell(TableConversionPlan plan, TableConversionPlan.ColumnPlan column, Cell cell,
+    String databasePath, ViewerRow actualViewerRow, LobMimeTypeDetector mimeTypeDetector) throws ViewerException {
     ViewerCell result = new ViewerCell();
 
-    ViewerType columnType = table.getColumns().get(colIndex).getType();
-
     if (cell instanceof BinaryCell) {
       BinaryCell binaryCell = (BinaryCell) cell;
       if (binaryCell.getInputStreamProvider() instanceof TemporaryPathInputStreamProvider) {
-        // BLOB is internal to the SIARD and is stored inside table.xml
+        // BLOB is internal to the SIARD and is stored inside table.xml, it is
+        // streamed to the LOB store and the index only keeps a reference to it
         TemporaryPathInputStreamProvider temporaryPathInputStreamProvider = (TemporaryPathInputStreamProvider) binaryCell
           .getInputStreamProvider();
-        try {
-          final InputStream inputStream = temporaryPathInputStreamProvider.createInputStream();
-          byte[] bytes = IOUtils.toByteArray(inputStream);
-          final String encodeBase64String = Base64.encodeBase64String(bytes);
-          result.setValue(ViewerConstants.SIARD_EMBEDDED_LOB_PREFIX + encodeBase64String);
-          collectionConfiguration.getTableStatusByTableId(table.getId()).getColumnByIndex(colIndex)
-            .setExternalLob(false);
-          String index = getRowIndex(cell.getId());
-          String lobName = ViewerConstants.SIARD_RECORD_PREFIX + index + ViewerConstants.SIARD_LOB_FILE_EXTENSION;
-
-          detectMimeType(actualViewerRow, result, databasePath, collectionConfiguration, table, colIndex, lobName,
-            true);
-
+        final Path storedLobPath = LobManagerUtils.getConsolidatedPath(ViewerFactory.getViewerConfiguration(),
+          plan.getDatabaseUUID(), plan.getTable().getId(), column.getIndex(), actualViewerRow.getUuid());
+        try (InputStream inputStream = temporaryPathInputStreamProvider.createInputStream()) {
+          Files.createDirectories(storedLobPath.getParent());
+          Files.copy(inputStream, storedLobPath, StandardCopyOption.REPLACE_EXISTING);
         } catch (ModuleException e) {
           throw new ViewerException(e.getMessage(), e);
         } catch (IOException e) {
-          throw new ViewerException("Could not convert the LOB to BASE64", e);
+          throw new ViewerException("Could not store the LOB in " + storedLobPath, e);
         }
+
+        result.setValue(LobManagerUtils.getStoredLobReference(storedLobPath));
+        column.setExternalLob(false);
+        String index = getRowIndex(cell.getId());
+        String lobName = ViewerConstants.SIARD_RECORD_PREFIX + index + ViewerConstants.SIARD_LOB_FILE_EXTENSION;
+
+        detectMimeType(actualViewerRow, result, databasePath, plan, column, lobName, true, mimeTypeDetector);
       } else if (binaryCell.getInputStreamProvider() instanceof PathInputStreamProvider) {
         // BLOB is external to the SIARD
 
@@ -820,18 +806,18 @@ public class ToolkitStructure2ViewerStructure {
         String index = getRowIndex(cell.getId());
         String lobName = ViewerConstants.SIARD_RECORD_PREFIX + index + ViewerConstants.SIARD_LOB_FILE_EXTENSION;
         result.setValue(siardFilesPath.relativize(lobPath).normalize().toString());
-        collectionConfiguration.getTableStatusByTableId(table.getId()).getColumnByIndex(colIndex).setExternalLob(true);
+        column.setExternalLob(true);
 
-        detectMimeType(actualViewerRow, result, databasePath, collectionConfiguration, table, colIndex, lobName, false);
+        detectMimeType(actualViewerRow, result, databasePath, plan, column, lobName, false, mimeTypeDetector);
 
       } else {
         // BLOB is internal to the SIARD but is stored outside the table.xml (Normal)
         String index = getRowIndex(cell.getId());
         String lobName = ViewerConstants.SIARD_RECORD_PREFIX + index + ViewerConstants.SIARD_LOB_FILE_EXTENSION;
         result.setValue(lobName);
-        collectionConfiguration.getTableStatusByTableId(table.getId()).getColumnByIndex(colIndex).setExternalLob(false);
+        column.setExternalLob(false);
 
-        detectMimeType(actualViewerRow, result, databasePath, collectionConfiguration, table, colIndex, lobName, true);
+        detectMimeType(actualViewerRow, result, databasePath, plan, column, lobName, true, mimeTypeDetector);
 
       }
     } else if (cell instanceof ComposedCell) {
@@ -840,21 +826,7 @@ public class ToolkitStructure2ViewerStructure {
       // TODO: composed cell
     } else if (cell instanceof SimpleCell) {
       SimpleCell simpleCell = (SimpleCell) cell;
-      String simpleData = simpleCell.getSimpleData();
-
-      switch (columnType.getDbType()) {
-        case DATETIME:
-          result.setValue(JodaUtils.xsDatetimeParse(simpleData).withZone(DateTimeZone.UTC).toString());
-          break;
-        case DATETIME_JUST_DATE:
-          result.setValue(JodaUtils.xsDateParse(simpleData).withTime(0, 0, 0, 0).withZone(DateTimeZone.UTC).toString());
-          break;
-        case DATETIME_JUST_TIME:
-          result.setValue(JodaUtils.xsTimeParse(simpleData).withDate(1970, 1, 1).withZone(DateTimeZone.UTC).toString());
-          break;
-        default:
-          result.setValue(removeUnicode(simpleCell.getSimpleData()));
-      }
+      result.setValue(column.getConverter().convert(simpleCell.getSimpleData()));
     } else if (!(cell instanceof NullCell)) {
       // nothing to do for null cells
       throw new ViewerException("Unexpected cell type");
@@ -863,70 +835,92 @@ public class ToolkitStructure2ViewerStructure {
     return result;
   }
 
-  private static void detectMimeType(ViewerRow row, ViewerCell cell, String databasePath,
-    CollectionStatus collectionConfiguration, ViewerTable table, int colIndex, String lobName,
-    boolean blobIsInsideSiard) {
-    try {
-      String mimeType;
-      String fileExtension;
-      InputStream inputStream;
+  private static void detectMimeType(ViewerRow row, ViewerCell cell, String databasePath, TableConversionPlan plan,
+    TableConversionPlan.ColumnPlan column, String lobName, boolean blobIsInsideSiard,
+    LobMimeTypeDetector mimeTypeDetector) {
+    ViewerMimeType viewerMimeType = detectLobMimeType(plan, column, row.getUuid(), cell.getValue(), lobName,
+      blobIsInsideSiard, databasePath, mimeTypeDetector);
+    if (viewerMimeType == null) {
+      return;
+    }
 
-      TableStatus tableStatus = collectionConfiguration.getTableStatusByTableId(table.getId());
-      String siardLobPath = LobManagerUtils.getZipFilePath(tableStatus, colIndex, lobName);
+    cell.setMimeType(viewerMimeType.getMimeType());
+    cell.setFileExtension(viewerMimeType.getFileExtension());
 
-      ZipFile zipFile = new ZipFile(databasePath);
-      ZipEntry entry = zipFile.getEntry(siardLobPath);
+    row.addMimeTypeListEntry(column.getStatus().getId(), viewerMimeType);
+  }
+
+  /**
+   * Detects the MIME type of a LOB cell, unless the detection is deferred or
+   * disabled for the column, and marks the column as having auto-detected MIME
+   * types.
+   *
+   * @param rowUUID
+   *          the UUID of the row of the cell
+   * @param lobCellValue
+   *          the value indexed for the cell
+   * @param lobName
+   *          the name of the LOB file inside the SIARD
+   * @param blobIsInsideSiard
+   *          false if the LOB is external to the SIARD
+   * @return the MIME type or null if not detected
+   */
+  public static ViewerMimeType detectLobMimeType(TableConversionPlan plan, TableConversionPlan.ColumnPlan column,
+    String rowUUID, String lobCellValue, String lobName, boolean blobIsInsideSiard, String databasePath,
+    LobMimeTypeDetector mimeTypeDetector) {
+    if (mimeTypeDetector == null) {
+      // detected later, by the MIME type enrichment job
+      return null;
+    }
 
-      String lobCellValue = cell.getValue();
+    ColumnStatus columnStatus = column.getStatus();
+    if (mimeTypeDetector.skipIfDisabled(columnStatus.getMimeTypeDetection())) {
+      return null;
+    }
 
-      if (entry != null && blobIsInsideSiard) {
-        inputStream = zipFile.getInputStream(entry);
-      } else if (blobIsInsideSiard) {
-        lobCellValue = lobCellValue.replace(ViewerConstants.SIARD_EMBEDDED_LOB_PREFIX, "");
-        inputStream = new ByteArrayInputStream(Base64.decodeBase64(lobCellValue.getBytes()));
+    final String tableId = plan.getTable().getId();
+    final boolean lobIsStored = LobManagerUtils.isLobStored(lobCellValue);
+
+    try (SIARDArchive siardArchive = blobIsInsideSiard && !lobIsStored ? SIARDArchive.open(databasePath) : null) {
+      final ZipEntry entry;
+      final Path lobPath;
+      if (lobIsStored) {
+        entry = null;
+        lobPath = LobManagerUtils.getConsolidatedPath(ViewerFactory.getViewerConfiguration(), plan.getDatabaseUUID(),
+          tableId, column.getIndex(), rowUUID);
+      } else if (siardArchive != null) {
+        entry = siardArchive
+          .getEntry(LobManagerUtils.getZipFilePath(plan.getTableStatus(), column.getIndex(), lobName));
+        lobPath = null;
       } else {
-        lobCellValue = cell.getValue();
-        inputStream = new FileInputStream(lobCellValue);
+        entry = null;
+        lobPath = ViewerFactory.getViewerConfiguration().getSIARDFilesPath().resolve(lobCellValue);
       }
 
-      mimeType = tika.detect(inputStream);
-      fileExtension = MimeTypes.getDefaultMimeTypes().forName(mimeType).getExtension();
-
-      if (StringUtils.isAllBlank(fileExtension)) {
-        try {
-          if (blobIsInsideSiard) {
-            inputStream = zipFile.getInputStream(entry);
-          } else {
-            inputStream = new FileInputStream(lobCellValue);
-          }
-
-          AutoDetectParser parser = new AutoDetectParser();
-          Metadata metadata = new Metadata();
-
-          parser.parse(inputStream, new BodyContentHandler(), metadata, new ParseContext());
-          mimeType = metadata.get("Content-Type");
-          fileExtension = MimeTypes.getDefaultMimeTypes().forName(mimeType).getExtension();
-
-        } catch (SAXException | TikaException e) {
-          LOGGER.error("Could not calculate mimeType for special extensions in the cell: [{}]", cell.getValue(), e);
-        }
+      ViewerMimeType viewerMimeType = mimeTypeDetector.detect(tableId, column.getIndex(),
+        columnStatus.getMimeTypeDetection(), () -> openLobInputStream(siardArchive, entry, lobPath));
+      if (viewerMimeType != null) {
+        column.setMimeTypeDetected();
       }
-
-      zipFile.close();
-
-      cell.setMimeType(mimeType);
-      cell.setFileExtension(fileExtension);
-
-      collectionConfiguration.updateColumnMimeType(table.getUuid(), colIndex);
-      collectionConfiguration.updateLobFileName(table.getUuid(), colIndex);
-
-      ViewerMimeType viewerMimeType = new ViewerMimeType(mimeType, fileExtension);
-      String colName = collectionConfiguration.getTableStatusByTableId(table.getId()).getColumnByIndex(colIndex)
-        .getId();
-      row.addMimeTypeListEntry(colName, viewerMimeType);
-
+      return viewerMimeType;
     } catch (IOException | MimeTypeException e) {
-      LOGGER.error("Could not calculate mimeType for cell: [" + cell.getValue() + "]", e);
+      LOGGER.error("Could not calculate mimeType for cell: [" + lobCellValue + "]", e);
+      return null;
+    }
+  }
+
+  /**
+   * Opens the LOB from the file system (LOB store or external LOB) or, when
+   * it is inside the SIARD, from its entry.
+   */
+  private static InputStream openLobInputStream(SIARDArchive siardArchive, ZipEntry entry, Path lobPath)
+    throws IOException {
+    if (lobPath != null) {
+      return Files.newInputStream(lobPath);
+    } else if (entry != null) {
+      return siardArchive.getInputStream(entry);
+    } else {
+      throw new IOException("Zip archive entry is missing");
     }
   }
 
@@ -939,14 +933,6 @@ public class ToolkitStructure2ViewerStructure {
     throw new ViewerException("Could not obtain row index for cell with id: " + cellId);
   }
 
-  private static String removeUnicode(String string) {
-    // remove any invisible control characters and unused code characters.
-    // based on: http://stackoverflow.com/a/11021262/1483200
-    // more info:
-    // https://en.wikipedia.org/wiki/Unicode_character_property#General_Category
-    return string.replaceAll("\\p{C}", "");
-  }
-
   /**
    * Helper class to hold references to schemas and columns, even in different
    * schemas
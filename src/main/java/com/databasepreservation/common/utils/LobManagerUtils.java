@@ -25,6 +25,28 @@ public class LobManagerUtils {
     return lobCellValue.startsWith(ViewerConstants.SIARD_EMBEDDED_LOB_PREFIX);
   }
 
+  /**
+   * LOBs stored inside the table.xml are copied to the LOB store during ingest
+   * (to the same location as consolidated LOBs) and the cell only keeps a
+   * reference to them.
+   */
+  public static boolean isLobStored(TableStatus config, ViewerRow row, int columnIndex) {
+    return isLobStored(getLobCellValue(config, row, columnIndex));
+  }
+
+  public static boolean isLobStored(String lobCellValue) {
+    return lobCellValue != null && lobCellValue.startsWith(ViewerConstants.SIARD_STORED_LOB_PREFIX);
+  }
+
+  public static String getStoredLobReference(Path storedLobPath) {
+    return ViewerConstants.SIARD_STORED_LOB_PREFIX + storedLobPath.getFileName().toString();
+  }
+
+  public static Path getStoredLobPath(ViewerAbstractConfiguration configuration, String databaseUUID,
+    TableStatus config, int columnIndex, ViewerRow row) {
+    return getConsolidatedPath(configuration, databaseUUID, config.getId(), columnIndex, row.getUuid());
+  }
+
   public static String getLobCellValue(TableStatus config, ViewerRow row, int columnIndex) {
     return row.getCells().get(config.getColumnByIndex(columnIndex).getId()).getValue();
   }
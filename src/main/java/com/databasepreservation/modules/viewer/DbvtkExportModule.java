@@ -7,13 +7,16 @@
  */
 package com.databasepreservation.modules.viewer;
 
-import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import org.apache.solr.client.solrj.SolrServerException;
 import org.roda.core.data.exceptions.GenericException;
 import org.roda.core.data.exceptions.NotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.databasepreservation.common.client.models.status.collection.CollectionStatus;
 import com.databasepreservation.common.client.models.status.collection.LargeObjectConsolidateProperty;
@@ -21,7 +24,12 @@ import com.databasepreservation.common.client.models.structure.ViewerDatabase;
 import com.databasepreservation.common.client.models.structure.ViewerTable;
 import com.databasepreservation.common.server.ViewerFactory;
 import com.databasepreservation.common.server.index.DatabaseRowsSolrManager;
+import com.databasepreservation.common.server.index.OfflineRowsIndexBuilder;
+import com.databasepreservation.common.server.index.RowsWriter;
+import com.databasepreservation.common.server.index.factory.SolrClientFactory;
 import com.databasepreservation.common.server.index.schema.SolrRowsCollectionRegistry;
+import com.databasepreservation.common.transformers.LobMimeTypeDetector;
+import com.databasepreservation.common.transformers.TableConversionPlan;
 import com.databasepreservation.common.transformers.ToolkitStructure2ViewerStructure;
 import com.databasepreservation.model.data.Row;
 import com.databasepreservation.model.exception.ModuleException;
@@ -35,25 +43,106 @@ import com.databasepreservation.modules.DefaultExceptionNormalizer;
  * @author Bruno Ferreira <bferreira@keep.pt>
  */
 public class DbvtkExportModule implements DatabaseFilterModule {
+  private static final Logger LOGGER = LoggerFactory.getLogger(DbvtkExportModule.class);
+
   private final DatabaseRowsSolrManager solrManager;
   private CollectionStatus collectionConfiguration;
   private ViewerDatabase retrieved;
   private ViewerTable currentTable;
+  private TableConversionPlan currentTablePlan;
+  private RowsWriter rowsWriter;
   private String databaseUUID;
   private long rowIndex = 1;
+  private long endRowIndex = Long.MAX_VALUE;
+  private final boolean partial;
+  private Map<String, Long> firstRowIndexByTableId;
+  private final LobMimeTypeDetector mimeTypeDetector;
+  private final IngestCheckpointRecorder checkpointRecorder;
+  private final List<String> completedTableIds = new ArrayList<>();
+  private boolean skipCurrentTable;
+  private long committedRowIndex;
+  private long rowsSinceCheckpoint;
 
   public DbvtkExportModule(String databaseUUID) {
+    this(databaseUUID, null, null, null);
+  }
+
+  /**
+   * @param databaseUUID
+   *          the database UUID
+   * @param sharedConfiguration
+   *          if not null, this module only ingests some of the tables of the
+   *          database while other modules ingest the rest. The rows collection
+   *          must already exist, and creating it, committing it and saving the
+   *          (shared) configuration is left to the caller.
+   * @param sharedMimeTypeDetector
+   *          the LOB MIME type detector, shared with the other modules
+   *          ingesting the database, or null to use a new one (or none, if
+   *          the detection is deferred)
+   * @param checkpointRecorder
+   *          records the rows and tables committed, skipping the ones already
+   *          recorded by a previous ingest, or null to ingest everything
+   *          without checkpoints
+   */
+  public DbvtkExportModule(String databaseUUID, CollectionStatus sharedConfiguration,
+    LobMimeTypeDetector sharedMimeTypeDetector, IngestCheckpointRecorder checkpointRecorder) {
     solrManager = ViewerFactory.getSolrManager();
+    this.partial = sharedConfiguration != null;
+    this.checkpointRecorder = checkpointRecorder;
+    if (sharedMimeTypeDetector != null) {
+      this.mimeTypeDetector = sharedMimeTypeDetector;
+    } else {
+      this.mimeTypeDetector = LobMimeTypeDetector.isDeferred() ? null : new LobMimeTypeDetector();
+    }
     try {
       retrieved = solrManager.retrieve(ViewerDatabase.class, databaseUUID);
-      collectionConfiguration = ViewerFactory.getConfigurationManager().getConfigurationCollection(databaseUUID,
-        databaseUUID);
+      if (partial) {
+        collectionConfiguration = sharedConfiguration;
+        firstRowIndexByTableId = getFirstRowIndexByTableId(retrieved);
+      } else {
+        collectionConfiguration = ViewerFactory.getConfigurationManager().getConfigurationCollection(databaseUUID,
+          databaseUUID);
+      }
     } catch (NotFoundException | GenericException e) {
       retrieved = null;
     }
     this.databaseUUID = databaseUUID;
   }
 
+  /**
+   * Row UUIDs are sequential over the whole database, in the order schemas and
+   * tables appear in the metadata. When tables are ingested independently, the
+   * first index of each table is obtained from the row counts of the tables
+   * before it, so that the UUIDs are the same as in a sequential ingest.
+   */
+  public static Map<String, Long> getFirstRowIndexByTableId(ViewerDatabase database) {
+    Map<String, Long> result = new HashMap<>();
+    long index = 1;
+    for (ViewerTable table : database.getMetadata().getTables().values()) {
+      result.put(table.getId(), index);
+      index += table.getCountRows();
+    }
+    return result;
+  }
+
+  /**
+   * @return the index after the last row of a table ingested independently,
+   *         i.e. the first index of the next table. Rows at or past it would
+   *         get the UUIDs of the rows of the next table, and overwrite them.
+   */
+  public static long getEndRowIndex(ViewerTable table, long firstRowIndex) {
+    return firstRowIndex + table.getCountRows();
+  }
+
+  /**
+   * @return the message of the failure of a table ingested independently that
+   *         has more rows than the count in the SIARD metadata
+   */
+  public static String getRowCountExceededMessage(ViewerTable table) {
+    return "Table " + table.getId() + " has more rows than the " + table.getCountRows()
+      + " declared in the SIARD metadata, its rows cannot be ingested independently of the other tables";
+  }
+
   /**
    * Initialize the database, this will be the first method called
    *
@@ -88,7 +177,16 @@ public class DbvtkExportModule implements DatabaseFilterModule {
    */
   @Override
   public void handleStructure(DatabaseStructure structure) throws ModuleException {
-    solrManager.addDatabaseRowCollection(databaseUUID);
+    if (!partial) {
+      solrManager.addDatabaseRowCollection(databaseUUID);
+      final String collection = SolrRowsCollectionRegistry.get(databaseUUID).getIndexName();
+      SolrClientFactory.get().beginBulkLoad(collection);
+      // the offline index is only attached at the end, so it has no checkpoints
+      if (checkpointRecorder == null && OfflineRowsIndexBuilder.isEnabled()) {
+        OfflineRowsIndexBuilder.begin(collection);
+      }
+    }
+    rowsWriter = solrManager.createRowsIndexWriter(databaseUUID);
   }
 
   /**
@@ -117,8 +215,20 @@ public class DbvtkExportModule implements DatabaseFilterModule {
   @Override
   public void handleDataOpenTable(String tableId) throws ModuleException {
     currentTable = retrieved.getMetadata().getTableById(tableId);
+    if (partial) {
+      rowIndex = firstRowIndexByTableId.get(tableId);
+      endRowIndex = getEndRowIndex(currentTable, rowIndex);
+    }
+    if (checkpointRecorder != null) {
+      skipCurrentTable = checkpointRecorder.isTableCompleted(tableId);
+      committedRowIndex = checkpointRecorder.getCommittedRowIndex(tableId);
+      rowsSinceCheckpoint = 0;
+      if (skipCurrentTable) {
+        return;
+      }
+    }
     solrManager.addTable(retrieved.getUuid(), currentTable);
-    // rowIndex = 1;
+    currentTablePlan = new TableConversionPlan(collectionConfiguration, currentTable);
   }
 
   /**
@@ -131,8 +241,27 @@ public class DbvtkExportModule implements DatabaseFilterModule {
    */
   @Override
   public void handleDataRow(Row row) throws ModuleException {
+    if (Thread.currentThread().isInterrupted()) {
+      throw new ModuleException().withMessage("The ingest of database " + databaseUUID + " was cancelled");
+    }
+    if (rowIndex >= endRowIndex) {
+      throw new ModuleException().withMessage(getRowCountExceededMessage(currentTable));
+    }
+    if (skipCurrentTable || rowIndex <= committedRowIndex) {
+      // already committed by a previous ingest
+      rowIndex++;
+      return;
+    }
     solrManager.addRow(retrieved.getUuid(),
-      ToolkitStructure2ViewerStructure.getRow(collectionConfiguration, currentTable, row, rowIndex++,retrieved.getPath()));
+      ToolkitStructure2ViewerStructure.getRow(currentTablePlan, row, rowIndex++, retrieved.getPath(),
+        mimeTypeDetector),
+      rowsWriter);
+
+    if (checkpointRecorder != null && checkpointRecorder.getCheckpointRows() > 0
+      && ++rowsSinceCheckpoint >= checkpointRecorder.getCheckpointRows()) {
+      checkpoint(currentTable.getId(), rowIndex - 1);
+      rowsSinceCheckpoint = 0;
+    }
   }
 
   /**
@@ -146,6 +275,17 @@ public class DbvtkExportModule implements DatabaseFilterModule {
   @Override
   public void handleDataCloseTable(String tableId) throws ModuleException {
     // committing + optimizing after whole database
+    if (checkpointRecorder != null && !skipCurrentTable) {
+      // recorded as completed on the next commit
+      completedTableIds.add(tableId);
+    }
+    if (partial && rowIndex < endRowIndex) {
+      LOGGER.warn("Table {} has {} rows, less than the {} declared in the SIARD metadata", tableId,
+        rowIndex - (endRowIndex - currentTable.getCountRows()), currentTable.getCountRows());
+    }
+    currentTablePlan = null;
+    skipCurrentTable = false;
+    committedRowIndex = 0;
   }
 
   /**
@@ -160,11 +300,35 @@ public class DbvtkExportModule implements DatabaseFilterModule {
   public void handleDataCloseSchema(String schemaName) throws ModuleException {
     // committing + optimizing after whole database
 
-    try {
-      ViewerFactory.getSolrClient().commit(SolrRowsCollectionRegistry.get(databaseUUID).getIndexName());
-    } catch (SolrServerException | IOException e) {
-      e.printStackTrace();
+    if (checkpointRecorder != null) {
+      checkpoint(null, 0);
+      return;
+    }
+
+    rowsWriter.flush();
+    final String collection = SolrRowsCollectionRegistry.get(databaseUUID).getIndexName();
+    if (partial || OfflineRowsIndexBuilder.isActive(collection)) {
+      // committed by the caller when all the tables are done, or when the
+      // offline index is attached
+      return;
     }
+    SolrClientFactory.get().commit(collection);
+  }
+
+  /**
+   * Commits the rows sent so far and records them, and the tables closed since
+   * the last checkpoint, as committed.
+   *
+   * @param tableId
+   *          the table being ingested, or null if none
+   * @param lastRowIndex
+   *          the index of the last row of the table sent
+   */
+  private void checkpoint(String tableId, long lastRowIndex) throws ModuleException {
+    rowsWriter.flush();
+    SolrClientFactory.get().commit(SolrRowsCollectionRegistry.get(databaseUUID).getIndexName());
+    checkpointRecorder.committed(tableId, lastRowIndex, completedTableIds, collectionConfiguration);
+    completedTableIds.clear();
   }
 
   /**
@@ -175,11 +339,32 @@ public class DbvtkExportModule implements DatabaseFilterModule {
    */
   @Override
   public void finishDatabase() throws ModuleException {
+    rowsWriter.close();
+    if (partial) {
+      return;
+    }
+    if (mimeTypeDetector != null) {
+      mimeTypeDetector.logStatistics(databaseUUID);
+    }
+    final String collection = SolrRowsCollectionRegistry.get(databaseUUID).getIndexName();
+    OfflineRowsIndexBuilder.finish(collection);
+    SolrClientFactory.get().endBulkLoad(collection);
     solrManager.markDatabaseAsReady(databaseUUID);
     collectionConfiguration.setConsolidateProperty(LargeObjectConsolidateProperty.NOT_CONSOLIDATED);
+    collectionConfiguration.clearTablesIngestState();
     ViewerFactory.getConfigurationManager().updateCollectionStatus(databaseUUID, collectionConfiguration);
   }
 
+  /**
+   * Discards the rows not yet indexed and stops the rows writer, when the
+   * migration failed or was cancelled before {@link #finishDatabase()}.
+   */
+  public void abort() {
+    if (rowsWriter != null) {
+      rowsWriter.abort();
+    }
+  }
+
   @Override
   public void updateModuleConfiguration(String s, Map<String, String> map, Map<String, String> map1) {
     // do nothing
@@ -12,11 +12,15 @@ import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.databasepreservation.model.exception.ModuleException;
 import org.apache.commons.lang3.StringUtils;
 
+import com.databasepreservation.common.client.models.status.collection.CollectionStatus;
+import com.databasepreservation.common.transformers.LobMimeTypeDetector;
 import com.databasepreservation.model.exception.LicenseNotAcceptedException;
 import com.databasepreservation.model.exception.UnsupportedModuleException;
 import com.databasepreservation.model.modules.DatabaseImportModule;
@@ -35,6 +39,49 @@ public class DbvtkModuleFactory implements DatabaseModuleFactory {
   private static final Parameter databaseUUID = new Parameter().longName(PARAMETER_DATABASE_UUID).shortName("dbid")
     .description("Database UUID to use in Solr").required(false).hasArgument(true).setOptionalArgument(false);
 
+  private final CollectionStatus sharedConfiguration;
+  private final LobMimeTypeDetector sharedMimeTypeDetector;
+  private final IngestCheckpointRecorder checkpointRecorder;
+  private final List<DbvtkExportModule> exportModules = new CopyOnWriteArrayList<>();
+
+  public DbvtkModuleFactory() {
+    this(null);
+  }
+
+  /**
+   * Factory for modules that ingest a whole database, recording checkpoints
+   * of the progress.
+   *
+   * @param checkpointRecorder
+   *          the recorder of the ingest checkpoints, or null for none
+   */
+  public DbvtkModuleFactory(IngestCheckpointRecorder checkpointRecorder) {
+    this.sharedConfiguration = null;
+    this.sharedMimeTypeDetector = null;
+    this.checkpointRecorder = checkpointRecorder;
+  }
+
+  /**
+   * Factory for modules that ingest only part of a database, concurrently with
+   * other modules ingesting the remaining tables into the same rows
+   * collection.
+   *
+   * @param sharedConfiguration
+   *          the collection configuration shared by all the modules, saved by
+   *          the caller once all of them finish
+   * @param sharedMimeTypeDetector
+   *          the LOB MIME type detector shared by all the modules
+   * @param checkpointRecorder
+   *          the recorder of the ingest checkpoints, shared by all the
+   *          modules, or null for none
+   */
+  public DbvtkModuleFactory(CollectionStatus sharedConfiguration, LobMimeTypeDetector sharedMimeTypeDetector,
+    IngestCheckpointRecorder checkpointRecorder) {
+    this.sharedConfiguration = sharedConfiguration;
+    this.sharedMimeTypeDetector = sharedMimeTypeDetector;
+    this.checkpointRecorder = checkpointRecorder;
+  }
+
   @Override
   public boolean producesImportModules() {
     return false;
@@ -92,7 +139,21 @@ public class DbvtkModuleFactory implements DatabaseModuleFactory {
     if (StringUtils.isBlank(pDatabaseUUID)) {
       throw new ModuleException().withMessage("Unable to obtain the database to ingest the data");
     } else {
-      return new DbvtkExportModule(pDatabaseUUID);
+      DbvtkExportModule module = new DbvtkExportModule(pDatabaseUUID, sharedConfiguration, sharedMimeTypeDetector,
+        checkpointRecorder);
+      exportModules.add(module);
+      return module;
+    }
+  }
+
+  /**
+   * Releases the export modules built by this factory after their migration
+   * failed or was cancelled, as {@link DbvtkExportModule#finishDatabase()} is
+   * then never called.
+   */
+  public void abort() {
+    for (DbvtkExportModule module : exportModules) {
+      module.abort();
     }
   }
 }
@@ -0,0 +1,123 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.modules.viewer;
+
+import java.util.Collection;
+
+import org.roda.core.data.exceptions.GenericException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.databasepreservation.common.client.models.status.collection.CollectionStatus;
+import com.databasepreservation.common.client.models.status.collection.IngestCheckpoint;
+import com.databasepreservation.common.exceptions.ViewerException;
+import com.databasepreservation.common.server.ViewerConfiguration;
+import com.databasepreservation.common.server.ViewerFactory;
+
+/**
+ * Records the checkpoints of the ingest of a database, shared by all the
+ * modules ingesting it. The modules only record rows and tables after
+ * committing them, so that a resumed ingest can skip them.
+ */
+public class IngestCheckpointRecorder {
+  private static final Logger LOGGER = LoggerFactory.getLogger(IngestCheckpointRecorder.class);
+
+  private static final int DEFAULT_CHECKPOINT_ROWS = 100000;
+
+  private final IngestCheckpoint checkpoint;
+  private final int checkpointRows;
+
+  public IngestCheckpointRecorder(IngestCheckpoint checkpoint) {
+    this.checkpoint = checkpoint;
+    this.checkpointRows = ViewerConfiguration.getInstance().getViewerConfigurationAsInt(DEFAULT_CHECKPOINT_ROWS,
+      ViewerConfiguration.PROPERTY_INGEST_CHECKPOINT_ROWS);
+  }
+
+  /**
+   * Loads the checkpoint left by an ingest of the database that did not
+   * finish.
+   *
+   * @return the recorder to resume the ingest, or null if there is nothing to
+   *         resume
+   */
+  public static IngestCheckpointRecorder resume(String databaseUUID) throws GenericException {
+    IngestCheckpoint checkpoint = ViewerFactory.getConfigurationManager().getIngestCheckpoint(databaseUUID);
+    return checkpoint != null ? new IngestCheckpointRecorder(checkpoint) : null;
+  }
+
+  /**
+   * Starts recording a new ingest of the database, replacing any previous
+   * checkpoint.
+   */
+  public static IngestCheckpointRecorder start(String databaseUUID) throws ViewerException {
+    IngestCheckpointRecorder recorder = new IngestCheckpointRecorder(new IngestCheckpoint(databaseUUID));
+    ViewerFactory.getConfigurationManager().updateIngestCheckpoint(recorder.checkpoint);
+    return recorder;
+  }
+
+  public String getDatabaseUUID() {
+    return checkpoint.getDatabaseUUID();
+  }
+
+  /**
+   * @return the number of rows of a table between checkpoints, or 0 if only
+   *         completed tables are recorded
+   */
+  public int getCheckpointRows() {
+    return Math.max(0, checkpointRows);
+  }
+
+  public synchronized boolean isTableCompleted(String tableId) {
+    return checkpoint.isTableCompleted(tableId);
+  }
+
+  public synchronized long getCommittedRowIndex(String tableId) {
+    return checkpoint.getCommittedRowIndex(tableId);
+  }
+
+  /**
+   * Records committed rows and tables. The collection status is saved with
+   * completed tables, as the ingest updates the status of their columns.
+   *
+   * @param tableId
+   *          the table being ingested, or null if none
+   * @param rowIndex
+   *          the index of the last committed row of the table
+   * @param completedTableIds
+   *          the tables completely committed
+   * @param collectionStatus
+   *          the collection status being updated by the ingest
+   */
+  public synchronized void committed(String tableId, long rowIndex, Collection<String> completedTableIds,
+    CollectionStatus collectionStatus) throws ViewerException {
+    for (String completedTableId : completedTableIds) {
+      checkpoint.addCompletedTable(completedTableId);
+    }
+    if (tableId != null && !checkpoint.isTableCompleted(tableId)) {
+      checkpoint.setCommittedRowIndex(tableId, rowIndex);
+    }
+
+    if (!completedTableIds.isEmpty()) {
+      ViewerFactory.getConfigurationManager().updateCollectionStatus(getDatabaseUUID(), collectionStatus);
+    }
+    ViewerFactory.getConfigurationManager().updateIngestCheckpoint(checkpoint);
+    LOGGER.debug("Checkpoint of database {}: {} tables completed", getDatabaseUUID(),
+      checkpoint.getCompletedTables().size());
+  }
+
+  /**
+   * Removes the checkpoint once the ingest finished.
+   */
+  public void finish() {
+    try {
+      ViewerFactory.getConfigurationManager().deleteIngestCheckpoint(getDatabaseUUID());
+    } catch (GenericException e) {
+      LOGGER.warn("Could not remove the ingest checkpoint of database {}", getDatabaseUUID(), e);
+    }
+  }
+}
@@ -473,6 +473,8 @@ public interface ClientMessages extends Messages {
 
   String humanizedTextForSolrError();
 
+  String humanizedTextForSolrResumable();
+
   String humanizedTextForJobStatusFailed();
 
   String humanizedTextForJobStatusCompleted();
@@ -1528,6 +1530,10 @@ public interface ClientMessages extends Messages {
 
   SafeHtml columnManagementNumericFormatterTextForPreviewDescription();
 
+  SafeHtml columnManagementNumericHistogramTextForDescription();
+
+  String columnManagementNumericHistogramBucket(String start, String end, long count);
+
   SafeHtml columnManagementCustomizeColumnTextForWidthDescription(String link);
 
   /********************************************
@@ -1551,6 +1557,10 @@ public interface ClientMessages extends Messages {
 
   String resourceNotAvailableTableHiddenDescription(String value);
 
+  String resourceNotAvailableTableNotIngestedDescription(String value);
+
+  String resourceNotAvailableTablesNotSearchable(String value);
+
   /********************************************
    * Configuration Errors
    *******************************************/
@@ -0,0 +1,144 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.server.index.utils;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.apache.solr.common.params.CursorMarkParams;
+import org.testng.annotations.Test;
+
+/**
+ * Checks that the cursors sent to the clients are only accepted for their
+ * query and offset, and that going back uses the cursor marks kept for the
+ * previous pages and the offset beyond them.
+ */
+@Test(groups = {"unit"})
+public class RowsCursorTest {
+  private static final String QUERY_KEY = "1a2b3c4d";
+  private static final long PAGE_SIZE = 10;
+
+  @Test
+  public void testDecodeEncoded() {
+    RowsCursor cursor = RowsCursor.atOffset(QUERY_KEY, 0).next(PAGE_SIZE, "AoE/mark+1=");
+    RowsCursor decoded = RowsCursor.decode(cursor.encode(), QUERY_KEY, PAGE_SIZE);
+
+    assertThat("decoded cursor", decoded, notNullValue());
+    assertThat("offset", decoded.getOffset(), equalTo(PAGE_SIZE));
+    assertThat("cursor mark", decoded.getCursorMark(), equalTo("AoE/mark+1="));
+    assertThat("previous cursor mark", decoded.previous(PAGE_SIZE).getCursorMark(),
+      equalTo(CursorMarkParams.CURSOR_MARK_START));
+  }
+
+  @Test
+  public void testDecodeOtherOffset() {
+    String cursor = RowsCursor.atOffset(QUERY_KEY, 0).next(PAGE_SIZE, "mark1").encode();
+
+    assertThat("cursor of the offset before", RowsCursor.decode(cursor, QUERY_KEY, 0), nullValue());
+    assertThat("cursor of the offset after", RowsCursor.decode(cursor, QUERY_KEY, 2 * PAGE_SIZE), nullValue());
+  }
+
+  @Test
+  public void testDecodeOtherQuery() {
+    String cursor = RowsCursor.atOffset(QUERY_KEY, 0).next(PAGE_SIZE, "mark1").encode();
+
+    assertThat("cursor of another query", RowsCursor.decode(cursor, "5e6f7a8b", PAGE_SIZE), nullValue());
+    assertThat("cursor without query", RowsCursor.decode(cursor, "", PAGE_SIZE), nullValue());
+  }
+
+  @Test
+  public void testDecodeInvalid() {
+    assertThat("null cursor", RowsCursor.decode(null, QUERY_KEY, 0), nullValue());
+    assertThat("empty cursor", RowsCursor.decode("", QUERY_KEY, 0), nullValue());
+    assertThat("not base64", RowsCursor.decode("not a cursor!", QUERY_KEY, 0), nullValue());
+    assertThat("no position", RowsCursor.decode(encode(QUERY_KEY), QUERY_KEY, 0), nullValue());
+    assertThat("position without mark", RowsCursor.decode(encode(QUERY_KEY + "|10"), QUERY_KEY, 10), nullValue());
+    assertThat("offset not a number", RowsCursor.decode(encode(QUERY_KEY + "|ten:mark"), QUERY_KEY, 10),
+      nullValue());
+    assertThat("invalid history", RowsCursor.decode(encode(QUERY_KEY + "|10:mark|0"), QUERY_KEY, 10), nullValue());
+  }
+
+  @Test
+  public void testPreviousOfFirstPage() {
+    assertThat("previous of the first page", RowsCursor.atOffset(QUERY_KEY, 0).previous(PAGE_SIZE), nullValue());
+  }
+
+  @Test
+  public void testHistoryLimit() {
+    int pages = 25;
+    RowsCursor cursor = RowsCursor.atOffset(QUERY_KEY, 0);
+    for (int page = 1; page <= pages; page++) {
+      cursor = roundTrip(cursor.next(PAGE_SIZE, "mark" + page));
+    }
+    assertThat("offset of the last page", cursor.getOffset(), equalTo(pages * PAGE_SIZE));
+
+    // only the 20 pages before the last one are reached back with their cursor
+    // marks, the ones before them by their offset
+    for (int page = pages - 1; page >= 0; page--) {
+      cursor = roundTrip(cursor.previous(PAGE_SIZE));
+      assertThat("offset of page " + page, cursor.getOffset(), equalTo(page * PAGE_SIZE));
+      String expected;
+      if (page >= pages - 20) {
+        expected = "mark" + page;
+      } else if (page == 0) {
+        expected = CursorMarkParams.CURSOR_MARK_START;
+      } else {
+        expected = null;
+      }
+      assertThat("cursor mark of page " + page, cursor.getCursorMark(), equalTo(expected));
+    }
+  }
+
+  @Test
+  public void testPreviousWithOtherPageSize() {
+    RowsCursor cursor = RowsCursor.atOffset(QUERY_KEY, 0);
+    for (int page = 1; page <= 3; page++) {
+      cursor = cursor.next(PAGE_SIZE, "mark" + page);
+    }
+
+    // the page before does not start where a kept page does
+    RowsCursor previous = cursor.previous(2 * PAGE_SIZE);
+    assertThat("offset", previous.getOffset(), equalTo(PAGE_SIZE));
+    assertThat("cursor mark", previous.getCursorMark(), nullValue());
+
+    // and does not go before the first page
+    previous = cursor.previous(5 * PAGE_SIZE);
+    assertThat("offset", previous.getOffset(), equalTo(0L));
+    assertThat("cursor mark", previous.getCursorMark(), equalTo(CursorMarkParams.CURSOR_MARK_START));
+  }
+
+  @Test
+  public void testPagesFoundByOffset() {
+    // a page requested by its offset has no cursor mark, and is not kept
+    RowsCursor cursor = RowsCursor.atOffset(QUERY_KEY, 5 * PAGE_SIZE);
+    assertThat("cursor mark", cursor.getCursorMark(), nullValue());
+
+    cursor = roundTrip(cursor.next(PAGE_SIZE, "mark6"));
+    assertThat("offset", cursor.getOffset(), equalTo(6 * PAGE_SIZE));
+    assertThat("cursor mark", cursor.getCursorMark(), equalTo("mark6"));
+
+    RowsCursor previous = roundTrip(cursor.previous(PAGE_SIZE));
+    assertThat("previous offset", previous.getOffset(), equalTo(5 * PAGE_SIZE));
+    assertThat("previous cursor mark", previous.getCursorMark(), nullValue());
+  }
+
+  private static RowsCursor roundTrip(RowsCursor cursor) {
+    RowsCursor decoded = RowsCursor.decode(cursor.encode(), QUERY_KEY, cursor.getOffset());
+    assertThat("decoded cursor of offset " + cursor.getOffset(), decoded, notNullValue());
+    return decoded;
+  }
+
+  private static String encode(String decoded) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(decoded.getBytes(StandardCharsets.UTF_8));
+  }
+}
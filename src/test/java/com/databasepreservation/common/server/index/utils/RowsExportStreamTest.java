@@ -0,0 +1,174 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.server.index.utils;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.solr.client.solrj.io.SolrClientCache;
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.comp.StreamComparator;
+import org.apache.solr.client.solrj.io.stream.StreamContext;
+import org.apache.solr.client.solrj.io.stream.TupleStream;
+import org.apache.solr.client.solrj.io.stream.expr.Explanation;
+import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
+import org.apache.solr.common.SolrDocument;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.databasepreservation.common.api.utils.HandlebarsUtils;
+import com.databasepreservation.common.client.ViewerConstants;
+import com.databasepreservation.common.client.models.status.collection.ColumnStatus;
+import com.databasepreservation.common.client.models.status.collection.ExportStatus;
+import com.databasepreservation.common.client.models.status.collection.TableStatus;
+import com.databasepreservation.common.client.models.status.collection.TemplateStatus;
+import com.databasepreservation.common.client.models.structure.ViewerRow;
+import com.databasepreservation.common.client.models.structure.ViewerType;
+import com.databasepreservation.common.exceptions.ViewerException;
+import com.databasepreservation.common.server.index.schema.collections.RowsCollection;
+
+/**
+ * Checks that the values exported from the docValues of the /export handler
+ * are the same as the values exported from the stored fields.
+ */
+@Test(groups = {"unit"})
+public class RowsExportStreamTest {
+  private static final String DATETIME_COLUMN = ViewerConstants.SOLR_INDEX_ROW_COLUMN_NAME_PREFIX + "0"
+    + ViewerConstants.SOLR_DYN_DATE;
+  private static final String FLOAT_COLUMN = ViewerConstants.SOLR_INDEX_ROW_COLUMN_NAME_PREFIX + "1"
+    + ViewerConstants.SOLR_DYN_DOUBLE;
+
+  @DataProvider
+  public Iterator<Object[]> valuesProvider() {
+    List<Object[]> tests = new ArrayList<>();
+    // the /export handler writes the dates as text, without the zero milliseconds
+    tests.add(new Object[] {"2000-01-01T10:30:00Z", "2000-01-01T10:30:00Z", 1.5d, 1.5d});
+    tests.add(new Object[] {"2000-02-29T23:59:59.120Z", "2000-02-29T23:59:59.120Z", 1.0E10d, 1.0E10d});
+    tests.add(new Object[] {"1969-12-31T23:59:59.999Z", "1969-12-31T23:59:59.999Z", 1.0E-7d, 1.0E-7d});
+    tests.add(new Object[] {"1583-01-01T00:00:00Z", "1583-01-01T00:00:00.000Z", -123.456d, -123.456d});
+    tests.add(new Object[] {"9999-12-31T23:59:59.500Z", Date.from(Instant.parse("9999-12-31T23:59:59.500Z")),
+      0.1d, 0.1d});
+    // integral doubles may be read as integers
+    tests.add(new Object[] {"2020-06-30T12:00:00Z", "2020-06-30T12:00:00Z", 42.0d, 42L});
+    tests.add(new Object[] {"2020-06-30T12:00:00Z", "2020-06-30T12:00:00Z", -0.0d, -0.0d});
+    return tests.iterator();
+  }
+
+  @Test(dataProvider = "valuesProvider")
+  public void testSameValuesAsStoredFields(String storedDate, Object exportedDate, double storedDouble,
+    Number exportedDouble) throws ViewerException, IOException {
+    TableStatus table = newTable();
+    List<String> fields = Arrays.asList(DATETIME_COLUMN, FLOAT_COLUMN);
+
+    SolrDocument doc = new SolrDocument();
+    doc.setField(ViewerConstants.INDEX_ID, "1");
+    doc.setField(DATETIME_COLUMN, Date.from(Instant.parse(storedDate)));
+    doc.setField(FLOAT_COLUMN, storedDouble);
+    ViewerRow row = new RowsCollection("database").fromSolrDocument(doc);
+    List<String> storedValues = HandlebarsUtils.getCellValues(row, table, new ArrayList<>(fields));
+
+    Map<String, Object> exported = new HashMap<>();
+    exported.put(DATETIME_COLUMN, exportedDate);
+    exported.put(FLOAT_COLUMN, exportedDouble);
+    List<String> exportedValues;
+    try (RowsExportStream stream = new RowsExportStream(fields, new SolrClientCache(),
+      new ListTupleStream(Collections.singletonList(new Tuple(exported))))) {
+      exportedValues = stream.read();
+      for (int i = 0; i < fields.size(); i++) {
+        exportedValues.set(i, HandlebarsUtils.getExportValue(table.getColumnById(fields.get(i)),
+          exportedValues.get(i)));
+      }
+      assertThat(stream.read(), equalTo(null));
+    }
+
+    assertThat(exportedValues, equalTo(storedValues));
+  }
+
+  private static TableStatus newTable() {
+    TableStatus table = new TableStatus();
+    table.setColumns(Arrays.asList(newColumn(DATETIME_COLUMN, 0, ViewerType.dbTypes.DATETIME),
+      newColumn(FLOAT_COLUMN, 1, ViewerType.dbTypes.NUMERIC_FLOATING_POINT)));
+    return table;
+  }
+
+  private static ColumnStatus newColumn(String id, int index, ViewerType.dbTypes type) {
+    ColumnStatus column = new ColumnStatus();
+    column.setId(id);
+    column.setName(id);
+    column.setCustomName(id);
+    column.setColumnIndex(index);
+    column.setType(type);
+    ExportStatus exportStatus = new ExportStatus();
+    exportStatus.setTemplateStatus(new TemplateStatus());
+    column.setExportStatus(exportStatus);
+    return column;
+  }
+
+  /**
+   * Reads the given tuples, as the /export handler would, followed by the end
+   * of the stream.
+   */
+  private static class ListTupleStream extends TupleStream {
+    private final Iterator<Tuple> tuples;
+
+    ListTupleStream(List<Tuple> tuples) {
+      this.tuples = tuples.iterator();
+    }
+
+    @Override
+    public void setStreamContext(StreamContext context) {
+      // not needed
+    }
+
+    @Override
+    public List<TupleStream> children() {
+      return Collections.emptyList();
+    }
+
+    @Override
+    public void open() {
+      // not needed
+    }
+
+    @Override
+    public void close() {
+      // not needed
+    }
+
+    @Override
+    public Tuple read() {
+      if (tuples.hasNext()) {
+        return tuples.next();
+      }
+      Map<String, Object> eof = new HashMap<>();
+      eof.put("EOF", true);
+      return new Tuple(eof);
+    }
+
+    @Override
+    public StreamComparator getStreamSort() {
+      return null;
+    }
+
+    @Override
+    public Explanation toExplanation(StreamFactory factory) {
+      return null;
+    }
+  }
+}
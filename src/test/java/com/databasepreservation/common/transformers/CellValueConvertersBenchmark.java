@@ -0,0 +1,136 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.transformers;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the cell value conversions used during ingest with the previous
+ * ones (Joda-Time parsing and a regular expression). Run it with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=com.databasepreservation.common.transformers.CellValueConvertersBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CellValueConvertersBenchmark {
+  private static final String[] DATETIMES = {"2019-03-08T10:15:30", "2019-03-08T10:15:30.123",
+    "1999-12-31T23:59:59.5+02:00", "2020-02-29T00:00:00Z", "2004-06-15T08:30:00-05:00"};
+  private static final String[] DATES = {"2019-03-08", "1999-12-31", "2020-02-29", "2004-06-15"};
+  private static final String[] TIMES = {"10:15:30", "23:59:59.123", "00:00:00", "08:30:00.5"};
+  private static final String[] TEXTS = {"Lorem ipsum dolor sit amet, consectetur adipiscing elit",
+    "Rua da Liberdade, 123 - 4710-000 Braga", "1234567.89", "line one\nline two\tand a tab",
+    "zero\u200Bwidth space"};
+
+  @Setup
+  public void checkSameResults() {
+    for (String value : DATETIMES) {
+      check(CellValueConverters.jodaDateTime(value), CellValueConverters.dateTimeToUTC(value));
+    }
+    for (String value : DATES) {
+      check(CellValueConverters.jodaDate(value), CellValueConverters.dateToUTC(value));
+    }
+    for (String value : TIMES) {
+      check(CellValueConverters.jodaTime(value), CellValueConverters.timeToUTC(value));
+    }
+    for (String value : TEXTS) {
+      check(removeUnicodeWithRegex(value), CellValueConverters.removeControlCharacters(value));
+    }
+  }
+
+  private static void check(String expected, String actual) {
+    if (!expected.equals(actual)) {
+      throw new IllegalStateException("Expected " + expected + " but got " + actual);
+    }
+  }
+
+  private static String removeUnicodeWithRegex(String value) {
+    return value.replaceAll("\\p{C}", "");
+  }
+
+  @Benchmark
+  public void dateTimeJoda(Blackhole blackhole) {
+    for (String value : DATETIMES) {
+      blackhole.consume(CellValueConverters.jodaDateTime(value));
+    }
+  }
+
+  @Benchmark
+  public void dateTimeDirect(Blackhole blackhole) {
+    for (String value : DATETIMES) {
+      blackhole.consume(CellValueConverters.dateTimeToUTC(value));
+    }
+  }
+
+  @Benchmark
+  public void dateJoda(Blackhole blackhole) {
+    for (String value : DATES) {
+      blackhole.consume(CellValueConverters.jodaDate(value));
+    }
+  }
+
+  @Benchmark
+  public void dateDirect(Blackhole blackhole) {
+    for (String value : DATES) {
+      blackhole.consume(CellValueConverters.dateToUTC(value));
+    }
+  }
+
+  @Benchmark
+  public void timeJoda(Blackhole blackhole) {
+    for (String value : TIMES) {
+      blackhole.consume(CellValueConverters.jodaTime(value));
+    }
+  }
+
+  @Benchmark
+  public void timeDirect(Blackhole blackhole) {
+    for (String value : TIMES) {
+      blackhole.consume(CellValueConverters.timeToUTC(value));
+    }
+  }
+
+  @Benchmark
+  public void textRegex(Blackhole blackhole) {
+    for (String value : TEXTS) {
+      blackhole.consume(removeUnicodeWithRegex(value));
+    }
+  }
+
+  @Benchmark
+  public void textScanner(Blackhole blackhole) {
+    for (String value : TEXTS) {
+      blackhole.consume(CellValueConverters.removeControlCharacters(value));
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(CellValueConvertersBenchmark.class.getSimpleName()).build()).run();
+  }
+}
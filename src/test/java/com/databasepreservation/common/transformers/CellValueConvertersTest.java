@@ -0,0 +1,146 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.transformers;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ * Checks that the conversions of the date and time values are the same as the
+ * ones of Joda-Time, which they replace.
+ */
+@Test(groups = {"unit"})
+public class CellValueConvertersTest {
+  private static final String[] OFFSETS = {"", "Z", "+00:00", "-00:00", "+01:00", "-01:00", "+05:30", "-04:30",
+    "+14:00", "-12:00", "+23:59", "-23:59"};
+
+  private static final String[] FRACTIONS = {"", ".1", ".12", ".123", ".1234", ".123456", ".123456789", ".0",
+    ".000", ".999"};
+
+  @DataProvider
+  public Iterator<Object[]> dateTimeProvider() {
+    List<Object[]> tests = new ArrayList<>();
+
+    // day, month and year rollover, in both directions
+    String[] dateTimes = {"2000-01-01T00:00:00", "2000-01-01T23:59:59", "2000-01-31T23:30:00", "2000-03-01T00:15:00",
+      "2000-12-31T23:59:59", "2001-01-01T00:00:00", "1999-12-31T22:00:00", "2020-06-30T23:00:00",
+      "2020-07-01T01:00:00", "1970-01-01T00:00:00", "1969-12-31T23:59:59", "1583-01-01T00:00:00",
+      "9999-12-31T23:59:59"};
+    for (String dateTime : dateTimes) {
+      for (String offset : OFFSETS) {
+        tests.add(new Object[] {dateTime + offset});
+      }
+    }
+
+    // leap days, including the centuries that are and are not leap years
+    String[] leapDays = {"2000-02-29T00:00:00", "2000-02-29T23:59:59", "2004-02-29T12:00:00", "1600-02-29T00:30:00",
+      "2400-02-29T23:30:00", "2001-02-28T23:59:59", "1900-02-28T23:00:00", "2100-03-01T00:00:00"};
+    for (String leapDay : leapDays) {
+      for (String offset : OFFSETS) {
+        tests.add(new Object[] {leapDay + offset});
+      }
+    }
+
+    // fractional seconds of different lengths
+    for (String fraction : FRACTIONS) {
+      for (String offset : OFFSETS) {
+        tests.add(new Object[] {"2000-12-31T23:59:59" + fraction + offset});
+      }
+    }
+
+    // the values that are always converted by Joda-Time
+    String[] fallbacks = {"2000-01-01T10:30", "2000-01-01T10:30:00+01", "2000-01-01T10:30:00+0100",
+      "2000-01-01T10:30:00,5", "2000-01-01T24:00:00", "1582-10-15T00:00:00", "1500-01-01T12:00:00+01:00",
+      "0001-01-01T00:00:00Z", "2000-1-1T10:30:00"};
+    for (String fallback : fallbacks) {
+      tests.add(new Object[] {fallback});
+    }
+
+    return tests.iterator();
+  }
+
+  @Test(dataProvider = "dateTimeProvider")
+  public void testDateTimeToUTC(String value) {
+    assertThat(value, convertOrFail(() -> CellValueConverters.dateTimeToUTC(value)),
+      equalTo(convertOrFail(() -> CellValueConverters.jodaDateTime(value))));
+  }
+
+  @DataProvider
+  public Iterator<Object[]> dateProvider() {
+    List<Object[]> tests = new ArrayList<>();
+    String[] dates = {"2000-01-01", "2000-02-29", "2004-02-29", "1600-02-29", "2001-02-28", "2000-12-31",
+      "1970-01-01", "1969-12-31", "1583-01-01", "9999-12-31"};
+    for (String date : dates) {
+      tests.add(new Object[] {date});
+    }
+
+    // the values that are always converted by Joda-Time
+    String[] fallbacks = {"2000-01-01Z", "2000-01-01+01:00", "2000-01-01-01:00", "2000-1-1", "1582-10-15",
+      "1500-01-01", "20000101"};
+    for (String fallback : fallbacks) {
+      tests.add(new Object[] {fallback});
+    }
+
+    return tests.iterator();
+  }
+
+  @Test(dataProvider = "dateProvider")
+  public void testDateToUTC(String value) {
+    assertThat(value, convertOrFail(() -> CellValueConverters.dateToUTC(value)),
+      equalTo(convertOrFail(() -> CellValueConverters.jodaDate(value))));
+  }
+
+  @DataProvider
+  public Iterator<Object[]> timeProvider() {
+    List<Object[]> tests = new ArrayList<>();
+    String[] times = {"00:00:00", "23:59:59", "12:30:00", "00:00:01"};
+    for (String time : times) {
+      for (String fraction : FRACTIONS) {
+        tests.add(new Object[] {time + fraction});
+      }
+    }
+
+    // the values that are always converted by Joda-Time
+    String[] fallbacks = {"12:30:00Z", "12:30:00+01:00", "23:30:00-01:00", "00:30:00.5+01:00", "12:30",
+      "24:00:00", "12:30:00,5"};
+    for (String fallback : fallbacks) {
+      tests.add(new Object[] {fallback});
+    }
+
+    return tests.iterator();
+  }
+
+  @Test(dataProvider = "timeProvider")
+  public void testTimeToUTC(String value) {
+    assertThat(value, convertOrFail(() -> CellValueConverters.timeToUTC(value)),
+      equalTo(convertOrFail(() -> CellValueConverters.jodaTime(value))));
+  }
+
+  private interface Conversion {
+    String convert();
+  }
+
+  /**
+   * @return the converted value, or the class of the exception thrown, so that
+   *         invalid values are also expected to fail in the same way
+   */
+  private static String convertOrFail(Conversion conversion) {
+    try {
+      return conversion.convert();
+    } catch (RuntimeException e) {
+      return e.getClass().getName();
+    }
+  }
+}
@@ -0,0 +1,124 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/dbptk-ui
+ */
+package com.databasepreservation.common.transformers;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.databasepreservation.utils.XMLUtils;
+
+/**
+ * Checks that the cells read from the SIARD table files are decoded as the
+ * DBPTK SIARD import does, and that the cell elements are mapped to their
+ * columns.
+ */
+@Test(groups = {"unit"})
+public class SIARDTableReaderTest {
+  @DataProvider
+  public Iterator<Object[]> escapedProvider() {
+    List<Object[]> tests = new ArrayList<>();
+
+    // no escapes
+    tests.add(new Object[] {"", ""});
+    tests.add(new Object[] {"value", "value"});
+    tests.add(new Object[] {"a\u00e7\u00e3o", "a\u00e7\u00e3o"});
+
+    // the escaped backslash, alone and next to other escapes
+    tests.add(new Object[] {"\\u005c", "\\"});
+    tests.add(new Object[] {"a\\u005cb", "a\\b"});
+    tests.add(new Object[] {"\\u005c\\u005c", "\\\\"});
+    tests.add(new Object[] {"\\u005cu0041", "\\u0041"});
+
+    // the characters that cannot be in XML
+    tests.add(new Object[] {"\\u0000", "\u0000"});
+    tests.add(new Object[] {"a\\u0001b\\u001fc", "a\u0001b\u001fc"});
+    tests.add(new Object[] {"\\u0009\\u000a\\u000d", "\t\n\r"});
+    tests.add(new Object[] {"\\ufffe\\uFFFF", "\ufffe\uffff"});
+
+    // the hexadecimal digits in both cases
+    tests.add(new Object[] {"\\u00e7\\u00E7", "\u00e7\u00e7"});
+    tests.add(new Object[] {"\\u20aC", "\u20ac"});
+    return tests.iterator();
+  }
+
+  @DataProvider
+  public Iterator<Object[]> notEscapedProvider() {
+    List<Object[]> tests = new ArrayList<>();
+
+    // a backslash that is not an escape
+    tests.add(new Object[] {"\\", "\\"});
+    tests.add(new Object[] {"a\\b", "a\\b"});
+    tests.add(new Object[] {"C:\\temp\\file", "C:\\temp\\file"});
+    tests.add(new Object[] {"\\\\u0041", "\\A"});
+    tests.add(new Object[] {"\\x0041", "\\x0041"});
+
+    // u at the end of the value, without its 4 hexadecimal digits
+    tests.add(new Object[] {"\\u", "\\u"});
+    tests.add(new Object[] {"a\\u", "a\\u"});
+    tests.add(new Object[] {"a\\u0", "a\\u0"});
+    tests.add(new Object[] {"a\\u00", "a\\u00"});
+    tests.add(new Object[] {"a\\u004", "a\\u004"});
+    tests.add(new Object[] {"\\u0041\\u004", "A\\u004"});
+
+    // digits that are not hexadecimal, or a sign
+    tests.add(new Object[] {"\\u00g1", "\\u00g1"});
+    tests.add(new Object[] {"\\u+041", "\\u+041"});
+    tests.add(new Object[] {"\\u-041", "\\u-041"});
+    tests.add(new Object[] {"\\u 041", "\\u 041"});
+    return tests.iterator();
+  }
+
+  @Test(dataProvider = "escapedProvider")
+  public void testDecodeAsDBPTK(String value, String expected) {
+    assertThat("decode of " + value, SIARDTableReader.decode(value), equalTo(XMLUtils.decode(value)));
+    assertThat("decode of " + value, SIARDTableReader.decode(value), equalTo(expected));
+  }
+
+  @Test(dataProvider = "notEscapedProvider")
+  public void testDecodeKeepsWhatIsNotAnEscape(String value, String expected) {
+    assertThat("decode of " + value, SIARDTableReader.decode(value), equalTo(expected));
+  }
+
+  @DataProvider
+  public Iterator<Object[]> elementNameProvider() {
+    List<Object[]> tests = new ArrayList<>();
+
+    // the cells, as written by DBPTK for each column
+    for (int column = 1; column <= 1000; column++) {
+      tests.add(new Object[] {"c" + column, column - 1});
+    }
+    tests.add(new Object[] {"c01", 0});
+    tests.add(new Object[] {"c2147483647", Integer.MAX_VALUE - 1});
+
+    // not cells
+    tests.add(new Object[] {"c", -1});
+    tests.add(new Object[] {"c0", -1});
+    tests.add(new Object[] {"cx", -1});
+    tests.add(new Object[] {"c1x", -1});
+    tests.add(new Object[] {"c-1", -1});
+    tests.add(new Object[] {"C1", -1});
+    tests.add(new Object[] {"a1", -1});
+    tests.add(new Object[] {"row", -1});
+    tests.add(new Object[] {"", -1});
+    tests.add(new Object[] {"c2147483648", -1});
+    tests.add(new Object[] {"c99999999999", -1});
+    return tests.iterator();
+  }
+
+  @Test(dataProvider = "elementNameProvider")
+  public void testGetColumnIndex(String elementName, int expected) {
+    assertThat("column of " + elementName, SIARDTableReader.getColumnIndex(elementName), equalTo(expected));
+  }
+}